@@ -0,0 +1,159 @@
+package com.example1.springbootdemo.benchmark;
+
+import com.example1.springbootdemo.datasource.AdaptivePoolController;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 突发负载下固定大小连接池与自适应连接池的对比
+ *
+ * 每次测量是一次突发：burstSize个虚拟线程同时各执行一条占用连接queryMillis毫秒的查询（H2中调用Thread.sleep，
+ * 模拟不占用本机CPU的远程数据库），测量全部完成的耗时；两次突发之间空闲idleMillis毫秒。
+ * fixed-10为HikariCP的默认大小，fixed-50为按峰值配置的大小，adaptive从10个连接开始、在5到50之间调整，
+ * 调整周期缩短为100毫秒。每轮测量期间的扩缩容次数（burst:grows、burst:shrinks）和
+ * 测量结束时的最大连接数（burst:maxPoolSize）作为辅助结果写入JMH结果文件
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConnectionPoolBurstBenchmark {
+
+    @Param({"fixed-10", "fixed-50", "adaptive"})
+    private String pool;
+
+    @Param("200")
+    private int burstSize;
+
+    @Param("2")
+    private int queryMillis;
+
+    @Param("300")
+    private int idleMillis;
+
+    private HikariDataSource dataSource;
+    private SimpleMeterRegistry registry;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:pool-burst;DB_CLOSE_DELAY=-1");
+        dataSource.setPoolName("burst-" + pool);
+        dataSource.setConnectionTimeout(30_000);
+        int size = pool.equals("fixed-50") ? 50 : 10;
+        dataSource.setMaximumPoolSize(size);
+        dataSource.setMinimumIdle(size);
+        dataSource.setIdleTimeout(10_000);
+
+        registry = new SimpleMeterRegistry();
+        if (pool.equals("adaptive")) {
+            AdaptivePoolController controller = new AdaptivePoolController(() -> List.of(dataSource), true, 5, 50,
+                    Duration.ofMillis(5), Duration.ofHours(1));
+            controller.bindTo(registry);
+            scheduler = Executors.newSingleThreadScheduledExecutor();
+            scheduler.scheduleWithFixedDelay(controller::adjust, 100, 100, TimeUnit.MILLISECONDS);
+        }
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE ALIAS IF NOT EXISTS SLEEP FOR \"java.lang.Thread.sleep(long)\"");
+        }
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        executor.close();
+        dataSource.close();
+    }
+
+    /**
+     * 两次突发之间的空闲期，不计入测量时间
+     */
+    @TearDown(Level.Invocation)
+    public void idle() throws InterruptedException {
+        Thread.sleep(idleMillis);
+    }
+
+    @Benchmark
+    public int burst(Resizes resizes) throws Exception {
+        List<Future<Boolean>> queries = new ArrayList<>(burstSize);
+        for (int i = 0; i < burstSize; i++) {
+            queries.add(executor.submit(() -> {
+                try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                    return statement.execute("CALL SLEEP(" + queryMillis + ")");
+                }
+            }));
+        }
+        int completed = 0;
+        for (Future<Boolean> query : queries) {
+            query.get();
+            completed++;
+        }
+        return completed;
+    }
+
+    /**
+     * 扩缩容次数，固定大小的连接池始终为0
+     */
+    private double resizes(String direction) {
+        Counter counter = registry.find("todo.db.pool.resizes").tag("direction", direction).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    /**
+     * 每轮测量期间的扩缩容次数，以及最后一轮测量结束时的最大连接数
+     * EVENTS类型的辅助结果按测量轮次累加，因此最大连接数只在最后一轮报告
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Resizes {
+
+        private ConnectionPoolBurstBenchmark benchmark;
+        private boolean last;
+        private int measured;
+        private double growsAtStart;
+        private double shrinksAtStart;
+
+        @Setup(Level.Iteration)
+        public void start(ConnectionPoolBurstBenchmark benchmark, IterationParams iteration) {
+            this.benchmark = benchmark;
+            last = iteration.getType() == IterationType.MEASUREMENT && ++measured == iteration.getCount();
+            growsAtStart = benchmark.resizes("grow");
+            shrinksAtStart = benchmark.resizes("shrink");
+        }
+
+        public double grows() {
+            return benchmark.resizes("grow") - growsAtStart;
+        }
+
+        public double shrinks() {
+            return benchmark.resizes("shrink") - shrinksAtStart;
+        }
+
+        public int maxPoolSize() {
+            return last ? benchmark.dataSource.getMaximumPoolSize() : 0;
+        }
+    }
+}
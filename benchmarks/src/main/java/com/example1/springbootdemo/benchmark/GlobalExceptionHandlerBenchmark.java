@@ -0,0 +1,85 @@
+package com.example1.springbootdemo.benchmark;
+
+import com.example1.springbootdemo.controller.TodoController;
+import com.example1.springbootdemo.dto.TodoRequest;
+import com.example1.springbootdemo.exception.GlobalExceptionHandler;
+import com.example1.springbootdemo.exception.TodoNotFoundException;
+import com.example1.springbootdemo.exception.TodoVersionMismatchException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GlobalExceptionHandler构建错误响应的基准测试
+ * 异常对象预先创建，只测量处理器构建响应（以及序列化响应体）的开销，不包含异常本身创建和抛出的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GlobalExceptionHandlerBenchmark {
+
+    private GlobalExceptionHandler handler;
+    private ObjectMapper objectMapper;
+
+    private TodoNotFoundException notFound;
+    private TodoVersionMismatchException versionMismatch;
+    private IllegalArgumentException illegalArgument;
+    private MethodArgumentNotValidException validation;
+
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchMethodException {
+        handler = new GlobalExceptionHandler();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        notFound = new TodoNotFoundException(42L);
+        versionMismatch = new TodoVersionMismatchException(42L);
+        illegalArgument = new IllegalArgumentException("优先级必须在1-3之间");
+
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(new TodoRequest(), "todoRequest");
+        bindingResult.addError(new FieldError("todoRequest", "content", "任务内容不能为空"));
+        bindingResult.addError(new FieldError("todoRequest", "priority", "优先级最大值为3"));
+        MethodParameter parameter = new MethodParameter(
+                TodoController.class.getMethod("createTodo", TodoRequest.class), 0);
+        validation = new MethodArgumentNotValidException(parameter, bindingResult);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, Object>> notFound() {
+        return handler.handleTodoNotFoundException(notFound);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, Object>> versionMismatch() {
+        return handler.handleTodoVersionMismatchException(versionMismatch);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, Object>> illegalArgument() {
+        return handler.handleIllegalArgumentException(illegalArgument);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, Object>> validation() {
+        return handler.handleMethodArgumentNotValidException(validation);
+    }
+
+    /**
+     * 构建响应并序列化响应体，对应一次404请求在应用内的完整开销
+     */
+    @Benchmark
+    public byte[] notFoundSerialized() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(handler.handleTodoNotFoundException(notFound).getBody());
+    }
+}
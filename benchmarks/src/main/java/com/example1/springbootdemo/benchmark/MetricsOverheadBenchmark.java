@@ -0,0 +1,127 @@
+package com.example1.springbootdemo.benchmark;
+
+import com.example1.springbootdemo.config.MetricsConfig;
+import com.example1.springbootdemo.metrics.TodoMetrics;
+import com.example1.springbootdemo.repository.TodoRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.actuate.metrics.AutoTimer;
+import org.springframework.boot.actuate.metrics.data.DefaultRepositoryTagsProvider;
+import org.springframework.boot.actuate.metrics.data.MetricsRepositoryMethodInvocationListener;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener.RepositoryMethodInvocation;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener.RepositoryMethodInvocationResult;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 监控指标采集开销基准测试
+ * 使用与应用相同的Prometheus注册表和直方图配置，分别测量：
+ * 经过代理但没有计时的调用（基线，TodoService本身已有事务代理）、经应用中同一个Advisor计时的调用、
+ * 一次仓库方法耗时记录和一次返回条数记录。timedProxy与plainProxy之差即每次服务调用的计时开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+
+    /**
+     * 模拟被计时的服务，方法本身几乎没有开销，测到的时间就是代理和计时的开销
+     */
+    @Timed("todo.service")
+    public static class TimedTarget {
+
+        public long work(long value) {
+            return value + 1;
+        }
+    }
+
+    private PrometheusMeterRegistry registry;
+    private TimedTarget plainProxy;
+    private TimedTarget timedProxy;
+    private MetricsRepositoryMethodInvocationListener repositoryListener;
+    private RepositoryMethodInvocation repositoryInvocation;
+    private TodoMetrics todoMetrics;
+    private long value;
+
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchMethodException {
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        // 与application.properties中的management.metrics.distribution配置一致
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getName().equals("todo.service") || id.getName().equals("spring.data.repository.invocations")) {
+                    return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+                }
+                if (id.getName().equals("todo.result.size")) {
+                    return DistributionStatisticConfig.builder()
+                            .serviceLevelObjectives(1, 5, 10, 20, 50, 100, 500, 1000, 10000)
+                            .build().merge(config);
+                }
+                return config;
+            }
+        });
+
+        ProxyFactory plainFactory = new ProxyFactory(new TimedTarget());
+        plainFactory.setProxyTargetClass(true);
+        plainProxy = (TimedTarget) plainFactory.getProxy();
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", registry);
+        ProxyFactory timedFactory = new ProxyFactory(new TimedTarget());
+        timedFactory.setProxyTargetClass(true);
+        timedFactory.addAdvisor(MetricsConfig.timedMethodAdvisor(beanFactory.getBeanProvider(MeterRegistry.class)));
+        timedProxy = (TimedTarget) timedFactory.getProxy();
+
+        repositoryListener = new MetricsRepositoryMethodInvocationListener(() -> registry,
+                new DefaultRepositoryTagsProvider(), "spring.data.repository.invocations", AutoTimer.ENABLED);
+        repositoryInvocation = new RepositoryMethodInvocation(TodoRepository.class,
+                TodoRepository.class.getMethod("findById", Object.class), new SuccessResult(), 250_000);
+
+        todoMetrics = new TodoMetrics(registry);
+    }
+
+    @Benchmark
+    public long plainProxy() {
+        return plainProxy.work(value++);
+    }
+
+    @Benchmark
+    public long timedProxy() {
+        return timedProxy.work(value++);
+    }
+
+    @Benchmark
+    public void repositoryInvocation() {
+        repositoryListener.afterInvocation(repositoryInvocation);
+    }
+
+    @Benchmark
+    public void resultSize() {
+        todoMetrics.recordListResult(20);
+    }
+
+    private static class SuccessResult implements RepositoryMethodInvocationResult {
+
+        @Override
+        public State getState() {
+            return State.SUCCESS;
+        }
+
+        @Override
+        public Throwable getError() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example1.springbootdemo.benchmark;
+
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoListResponse;
+import com.example1.springbootdemo.dto.TodoView;
+import com.example1.springbootdemo.entity.Todo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Todo列表JSON序列化基准测试
+ * ObjectMapper的配置与Spring Boot自动配置的一致，序列化的是列表接口的完整响应结构。
+ * serializeEntityMap是改用响应记录之前的结构（HashMap包装实体），作为对照；
+ * serializeListResponse是当前列表接口的结构（TodoListResponse包装默认字段的TodoView）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TodoSerializationBenchmark {
+
+    /**
+     * 列表中的任务数
+     */
+    @Param({"1", "20", "100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private Map<String, Object> response;
+    private TodoListResponse listResponse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Todo> todos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Todo todo = new Todo("学习Spring Boot第" + i + "章", "阅读文档并完成示例代码");
+            todo.setId((long) i + 1);
+            todo.setPriority(i % 3 + 1);
+            todo.setCompleted(i % 2 == 0);
+            todo.setCreateTime(now.minusMinutes(i));
+            todo.setUpdateTime(now);
+            todo.setVersion((long) i % 5);
+            todos.add(todo);
+        }
+        response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "获取Todo任务列表成功");
+        response.put("data", todos);
+        response.put("total", todos.size());
+
+        listResponse = TodoListResponse.ok("获取Todo任务列表成功",
+                todos.stream().map(todo -> TodoView.from(todo, TodoField.SUMMARY)).toList());
+    }
+
+    @Benchmark
+    public byte[] serializeEntityMap() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializeListResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(listResponse);
+    }
+}
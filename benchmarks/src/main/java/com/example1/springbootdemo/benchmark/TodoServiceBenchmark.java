@@ -0,0 +1,105 @@
+package com.example1.springbootdemo.benchmark;
+
+import com.example1.springbootdemo.SpringbootDemoApplication;
+import com.example1.springbootdemo.dto.BatchCreateResult;
+import com.example1.springbootdemo.dto.CursorPage;
+import com.example1.springbootdemo.dto.SearchPage;
+import com.example1.springbootdemo.dto.TodoChanges;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoRequest;
+import com.example1.springbootdemo.dto.TodoView;
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.service.TodoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TodoService基准测试
+ * 启动完整的Spring上下文（不启动Web服务器），使用默认配置中的H2内存数据库，
+ * 缓存、全文索引和计数器都参与测试，与线上调用路径一致。
+ * create会不断插入新任务，数据量随测试时间增长
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TodoServiceBenchmark {
+
+    /**
+     * 测试前准备的任务数
+     */
+    @Param("10000")
+    private int todoCount;
+
+    private ConfigurableApplicationContext context;
+    private TodoService todoService;
+    private long[] ids;
+    private TodoFilter incompleteFilter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SpringbootDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                // 命令行参数优先于application.properties，只保留警告日志，避免测量到控制台输出
+                .run("--logging.level.root=WARN");
+        todoService = context.getBean(TodoService.class);
+
+        String[] topics = {"学习Spring", "阅读源码", "整理文档", "锻炼身体"};
+        ids = new long[todoCount];
+        int created = 0;
+        while (created < todoCount) {
+            List<TodoRequest> requests = new ArrayList<>();
+            for (int i = created; i < Math.min(todoCount, created + 1000); i++) {
+                requests.add(new TodoRequest(topics[i % topics.length] + " " + i, "基准测试数据", i % 3 + 1));
+            }
+            for (BatchCreateResult.ItemResult item : todoService.createTodos(requests).getItems()) {
+                ids[created++] = item.getId();
+            }
+        }
+        incompleteFilter = TodoFilter.of("incomplete", null, null, "createTime", "desc");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Todo create() {
+        return todoService.createTodo("基准测试新任务", "基准测试数据", 2);
+    }
+
+    @Benchmark
+    public Todo getById() {
+        return todoService.getTodoById(randomId());
+    }
+
+    @Benchmark
+    public TodoChanges toggle() {
+        return todoService.toggleTodoStatus(randomId());
+    }
+
+    @Benchmark
+    public SearchPage<TodoView> search() {
+        return todoService.searchTodos("学习", 0, 20, TodoField.SUMMARY);
+    }
+
+    @Benchmark
+    public CursorPage<TodoView> listFirstPage() {
+        return todoService.getTodosPage(incompleteFilter, null, 20, TodoField.SUMMARY);
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
@@ -0,0 +1,169 @@
+package com.example1.springbootdemo.benchmark;
+
+import com.example1.springbootdemo.SpringbootDemoApplication;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoKey;
+import com.example1.springbootdemo.dto.TodoView;
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.store.TodoStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TodoStore基准测试：JPA存储（H2内存库）与进程内列式存储的吞吐量和内存占用
+ * 直接调用TodoStore，不经过TodoService的缓存、事件和搜索索引（关闭Lucene，关键词查询由存储完成）。
+ * 准备数据前后各做一次完整GC，两次堆占用之差除以任务数即每条任务占用的字节数，
+ * 作为findById的辅助结果（findById:heapBytes、findById:bytesPerTodo）写入JMH结果文件
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TodoStoreBenchmark {
+
+    /**
+     * 测试前准备的任务数
+     */
+    @Param("100000")
+    private int todoCount;
+
+    @Param({"jpa", "memory"})
+    private String store;
+
+    private ConfigurableApplicationContext context;
+    private TodoStore todoStore;
+    private long[] ids;
+    private long heapBytes;
+    private TodoFilter incompleteFilter;
+    private TodoFilter priorityFilter;
+    private TodoFilter keywordFilter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SpringbootDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--logging.level.root=WARN", "--todo.store=" + store, "--todo.search.engine=database");
+        todoStore = context.getBean(TodoStore.class);
+
+        String[] topics = {"学习Spring", "阅读源码", "整理文档", "锻炼身体"};
+        long heapBefore = usedHeap();
+        ids = new long[todoCount];
+        for (int created = 0; created < todoCount; ) {
+            List<Todo> todos = new ArrayList<>();
+            for (int i = created; i < Math.min(todoCount, created + 1000); i++) {
+                Todo todo = new Todo(topics[i % topics.length] + " " + i, "基准测试数据");
+                todo.setPriority(i % 3 + 1);
+                todos.add(todo);
+            }
+            todoStore.inTransaction(() -> {
+                todoStore.insertAll(todos);
+                return null;
+            });
+            for (Todo todo : todos) {
+                ids[created++] = todo.getId();
+            }
+        }
+        heapBytes = usedHeap() - heapBefore;
+
+        incompleteFilter = TodoFilter.of("incomplete", null, null, "createTime", "desc");
+        priorityFilter = TodoFilter.of(null, 2, null, "priority", "asc");
+        keywordFilter = TodoFilter.of(null, null, "学习", "createTime", "desc");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Todo insert() {
+        Todo todo = new Todo("基准测试新任务", "基准测试数据");
+        todo.setPriority(2);
+        return todoStore.inTransaction(() -> todoStore.save(todo));
+    }
+
+    @Benchmark
+    public Optional<Todo> findById(Footprint footprint) {
+        return todoStore.findById(randomId());
+    }
+
+    @Benchmark
+    public TodoKey toggle() {
+        long id = randomId();
+        return todoStore.inTransaction(() -> todoStore.toggleCompleted(id, null, LocalDateTime.now()));
+    }
+
+    @Benchmark
+    public List<TodoView> listFirstPage() {
+        return todoStore.findViewsByFilter(incompleteFilter, null, 21, TodoField.SUMMARY);
+    }
+
+    @Benchmark
+    public List<TodoView> listByPriority() {
+        return todoStore.findViewsByFilter(priorityFilter, null, 21, TodoField.SUMMARY);
+    }
+
+    @Benchmark
+    public List<TodoView> keywordFirstPage() {
+        return todoStore.findViewsByFilter(keywordFilter, null, 21, TodoField.SUMMARY);
+    }
+
+    /**
+     * 准备数据占用的堆内存
+     * EVENTS类型的辅助结果按测量轮次累加，因此只在最后一轮测量时报告
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        private TodoStoreBenchmark benchmark;
+        private boolean report;
+        private int measured;
+
+        @Setup(Level.Iteration)
+        public void start(TodoStoreBenchmark benchmark, IterationParams iteration) {
+            this.benchmark = benchmark;
+            report = iteration.getType() == IterationType.MEASUREMENT && ++measured == iteration.getCount();
+        }
+
+        /**
+         * 准备数据前后堆占用之差
+         */
+        public long heapBytes() {
+            return report ? benchmark.heapBytes : 0;
+        }
+
+        /**
+         * 每条任务约占用的字节数
+         */
+        public long bytesPerTodo() {
+            return report ? benchmark.heapBytes / benchmark.todoCount : 0;
+        }
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,233 @@
+package com.example1.springbootdemo.benchmark;
+
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.store.MemoryTodoStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 持久化内存存储（todo.store=memory且设置了todo.store.data-dir）的基准测试
+ *
+ * recover：先写入todoCount条任务并生成快照，再切换tailCount条任务的状态（只记录在快照之后的日志中），
+ * 每次测量新建一个MemoryTodoStore从同一目录恢复，即加载快照并重放日志的耗时。
+ * 快照和日志的大小作为辅助结果（recover:snapshotBytes、recover:logBytes）写入JMH结果文件。
+ * insert / concurrentInsert：每次新建都等待写前日志fsync，单线程时每条记录一次fsync，
+ * 16个线程并发时由组提交合并。测量期间写入的日志记录数和fsync次数作为辅助结果（walRecords、walSyncs）写入，
+ * 两者之比即平均每次fsync提交的记录数
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TodoStorePersistenceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Recovery {
+
+        /**
+         * 快照中的任务数
+         */
+        @Param("1000000")
+        private int todoCount;
+
+        /**
+         * 快照之后日志中的修改数
+         */
+        @Param("100000")
+        private int tailCount;
+
+        private Path directory;
+        private MemoryTodoStore recovered;
+        private long snapshotBytes;
+        private long logBytes;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("todo-store-");
+            MemoryTodoStore store = new MemoryTodoStore(directory.toString(), false);
+            store.afterPropertiesSet();
+            String[] topics = {"学习Spring", "阅读源码", "整理文档", "锻炼身体"};
+            for (int created = 0; created < todoCount; ) {
+                List<Todo> todos = new ArrayList<>();
+                for (int end = Math.min(todoCount, created + 10000); created < end; created++) {
+                    Todo todo = new Todo(topics[created % topics.length] + " " + created, "基准测试数据");
+                    todo.setPriority(created % 3 + 1);
+                    todos.add(todo);
+                }
+                store.inTransaction(() -> {
+                    store.insertAll(todos);
+                    return null;
+                });
+            }
+            store.snapshot();
+            store.inTransaction(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < tailCount; i++) {
+                    store.toggleCompleted(random.nextLong(1, todoCount + 1L), null, LocalDateTime.now());
+                }
+                return null;
+            });
+            store.destroy();
+            snapshotBytes = size(directory, ".snap");
+            logBytes = size(directory, ".log");
+        }
+
+        @TearDown(Level.Iteration)
+        public void closeRecovered() throws IOException {
+            if (recovered != null) {
+                recovered.destroy();
+                recovered = null;
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * 快照和日志的大小
+     * EVENTS类型的辅助结果按测量轮次累加，因此只在最后一轮测量时报告
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class StoreFiles {
+
+        private Recovery recovery;
+        private boolean report;
+        private int measured;
+
+        @Setup(Level.Iteration)
+        public void start(Recovery recovery, IterationParams iteration) {
+            this.recovery = recovery;
+            report = iteration.getType() == IterationType.MEASUREMENT && ++measured == iteration.getCount();
+        }
+
+        public long snapshotBytes() {
+            return report ? recovery.snapshotBytes : 0;
+        }
+
+        public long logBytes() {
+            return report ? recovery.logBytes : 0;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Durable {
+
+        private Path directory;
+        private MemoryTodoStore store;
+        private SimpleMeterRegistry registry;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("todo-store-");
+            store = new MemoryTodoStore(directory.toString(), false);
+            store.afterPropertiesSet();
+            registry = new SimpleMeterRegistry();
+            store.bindTo(registry);
+        }
+
+        private double count(String name) {
+            return registry.get(name).functionCounter().count();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            store.destroy();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * 每轮测量期间写入的日志记录数和fsync次数
+     * 由第一个线程报告，避免多线程时按线程数重复累加
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Commits {
+
+        private Durable durable;
+        private boolean report;
+        private double recordsAtStart;
+        private double syncsAtStart;
+
+        @Setup(Level.Iteration)
+        public void start(Durable durable, ThreadParams thread) {
+            this.durable = durable;
+            report = thread.getThreadIndex() == 0;
+            recordsAtStart = durable.count("todo.store.wal.records");
+            syncsAtStart = durable.count("todo.store.wal.syncs");
+        }
+
+        public double walRecords() {
+            return report ? durable.count("todo.store.wal.records") - recordsAtStart : 0;
+        }
+
+        public double walSyncs() {
+            return report ? durable.count("todo.store.wal.syncs") - syncsAtStart : 0;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public MemoryTodoStore recover(Recovery state, StoreFiles files) throws IOException {
+        state.recovered = new MemoryTodoStore(state.directory.toString(), false);
+        state.recovered.afterPropertiesSet();
+        return state.recovered;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 3, time = 2)
+    public Todo insert(Durable state, Commits commits) {
+        return insertOne(state.store);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 3, time = 2)
+    @Threads(16)
+    public Todo concurrentInsert(Durable state, Commits commits) {
+        return insertOne(state.store);
+    }
+
+    private static Todo insertOne(MemoryTodoStore store) {
+        Todo todo = new Todo("基准测试新任务", "基准测试数据");
+        todo.setPriority(2);
+        return store.inTransaction(() -> store.save(todo));
+    }
+
+    private static long size(Path directory, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(suffix)).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example1.springbootdemo.benchmark;
+
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoListResponse;
+import com.example1.springbootdemo.dto.TodoView;
+import com.example1.springbootdemo.wire.TodoProtobuf;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 传输格式基准测试：JSON、Smile、CBOR和Protobuf
+ * 编解码的是列表接口的完整响应（TodoListResponse，默认字段）。
+ * Jackson的三种格式使用同一套ObjectMapper配置，只替换底层的JsonFactory；Protobuf使用TodoProtobuf。
+ * 响应体大小（原始和gzip后）作为encode的辅助结果（encode:bytes、encode:gzipBytes）写入JMH结果文件
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    /**
+     * 列表中的任务数
+     */
+    @Param({"1000", "100000"})
+    private int size;
+
+    /**
+     * 传输格式
+     */
+    @Param({"json", "smile", "cbor", "protobuf"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+    private TodoListResponse response;
+    private byte[] encoded;
+    private int gzippedLength;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper = switch (format) {
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            default -> builder.build();
+        };
+
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<TodoView> todos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            todos.add(new TodoView((long) i + 1, "学习Spring Boot第" + i + "章", null, i % 2 == 0, i % 3 + 1,
+                    now.minusMinutes(i), now, (long) i % 5, TodoField.SUMMARY));
+        }
+        response = TodoListResponse.ok("获取Todo任务列表成功", todos);
+        encoded = write();
+        gzippedLength = gzipSize(encoded);
+    }
+
+    @Benchmark
+    public byte[] encode(PayloadSize payloadSize) throws IOException {
+        return write();
+    }
+
+    @Benchmark
+    public TodoListResponse decode() throws IOException {
+        if ("protobuf".equals(format)) {
+            return TodoProtobuf.read(new ByteArrayInputStream(encoded), TodoListResponse.class);
+        }
+        return objectMapper.readValue(encoded, TodoListResponse.class);
+    }
+
+    /**
+     * 响应体大小
+     * EVENTS类型的辅助结果按测量轮次累加，因此只在最后一轮测量时报告
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+
+        private WireFormatBenchmark benchmark;
+        private boolean report;
+        private int measured;
+
+        @Setup(Level.Iteration)
+        public void start(WireFormatBenchmark benchmark, IterationParams iteration) {
+            this.benchmark = benchmark;
+            report = iteration.getType() == IterationType.MEASUREMENT && ++measured == iteration.getCount();
+        }
+
+        public long bytes() {
+            return report ? benchmark.encoded.length : 0;
+        }
+
+        public long gzipBytes() {
+            return report ? benchmark.gzippedLength : 0;
+        }
+    }
+
+    private byte[] write() throws IOException {
+        if ("protobuf".equals(format)) {
+            return TodoProtobuf.toByteArray(response);
+        }
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private static int gzipSize(byte[] bytes) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.size();
+    }
+}
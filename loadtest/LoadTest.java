@@ -0,0 +1,214 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Todo API压测工具
+ * 单文件程序，不依赖项目代码，直接用 java loadtest/LoadTest.java 运行（需要Java 21）。
+ *
+ * 准备数据:  java loadtest/LoadTest.java seed --url http://localhost:8080 --count 10000
+ * 执行压测:  java loadtest/LoadTest.java run --url http://localhost:8080 --clients 1000 --duration 30 --warmup 10 --label platform
+ *
+ * 每个客户端是一个虚拟线程，循环发送请求直到时间结束：一半按随机ID查询单个任务，一半按状态分页查询列表。
+ * 预热阶段的请求不计入结果。结果打印到标准输出，并以一行JSON追加到 --output 指定的文件
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("用法: java LoadTest.java seed|run [--url URL] [--count N] [--clients N] "
+                    + "[--duration 秒] [--warmup 秒] [--label 名称] [--output 文件]");
+            System.exit(1);
+        }
+        Map<String, String> options = parseOptions(args);
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        switch (args[0]) {
+            case "seed" -> seed(url, Integer.parseInt(options.getOrDefault("count", "10000")));
+            case "run" -> run(url,
+                    Integer.parseInt(options.getOrDefault("clients", "1000")),
+                    Integer.parseInt(options.getOrDefault("duration", "30")),
+                    Integer.parseInt(options.getOrDefault("warmup", "10")),
+                    options.getOrDefault("label", "default"),
+                    options.get("output"));
+            default -> throw new IllegalArgumentException("未知命令: " + args[0]);
+        }
+    }
+
+    /**
+     * 通过批量创建接口准备测试数据
+     */
+    private static void seed(String url, int count) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        int batch = 10000;
+        for (int from = 0; from < count; from += batch) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = from; i < Math.min(count, from + batch); i++) {
+                if (i > from) {
+                    body.append(',');
+                }
+                body.append("{\"content\":\"压测任务").append(i)
+                        .append("\",\"description\":\"用于压测的任务\",\"priority\":").append(i % 3 + 1).append('}');
+            }
+            body.append(']');
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url + "/api/todos/batch"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("准备数据失败: " + response.statusCode() + " " + response.body());
+            }
+        }
+        System.out.println("已创建 " + count + " 条任务");
+    }
+
+    private static void run(String url, int clients, int durationSeconds, int warmupSeconds,
+                            String label, String output) throws Exception {
+        long maxId = countTodos(url);
+        if (maxId == 0) {
+            throw new IllegalStateException("没有测试数据，请先执行 seed");
+        }
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(executor)
+                .build();
+
+        long measureStart = System.nanoTime() + Duration.ofSeconds(warmupSeconds).toNanos();
+        long end = measureStart + Duration.ofSeconds(durationSeconds).toNanos();
+        LongAdder non2xx = new LongAdder();
+        LongAdder busy = new LongAdder();
+        LongAdder errors = new LongAdder();
+        List<long[]> latencies = new ArrayList<>(clients);
+        int[] counts = new int[clients];
+
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            int index = c;
+            latencies.add(new long[1024]);
+            threads.add(Thread.ofVirtual().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long[] samples = latencies.get(index);
+                int count = 0;
+                while (true) {
+                    long start = System.nanoTime();
+                    if (start >= end) {
+                        break;
+                    }
+                    String path = random.nextBoolean()
+                            ? "/api/todos/" + (1 + random.nextLong(maxId))
+                            : "/api/todos?limit=20&status=" + (random.nextBoolean() ? "completed" : "incomplete");
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
+                            .timeout(Duration.ofSeconds(60))
+                            .GET()
+                            .build();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    long finished = System.nanoTime();
+                    if (start < measureStart) {
+                        continue;
+                    }
+                    if (status < 0) {
+                        errors.increment();
+                    } else if (status == 503) {
+                        busy.increment();
+                    } else if (status >= 300 && status != 404) {
+                        non2xx.increment();
+                    }
+                    if (count == samples.length) {
+                        samples = Arrays.copyOf(samples, samples.length * 2);
+                        latencies.set(index, samples);
+                    }
+                    samples[count++] = (finished - start) / 1000;
+                }
+                counts[index] = count;
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        executor.shutdown();
+
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        long[] all = new long[total];
+        int position = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(latencies.get(c), 0, all, position, counts[c]);
+            position += counts[c];
+        }
+        Arrays.sort(all);
+
+        double throughput = total / (double) durationSeconds;
+        String result = String.format(Locale.ROOT,
+                "{\"label\":\"%s\",\"clients\":%d,\"durationSeconds\":%d,\"requests\":%d,\"throughput\":%.1f,"
+                        + "\"p50Millis\":%.2f,\"p99Millis\":%.2f,\"maxMillis\":%.2f,\"busy503\":%d,\"non2xx\":%d,\"errors\":%d}",
+                label, clients, durationSeconds, total, throughput,
+                percentile(all, 0.50), percentile(all, 0.99), total == 0 ? 0 : all[total - 1] / 1000.0,
+                busy.sum(), non2xx.sum(), errors.sum());
+        System.out.println(result);
+        if (output != null) {
+            Files.writeString(Path.of(output), result + System.lineSeparator(),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * 查询任务总数，压测前新建的数据库中ID从1开始连续分配，用于生成随机ID
+     */
+    private static long countTodos(String url) throws Exception {
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(url + "/api/todos/stats")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        // 统计信息中总数不小于任何一个分组的数量，取所有total中的最大值
+        Matcher matcher = Pattern.compile("\"total\":(\\d+)").matcher(response.body());
+        long total = 0;
+        while (matcher.find()) {
+            total = Math.max(total, Long.parseLong(matcher.group(1)));
+        }
+        return total;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1000.0;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("参数格式错误: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,64 @@
+#!/usr/bin/env bash
+# 对比平台线程和虚拟线程两种执行模式的吞吐量和延迟
+# 用法: loadtest/run.sh [客户端数...]，默认依次测试 1000 和 10000 个并发客户端
+# 可用环境变量调整: MVN（Maven命令，默认sh ./mvnw）、DURATION（压测秒数，默认30）、WARMUP（预热秒数，默认10）、SEED（测试数据条数，默认10000）、PORT（默认8080）
+# 每种模式都重新启动应用并准备相同的数据，结果追加到 loadtest/results-时间戳.jsonl
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+CLIENTS=("$@")
+if [ ${#CLIENTS[@]} -eq 0 ]; then
+    CLIENTS=(1000 10000)
+fi
+DURATION=${DURATION:-30}
+WARMUP=${WARMUP:-10}
+SEED=${SEED:-10000}
+PORT=${PORT:-8080}
+URL="http://localhost:$PORT"
+RESULTS="loadtest/results-$(date +%Y%m%d-%H%M%S).jsonl"
+
+# 10000个客户端需要同样数量的连接，客户端和服务端各占一个文件描述符
+ulimit -n 65535 2>/dev/null || ulimit -n "$(ulimit -Hn)"
+
+${MVN:-sh ./mvnw} -q -B package -DskipTests
+JAR=$(ls target/*-SNAPSHOT.jar | head -n 1)
+
+APP_PID=
+stop_app() {
+    if [ -n "$APP_PID" ]; then
+        kill "$APP_PID" 2>/dev/null || true
+        wait "$APP_PID" 2>/dev/null || true
+        APP_PID=
+    fi
+}
+trap stop_app EXIT
+
+for MODE in platform virtual; do
+    VIRTUAL=false
+    if [ "$MODE" = virtual ]; then
+        VIRTUAL=true
+    fi
+    for N in "${CLIENTS[@]}"; do
+        echo "== $MODE 线程模式，$N 个并发客户端 =="
+        # 放宽Tomcat连接数上限，保证两种模式下所有客户端都能建立连接，差异只来自请求的执行方式
+        java -jar "$JAR" \
+            --server.port="$PORT" \
+            --spring.threads.virtual.enabled="$VIRTUAL" \
+            --server.tomcat.max-connections=20000 \
+            --server.tomcat.accept-count=10000 \
+            --spring.jpa.show-sql=false \
+            --logging.level.root=WARN \
+            > "loadtest/app-$MODE.log" 2>&1 &
+        APP_PID=$!
+        for _ in $(seq 1 120); do
+            curl -sf "$URL/Hello" > /dev/null && break
+            sleep 1
+        done
+        java loadtest/LoadTest.java seed --url "$URL" --count "$SEED"
+        java loadtest/LoadTest.java run --url "$URL" --clients "$N" \
+            --duration "$DURATION" --warmup "$WARMUP" --label "$MODE" --output "$RESULTS"
+        stop_app
+    done
+done
+
+echo "结果已写入 $RESULTS"
@@ -0,0 +1,103 @@
+package com.example1.springbootdemo.cache;
+
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.event.TodoDeletedEvent;
+import com.example1.springbootdemo.event.TodoSavedEvent;
+import com.example1.springbootdemo.event.TodoUpdatedEvent;
+import com.example1.springbootdemo.event.TodosBulkDeletedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * 单条Todo的进程内缓存（Caffeine）
+ *
+ * 读取时未命中才查询数据库，同一ID的并发未命中只会查询一次；
+ * 保存完整实体的操作提交后用最新数据覆盖缓存；只修改部分字段的更新和删除提交后移除缓存，下次读取时重新加载。
+ * Caffeine对同一个键的写入会等待正在进行的加载完成，所以加载到的旧数据不会覆盖提交后写入的新数据。
+ * 缓存中保存的是副本，返回给调用方的也是副本，调用方修改返回对象不会影响缓存。
+ * 命中、未命中、淘汰次数和缓存条数导出为cache.*指标（cache=todo）。
+ */
+@Component
+@Profile("!reactive")
+public class TodoCache implements MeterBinder {
+
+    private final Cache<Long, Todo> cache;
+
+    public TodoCache(@Value("${todo.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${todo.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 读取缓存，未命中时通过loader加载并写入缓存
+     * @param id 任务ID
+     * @param loader 加载函数，数据不存在时返回null（不缓存）
+     * @return Todo副本，不存在时返回null
+     */
+    public Todo get(Long id, Function<Long, Todo> loader) {
+        Todo todo = cache.get(id, key -> {
+            Todo loaded = loader.apply(key);
+            return loaded != null ? new Todo(loaded) : null;
+        });
+        return todo != null ? new Todo(todo) : null;
+    }
+
+    /**
+     * 缓存命中统计
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 当前缓存条数（近似值）
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "todo");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSaved(TodoSavedEvent event) {
+        // 新建的任务还没有被读取过，不放入缓存，避免批量创建把热点数据挤出去
+        if (event.isCreated()) {
+            return;
+        }
+        Todo current = event.getCurrent();
+        cache.put(current.getId(), new Todo(current));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUpdated(TodoUpdatedEvent event) {
+        cache.invalidate(event.getId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeleted(TodoDeletedEvent event) {
+        cache.invalidate(event.getTodo().getId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkDeleted(TodosBulkDeletedEvent event) {
+        cache.invalidateAll(event.getIds());
+    }
+}
@@ -0,0 +1,410 @@
+package com.example1.springbootdemo.compression;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 按大小决定是否压缩的响应包装
+ * 响应体先写入一个阈值大小的缓冲区：写满之前响应结束（或声明的Content-Length小于阈值）时原样输出，
+ * 不做任何压缩；超过阈值时再根据Content-Type和Content-Encoding决定是否改用gzip输出。
+ * 决定之前不向容器转发Content-Length和flush，决定之后flush会把已压缩的数据立即写出（SYNC_FLUSH），
+ * 导出等流式响应不会因压缩而积压。
+ * gzip响应与原始响应的字节不同，不能共用强ETag：压缩时在ETag的值后加上-gzip（见CompressionFilter对条件请求头的处理）
+ */
+class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    static final String GZIP_ETAG_SUFFIX = "-gzip";
+
+    private final int minResponseSize;
+    private final List<MediaType> mimeTypes;
+    private final int level;
+    private final CompressionMetrics metrics;
+
+    private ThresholdOutputStream output;
+    private PrintWriter writer;
+
+    /**
+     * 业务代码声明的Content-Length，决定是否压缩之前暂不转发
+     */
+    private long contentLength = -1;
+
+    /**
+     * 请求的If-None-Match中是否有压缩响应的ETag，此时304响应的ETag同样加上后缀
+     */
+    private boolean gzipValidators;
+
+    CompressingResponseWrapper(HttpServletResponse response, int minResponseSize, List<MediaType> mimeTypes,
+                               int level, CompressionMetrics metrics) {
+        super(response);
+        this.minResponseSize = minResponseSize;
+        this.mimeTypes = mimeTypes;
+        this.level = level;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter()已被调用");
+        }
+        if (output == null) {
+            output = new ThresholdOutputStream();
+        }
+        return output;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (output != null) {
+                throw new IllegalStateException("getOutputStream()已被调用");
+            }
+            output = new ThresholdOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(output, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (output != null && output.decided()) {
+            if (!output.compressing()) {
+                super.setContentLengthLong(len);
+            }
+            return;
+        }
+        contentLength = len;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (output != null) {
+            output.flush();
+        }
+        if (output == null || output.decided()) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        contentLength = -1;
+        resetOutput();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        resetOutput();
+    }
+
+    private void resetOutput() {
+        if (output != null && !output.decided()) {
+            output.count = 0;
+        }
+    }
+
+    void setGzipValidators(boolean gzipValidators) {
+        this.gzipValidators = gzipValidators;
+    }
+
+    /**
+     * 请求处理结束：输出缓冲区中剩余的数据并结束gzip流，记录压缩结果
+     * 没有写出响应体（如304、204和HEAD请求）时不记录
+     */
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (gzipValidators && getStatus() == HttpServletResponse.SC_NOT_MODIFIED) {
+            markETagCompressed();
+        }
+        if (output == null) {
+            if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+            return;
+        }
+        output.finish();
+    }
+
+    /**
+     * 在ETag的值后加上-gzip，弱ETag保留W/前缀
+     */
+    static String gzipETag(String etag) {
+        if (etag.endsWith(GZIP_ETAG_SUFFIX + "\"") || !etag.endsWith("\"")) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + GZIP_ETAG_SUFFIX + "\"";
+    }
+
+    private void markETagCompressed() {
+        String etag = getHeader(HttpHeaders.ETAG);
+        if (etag != null) {
+            setHeader(HttpHeaders.ETAG, gzipETag(etag));
+        }
+    }
+
+    private boolean isCompressible() {
+        if (getHeader(HttpHeaders.CONTENT_ENCODING) != null || isCommitted()) {
+            return false;
+        }
+        String contentType = getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        for (MediaType mimeType : mimeTypes) {
+            if (mimeType.includes(mediaType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 先缓冲、超过阈值后再决定输出方式的输出流
+     */
+    private class ThresholdOutputStream extends ServletOutputStream {
+
+        private byte[] buffer = new byte[Math.min(minResponseSize, 8192)];
+        private int count;
+
+        /**
+         * 决定之后的输出目标：容器的输出流，或包装它的gzip流
+         */
+        private OutputStream target;
+        private GZIPOutputStream gzip;
+        private CountingOutputStream compressedCounter;
+        private long uncompressedBytes;
+        private boolean finished;
+
+        boolean decided() {
+            return target != null;
+        }
+
+        boolean compressing() {
+            return gzip != null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (target == null && reserve(1)) {
+                buffer[count++] = (byte) b;
+                return;
+            }
+            if (gzip != null) {
+                uncompressedBytes++;
+            }
+            target.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (target == null && reserve(len)) {
+                System.arraycopy(b, off, buffer, count, len);
+                count += len;
+                return;
+            }
+            if (gzip != null) {
+                uncompressedBytes += len;
+            }
+            target.write(b, off, len);
+        }
+
+        /**
+         * 决定之前为接下来的len字节在缓冲区中留出空间；超过阈值或声明的长度小于阈值时改为决定输出方式
+         * @return 是否继续缓冲
+         */
+        private boolean reserve(int len) throws IOException {
+            if (contentLength >= 0 && contentLength < minResponseSize) {
+                decide(false);
+                return false;
+            }
+            if (count + len > minResponseSize) {
+                decide(true);
+                return false;
+            }
+            if (count + len > buffer.length) {
+                byte[] grown = new byte[Math.min(Math.max(buffer.length * 2, count + len), minResponseSize)];
+                System.arraycopy(buffer, 0, grown, 0, count);
+                buffer = grown;
+            }
+            return true;
+        }
+
+        /**
+         * 决定输出方式，并写出已缓冲的数据
+         * @param overThreshold 响应体是否超过阈值
+         */
+        private void decide(boolean overThreshold) throws IOException {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            if (overThreshold && isCompressible()) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                markETagCompressed();
+                compressedCounter = new CountingOutputStream(response.getOutputStream());
+                gzip = new GZIPOutputStream(compressedCounter, 8192, true) {
+                    {
+                        def.setLevel(level);
+                    }
+                };
+                target = gzip;
+                uncompressedBytes = count;
+            } else {
+                if (!overThreshold) {
+                    response.setContentLengthLong(contentLength >= 0 ? contentLength : count);
+                    metrics.recordTooSmall();
+                } else {
+                    if (contentLength >= 0) {
+                        response.setContentLengthLong(contentLength);
+                    }
+                    metrics.recordExcluded();
+                }
+                target = response.getOutputStream();
+            }
+            target.write(buffer, 0, count);
+            buffer = null;
+            count = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // 决定之前不转发flush：单个任务等小响应写完后的flush不应提前提交响应
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (target == null) {
+                if (count == 0) {
+                    // 取得了输出流但没有写出响应体，与没有取得输出流时相同
+                    if (contentLength >= 0) {
+                        getResponse().setContentLengthLong(contentLength);
+                    }
+                    return;
+                }
+                decide(false);
+            }
+            if (gzip != null) {
+                gzip.finish();
+                metrics.recordCompressed(uncompressedBytes, compressedCounter.count);
+            }
+            target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        @Override
+        public boolean isReady() {
+            try {
+                return target == null || getResponse().getOutputStream().isReady();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            try {
+                getResponse().getOutputStream().setWriteListener(writeListener);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * 统计写入容器的压缩后字节数
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
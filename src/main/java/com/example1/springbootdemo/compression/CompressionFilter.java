@@ -0,0 +1,151 @@
+package com.example1.springbootdemo.compression;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 响应压缩过滤器
+ * 客户端的Accept-Encoding支持gzip时包装响应，由CompressingResponseWrapper按大小和类型决定是否压缩。
+ * 导出等异步写出的响应在异步分派时才结束，因此异步分派也经过本过滤器，届时再结束gzip流。
+ * 压缩响应的ETag带有-gzip后缀，客户端在If-None-Match和If-Match中带回时先去掉后缀，
+ * 控制器按未压缩的ETag比较，压缩只是传输上的差别，不影响条件请求的结果
+ */
+public class CompressionFilter extends OncePerRequestFilter {
+
+    private final int minResponseSize;
+    private final List<MediaType> mimeTypes;
+    private final int level;
+    private final CompressionMetrics metrics;
+
+    /**
+     * @param minResponseSize 压缩的最小响应体字节数，小于它的响应原样输出
+     * @param mimeTypes 压缩的响应类型
+     * @param level gzip压缩级别（1~9）
+     * @param metrics 压缩指标
+     */
+    public CompressionFilter(int minResponseSize, List<MediaType> mimeTypes, int level, CompressionMetrics metrics) {
+        this.minResponseSize = minResponseSize;
+        this.mimeTypes = mimeTypes;
+        this.level = level;
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CompressingResponseWrapper wrapper = WebUtils.getNativeResponse(response, CompressingResponseWrapper.class);
+        if (wrapper == null) {
+            if (!acceptsGzip(request)) {
+                if (!isAsyncDispatch(request)) {
+                    metrics.recordNotAccepted();
+                }
+                filterChain.doFilter(withoutGzipETags(request), response);
+                return;
+            }
+            wrapper = new CompressingResponseWrapper(response, minResponseSize, mimeTypes, level, metrics);
+            wrapper.setGzipValidators(hasGzipETag(request.getHeaders(HttpHeaders.IF_NONE_MATCH)));
+        }
+        filterChain.doFilter(withoutGzipETags(request), wrapper);
+        if (!request.isAsyncStarted()) {
+            wrapper.finish();
+        }
+    }
+
+    /**
+     * Accept-Encoding中是否有q值不为0的gzip或*
+     */
+    static boolean acceptsGzip(HttpServletRequest request) {
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while (headers.hasMoreElements()) {
+            for (String coding : headers.nextElement().split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim().toLowerCase(Locale.ROOT);
+                if (!name.equals("gzip") && !name.equals("*")) {
+                    continue;
+                }
+                if (parts.length == 1 || !isZeroQuality(parts[1])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 条件请求头中带有压缩响应的ETag时，返回去掉-gzip后缀的请求
+     */
+    static HttpServletRequest withoutGzipETags(HttpServletRequest request) {
+        if (!hasGzipETag(request.getHeaders(HttpHeaders.IF_NONE_MATCH))
+                && !hasGzipETag(request.getHeaders(HttpHeaders.IF_MATCH))) {
+            return request;
+        }
+        return new HttpServletRequestWrapper(request) {
+            @Override
+            public String getHeader(String name) {
+                String value = super.getHeader(name);
+                return isConditional(name) && value != null ? stripGzipETags(value) : value;
+            }
+
+            @Override
+            public Enumeration<String> getHeaders(String name) {
+                Enumeration<String> values = super.getHeaders(name);
+                if (!isConditional(name)) {
+                    return values;
+                }
+                List<String> stripped = new ArrayList<>();
+                while (values.hasMoreElements()) {
+                    stripped.add(stripGzipETags(values.nextElement()));
+                }
+                return Collections.enumeration(stripped);
+            }
+
+            private boolean isConditional(String name) {
+                return HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name) || HttpHeaders.IF_MATCH.equalsIgnoreCase(name);
+            }
+        };
+    }
+
+    static String stripGzipETags(String header) {
+        return header.replace(CompressingResponseWrapper.GZIP_ETAG_SUFFIX + "\"", "\"");
+    }
+
+    private static boolean hasGzipETag(Enumeration<String> headers) {
+        while (headers != null && headers.hasMoreElements()) {
+            if (headers.nextElement().contains(CompressingResponseWrapper.GZIP_ETAG_SUFFIX + "\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isZeroQuality(String parameter) {
+        String trimmed = parameter.trim().toLowerCase(Locale.ROOT);
+        if (!trimmed.startsWith("q=")) {
+            return false;
+        }
+        try {
+            return Double.parseDouble(trimmed.substring(2)) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
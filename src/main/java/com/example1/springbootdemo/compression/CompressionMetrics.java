@@ -0,0 +1,67 @@
+package com.example1.springbootdemo.compression;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 响应压缩指标
+ * todo.compression.responses按结果计数：compressed（已压缩）、too_small（小于阈值）、
+ * not_accepted（客户端不支持gzip）、excluded（类型不在压缩列表中或已经编码）；
+ * todo.compression.bytes记录被压缩的响应压缩前后的字节数，两者之比即压缩率
+ */
+public class CompressionMetrics {
+
+    private final Counter compressed;
+    private final Counter tooSmall;
+    private final Counter notAccepted;
+    private final Counter excluded;
+    private final Counter uncompressedBytes;
+    private final Counter compressedBytes;
+
+    public CompressionMetrics(MeterRegistry registry) {
+        this.compressed = responses(registry, "compressed");
+        this.tooSmall = responses(registry, "too_small");
+        this.notAccepted = responses(registry, "not_accepted");
+        this.excluded = responses(registry, "excluded");
+        this.uncompressedBytes = bytes(registry, "uncompressed");
+        this.compressedBytes = bytes(registry, "compressed");
+    }
+
+    /**
+     * 记录一个已压缩的响应
+     * @param uncompressed 压缩前的字节数
+     * @param compressed 压缩后的字节数
+     */
+    void recordCompressed(long uncompressed, long compressed) {
+        this.compressed.increment();
+        this.uncompressedBytes.increment(uncompressed);
+        this.compressedBytes.increment(compressed);
+    }
+
+    void recordTooSmall() {
+        tooSmall.increment();
+    }
+
+    void recordNotAccepted() {
+        notAccepted.increment();
+    }
+
+    void recordExcluded() {
+        excluded.increment();
+    }
+
+    private static Counter responses(MeterRegistry registry, String result) {
+        return Counter.builder("todo.compression.responses")
+                .description("API响应的压缩结果")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static Counter bytes(MeterRegistry registry, String stage) {
+        return Counter.builder("todo.compression.bytes")
+                .description("被压缩的响应压缩前后的字节数")
+                .baseUnit("bytes")
+                .tag("stage", stage)
+                .register(registry);
+    }
+}
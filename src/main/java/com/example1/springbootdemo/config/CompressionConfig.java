@@ -0,0 +1,67 @@
+package com.example1.springbootdemo.config;
+
+import com.example1.springbootdemo.compression.CompressionFilter;
+import com.example1.springbootdemo.compression.CompressionMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+/**
+ * 响应压缩配置（Spring MVC）
+ * 不使用Tomcat自带的server.compression：它只能按声明的Content-Length判断大小，
+ * 流式写出、长度未知的响应总会被压缩，也没有压缩指标。这里在/api/*上注册CompressionFilter，
+ * 按实际写出的字节数判断是否超过阈值，小响应不做压缩。
+ * reactive profile下使用Netty自带的压缩，见application-reactive.properties
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "todo.compression.enabled", havingValue = "true", matchIfMissing = true)
+public class CompressionConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(CompressionConfig.class);
+
+    /**
+     * 压缩的最小响应体大小
+     */
+    @Value("${todo.compression.min-response-size:2KB}")
+    private DataSize minResponseSize;
+
+    /**
+     * 压缩的响应类型
+     */
+    @Value("${todo.compression.mime-types:application/json,application/x-ndjson,text/csv}")
+    private List<MediaType> mimeTypes;
+
+    /**
+     * gzip压缩级别，1最快，9压缩率最高
+     */
+    @Value("${todo.compression.level:6}")
+    private int level;
+
+    @Bean
+    public CompressionMetrics compressionMetrics(MeterRegistry registry) {
+        return new CompressionMetrics(registry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<CompressionFilter> compressionFilter(CompressionMetrics compressionMetrics) {
+        if (level < 1 || level > 9) {
+            throw new IllegalStateException("todo.compression.level必须在1~9之间: " + level);
+        }
+        log.info("响应压缩：最小 {} 字节，级别 {}，类型 {}", minResponseSize.toBytes(), level, mimeTypes);
+        FilterRegistrationBean<CompressionFilter> registration = new FilterRegistrationBean<>(
+                new CompressionFilter((int) minResponseSize.toBytes(), mimeTypes, level, compressionMetrics));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example1.springbootdemo.config;
+
+import com.example1.springbootdemo.datasource.AdaptivePoolController;
+import com.example1.springbootdemo.datasource.ConnectionPools;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * 连接池信号和自适应调整配置
+ * 每个Hikari连接池（读写分离、分片时为全部连接池）都收集等待和占用信号并记录耗尽事件；
+ * todo.datasource.pool.adaptive.enabled=true时按这些信号在上下限之间调整最大连接数，默认保持固定大小
+ */
+@Configuration
+@Profile("!reactive")
+public class ConnectionPoolConfig {
+
+    @Bean
+    public AdaptivePoolController adaptivePoolController(
+            ObjectProvider<DataSource> dataSources, ObjectProvider<ConnectionPools> connectionPools,
+            @Value("${todo.datasource.pool.adaptive.enabled:false}") boolean enabled,
+            @Value("${todo.datasource.pool.adaptive.min-size:5}") int minSize,
+            @Value("${todo.datasource.pool.adaptive.max-size:50}") int maxSize,
+            @Value("${todo.datasource.pool.adaptive.target-wait:5ms}") Duration targetWait,
+            @Value("${todo.datasource.pool.exhaustion-threshold:100ms}") Duration exhaustionThreshold) {
+        return new AdaptivePoolController(() -> DataSourcePools.hikariPools(dataSources, connectionPools),
+                enabled, minSize, maxSize, targetWait, exhaustionThreshold);
+    }
+}
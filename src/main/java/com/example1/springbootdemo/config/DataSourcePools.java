@@ -0,0 +1,73 @@
+package com.example1.springbootdemo.config;
+
+import com.example1.springbootdemo.datasource.ConnectionPools;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离、分片时自行创建的Hikari连接池，以及查找应用使用的全部连接池
+ * 驱动、用户名和密码未单独配置时使用spring.datasource.*（驱动也可以由URL推断），
+ * 连接池参数都使用spring.datasource.hikari.*，连接池名称为spring.datasource.hikari.pool-name加上各自的名称
+ */
+final class DataSourcePools {
+
+    private DataSourcePools() {
+    }
+
+    /**
+     * spring.datasource.hikari.pool-name，未配置时为todo-pool
+     */
+    static String basePoolName(Binder binder) {
+        return binder.bind("spring.datasource.hikari.pool-name", String.class).orElse("todo-pool");
+    }
+
+    /**
+     * @param username 为null时使用spring.datasource.username
+     * @param password 为null时使用spring.datasource.password
+     */
+    static HikariDataSource create(DataSourceProperties properties, Binder binder, String poolName, String url,
+                                   String username, String password) {
+        DataSourceBuilder<HikariDataSource> builder = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username != null ? username : properties.determineUsername())
+                .password(password != null ? password : properties.determinePassword());
+        if (properties.getDriverClassName() != null) {
+            builder.driverClassName(properties.getDriverClassName());
+        }
+        HikariDataSource pool = builder.build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(poolName);
+        return pool;
+    }
+
+    /**
+     * 应用使用的全部Hikari连接池
+     * 读写分离和分片时DataSource只能解包到当前路由到的连接池，全部连接池从ConnectionPools取得
+     */
+    static List<HikariDataSource> hikariPools(ObjectProvider<DataSource> dataSources,
+                                              ObjectProvider<ConnectionPools> connectionPools) {
+        ConnectionPools pools = connectionPools.getIfAvailable();
+        if (pools != null) {
+            return pools.pools();
+        }
+        List<HikariDataSource> result = new ArrayList<>();
+        dataSources.orderedStream().forEach(dataSource -> {
+            HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class, HikariDataSource.class);
+            if (hikari != null) {
+                result.add(hikari);
+            }
+        });
+        return result;
+    }
+}
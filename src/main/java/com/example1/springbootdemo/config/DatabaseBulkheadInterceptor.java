@@ -0,0 +1,131 @@
+package com.example1.springbootdemo.config;
+
+import com.example1.springbootdemo.exception.ServiceBusyException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * 数据库访问隔离舱
+ * 限制同时执行的API请求数。平台线程模式下Tomcat线程池本身就限制了并发，
+ * 虚拟线程模式下每个请求都有自己的线程，不加限制时成千上万个请求会同时排队等待数据库连接，
+ * 直到连接池超时才失败。这里让超出上限的请求先在信号量上短暂排队，等不到就直接返回503。
+ * 上限在每个请求获取许可前重新读取，可以跟随连接池的最大连接数变化
+ */
+public class DatabaseBulkheadInterceptor implements HandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseBulkheadInterceptor.class);
+
+    /**
+     * 请求属性：当前请求是否持有许可
+     */
+    private static final String PERMIT_ATTRIBUTE = DatabaseBulkheadInterceptor.class.getName() + ".permit";
+
+    private final IntSupplier maxConcurrent;
+    private final Permits permits;
+    private final long maxWaitMillis;
+    private volatile int limit;
+
+    /**
+     * @param maxConcurrent 同时执行的最大请求数
+     * @param maxWaitMillis 获取许可的最长等待时间（毫秒）
+     */
+    public DatabaseBulkheadInterceptor(int maxConcurrent, long maxWaitMillis) {
+        this(() -> maxConcurrent, maxWaitMillis);
+    }
+
+    /**
+     * @param maxConcurrent 同时执行的最大请求数，每个请求获取许可前读取一次
+     * @param maxWaitMillis 获取许可的最长等待时间（毫秒）
+     */
+    public DatabaseBulkheadInterceptor(IntSupplier maxConcurrent, long maxWaitMillis) {
+        this.maxConcurrent = maxConcurrent;
+        this.limit = Math.max(1, maxConcurrent.getAsInt());
+        this.permits = new Permits(limit);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // 流式导出在异步分派中完成，许可在首次分派时已经获取
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            return true;
+        }
+        updateLimit();
+        if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+            log.debug("请求 {} {} 等待 {} ms仍未获取到执行许可，返回503", request.getMethod(), request.getRequestURI(), maxWaitMillis);
+            throw new ServiceBusyException("服务繁忙，请稍后重试", Math.max(1, TimeUnit.MILLISECONDS.toSeconds(maxWaitMillis)));
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permits.release();
+        }
+    }
+
+    /**
+     * 当前可用的许可数，上限调低后、多出的请求完成之前可能为负数
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * 正在排队等待许可的请求数（估计值）
+     */
+    public int queuedRequests() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * 当前的并发上限
+     */
+    public int limit() {
+        return limit;
+    }
+
+    /**
+     * 上限变化时增减许可；调低时正在执行的请求不受影响，完成后归还的许可抵消减少的部分
+     */
+    private void updateLimit() {
+        int target = Math.max(1, maxConcurrent.getAsInt());
+        if (target == limit) {
+            return;
+        }
+        synchronized (this) {
+            int delta = target - limit;
+            if (delta > 0) {
+                permits.release(delta);
+            } else if (delta < 0) {
+                permits.reducePermits(-delta);
+            }
+            limit = target;
+        }
+    }
+
+    /**
+     * 可以减少许可的公平信号量
+     */
+    private static final class Permits extends Semaphore {
+
+        Permits(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
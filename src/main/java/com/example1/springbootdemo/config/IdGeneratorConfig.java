@@ -0,0 +1,21 @@
+package com.example1.springbootdemo.config;
+
+import com.example1.springbootdemo.id.SnowflakeIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 任务ID生成配置
+ * Todo主键的Hibernate生成器和分片存储（写入前需要知道ID才能选择分片）共用这一个SnowflakeIdGenerator
+ */
+@Configuration
+@Profile("!reactive")
+public class IdGeneratorConfig {
+
+    @Bean
+    public SnowflakeIdGenerator snowflakeIdGenerator(@Value("${todo.id.worker-id:0}") int workerId) {
+        return new SnowflakeIdGenerator(workerId);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example1.springbootdemo.config;
+
+import com.example1.springbootdemo.datasource.ConnectionPools;
+import com.example1.springbootdemo.metrics.TimedMethodInterceptor;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcher;
+import org.springframework.aop.support.annotation.AnnotationClassFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 监控指标配置
+ * 连接池的活跃、空闲、等待连接数和获取连接耗时由Spring Boot自动导出（hikaricp.*），
+ * 这里补充一个饱和度指标，方便直接设置告警阈值
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * 类上标注了@Timed的Bean，其公开方法由TimedMethodInterceptor计时。
+     * 与@Transactional一样作为基础设施Advisor织入，不需要AspectJ；
+     * 顺序在事务之外，记录的耗时包含事务提交
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor timedMethodAdvisor(ObjectProvider<MeterRegistry> registry) {
+        ComposablePointcut pointcut = new ComposablePointcut(new AnnotationClassFilter(Timed.class, true),
+                new StaticMethodMatcher() {
+                    @Override
+                    public boolean matches(Method method, Class<?> targetClass) {
+                        return Modifier.isPublic(method.getModifiers()) && method.getDeclaringClass() != Object.class;
+                    }
+                });
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, new TimedMethodInterceptor(registry));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    /**
+     * 连接池饱和度：使用中的连接数与等待连接的线程数之和除以最大连接数。
+     * 小于1表示还有空闲连接，大于1表示有请求在排队等待连接
+     */
+    @Bean
+    public MeterBinder connectionPoolSaturationMetrics(ObjectProvider<DataSource> dataSources,
+                                                      ObjectProvider<ConnectionPools> connectionPools) {
+        return registry -> DataSourcePools.hikariPools(dataSources, connectionPools)
+                .forEach(hikari -> registerSaturation(registry, hikari));
+    }
+
+    private static void registerSaturation(MeterRegistry registry, HikariDataSource hikari) {
+        Gauge.builder("todo.db.pool.saturation", hikari, MetricsConfig::saturation)
+                .description("连接池饱和度：(使用中连接数 + 等待连接的线程数) / 最大连接数")
+                .tag("pool", hikari.getPoolName())
+                .register(registry);
+    }
+
+    private static double saturation(HikariDataSource dataSource) {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            // 连接池尚未启动
+            return 0;
+        }
+        return (pool.getActiveConnections() + pool.getThreadsAwaitingConnection())
+                / (double) dataSource.getMaximumPoolSize();
+    }
+}
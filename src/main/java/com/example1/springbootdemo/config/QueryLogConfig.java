@@ -0,0 +1,59 @@
+package com.example1.springbootdemo.config;
+
+import com.example1.springbootdemo.querylog.QueryCountingInterceptor;
+import com.example1.springbootdemo.querylog.QueryExecutionRecorder;
+import com.example1.springbootdemo.querylog.QueryLog;
+import com.example1.springbootdemo.querylog.RequestQueryFilter;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+
+/**
+ * SQL观测配置
+ * 用datasource-proxy包装数据源以拦截每条JDBC语句，给Hibernate注册计数拦截器，
+ * 并在API请求上记录每个请求执行的SQL
+ */
+@Configuration
+@Profile("!reactive")
+public class QueryLogConfig {
+
+    /**
+     * 包装数据源。QueryLog在数据源创建时才获取，BeanPostProcessor本身不提前初始化其他Bean
+     */
+    @Bean
+    public static BeanPostProcessor queryLogDataSourcePostProcessor(ObjectProvider<QueryLog> queryLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(new QueryExecutionRecorder(queryLog.getObject()))
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCountingHibernateCustomizer() {
+        return properties -> properties.put(AvailableSettings.INTERCEPTOR, new QueryCountingInterceptor());
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestQueryFilter> requestQueryFilter(QueryLog queryLog) {
+        FilterRegistrationBean<RequestQueryFilter> registration = new FilterRegistrationBean<>(new RequestQueryFilter(queryLog));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
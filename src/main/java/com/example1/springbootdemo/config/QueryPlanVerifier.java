@@ -0,0 +1,382 @@
+package com.example1.springbootdemo.config;
+
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoSortField;
+import com.example1.springbootdemo.dto.TodoView;
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.repository.TodoRepository;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.ChainListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSetMetaData;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 查询计划启动检查
+ * 应用启动后调用TodoRepository的每个查询方法，记录Hibernate实际发出的SQL和绑定参数，再逐条执行EXPLAIN。
+ * 调用是空跑：语句在发往数据库之前被拦下，不读取任何数据。
+ * 如果某个查询退化为全表扫描或需要额外排序，且表的估计行数超过阈值，则启动失败。
+ * 表很小时数据库选择全表扫描是正常的，所以只在数据量超过阈值时才报错
+ */
+@Component
+@ConditionalOnProperty(name = "todo.query-plan.check.enabled", havingValue = "true", matchIfMissing = true)
+@Profile("!reactive")
+public class QueryPlanVerifier implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryPlanVerifier.class);
+
+    /**
+     * Hibernate生成的SQL中的等值条件，如 t1_0.completed=?
+     */
+    private static final Pattern EQUALITY = Pattern.compile("\\.(\\w+)=(\\?|true|false)");
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 允许全表扫描的最大行数（按数据库统计信息估计），超过后启动失败
+     */
+    @Value("${todo.query-plan.full-scan-threshold:10000}")
+    private long fullScanThreshold;
+
+    /**
+     * 正在空跑仓库方法的线程，只拦下它发出的语句
+     */
+    private volatile Thread capturing;
+
+    private final List<CapturedStatement> captured = new ArrayList<>();
+
+    private final QueryExecutionListener capture = new QueryExecutionListener() {
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            if (capturing != Thread.currentThread()) {
+                return;
+            }
+            for (QueryInfo queryInfo : queryInfoList) {
+                captured.add(new CapturedStatement(queryInfo.getQuery(), parameters(queryInfo)));
+            }
+            throw new StatementCaptured();
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+    };
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long tableRows = estimatedRows();
+        List<String> violations = verify();
+        if (violations.isEmpty()) {
+            log.info("查询计划检查通过，todo表估计行数 {}", tableRows);
+        } else if (tableRows > fullScanThreshold) {
+            throw new IllegalStateException("todo表估计有 " + tableRows + " 行，超过全表扫描阈值 " + fullScanThreshold
+                    + "，以下查询没有使用索引: " + violations);
+        } else {
+            log.debug("todo表估计行数 {} 未超过阈值 {}，忽略查询计划问题: {}", tableRows, fullScanThreshold, violations);
+        }
+    }
+
+    /**
+     * 空跑每个仓库查询方法并检查它发出的语句的执行计划
+     * @return 有问题的语句，每项为 方法 问题: SQL
+     */
+    public List<String> verify() {
+        ChainListener chain = chain();
+        if (chain == null) {
+            log.warn("数据源没有经过datasource-proxy包装，无法获取Hibernate发出的语句，跳过查询计划检查");
+            return List.of();
+        }
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        List<String> violations = new ArrayList<>();
+        chain.addListener(capture);
+        try {
+            calls().forEach((method, call) -> {
+                List<CapturedStatement> statements = dryRun(readOnly, call);
+                if (statements.isEmpty()) {
+                    throw new IllegalStateException("查询计划检查未能获取 " + method + " 发出的语句");
+                }
+                for (CapturedStatement statement : statements) {
+                    String problem = problem(statement.sql(), statement.parameters());
+                    if (problem != null) {
+                        violations.add(method + " " + problem + ": " + statement.sql());
+                    }
+                }
+            });
+        } finally {
+            chain.getListeners().remove(capture);
+        }
+        return violations;
+    }
+
+    /**
+     * 检查一条语句的执行计划
+     * H2的EXPLAIN返回一行计划文本，全表扫描显示为 TODO.tableScan。排序不能只看H2的index sorted标记：
+     * H2只在ORDER BY是索引前缀时才这样标记，选择索引时也不考虑等值条件之后的列，
+     * 所以检查表上是否有以全部等值条件的列开头、随后是ORDER BY的列的索引。
+     * MySQL的EXPLAIN中type=ALL表示全表扫描，Extra中的Using filesort表示额外排序
+     * @param sql 语句
+     * @param parameters 绑定参数
+     * @return 问题，没有问题时为null
+     */
+    public String problem(String sql, List<Object> parameters) {
+        Object[] args = parameters.toArray();
+        if (isMySql()) {
+            return mySqlProblem(sql, args);
+        }
+        String plan = jdbcTemplate.queryForObject("explain " + sql, String.class, args);
+        log.debug("查询计划: {}\n{}", sql, plan);
+        if (plan == null) {
+            return null;
+        }
+        if (plan.contains("tableScan")) {
+            return "全表扫描";
+        }
+        List<String> orderBy = orderByColumns(sql);
+        if (orderBy.isEmpty() || plan.contains("index sorted")) {
+            return null;
+        }
+        Set<String> bound = new HashSet<>();
+        Matcher equality = EQUALITY.matcher(sql.toLowerCase(Locale.ROOT));
+        while (equality.find()) {
+            bound.add(equality.group(1).toUpperCase(Locale.ROOT));
+        }
+        orderBy.removeAll(bound);
+        for (List<String> index : h2Indexes().values()) {
+            int prefix = 0;
+            while (prefix < index.size() && bound.contains(index.get(prefix))) {
+                prefix++;
+            }
+            List<String> columns = index.subList(prefix, index.size());
+            if (prefix == bound.size() && columns.size() >= orderBy.size()
+                    && columns.subList(0, orderBy.size()).equals(orderBy)) {
+                return null;
+            }
+        }
+        return "未使用索引排序";
+    }
+
+    /**
+     * 要检查的仓库方法，参数只用来生成语句。列表查询覆盖每种过滤和排序组合，以及带游标的下一页
+     */
+    private Map<String, Runnable> calls() {
+        Map<String, Runnable> calls = new LinkedHashMap<>();
+        calls.put("findByCompleted", () -> todoRepository.findByCompleted(true));
+        calls.put("findByPriority", () -> todoRepository.findByPriority(1));
+        calls.put("findByCompletedAndPriority", () -> todoRepository.findByCompletedAndPriority(true, 1));
+        calls.put("countByCompleted", () -> todoRepository.countByCompleted(true));
+        calls.put("findAllByOrderByCreateTimeDesc", () -> todoRepository.findAllByOrderByCreateTimeDesc());
+        calls.put("findAllByOrderByPriorityAsc", () -> todoRepository.findAllByOrderByPriorityAsc());
+        calls.put("findByIdGreaterThanOrderByIdAsc", () -> todoRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(500)));
+        calls.put("findCompletedKeys", () -> todoRepository.findCompletedKeys(0L, Long.MAX_VALUE, Limit.of(1000)));
+        calls.put("findKeysBetween", () -> todoRepository.findKeysBetween(0L, Long.MAX_VALUE, Limit.of(1000)));
+        calls.put("findKeyById", () -> todoRepository.findKeyById(1L));
+        calls.put("findViewsByIds", () -> todoRepository.findViewsByIds(List.of(1L, 2L), TodoField.SUMMARY));
+        calls.put("findExistingIds", () -> todoRepository.findExistingIds(List.of(1L, 2L)));
+        calls.put("findMaxId", () -> todoRepository.findMaxId());
+        calls.put("countGroupByCompletedAndPriority", () -> todoRepository.countGroupByCompletedAndPriority());
+        for (TodoSortField sortField : TodoSortField.values()) {
+            for (boolean ascending : new boolean[]{false, true}) {
+                for (Boolean completed : new Boolean[]{null, false}) {
+                    for (Integer priority : new Integer[]{null, 2}) {
+                        TodoFilter filter = new TodoFilter();
+                        filter.setSortField(sortField);
+                        filter.setAscending(ascending);
+                        filter.setCompleted(completed);
+                        filter.setPriority(priority);
+                        calls.put("findViewsByFilter(" + filter.shapeKey(false, false) + ")",
+                                () -> todoRepository.findViewsByFilter(filter, null, 21, TodoField.SUMMARY));
+                        for (Integer cursorPriority : new Integer[]{3, null}) {
+                            TodoCursor cursor = TodoCursor.after(lastOfPage(cursorPriority), sortField, ascending);
+                            calls.put("findViewsByFilter(" + filter.shapeKey(true, cursorPriority == null) + ")",
+                                    () -> todoRepository.findViewsByFilter(filter, cursor, 21, TodoField.SUMMARY));
+                        }
+                    }
+                }
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * 执行一个仓库方法，收集它发出的语句；第一条语句被拦下后方法以StatementCaptured结束
+     */
+    private List<CapturedStatement> dryRun(TransactionTemplate readOnly, Runnable call) {
+        captured.clear();
+        capturing = Thread.currentThread();
+        try {
+            readOnly.executeWithoutResult(status -> call.run());
+        } catch (RuntimeException e) {
+            if (!isCaptured(e)) {
+                throw e;
+            }
+        } finally {
+            capturing = null;
+        }
+        return List.copyOf(captured);
+    }
+
+    private static boolean isCaptured(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StatementCaptured) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static TodoView lastOfPage(Integer priority) {
+        Todo todo = new Todo("查询计划检查");
+        todo.setId(1L);
+        todo.setPriority(priority);
+        todo.setCreateTime(LocalDateTime.now());
+        return TodoView.from(todo, TodoField.SUMMARY);
+    }
+
+    private String mySqlProblem(String sql, Object[] args) {
+        return jdbcTemplate.query("explain " + sql, resultSet -> {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            while (resultSet.next()) {
+                String type = null;
+                String extra = null;
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    String column = JdbcUtils.lookupColumnName(metaData, i);
+                    if ("type".equalsIgnoreCase(column)) {
+                        type = resultSet.getString(i);
+                    } else if ("Extra".equalsIgnoreCase(column)) {
+                        extra = resultSet.getString(i);
+                    }
+                }
+                log.debug("查询计划: {} type={}, extra={}", sql, type, extra);
+                if ("ALL".equalsIgnoreCase(type)) {
+                    return "全表扫描";
+                }
+                if (extra != null && extra.contains("Using filesort")) {
+                    return "未使用索引排序";
+                }
+            }
+            return null;
+        }, args);
+    }
+
+    /**
+     * 表的估计行数，取自数据库的统计信息，不扫描全表
+     */
+    private long estimatedRows() {
+        Long rows = isMySql()
+                ? jdbcTemplate.queryForObject("select table_rows from information_schema.tables "
+                + "where table_schema = database() and table_name = 'todo'", Long.class)
+                : jdbcTemplate.queryForObject("select row_count_estimate from information_schema.tables "
+                + "where table_schema = schema() and table_name = 'TODO'", Long.class);
+        return rows != null ? rows : 0;
+    }
+
+    /**
+     * 索引名称 -> 索引列，含主键
+     */
+    private Map<String, List<String>> h2Indexes() {
+        Map<String, List<String>> indexes = new LinkedHashMap<>();
+        jdbcTemplate.query("select index_name, column_name from information_schema.index_columns "
+                + "where table_schema = schema() and table_name = 'TODO' order by index_name, ordinal_position", row -> {
+            indexes.computeIfAbsent(row.getString(1), name -> new ArrayList<>()).add(row.getString(2));
+        });
+        return indexes;
+    }
+
+    private boolean isMySql() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return database != null && database.toLowerCase(Locale.ROOT).contains("mysql");
+    }
+
+    /**
+     * Hibernate生成的SQL中ORDER BY的列名（大写，不含表别名和方向）
+     */
+    private static List<String> orderByColumns(String sql) {
+        String lower = sql.toLowerCase(Locale.ROOT);
+        int start = lower.indexOf(" order by ");
+        if (start < 0) {
+            return new ArrayList<>();
+        }
+        int end = lower.indexOf(" fetch ", start);
+        List<String> columns = new ArrayList<>();
+        for (String item : lower.substring(start + " order by ".length(), end < 0 ? lower.length() : end).split(",")) {
+            String column = item.trim().replaceFirst("\\s+(asc|desc)$", "");
+            columns.add(column.substring(column.indexOf('.') + 1).toUpperCase(Locale.ROOT));
+        }
+        return columns;
+    }
+
+    private ChainListener chain() {
+        return dataSource instanceof ProxyDataSource proxy
+                && proxy.getProxyConfig().getQueryListener() instanceof ChainListener chain ? chain : null;
+    }
+
+    private static List<Object> parameters(QueryInfo queryInfo) {
+        List<Object> values = new ArrayList<>();
+        if (queryInfo.getParametersList().isEmpty()) {
+            return values;
+        }
+        List<ParameterSetOperation> operations = new ArrayList<>(queryInfo.getParametersList().get(0));
+        operations.sort(Comparator.comparingInt(operation -> (Integer) operation.getArgs()[0]));
+        for (ParameterSetOperation operation : operations) {
+            values.add(ParameterSetOperation.isSetNullParameterOperation(operation) ? null : operation.getArgs()[1]);
+        }
+        return values;
+    }
+
+    private record CapturedStatement(String sql, List<Object> parameters) {
+    }
+
+    /**
+     * 空跑时拦下语句，不发往数据库
+     */
+    private static class StatementCaptured extends RuntimeException {
+
+        StatementCaptured() {
+            super("查询计划检查空跑，语句未执行", null, false, false);
+        }
+    }
+}
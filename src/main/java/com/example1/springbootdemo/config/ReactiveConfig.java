@@ -0,0 +1,21 @@
+package com.example1.springbootdemo.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 响应式实现配置
+ * Spring MVC实现需要的Tomcat也在类路径上，Spring Boot默认会优先用Tomcat承载WebFlux。
+ * reactive profile下显式使用Netty：少量事件循环线程即可维持大量并发的长连接
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
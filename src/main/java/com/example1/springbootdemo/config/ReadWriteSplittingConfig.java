@@ -0,0 +1,126 @@
+package com.example1.springbootdemo.config;
+
+import com.example1.springbootdemo.datasource.LocalH2Replication;
+import com.example1.springbootdemo.datasource.ReadWriteRoutingDataSource;
+import com.example1.springbootdemo.datasource.ReadYourWritesCallableInterceptor;
+import com.example1.springbootdemo.datasource.ReadYourWritesFilter;
+import com.example1.springbootdemo.datasource.ReplicaSet;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读写分离配置（todo.datasource.read-write-splitting.enabled=true）
+ *
+ * 替换Spring Boot自动配置的单个数据源：主库使用spring.datasource.*，只读副本在todo.datasource.replicas中列出，
+ * 用户名和密码未配置时与主库相同。副本的连接池参数与主库相同（spring.datasource.hikari.*），
+ * 连接池名称为主库连接池名称加副本名称，hikaricp.*和todo.db.pool.saturation指标按连接池分别导出。
+ * 对外仍然只有一个DataSource Bean，JPA、SQL观测等照常使用它
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "todo.datasource.read-write-splitting.enabled", havingValue = "true")
+public class ReadWriteSplittingConfig {
+
+    /**
+     * 一个只读副本
+     * @param name 名称，用于连接池名称和指标标签，为空时为replica-序号
+     */
+    public record ReplicaProperties(String name, String url, String username, String password) {
+    }
+
+    @Bean
+    public ReplicaSet replicaSet(DataSourceProperties properties, Environment environment,
+                                 @Value("${todo.datasource.replica.max-lag:5s}") Duration maxLag,
+                                 @Value("${todo.datasource.replica.check-interval:1s}") Duration checkInterval) {
+        Binder binder = Binder.get(environment);
+        List<ReplicaProperties> replicas = binder.bind("todo.datasource.replicas", Bindable.listOf(ReplicaProperties.class))
+                .orElse(List.of());
+        if (replicas.isEmpty()) {
+            throw new IllegalStateException("开启读写分离时至少需要在todo.datasource.replicas中配置一个只读副本");
+        }
+
+        String poolName = DataSourcePools.basePoolName(binder);
+        HikariDataSource primary = DataSourcePools.create(properties, binder, poolName, properties.determineUrl(),
+                null, null);
+
+        Map<String, HikariDataSource> replicaPools = new LinkedHashMap<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            ReplicaProperties replica = replicas.get(i);
+            String name = replica.name() != null ? replica.name() : "replica-" + (i + 1);
+            if (name.equals("primary") || replicaPools.containsKey(name)) {
+                throw new IllegalStateException("只读副本名称重复或与主库相同: " + name);
+            }
+            replicaPools.put(name, DataSourcePools.create(properties, binder, poolName + "-" + name, replica.url(),
+                    replica.username(), replica.password()));
+        }
+        return new ReplicaSet(primary, replicaPools, maxLag, checkInterval);
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource dataSource(ReplicaSet replicaSet) {
+        return new ReadWriteRoutingDataSource(replicaSet);
+    }
+
+    /**
+     * 每个事务结束后归还连接，下一个事务重新选择数据源。默认的DELAYED_ACQUISITION_AND_HOLD在open-in-view时
+     * 整个请求沿用第一次取得的连接，只读事务之后的写事务会被发往副本
+     */
+    @Bean
+    public HibernatePropertiesCustomizer connectionReleaseHibernateCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    /**
+     * 与RequestQueryFilter一样只作用于/api下的请求
+     */
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReplicaSet replicaSet) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(replicaSet.maxLagMillis()));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    /**
+     * 流式导出在异步线程中查询，同样要读到客户端最后一次写入
+     */
+    @Bean
+    public WebMvcConfigurer readYourWritesAsyncConfigurer() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.registerCallableInterceptors(new ReadYourWritesCallableInterceptor());
+            }
+        };
+    }
+
+    /**
+     * 本地用两个H2内存库代替主库和副本时，模拟两者之间的复制
+     */
+    @Bean
+    @ConditionalOnProperty(name = "todo.datasource.local-replication.enabled", havingValue = "true")
+    public LocalH2Replication localH2Replication(ReplicaSet replicaSet, DataSourceProperties properties) {
+        return new LocalH2Replication(replicaSet, properties.determineUrl(), properties.determineUsername(),
+                properties.determinePassword());
+    }
+}
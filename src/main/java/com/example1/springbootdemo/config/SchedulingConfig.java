@@ -0,0 +1,13 @@
+package com.example1.springbootdemo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置类
+ * 开启@Scheduled注解支持，用于统计计数的定期对账等后台任务
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
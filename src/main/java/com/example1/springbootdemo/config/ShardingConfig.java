@@ -0,0 +1,122 @@
+package com.example1.springbootdemo.config;
+
+import com.example1.springbootdemo.datasource.ShardRoutingDataSource;
+import com.example1.springbootdemo.datasource.ShardSchemaInitializer;
+import com.example1.springbootdemo.datasource.ShardSet;
+import com.example1.springbootdemo.id.SnowflakeIdGenerator;
+import com.example1.springbootdemo.store.JpaTodoStore;
+import com.example1.springbootdemo.store.ShardedTodoStore;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 分片配置（todo.sharding.enabled=true）
+ *
+ * 任务分布在todo.sharding.shards中列出的多个数据库上，用户名和密码未配置时与spring.datasource.*相同，
+ * 连接池参数都使用spring.datasource.hikari.*，连接池名称为基础名称加分片名称。
+ * 对外仍然只有一个DataSource和一个EntityManagerFactory：ShardedTodoStore在访问某个分片前把它绑定到当前线程，
+ * ShardRoutingDataSource据此选择连接池。各分片的表结构由Hibernate按ddl-auto创建。
+ * 只支持todo.store=jpa，不能与读写分离同时开启
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "todo.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    /**
+     * 一个分片
+     * @param name 名称，用于连接池名称和指标标签，为空时为shard-序号（从0开始）
+     */
+    public record ShardProperties(String name, String url, String username, String password) {
+    }
+
+    @Bean
+    public ShardSet shardSet(DataSourceProperties properties, Environment environment,
+                             @Value("${todo.sharding.strategy:hash}") String strategy) {
+        if (environment.getProperty("todo.datasource.read-write-splitting.enabled", Boolean.class, false)) {
+            throw new IllegalStateException("分片不能与读写分离同时开启");
+        }
+        if (!"jpa".equals(environment.getProperty("todo.store", "jpa"))) {
+            throw new IllegalStateException("分片只支持todo.store=jpa");
+        }
+        Binder binder = Binder.get(environment);
+        List<ShardProperties> shards = binder.bind("todo.sharding.shards", Bindable.listOf(ShardProperties.class))
+                .orElse(List.of());
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("开启分片时至少需要在todo.sharding.shards中配置一个分片");
+        }
+
+        String poolName = DataSourcePools.basePoolName(binder);
+        Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            ShardProperties shard = shards.get(i);
+            String name = shard.name() != null ? shard.name() : "shard-" + i;
+            if (pools.containsKey(name)) {
+                throw new IllegalStateException("分片名称重复: " + name);
+            }
+            pools.put(name, DataSourcePools.create(properties, binder, poolName + "-" + name, shard.url(),
+                    shard.username(), shard.password()));
+        }
+        List<Instant> rangeStarts = binder.bind("todo.sharding.range-starts", Bindable.listOf(Instant.class))
+                .orElse(List.of());
+        return new ShardSet(pools, ShardSet.Strategy.valueOf(strategy.toUpperCase(Locale.ROOT)), rangeStarts);
+    }
+
+    @Bean
+    public ShardRoutingDataSource dataSource(ShardSet shardSet) {
+        return new ShardRoutingDataSource(shardSet);
+    }
+
+    @Bean
+    public ShardSchemaInitializer shardSchemaInitializer() {
+        return new ShardSchemaInitializer();
+    }
+
+    /**
+     * 注册ShardSchemaInitializer，并让每个事务结束后归还连接：open-in-view时请求中的各个分片事务
+     * 共用同一个EntityManager，默认的DELAYED_ACQUISITION_AND_HOLD会让之后的事务沿用第一个分片的连接
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardingHibernateCustomizer(ShardSchemaInitializer shardSchemaInitializer) {
+        return properties -> {
+            properties.put(AvailableSettings.CONNECTION_HANDLING,
+                    PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+            properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER,
+                    (IntegratorProvider) () -> List.of(shardSchemaInitializer));
+        };
+    }
+
+    /**
+     * 代替JpaTodoStore注入到TodoService等处，JpaTodoStore只作为在单个分片上执行操作的实现
+     */
+    @Bean
+    @Primary
+    public ShardedTodoStore shardedTodoStore(JpaTodoStore jpaTodoStore, ShardSet shardSet,
+                                             SnowflakeIdGenerator snowflakeIdGenerator,
+                                             PlatformTransactionManager transactionManager,
+                                             ShardSchemaInitializer shardSchemaInitializer) {
+        shardSchemaInitializer.initialize(shardSet);
+        return new ShardedTodoStore(jpaTodoStore, shardSet, snowflakeIdGenerator, transactionManager);
+    }
+}
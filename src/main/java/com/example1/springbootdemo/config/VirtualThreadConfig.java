@@ -0,0 +1,98 @@
+package com.example1.springbootdemo.config;
+
+import com.example1.springbootdemo.datasource.AdaptivePoolController;
+import com.example1.springbootdemo.datasource.ConnectionPools;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.function.SingletonSupplier;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 虚拟线程模式配置
+ * spring.threads.virtual.enabled=true时，Tomcat请求处理、@Async、定时任务和流式响应都运行在虚拟线程上，
+ * Controller和TodoService的调用也就随之运行在虚拟线程上。
+ * 虚拟线程不再受线程池大小限制，因此为API请求加上隔离舱，使并发访问数据库的请求数与连接池大小相匹配：
+ * 默认上限跟随连接池当前的最大连接数（读写分离、分片时取最小的连接池），开启自适应调整时随之变化；
+ * 在隔离舱排队的请求计为等待连接的线程，自适应调整据此扩容。
+ * 隔离舱基于Spring MVC拦截器，只在Servlet应用中生效；reactive profile下请求本身不阻塞线程，不需要它
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    /**
+     * 同时执行的最大API请求数，0表示跟随连接池的最大连接数
+     */
+    @Value("${todo.bulkhead.max-concurrent:0}")
+    private int maxConcurrent;
+
+    /**
+     * 超出上限的请求最多排队等待的时间
+     */
+    @Value("${todo.bulkhead.max-wait:2s}")
+    private Duration maxWait;
+
+    /**
+     * 找不到Hikari连接池时使用的连接池大小
+     */
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int configuredPoolSize;
+
+    private final Supplier<List<HikariDataSource>> pools;
+    private final ObjectProvider<AdaptivePoolController> adaptivePoolController;
+
+    public VirtualThreadConfig(ObjectProvider<DataSource> dataSources, ObjectProvider<ConnectionPools> connectionPools,
+                               ObjectProvider<AdaptivePoolController> adaptivePoolController) {
+        this.pools = SingletonSupplier.of(() -> DataSourcePools.hikariPools(dataSources, connectionPools));
+        this.adaptivePoolController = adaptivePoolController;
+    }
+
+    @Bean
+    public DatabaseBulkheadInterceptor databaseBulkheadInterceptor() {
+        int poolSize = poolSize();
+        DatabaseBulkheadInterceptor interceptor;
+        if (maxConcurrent > 0) {
+            if (maxConcurrent > poolSize) {
+                log.warn("todo.bulkhead.max-concurrent={} 大于连接池的最大连接数 {}，超出的请求会在连接池中排队直到获取连接超时；"
+                        + "去掉该配置即跟随连接池大小", maxConcurrent, poolSize);
+            }
+            interceptor = new DatabaseBulkheadInterceptor(maxConcurrent, maxWait.toMillis());
+        } else {
+            interceptor = new DatabaseBulkheadInterceptor(this::poolSize, maxWait.toMillis());
+        }
+        adaptivePoolController.ifAvailable(controller -> controller.setQueuedRequests(interceptor::queuedRequests));
+        log.info("虚拟线程模式：API请求并发上限 {}{}，排队超时 {} ms，数据库连接池大小 {}", interceptor.limit(),
+                maxConcurrent > 0 ? "" : "（跟随连接池）", maxWait.toMillis(), poolSize);
+        return interceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(databaseBulkheadInterceptor()).addPathPatterns("/api/**");
+    }
+
+    /**
+     * 各连接池当前最大连接数中最小的一个：分片查询每个分片占用一个连接，读写分离时请求可能落在任一个连接池上
+     */
+    private int poolSize() {
+        return pools.get().stream().mapToInt(HikariDataSource::getMaximumPoolSize).min().orElse(configuredPoolSize);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example1.springbootdemo.config;
+
+import com.example1.springbootdemo.wire.TodoCborEncoder;
+import com.example1.springbootdemo.wire.TodoMediaTypes;
+import com.example1.springbootdemo.wire.TodoProtobufDecoder;
+import com.example1.springbootdemo.wire.TodoProtobufEncoder;
+import com.example1.springbootdemo.wire.TodoProtobufHttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * 二进制传输格式配置
+ * 除JSON外，/api/todos的接口按Accept和Content-Type协商以下格式：
+ * application/x-protobuf（协议定义见 /schema/todo.proto）、application/cbor和application/x-jackson-smile。
+ * Smile和CBOR与JSON共用Spring Boot配置的Jackson设置（日期格式、模块等），只替换底层的JsonFactory，
+ * 字段与JSON响应一一对应。新的转换器/编解码器排在JSON之后，不带Accept的请求仍返回JSON
+ */
+@Configuration
+public class WireFormatConfig {
+
+    private static ObjectMapper smileMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(new SmileFactory()).build();
+    }
+
+    private static ObjectMapper cborMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(new CBORFactory()).build();
+    }
+
+    /**
+     * Spring MVC：追加Smile、CBOR和Protobuf消息转换器
+     */
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class ServletWireFormatConfig implements WebMvcConfigurer {
+
+        // Spring Boot注册的Jackson2ObjectMapperBuilder是prototype作用域，每次获取都是新的实例
+        private final ObjectProvider<Jackson2ObjectMapperBuilder> builders;
+
+        ServletWireFormatConfig(ObjectProvider<Jackson2ObjectMapperBuilder> builders) {
+            this.builders = builders;
+        }
+
+        /**
+         * Spring MVC按类路径已经注册了Smile、CBOR转换器，但使用的是未经Spring Boot配置的ObjectMapper
+         * （日期会输出为时间戳数组），这里原位替换
+         */
+        @Override
+        public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+            converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter
+                    || converter instanceof MappingJackson2CborHttpMessageConverter);
+            converters.add(new MappingJackson2SmileHttpMessageConverter(smileMapper(builders.getObject())));
+            converters.add(new MappingJackson2CborHttpMessageConverter(cborMapper(builders.getObject())));
+            converters.add(new TodoProtobufHttpMessageConverter());
+        }
+    }
+
+    /**
+     * Spring WebFlux：注册Smile、CBOR和Protobuf编解码器
+     */
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    static class ReactiveWireFormatConfig implements WebFluxConfigurer {
+
+        private final ObjectProvider<Jackson2ObjectMapperBuilder> builders;
+
+        private final ObjectMapper objectMapper;
+
+        ReactiveWireFormatConfig(ObjectProvider<Jackson2ObjectMapperBuilder> builders, ObjectMapper objectMapper) {
+            this.builders = builders;
+            this.objectMapper = objectMapper;
+        }
+
+        /**
+         * WebFlux把自定义编解码器排在默认的之前，按注册顺序协商。
+         * 因此先以自定义编码器的形式再注册一次JSON，保证不带Accept的请求仍返回JSON
+         */
+        @Override
+        public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+            ObjectMapper smile = smileMapper(builders.getObject());
+            ObjectMapper cbor = cborMapper(builders.getObject());
+            // 默认编解码器按类路径注册了Smile（未注册CBOR），这里替换为使用Spring Boot Jackson设置的实例
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smile, TodoMediaTypes.SMILE));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smile, TodoMediaTypes.SMILE));
+
+            ServerCodecConfigurer.CustomCodecs codecs = configurer.customCodecs();
+            codecs.registerWithDefaultConfig(new Jackson2JsonEncoder(objectMapper));
+            codecs.registerWithDefaultConfig(new TodoCborEncoder(cbor));
+            codecs.registerWithDefaultConfig(new Jackson2CborDecoder(cbor, TodoMediaTypes.CBOR));
+            codecs.registerWithDefaultConfig(new TodoProtobufEncoder());
+            codecs.registerWithDefaultConfig(new TodoProtobufDecoder());
+        }
+    }
+}
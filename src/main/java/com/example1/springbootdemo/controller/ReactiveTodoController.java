@@ -0,0 +1,343 @@
+package com.example1.springbootdemo.controller;
+
+import com.example1.springbootdemo.dto.TodoChanges;
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoDeleteResponse;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoListResponse;
+import com.example1.springbootdemo.dto.TodoPageResponse;
+import com.example1.springbootdemo.dto.TodoRequest;
+import com.example1.springbootdemo.dto.TodoResponse;
+import com.example1.springbootdemo.dto.TodoSearchResponse;
+import com.example1.springbootdemo.dto.TodoStats;
+import com.example1.springbootdemo.dto.TodoUpdateRequest;
+import com.example1.springbootdemo.dto.TodoView;
+import com.example1.springbootdemo.exception.TodoVersionMismatchException;
+import com.example1.springbootdemo.io.TodoFileFormat;
+import com.example1.springbootdemo.metrics.TodoMetrics;
+import com.example1.springbootdemo.service.ReactiveTodoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Todo待办事项响应式控制器
+ * reactive profile下替代TodoController，路径、参数、响应结构、状态码和ETag与TodoController一致。
+ * 列表和搜索接口在请求头 Accept: application/x-ndjson 时逐条流式返回任务（不包装响应结构），
+ * 导出接口始终流式返回，写出速度受客户端读取速度控制
+ */
+@Tag(name = "Todo管理（响应式）", description = "Todo任务的增删改查操作，WebFlux + R2DBC实现")
+@RestController
+@RequestMapping("/api/todos")
+@CrossOrigin(origins = "*") // 允许跨域请求
+@Validated
+@Profile("reactive")
+public class ReactiveTodoController {
+
+    @Autowired
+    private ReactiveTodoService todoService;
+
+    @Autowired
+    private TodoMetrics todoMetrics;
+
+
+    /**
+     * 创建新的Todo任务
+     */
+    @Operation(summary = "创建Todo任务", description = "创建一个新的Todo任务")
+    @PostMapping
+    public Mono<ResponseEntity<TodoResponse<TodoView>>> createTodo(
+            @Parameter(description = "Todo任务请求对象", required = true)
+            @Valid @RequestBody TodoRequest request) {
+        return todoService.createTodo(request).map(todo -> ResponseEntity.status(HttpStatus.CREATED)
+                .body(TodoResponse.ok("Todo任务创建成功", TodoView.from(todo, TodoField.ALL))));
+    }
+
+
+    /**
+     * 获取所有Todo任务或根据条件筛选
+     */
+    @Operation(summary = "获取Todo任务列表", description = "获取所有Todo任务，状态、优先级、关键词筛选和排序可任意组合；传入cursor或limit时按游标分页返回；"
+            + "fields指定返回的字段，默认不返回描述和版本号")
+    @GetMapping
+    public Mono<ResponseEntity<?>> getAllTodos(
+            @Parameter(description = "任务状态过滤 (completed/incomplete)", example = "completed")
+            @RequestParam(required = false) String status,
+            @Parameter(description = "优先级过滤 (1-3)", example = "1")
+            @RequestParam(required = false) Integer priority,
+            @Parameter(description = "关键词搜索", example = "学习")
+            @RequestParam(required = false) String keyword,
+            @Parameter(description = "排序字段", example = "createTime")
+            @RequestParam(required = false, defaultValue = "createTime") String sortBy,
+            @Parameter(description = "排序方向", example = "desc")
+            @RequestParam(required = false, defaultValue = "desc") String sortOrder,
+            @Parameter(description = "分页游标，取自上一页响应的nextCursor，传入或指定limit时按游标分页返回")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "游标分页每页条数 (1-100)", example = "20")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "返回的字段，逗号分隔，默认 id,content,completed,priority,createTime,updateTime", example = "id,content,completed")
+            @RequestParam(required = false) String fields,
+            ServerWebExchange exchange) {
+        TodoFilter filter = TodoFilter.of(status, priority, keyword, sortBy, sortOrder);
+        TodoCursor after = cursor != null
+                ? TodoCursor.decode(cursor, filter.getSortField(), filter.isAscending())
+                : null;
+        Set<TodoField> selected = TodoField.parse(fields, TodoField.SUMMARY);
+        String format = negotiateFormat(exchange);
+
+        if (cursor != null || limit != null) {
+            // 游标分页：只返回一页数据和下一页游标，不统计总数
+            return todoService.getTodosPage(filter, after, limit, selected).flatMap(page -> {
+                todoMetrics.recordPageResult(page.getItems().size());
+                String etag = TodoETags.list(page.getItems(), filter, selected, cursor, limit, format);
+                if (exchange.checkNotModified(etag)) {
+                    return Mono.empty();
+                }
+                return Mono.just(ResponseEntity.ok().eTag(etag).body(TodoPageResponse.ok("获取Todo任务列表成功", page)));
+            });
+        }
+
+        return todoService.getTodos(filter, selected).collectList().flatMap(todos -> {
+            todoMetrics.recordListResult(todos.size());
+            String etag = TodoETags.list(todos, filter, selected, null, null, format);
+            if (exchange.checkNotModified(etag)) {
+                return Mono.empty();
+            }
+            return Mono.just(ResponseEntity.ok().eTag(etag).body(TodoListResponse.ok("获取Todo任务列表成功", todos)));
+        });
+    }
+
+
+    /**
+     * 流式获取Todo任务列表
+     */
+    @Operation(summary = "流式获取Todo任务列表", description = "参数与列表接口相同，按NDJSON逐条返回任务，不包装响应结构")
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<TodoView> streamTodos(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer priority,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false, defaultValue = "createTime") String sortBy,
+            @RequestParam(required = false, defaultValue = "desc") String sortOrder,
+            @RequestParam(required = false) String fields) {
+        return todoService.getTodos(TodoFilter.of(status, priority, keyword, sortBy, sortOrder),
+                TodoField.parse(fields, TodoField.SUMMARY));
+    }
+
+
+    /**
+     * 导出所有Todo任务
+     */
+    @Operation(summary = "导出Todo任务", description = "以NDJSON或CSV格式流式导出所有Todo任务，按ID排序，边读边写，不在内存中组装完整列表")
+    @GetMapping("/export")
+    public ResponseEntity<Flux<String>> exportTodos(
+            @Parameter(description = "文件格式 (ndjson/csv)", example = "ndjson")
+            @RequestParam(required = false, defaultValue = "ndjson") String format) {
+        TodoFileFormat fileFormat = TodoFileFormat.fromParam(format);
+
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.parseMediaType(fileFormat.getContentType()), StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("todos." + fileFormat.getExtension()).build().toString())
+                .body(todoService.exportTodos(fileFormat));
+    }
+
+
+    /**
+     * 全文搜索Todo任务
+     */
+    @Operation(summary = "搜索Todo任务", description = "在任务内容和描述中搜索关键词，按创建时间倒序分页返回；fields指定返回的字段，默认不返回描述和版本号")
+    @GetMapping("/search")
+    public Mono<ResponseEntity<TodoSearchResponse>> searchTodos(
+            @Parameter(description = "搜索关键词", required = true, example = "学习")
+            @RequestParam String keyword,
+            @Parameter(description = "页码，从0开始", example = "0")
+            @RequestParam(required = false, defaultValue = "0") int page,
+            @Parameter(description = "每页条数 (1-100)", example = "20")
+            @RequestParam(required = false) Integer size,
+            @Parameter(description = "返回的字段，逗号分隔，默认 id,content,completed,priority,createTime,updateTime", example = "id,content,description")
+            @RequestParam(required = false) String fields) {
+        return todoService.searchTodos(keyword, page, size, TodoField.parse(fields, TodoField.SUMMARY)).map(result -> {
+            todoMetrics.recordSearchResult(result.getItems().size());
+            return ResponseEntity.ok(TodoSearchResponse.ok("搜索Todo任务成功", result));
+        });
+    }
+
+
+    /**
+     * 流式搜索Todo任务
+     */
+    @Operation(summary = "流式搜索Todo任务", description = "参数与搜索接口相同，按NDJSON逐条返回当前页的任务，不统计总数")
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<TodoView> streamSearch(
+            @RequestParam String keyword,
+            @RequestParam(required = false, defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String fields) {
+        return todoService.streamSearch(keyword, page, size, TodoField.parse(fields, TodoField.SUMMARY));
+    }
+
+
+    /**
+     * 根据ID获取单个Todo任务
+     */
+    @Operation(summary = "根据ID获取Todo任务", description = "通过任务ID获取单个Todo任务详情")
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<TodoResponse<TodoView>>> getTodoById(
+            @Parameter(description = "任务ID", required = true, example = "1")
+            @PathVariable @Min(value = 1, message = "ID必须大于0") Long id,
+            ServerWebExchange exchange) {
+        return todoService.getTodoById(id).flatMap(todo -> {
+            // ETag由版本号和表示格式组成，与客户端缓存的一致时直接返回304，不序列化响应体
+            String etag = TodoETags.version(todo.getVersion(), negotiateFormat(exchange));
+            if (exchange.checkNotModified(etag)) {
+                return Mono.empty();
+            }
+            return Mono.just(ResponseEntity.ok().eTag(etag)
+                    .body(TodoResponse.ok("获取Todo任务成功", TodoView.from(todo, TodoField.ALL))));
+        });
+    }
+
+
+    /**
+     * 更新Todo任务
+     */
+    @Operation(summary = "更新Todo任务", description = "根据ID更新Todo任务的内容、描述、优先级或完成状态，只写入请求中的字段并返回被修改的字段")
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<TodoResponse<TodoView>>> updateTodo(
+            @Parameter(description = "任务ID", required = true, example = "1")
+            @PathVariable @Min(value = 1, message = "ID必须大于0") Long id,
+            @Parameter(description = "Todo任务更新请求对象", required = true)
+            @Valid @RequestBody TodoUpdateRequest request,
+            @Parameter(description = "条件请求：任务当前的ETag，不一致时返回412")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) List<String> accept) {
+        return resolveIfMatch(id, ifMatch)
+                .flatMap(expectedVersion -> todoService.updateTodoFields(id, request.getContent(),
+                        request.getDescription(), request.getPriority(), request.getCompleted(),
+                        expectedVersion.orElse(null)))
+                .map(changes -> ResponseEntity.ok()
+                        .eTag(TodoETags.version(changes.version(), TodoETags.format(accept)))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(TodoResponse.ok("Todo任务更新成功", changes.changes())));
+    }
+
+
+    /**
+     * 切换Todo任务完成状态
+     */
+    @Operation(summary = "切换任务状态", description = "切换Todo任务的完成状态（已完成↔未完成），返回新的完成状态")
+    @PatchMapping("/{id}/toggle")
+    public Mono<ResponseEntity<TodoResponse<TodoView>>> toggleTodoStatus(
+            @Parameter(description = "任务ID", required = true, example = "1")
+            @PathVariable @Min(value = 1, message = "ID必须大于0") Long id,
+            @Parameter(description = "条件请求：任务当前的ETag，不一致时返回412")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) List<String> accept) {
+        return resolveIfMatch(id, ifMatch)
+                .flatMap(expectedVersion -> todoService.toggleTodoStatus(id, expectedVersion.orElse(null)))
+                .map(changes -> ResponseEntity.ok()
+                        .eTag(TodoETags.version(changes.version(), TodoETags.format(accept)))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(TodoResponse.ok("Todo任务状态切换成功", changes.changes())));
+    }
+
+
+    /**
+     * 删除单个Todo任务
+     */
+    @Operation(summary = "删除Todo任务", description = "根据ID删除指定的Todo任务")
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<TodoResponse<TodoView>>> deleteTodo(
+            @Parameter(description = "任务ID", required = true, example = "1")
+            @PathVariable @Min(value = 1, message = "ID必须大于0") Long id,
+            @Parameter(description = "条件请求：任务当前的ETag，不一致时返回412")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return resolveIfMatch(id, ifMatch)
+                .flatMap(expectedVersion -> todoService.deleteTodo(id, expectedVersion.orElse(null)))
+                .map(deletedTodo -> ResponseEntity.ok(
+                        TodoResponse.ok("Todo任务删除成功", TodoView.from(deletedTodo, TodoField.ALL))));
+    }
+
+
+    /**
+     * 批量删除已完成的Todo任务
+     */
+    @Operation(summary = "删除已完成任务", description = "批量删除所有已完成的Todo任务")
+    @DeleteMapping("/completed")
+    public Mono<ResponseEntity<TodoDeleteResponse>> deleteCompletedTodos() {
+        return todoService.deleteCompletedTodos()
+                .map(deletedCount -> ResponseEntity.ok(TodoDeleteResponse.ok("已完成的Todo任务删除成功", deletedCount)));
+    }
+
+
+    /**
+     * 删除所有Todo任务
+     */
+    @Operation(summary = "删除所有任务", description = "删除所有Todo任务（危险操作）")
+    @DeleteMapping
+    public Mono<ResponseEntity<TodoDeleteResponse>> deleteAllTodos() {
+        return todoService.deleteAllTodos()
+                .map(deletedCount -> ResponseEntity.ok(TodoDeleteResponse.ok("所有Todo任务清空成功", deletedCount)));
+    }
+
+
+    /**
+     * 获取Todo任务统计信息
+     */
+    @Operation(summary = "获取任务统计", description = "获取Todo任务的统计信息，包括总数、已完成数、未完成数及按优先级分组的数量")
+    @GetMapping("/stats")
+    public Mono<ResponseEntity<TodoResponse<TodoStats>>> getTodoStats() {
+        return todoService.getStats().map(stats -> ResponseEntity.ok(TodoResponse.ok("获取Todo统计信息成功", stats)));
+    }
+
+
+    /**
+     * 按Accept确定响应的表示格式，用于生成ETag，并声明Vary: Accept
+     * 直接写入响应头，checkNotModified返回的304响应同样带上
+     */
+    private static String negotiateFormat(ServerWebExchange exchange) {
+        exchange.getResponse().getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return TodoETags.format(exchange.getRequest().getHeaders().get(HttpHeaders.ACCEPT));
+    }
+
+
+    /**
+     * 解析If-Match请求头，得到期望的版本号
+     * 没有请求头或为*时不校验（发出空的Optional）；多个ETag时与当前版本号比较，命中其中之一即可
+     */
+    private Mono<Optional<Long>> resolveIfMatch(Long id, String ifMatch) {
+        List<Long> versions = TodoETags.parseIfMatch(ifMatch);
+        if (versions == null) {
+            return Mono.just(Optional.empty());
+        }
+        if (versions.size() == 1) {
+            return Mono.just(Optional.of(versions.get(0)));
+        }
+        return todoService.getTodoById(id).flatMap(todo -> versions.contains(todo.getVersion())
+                ? Mono.just(Optional.of(todo.getVersion()))
+                : Mono.error(new TodoVersionMismatchException(id)));
+    }
+}
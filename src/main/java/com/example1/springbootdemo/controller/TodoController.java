@@ -1,9 +1,28 @@
 package com.example1.springbootdemo.controller;
 
+import com.example1.springbootdemo.dto.BatchCreateResult;
+import com.example1.springbootdemo.dto.CursorPage;
+import com.example1.springbootdemo.dto.ImportResult;
+import com.example1.springbootdemo.dto.SearchPage;
+import com.example1.springbootdemo.dto.TodoChanges;
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoDeleteResponse;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoListResponse;
+import com.example1.springbootdemo.dto.TodoPageResponse;
+import com.example1.springbootdemo.dto.TodoResponse;
+import com.example1.springbootdemo.dto.TodoSearchResponse;
+import com.example1.springbootdemo.dto.TodoStats;
 import com.example1.springbootdemo.dto.TodoRequest;
 import com.example1.springbootdemo.dto.TodoUpdateRequest;
+import com.example1.springbootdemo.dto.TodoView;
 import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.exception.TodoVersionMismatchException;
+import com.example1.springbootdemo.io.TodoFileFormat;
+import com.example1.springbootdemo.metrics.TodoMetrics;
 import com.example1.springbootdemo.service.TodoService;
+import com.example1.springbootdemo.wire.TodoMediaTypes;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -11,18 +30,31 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Pattern;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -34,10 +66,14 @@ import java.util.Map;
 @RequestMapping("/api/todos")
 @CrossOrigin(origins = "*") // 允许跨域请求
 @Validated
+@Profile("!reactive")
 public class TodoController {
     
     @Autowired
     private TodoService todoService;
+
+    @Autowired
+    private TodoMetrics todoMetrics;
     
     
     /**
@@ -47,90 +83,192 @@ public class TodoController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "创建成功",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Map.class))),
+                            schema = @Schema(implementation = TodoResponse.class))),
             @ApiResponse(responseCode = "400", description = "请求参数错误")
     })
     @PostMapping
-    public ResponseEntity<Map<String, Object>> createTodo(
+    public ResponseEntity<TodoResponse<TodoView>> createTodo(
             @Parameter(description = "Todo任务请求对象", required = true)
             @Valid @RequestBody TodoRequest request) {
+        Todo todo = todoService.createTodo(request.getContent(), request.getDescription(), request.getPriority());
+        
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(TodoResponse.ok("Todo任务创建成功", TodoView.from(todo, TodoField.ALL)));
+    }
+    
+    
+    /**
+     * 批量创建Todo任务
+     */
+    @Operation(summary = "批量创建Todo任务", description = "一次创建多条Todo任务，逐项校验，返回每一项的结果和吞吐量")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "至少有一项创建成功",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Map.class))),
+            @ApiResponse(responseCode = "400", description = "请求为空、超过上限或所有项都校验失败")
+    })
+    // 响应是不固定结构的Map，不提供Protobuf格式
+    @PostMapping(value = "/batch",
+            produces = {MediaType.APPLICATION_JSON_VALUE, TodoMediaTypes.SMILE_VALUE, TodoMediaTypes.CBOR_VALUE})
+    public ResponseEntity<Map<String, Object>> createTodos(
+            @Parameter(description = "Todo任务请求对象数组", required = true)
+            @RequestBody List<TodoRequest> requests) {
         Map<String, Object> response = new HashMap<>();
         
-        Todo todo;
-        if (request.getDescription() != null && request.getPriority() != null) {
-            todo = todoService.createTodo(request.getContent(), request.getDescription(), request.getPriority());
-        } else if (request.getDescription() != null) {
-            todo = todoService.createTodo(request.getContent(), request.getDescription());
-        } else {
-            todo = todoService.createTodo(request.getContent());
-        }
+        BatchCreateResult result = todoService.createTodos(requests);
         
-        response.put("success", true);
-        response.put("message", "Todo任务创建成功");
-        response.put("data", todo);
+        response.put("success", result.getFailed() == 0);
+        response.put("message", "批量创建完成，成功 " + result.getCreated() + " 条，失败 " + result.getFailed() + " 条");
+        response.put("data", result.getItems());
+        response.put("created", result.getCreated());
+        response.put("failed", result.getFailed());
+        response.put("elapsedMillis", result.getElapsedMillis());
+        response.put("itemsPerSecond", result.getItemsPerSecond());
         
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        HttpStatus status = result.getCreated() > 0 ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(response);
+    }
+    
+    
+    /**
+     * 导入Todo任务
+     */
+    @Operation(summary = "导入Todo任务", description = "从NDJSON或CSV请求体中流式导入Todo任务，按批提交，不合法的记录只被拒绝而不影响其他记录")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "至少导入了一条任务",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TodoResponse.class))),
+            @ApiResponse(responseCode = "400", description = "不支持的文件格式、CSV表头不正确或没有任何记录导入成功")
+    })
+    @PostMapping("/import")
+    public ResponseEntity<TodoResponse<ImportResult>> importTodos(
+            @Parameter(description = "文件格式 (ndjson/csv)，不传时根据Content-Type判断", example = "ndjson")
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            InputStream body) {
+        TodoFileFormat fileFormat = format == null && contentType != null
+                && contentType.toLowerCase(Locale.ROOT).startsWith(TodoFileFormat.CSV.getContentType())
+                ? TodoFileFormat.CSV
+                : TodoFileFormat.fromParam(format);
+        ImportResult result = todoService.importTodos(fileFormat, body);
+        
+        TodoResponse<ImportResult> response = new TodoResponse<>(result.getRejected() == 0,
+                "导入完成，成功 " + result.getImported() + " 条，拒绝 " + result.getRejected() + " 条", result);
+        
+        HttpStatus status = result.getImported() > 0 ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(response);
     }
     
     
     /**
      * 获取所有Todo任务或根据条件筛选
      */
-    @Operation(summary = "获取Todo任务列表", description = "获取所有Todo任务，支持按状态、优先级、关键词筛选和排序")
+    @Operation(summary = "获取Todo任务列表", description = "获取所有Todo任务，状态、优先级、关键词筛选和排序可任意组合；传入cursor或limit时按游标分页返回；"
+            + "fields指定返回的字段，默认不返回描述和版本号")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "获取成功",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Map.class)))
+                            schema = @Schema(oneOf = {TodoListResponse.class, TodoPageResponse.class}))),
+            @ApiResponse(responseCode = "400", description = "游标或字段不合法")
     })
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllTodos(
+    public ResponseEntity<?> getAllTodos(
             @Parameter(description = "任务状态过滤 (completed/incomplete)", example = "completed")
             @RequestParam(required = false) String status,
             @Parameter(description = "优先级过滤 (1-3)", example = "1")
             @RequestParam(required = false) Integer priority,
-            @Parameter(description = "关键词搜索", example = "学习")
+            @Parameter(description = "关键词搜索，启用全文索引时按分词匹配（英文需为完整单词），不分页时命中超过上限返回400", example = "学习")
             @RequestParam(required = false) String keyword,
             @Parameter(description = "排序字段", example = "createTime")
             @RequestParam(required = false, defaultValue = "createTime") String sortBy,
             @Parameter(description = "排序方向", example = "desc")
-            @RequestParam(required = false, defaultValue = "desc") String sortOrder) {
-        
-        Map<String, Object> response = new HashMap<>();
+            @RequestParam(required = false, defaultValue = "desc") String sortOrder,
+            @Parameter(description = "分页游标，取自上一页响应的nextCursor，传入或指定limit时按游标分页返回")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "游标分页每页条数 (1-100)", example = "20")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "返回的字段，逗号分隔，默认 id,content,completed,priority,createTime,updateTime", example = "id,content,completed")
+            @RequestParam(required = false) String fields,
+            WebRequest webRequest) {
+        TodoFilter filter = TodoFilter.of(status, priority, keyword, sortBy, sortOrder);
+        TodoCursor after = cursor != null
+                ? TodoCursor.decode(cursor, filter.getSortField(), filter.isAscending())
+                : null;
+        Set<TodoField> selected = TodoField.parse(fields, TodoField.SUMMARY);
+        String format = negotiateFormat(webRequest);
         
-        try {
-            List<Todo> todos;
-            
-            // 根据不同条件查询
-            if (keyword != null && !keyword.trim().isEmpty()) {
-                todos = todoService.searchTodos(keyword);
-            } else if ("completed".equals(status)) {
-                todos = todoService.getCompletedTodos();
-            } else if ("incomplete".equals(status)) {
-                todos = todoService.getIncompleteTodos();
-            } else if (priority != null) {
-                todos = todoService.getTodosByPriority(priority);
-            } else {
-                // 根据排序条件获取
-                boolean ascending = "asc".equalsIgnoreCase(sortOrder);
-                if ("priority".equals(sortBy)) {
-                    todos = todoService.getTodosSortedByPriority(ascending);
-                } else {
-                    todos = todoService.getTodosSortedByCreateTime(ascending);
-                }
+        // 状态、优先级、关键词和排序可任意组合，统一交给组合条件查询处理
+        if (cursor != null || limit != null) {
+            // 游标分页：只返回一页数据和下一页游标，不统计总数
+            CursorPage<TodoView> page = todoService.getTodosPage(filter, after, limit, selected);
+            todoMetrics.recordPageResult(page.getItems().size());
+            String etag = TodoETags.list(page.getItems(), filter, selected, cursor, limit, format);
+            if (webRequest.checkNotModified(etag)) {
+                return null;
             }
-            
-            response.put("success", true);
-            response.put("message", "获取Todo任务列表成功");
-            response.put("data", todos);
-            response.put("total", todos.size());
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "获取Todo任务列表失败: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return ResponseEntity.ok().eTag(etag).body(TodoPageResponse.ok("获取Todo任务列表成功", page));
         }
+        
+        List<TodoView> todos = todoService.getTodos(filter, selected);
+        todoMetrics.recordListResult(todos.size());
+        String etag = TodoETags.list(todos, filter, selected, null, null, format);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(TodoListResponse.ok("获取Todo任务列表成功", todos));
+    }
+    
+    
+    /**
+     * 导出所有Todo任务
+     */
+    @Operation(summary = "导出Todo任务", description = "以NDJSON或CSV格式流式导出所有Todo任务，按ID排序，边读边写，不在内存中组装完整列表")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "导出成功"),
+            @ApiResponse(responseCode = "400", description = "不支持的文件格式")
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTodos(
+            @Parameter(description = "文件格式 (ndjson/csv)", example = "ndjson")
+            @RequestParam(required = false, defaultValue = "ndjson") String format) {
+        TodoFileFormat fileFormat = TodoFileFormat.fromParam(format);
+        
+        // 响应体在异步线程中写出，导出方法自带只读事务
+        StreamingResponseBody body = output -> todoService.exportTodos(fileFormat, output);
+        
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.parseMediaType(fileFormat.getContentType()), StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("todos." + fileFormat.getExtension()).build().toString())
+                .body(body);
+    }
+    
+    
+    /**
+     * 全文搜索Todo任务
+     */
+    @Operation(summary = "全文搜索Todo任务", description = "在任务内容和描述中搜索关键词，结果按相关度排序并分页返回；fields指定返回的字段，默认不返回描述和版本号")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "搜索成功",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TodoSearchResponse.class))),
+            @ApiResponse(responseCode = "400", description = "请求参数错误")
+    })
+    @GetMapping("/search")
+    public ResponseEntity<TodoSearchResponse> searchTodos(
+            @Parameter(description = "搜索关键词", required = true, example = "学习")
+            @RequestParam String keyword,
+            @Parameter(description = "页码，从0开始", example = "0")
+            @RequestParam(required = false, defaultValue = "0") int page,
+            @Parameter(description = "每页条数 (1-100)", example = "20")
+            @RequestParam(required = false) Integer size,
+            @Parameter(description = "返回的字段，逗号分隔，默认 id,content,completed,priority,createTime,updateTime", example = "id,content,description")
+            @RequestParam(required = false) String fields) {
+        SearchPage<TodoView> result = todoService.searchTodos(keyword, page, size,
+                TodoField.parse(fields, TodoField.SUMMARY));
+        todoMetrics.recordSearchResult(result.getItems().size());
+        
+        return ResponseEntity.ok(TodoSearchResponse.ok("搜索Todo任务成功", result));
     }
     
     
@@ -141,96 +279,82 @@ public class TodoController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "获取成功",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Map.class))),
+                            schema = @Schema(implementation = TodoResponse.class))),
             @ApiResponse(responseCode = "404", description = "任务不存在")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> getTodoById(
+    public ResponseEntity<TodoResponse<TodoView>> getTodoById(
             @Parameter(description = "任务ID", required = true, example = "1")
-            @PathVariable @Min(value = 1, message = "ID必须大于0") Long id) {
-        Map<String, Object> response = new HashMap<>();
-        
+            @PathVariable @Min(value = 1, message = "ID必须大于0") Long id,
+            WebRequest webRequest) {
         Todo todo = todoService.getTodoById(id);
         
-        response.put("success", true);
-        response.put("message", "获取Todo任务成功");
-        response.put("data", todo);
+        // ETag由版本号和表示格式组成，与客户端缓存的一致时直接返回304，不序列化响应体
+        String etag = TodoETags.version(todo.getVersion(), negotiateFormat(webRequest));
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag)
+                .body(TodoResponse.ok("获取Todo任务成功", TodoView.from(todo, TodoField.ALL)));
     }
     
     
     /**
      * 更新Todo任务
      */
-    @Operation(summary = "更新Todo任务", description = "根据ID更新Todo任务的内容、描述或优先级")
+    @Operation(summary = "更新Todo任务", description = "根据ID更新Todo任务的内容、描述、优先级或完成状态，只写入请求中的字段并返回被修改的字段")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "更新成功",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Map.class))),
+                            schema = @Schema(implementation = TodoResponse.class))),
             @ApiResponse(responseCode = "404", description = "任务不存在"),
             @ApiResponse(responseCode = "400", description = "请求参数错误")
     })
     @PutMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> updateTodo(
+    public ResponseEntity<TodoResponse<TodoView>> updateTodo(
             @Parameter(description = "任务ID", required = true, example = "1")
             @PathVariable @Min(value = 1, message = "ID必须大于0") Long id,
             @Parameter(description = "Todo任务更新请求对象", required = true)
-            @Valid @RequestBody TodoUpdateRequest request) {
-        Map<String, Object> response = new HashMap<>();
-        
-        Todo todo = todoService.getTodoById(id);
-        
-        // 更新字段
-        if (request.getContent() != null) {
-            todo.setContent(request.getContent());
-        }
-        
-        if (request.getDescription() != null) {
-            todo.setDescription(request.getDescription());
-        }
-        
-        if (request.getPriority() != null) {
-            todo.setPriority(request.getPriority());
-        }
-        
-        if (request.getCompleted() != null) {
-            todo.setCompleted(request.getCompleted());
-        }
-        
-        Todo updatedTodo = todoService.updateTodo(todo);
+            @Valid @RequestBody TodoUpdateRequest request,
+            @Parameter(description = "条件请求：任务当前的ETag，不一致时返回412")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) List<String> accept) {
+        // 只写入请求中出现的字段，响应中只返回被修改的字段
+        TodoChanges changes = todoService.updateTodoFields(id, request.getContent(),
+                request.getDescription(), request.getPriority(), request.getCompleted(),
+                resolveIfMatch(id, ifMatch));
         
-        response.put("success", true);
-        response.put("message", "Todo任务更新成功");
-        response.put("data", updatedTodo);
-        
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(TodoETags.version(changes.version(), TodoETags.format(accept)))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(TodoResponse.ok("Todo任务更新成功", changes.changes()));
     }
     
     
     /**
      * 切换Todo任务完成状态
      */
-    @Operation(summary = "切换任务状态", description = "切换Todo任务的完成状态（已完成↔未完成）")
+    @Operation(summary = "切换任务状态", description = "切换Todo任务的完成状态（已完成↔未完成），返回新的完成状态")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "状态切换成功",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Map.class))),
+                            schema = @Schema(implementation = TodoResponse.class))),
             @ApiResponse(responseCode = "404", description = "任务不存在")
     })
     @PatchMapping("/{id}/toggle")
-    public ResponseEntity<Map<String, Object>> toggleTodoStatus(
+    public ResponseEntity<TodoResponse<TodoView>> toggleTodoStatus(
             @Parameter(description = "任务ID", required = true, example = "1")
-            @PathVariable @Min(value = 1, message = "ID必须大于0") Long id) {
-        Map<String, Object> response = new HashMap<>();
-        
-        Todo todo = todoService.toggleTodoStatus(id);
-        
-        response.put("success", true);
-        response.put("message", "Todo任务状态切换成功");
-        response.put("data", todo);
+            @PathVariable @Min(value = 1, message = "ID必须大于0") Long id,
+            @Parameter(description = "条件请求：任务当前的ETag，不一致时返回412")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) List<String> accept) {
+        TodoChanges changes = todoService.toggleTodoStatus(id, resolveIfMatch(id, ifMatch));
         
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(TodoETags.version(changes.version(), TodoETags.format(accept)))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(TodoResponse.ok("Todo任务状态切换成功", changes.changes()));
     }
     
     
@@ -241,22 +365,18 @@ public class TodoController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "删除成功",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Map.class))),
+                            schema = @Schema(implementation = TodoResponse.class))),
             @ApiResponse(responseCode = "404", description = "任务不存在")
     })
     @DeleteMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> deleteTodo(
+    public ResponseEntity<TodoResponse<TodoView>> deleteTodo(
             @Parameter(description = "任务ID", required = true, example = "1")
-            @PathVariable @Min(value = 1, message = "ID必须大于0") Long id) {
-        Map<String, Object> response = new HashMap<>();
-        
-        Todo deletedTodo = todoService.deleteTodo(id);
-        
-        response.put("success", true);
-        response.put("message", "Todo任务删除成功");
-        response.put("data", deletedTodo);
+            @PathVariable @Min(value = 1, message = "ID必须大于0") Long id,
+            @Parameter(description = "条件请求：任务当前的ETag，不一致时返回412")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Todo deletedTodo = todoService.deleteTodo(id, resolveIfMatch(id, ifMatch));
         
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(TodoResponse.ok("Todo任务删除成功", TodoView.from(deletedTodo, TodoField.ALL)));
     }
     
     
@@ -267,26 +387,13 @@ public class TodoController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "删除成功",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Map.class)))
+                            schema = @Schema(implementation = TodoDeleteResponse.class)))
     })
     @DeleteMapping("/completed")
-    public ResponseEntity<Map<String, Object>> deleteCompletedTodos() {
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<TodoDeleteResponse> deleteCompletedTodos() {
+        int deletedCount = todoService.deleteCompletedTodos();
         
-        try {
-            int deletedCount = todoService.deleteCompletedTodos();
-            
-            response.put("success", true);
-            response.put("message", "已完成的Todo任务删除成功");
-            response.put("deletedCount", deletedCount);
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "删除已完成Todo任务失败: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-        }
+        return ResponseEntity.ok(TodoDeleteResponse.ok("已完成的Todo任务删除成功", deletedCount));
     }
 
     
@@ -297,58 +404,80 @@ public class TodoController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "删除成功",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Map.class)))
+                            schema = @Schema(implementation = TodoDeleteResponse.class)))
     })
     @DeleteMapping
-    public ResponseEntity<Map<String, Object>> deleteAllTodos() {
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<TodoDeleteResponse> deleteAllTodos() {
+        int deletedCount = todoService.deleteAllTodos();
         
-        try {
-            int deletedCount = todoService.deleteAllTodos();
-            
-            response.put("success", true);
-            response.put("message", "所有Todo任务清空成功");
-            response.put("deletedCount", deletedCount);
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "清空Todo任务失败: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-        }
+        return ResponseEntity.ok(TodoDeleteResponse.ok("所有Todo任务清空成功", deletedCount));
     }
     
     
     /**
      * 获取Todo任务统计信息
      */
-    @Operation(summary = "获取任务统计", description = "获取Todo任务的统计信息，包括总数、已完成数、未完成数")
+    @Operation(summary = "获取任务统计", description = "获取Todo任务的统计信息，包括总数、已完成数、未完成数及按优先级分组的数量")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "获取成功",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Map.class)))
+                            schema = @Schema(implementation = TodoResponse.class)))
     })
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getTodoStats() {
-        Map<String, Object> response = new HashMap<>();
-        
-        try {
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("total", todoService.getTotalCount());
-            stats.put("completed", todoService.getCompletedCount());
-            stats.put("incomplete", todoService.getIncompleteCount());
-            
-            response.put("success", true);
-            response.put("message", "获取Todo统计信息成功");
-            response.put("data", stats);
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "获取Todo统计信息失败: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    public ResponseEntity<TodoResponse<TodoStats>> getTodoStats() {
+        return ResponseEntity.ok(TodoResponse.ok("获取Todo统计信息成功", todoService.getStats()));
+    }
+    
+    
+    /**
+     * 获取单条Todo缓存的命中统计
+     */
+    @Operation(summary = "获取Todo缓存统计", description = "获取按ID读取Todo时使用的进程内缓存的命中、未命中和淘汰次数")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "获取成功",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TodoResponse.class)))
+    })
+    // 缓存统计是不固定结构的Map，不提供Protobuf格式
+    @GetMapping(value = "/stats/cache",
+            produces = {MediaType.APPLICATION_JSON_VALUE, TodoMediaTypes.SMILE_VALUE, TodoMediaTypes.CBOR_VALUE})
+    public ResponseEntity<TodoResponse<Map<String, Object>>> getCacheStats() {
+        return ResponseEntity.ok(TodoResponse.ok("获取Todo缓存统计成功", todoService.getCacheStats()));
+    }
+    
+    
+    /**
+     * 按Accept确定响应的表示格式，用于生成ETag，并声明Vary: Accept
+     * 直接写入响应头，checkNotModified返回的304响应同样带上
+     */
+    private static String negotiateFormat(WebRequest webRequest) {
+        if (webRequest instanceof NativeWebRequest nativeRequest) {
+            HttpServletResponse response = nativeRequest.getNativeResponse(HttpServletResponse.class);
+            if (response != null) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            }
+        }
+        String[] accept = webRequest.getHeaderValues(HttpHeaders.ACCEPT);
+        return TodoETags.format(accept != null ? Arrays.asList(accept) : null);
+    }
+    
+    /**
+     * 解析If-Match请求头，得到期望的版本号
+     * 没有请求头或为*时不校验（返回null）；多个ETag时与当前版本号比较，命中其中之一即可
+     * @throws TodoVersionMismatchException 没有任何ETag与当前版本号一致
+     */
+    private Long resolveIfMatch(Long id, String ifMatch) {
+        List<Long> versions = TodoETags.parseIfMatch(ifMatch);
+        if (versions == null) {
+            return null;
+        }
+        if (versions.size() == 1) {
+            return versions.get(0);
+        }
+        Long current = todoService.getTodoById(id).getVersion();
+        if (versions.contains(current)) {
+            return current;
         }
+        throw new TodoVersionMismatchException(id);
     }
-}
\ No newline at end of file
+}
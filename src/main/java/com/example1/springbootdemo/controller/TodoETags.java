@@ -0,0 +1,135 @@
+package com.example1.springbootdemo.controller;
+
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoView;
+import com.example1.springbootdemo.wire.TodoMediaTypes;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Todo接口的ETag生成与If-Match解析
+ * MVC和响应式两套控制器共用，保证两者生成的ETag完全一致。
+ * 同一个版本的JSON、Protobuf、CBOR和Smile响应体不同，强ETag必须区分表示格式：JSON为"版本号"，
+ * 其余格式为"版本号-格式"，带ETag的响应同时声明Vary: Accept
+ */
+final class TodoETags {
+
+    /**
+     * 可协商的表示格式，顺序与消息转换器一致：质量值和具体程度都相同时取靠前的
+     */
+    private static final List<MediaType> FORMATS = List.of(MediaType.APPLICATION_JSON, TodoMediaTypes.PROTOBUF,
+            TodoMediaTypes.CBOR, TodoMediaTypes.SMILE);
+
+    private static final List<String> FORMAT_NAMES = List.of("", "protobuf", "cbor", "smile");
+
+    private TodoETags() {
+    }
+
+    /**
+     * 按Accept请求头确定响应的表示格式，规则与内容协商相同：质量值高的优先，其次是更具体的类型
+     * @param accept Accept请求头的各个值，可以为null
+     * @return JSON为空字符串，其余为格式名称，用作ETag后缀
+     */
+    static String format(List<String> accept) {
+        if (accept == null || accept.isEmpty()) {
+            return "";
+        }
+        List<MediaType> requested;
+        try {
+            requested = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return "";
+        }
+        int best = 0;
+        double bestQuality = 0;
+        int bestSpecificity = -1;
+        for (int i = 0; i < FORMATS.size(); i++) {
+            for (MediaType type : requested) {
+                double quality = type.getQualityValue();
+                if (quality == 0 || !type.isCompatibleWith(FORMATS.get(i))) {
+                    continue;
+                }
+                int specificity = type.isWildcardType() ? 0 : type.isWildcardSubtype() ? 1 : 2;
+                if (quality > bestQuality || quality == bestQuality && specificity > bestSpecificity) {
+                    best = i;
+                    bestQuality = quality;
+                    bestSpecificity = specificity;
+                }
+            }
+        }
+        return FORMAT_NAMES.get(best);
+    }
+
+    /**
+     * 单个任务的强ETag，由版本号和表示格式组成
+     */
+    static String version(Long version, String format) {
+        return "\"" + version + (format.isEmpty() ? "" : "-" + format) + "\"";
+    }
+
+    /**
+     * 列表的强ETag
+     * 响应体完全由查询参数、选择的字段和每条任务的(ID, 版本号)决定，对它们取摘要即可，不需要序列化响应体
+     */
+    static String list(List<TodoView> todos, TodoFilter filter, Set<TodoField> fields, String cursor, Integer limit,
+                       String format) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((filter + "|" + fields + "|" + cursor + "|" + limit + "|" + format)
+                    .getBytes(StandardCharsets.UTF_8));
+            ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+            for (TodoView todo : todos) {
+                buffer.clear();
+                buffer.putLong(todo.id()).putLong(todo.version() != null ? todo.version() : 0);
+                digest.update(buffer.array());
+            }
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 解析If-Match请求头中的版本号
+     * If-Match使用强比较，弱ETag（W/前缀）和不是本服务生成的ETag永远不匹配；
+     * 任意表示格式的ETag都按其中的版本号比较，客户端可以用CBOR等格式取得的ETag修改任务
+     * @return 没有请求头或为*时返回null，表示不校验；否则返回所有可能匹配的版本号（可能为空）
+     */
+    static List<Long> parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        List<Long> versions = new ArrayList<>();
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return null;
+            }
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                String value = tag.substring(1, tag.length() - 1);
+                int suffix = value.indexOf('-');
+                String format = suffix >= 0 ? value.substring(suffix + 1) : "";
+                try {
+                    long version = Long.parseLong(suffix >= 0 ? value.substring(0, suffix) : value);
+                    // 只接受version方法生成的形式（非负版本号加已知的格式后缀），其他ETag不可能匹配
+                    if (FORMAT_NAMES.contains(format) && tag.equals(version(version, format))) {
+                        versions.add(version);
+                    }
+                } catch (NumberFormatException ignored) {
+                    // 不是本服务生成的ETag，不可能匹配
+                }
+            }
+        }
+        return versions;
+    }
+}
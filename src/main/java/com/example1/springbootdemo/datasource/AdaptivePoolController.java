@@ -0,0 +1,303 @@
+package com.example1.springbootdemo.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 连接池信号收集和自适应大小调整
+ *
+ * 为每个Hikari连接池安装PoolSignals，每个调整周期取出一次：平均和最长等待时间、超时次数、连接的平均占用时间、
+ * 同时借出的连接数峰值，以及按Little定律估计的所需连接数（借出速率 × 平均占用时间），导出为todo.db.pool.*指标。
+ * 周期内有获取连接等待超过阈值或超时时，记录一条汇总日志，列出等待连接的TodoService方法。
+ *
+ * 开启调整时，最大连接数在[minSize, maxSize]之间变化，最小空闲连接数设为minSize：
+ * - 扩容：有超时、有线程正在等待或平均等待超过目标值时，最大连接数增加四分之一（至少1个），不少于估计的所需连接数。
+ *   扩容后连接的占用时间比平时长一倍以上，说明数据库本身已经饱和，更多连接只会加剧争用，退回扩容前的大小
+ * - 缩容：连续若干个周期没有等待且借出峰值不到最大连接数的一半时，减少四分之一，不少于峰值和估计所需的1.25倍。
+ *   多余的连接在空闲超过spring.datasource.hikari.idle-timeout后由Hikari关闭
+ */
+public class AdaptivePoolController implements MeterBinder, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptivePoolController.class);
+
+    /**
+     * 连接占用时间超过平时的多少倍视为数据库饱和
+     */
+    private static final double SATURATION_FACTOR = 2.0;
+
+    /**
+     * 缩容前需要连续空闲的周期数
+     */
+    private static final int SHRINK_AFTER_PERIODS = 3;
+
+    /**
+     * 目标大小相对估计所需连接数的余量
+     */
+    private static final double HEADROOM = 1.25;
+
+    private final Supplier<List<HikariDataSource>> pools;
+    private final boolean enabled;
+    private final int minSize;
+    private final int maxSize;
+    private final double targetWaitMillis;
+    private final long exhaustionThresholdNanos;
+
+    private final List<PoolState> states = new CopyOnWriteArrayList<>();
+
+    private volatile IntSupplier queuedRequests = () -> 0;
+
+    /**
+     * @param pools 全部连接池，在绑定指标时获取
+     * @param enabled 是否调整连接池大小，为false时只收集信号和记录耗尽事件
+     * @param targetWait 平均等待时间超过它即扩容
+     * @param exhaustionThreshold 获取连接的等待时间超过它即记为连接池耗尽
+     */
+    public AdaptivePoolController(Supplier<List<HikariDataSource>> pools, boolean enabled, int minSize, int maxSize,
+                                  Duration targetWait, Duration exhaustionThreshold) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("连接池大小上下限无效: min-size=" + minSize + ", max-size=" + maxSize);
+        }
+        this.pools = pools;
+        this.enabled = enabled;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetWaitMillis = targetWait.toNanos() / 1e6;
+        this.exhaustionThresholdNanos = exhaustionThreshold.toNanos();
+    }
+
+    /**
+     * 先于Spring Boot的连接池指标绑定：Hikari的MetricsTrackerFactory在连接池启动后只能设置一次
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (HikariDataSource pool : pools.get()) {
+            if (pool.getMetricRegistry() != null || pool.getMetricsTrackerFactory() != null) {
+                log.warn("连接池 {} 已设置了指标收集，不收集等待和占用信号", pool.getPoolName());
+                continue;
+            }
+            PoolSignals signals = new PoolSignals(pool.getPoolName(), new MicrometerMetricsTrackerFactory(registry),
+                    exhaustionThresholdNanos, registry);
+            pool.setMetricsTrackerFactory(signals);
+            PoolState state = new PoolState(pool, signals, registry);
+            states.add(state);
+            if (enabled) {
+                pool.getHikariConfigMXBean().setMinimumIdle(minSize);
+                pool.getHikariConfigMXBean().setMaximumPoolSize(
+                        Math.min(maxSize, Math.max(minSize, pool.getMaximumPoolSize())));
+            }
+        }
+    }
+
+    /**
+     * 在连接池之前排队的请求数，如虚拟线程模式下在隔离舱等待的请求。
+     * 隔离舱的上限跟随最大连接数时请求不会在连接池中等待，这些请求计为等待连接的线程，否则连接池不会扩容
+     */
+    public void setQueuedRequests(IntSupplier queuedRequests) {
+        this.queuedRequests = queuedRequests;
+    }
+
+    /**
+     * 每个周期取出各连接池的信号，记录耗尽事件，开启调整时调整最大连接数
+     */
+    @Scheduled(fixedDelayString = "${todo.datasource.pool.adaptive.interval:5s}",
+            initialDelayString = "${todo.datasource.pool.adaptive.interval:5s}")
+    public void adjust() {
+        for (PoolState state : states) {
+            state.adjust();
+        }
+    }
+
+    /**
+     * 由上一个周期的调整状态和本周期的信号得出本周期的调整，只依赖参数和构造时的上下限，不读取也不修改连接池
+     * @param size 当前的最大连接数
+     * @param waiting 当前等待连接的线程数
+     * @param demand 估计的所需连接数
+     */
+    Sizing decide(Sizing previous, int size, PoolSignals.Window window, int waiting, double demand) {
+        double usage = window.avgUsageMillis();
+        double baseline = previous.baselineUsageMillis();
+        boolean starved = window.timeouts() > 0 || waiting > 0 || window.avgWaitMillis() > targetWaitMillis;
+        if (!starved) {
+            if (window.usages() > 0) {
+                baseline = baseline == 0 ? usage : baseline * 0.8 + usage * 0.2;
+            }
+            int calmPeriods = window.peakInUse() < size / 2 ? previous.calmPeriods() + 1 : 0;
+            if (calmPeriods < SHRINK_AFTER_PERIODS) {
+                return new Sizing(size, baseline, previous.sizeBeforeGrowth(), false, calmPeriods, Resize.NONE);
+            }
+            // 估计所需较多时保持当前大小，缩容不会变成扩容
+            int needed = (int) Math.ceil(Math.max(window.peakInUse(), demand) * HEADROOM);
+            int target = Math.min(size, Math.max(minSize, Math.max(needed, size - step(size))));
+            return new Sizing(target, baseline, previous.sizeBeforeGrowth(), false, 0,
+                    target < size ? Resize.SHRINK : Resize.NONE);
+        }
+
+        // 占用时间以毫秒为单位记录，亚毫秒的查询只看相对变化会误判
+        boolean saturated = baseline > 0 && usage > baseline * SATURATION_FACTOR && usage - baseline >= 1;
+        if (saturated) {
+            if (previous.grewLastPeriod()) {
+                return new Sizing(previous.sizeBeforeGrowth(), baseline, previous.sizeBeforeGrowth(), false, 0,
+                        previous.sizeBeforeGrowth() != size ? Resize.ROLLBACK : Resize.NONE);
+            }
+            return new Sizing(size, baseline, previous.sizeBeforeGrowth(), false, 0, Resize.NONE);
+        }
+        int target = Math.min(maxSize, Math.max(size + step(size), (int) Math.ceil(demand * HEADROOM)));
+        if (target > size) {
+            return new Sizing(target, baseline, size, true, 0, Resize.GROW);
+        }
+        return new Sizing(size, baseline, previous.sizeBeforeGrowth(), previous.grewLastPeriod(), 0, Resize.NONE);
+    }
+
+    /**
+     * 对最大连接数的调整
+     */
+    enum Resize {
+        NONE, GROW, SHRINK,
+        /**
+         * 扩容后数据库饱和，退回扩容前的大小
+         */
+        ROLLBACK
+    }
+
+    /**
+     * 一个连接池在一个周期之后的调整状态
+     * @param size 调整后的最大连接数
+     * @param baselineUsageMillis 没有等待时连接平均占用时间的指数移动平均，作为“平时”的占用时间
+     * @param sizeBeforeGrowth 最近一次扩容前的最大连接数
+     * @param grewLastPeriod 这个周期是否扩容，下一个周期据此判断是否退回
+     * @param calmPeriods 连续没有等待且借出峰值不到一半的周期数
+     * @param resize 这个周期做的调整
+     */
+    record Sizing(int size, double baselineUsageMillis, int sizeBeforeGrowth, boolean grewLastPeriod, int calmPeriods,
+                  Resize resize) {
+
+        static Sizing initial(int size) {
+            return new Sizing(size, 0, size, false, 0, Resize.NONE);
+        }
+    }
+
+    /**
+     * 一个连接池的调整状态和上一个周期的信号
+     */
+    private class PoolState {
+
+        private final HikariDataSource pool;
+        private final PoolSignals signals;
+        private final Counter grown;
+        private final Counter shrunk;
+
+        private volatile PoolSignals.Window last = new PoolSignals.Window(0, 0, 0, 0, 0, 0, 0, Map.of());
+        private volatile double demand;
+        private long lastNanos = System.nanoTime();
+        private Sizing sizing;
+
+        PoolState(HikariDataSource pool, PoolSignals signals, MeterRegistry registry) {
+            this.pool = pool;
+            this.signals = signals;
+            this.sizing = Sizing.initial(pool.getMaximumPoolSize());
+            String name = signals.poolName();
+            TimeGauge.builder("todo.db.pool.acquire.wait", this, TimeUnit.MILLISECONDS, state -> state.last.avgWaitMillis())
+                    .description("上一个调整周期内获取连接的平均等待时间")
+                    .tag("pool", name)
+                    .register(registry);
+            TimeGauge.builder("todo.db.pool.acquire.wait.max", this, TimeUnit.MILLISECONDS, state -> state.last.maxWaitMillis())
+                    .description("上一个调整周期内获取连接的最长等待时间")
+                    .tag("pool", name)
+                    .register(registry);
+            TimeGauge.builder("todo.db.pool.connection.usage", this, TimeUnit.MILLISECONDS, state -> state.last.avgUsageMillis())
+                    .description("上一个调整周期内连接的平均占用时间（借出到归还，包含事务中全部语句）")
+                    .tag("pool", name)
+                    .register(registry);
+            Gauge.builder("todo.db.pool.connections.peak", this, state -> state.last.peakInUse())
+                    .description("上一个调整周期内同时借出的连接数峰值")
+                    .tag("pool", name)
+                    .register(registry);
+            Gauge.builder("todo.db.pool.demand", this, state -> state.demand)
+                    .description("按Little定律估计的所需连接数：借出速率 × 平均占用时间")
+                    .tag("pool", name)
+                    .register(registry);
+            this.grown = Counter.builder("todo.db.pool.resizes")
+                    .description("自适应调整改变最大连接数的次数")
+                    .tag("pool", name)
+                    .tag("direction", "grow")
+                    .register(registry);
+            this.shrunk = Counter.builder("todo.db.pool.resizes")
+                    .description("自适应调整改变最大连接数的次数")
+                    .tag("pool", name)
+                    .tag("direction", "shrink")
+                    .register(registry);
+        }
+
+        synchronized void adjust() {
+            long now = System.nanoTime();
+            double seconds = Math.max(1e-3, (now - lastNanos) / 1e9);
+            lastNanos = now;
+            PoolSignals.Window window = signals.snapshot();
+            last = window;
+            demand = window.acquisitions() / seconds * window.avgUsageMillis() / 1000;
+
+            HikariPoolMXBean mxBean = pool.getHikariPoolMXBean();
+            int waiting = (mxBean != null ? mxBean.getThreadsAwaitingConnection() : 0) + queuedRequests.getAsInt();
+            if (!window.exhaustedBy().isEmpty()) {
+                log.warn("连接池 {} 耗尽：过去 {} 秒内获取连接 {} 次，平均等待 {} ms，最长 {} ms，超时 {} 次，当前等待 {} 个线程；等待连接的方法: {}",
+                        signals.poolName(), Math.round(seconds), window.acquisitions(),
+                        String.format("%.1f", window.avgWaitMillis()), String.format("%.1f", window.maxWaitMillis()),
+                        window.timeouts(), waiting, window.exhaustedBy());
+            }
+            if (!enabled || mxBean == null) {
+                return;
+            }
+
+            int size = pool.getMaximumPoolSize();
+            Sizing previous = sizing;
+            sizing = decide(previous, size, window, waiting, demand);
+            if (sizing.resize() == Resize.ROLLBACK) {
+                log.info("连接池 {} 扩容后连接占用时间从 {} ms 增至 {} ms，数据库可能已经饱和，退回扩容前的大小",
+                        signals.poolName(), String.format("%.1f", previous.baselineUsageMillis()),
+                        String.format("%.1f", window.avgUsageMillis()));
+            }
+            resize(size, sizing.size(), window);
+        }
+
+        private void resize(int size, int target, PoolSignals.Window window) {
+            if (target == size) {
+                return;
+            }
+            pool.getHikariConfigMXBean().setMaximumPoolSize(target);
+            (target > size ? grown : shrunk).increment();
+            log.info("连接池 {} 最大连接数 {} -> {}（平均等待 {} ms，超时 {} 次，借出峰值 {}，平均占用 {} ms，估计需要 {}）",
+                    signals.poolName(), size, target, String.format("%.1f", window.avgWaitMillis()), window.timeouts(),
+                    window.peakInUse(), String.format("%.1f", window.avgUsageMillis()), String.format("%.1f", demand));
+        }
+    }
+
+    /**
+     * 每次扩容或缩容的连接数
+     */
+    private static int step(int size) {
+        return Math.max(1, size / 4);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example1.springbootdemo.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.util.List;
+
+/**
+ * 由多个连接池组成的数据源（读写分离、分片）
+ * 对外的DataSource只能解包到当前路由到的那个连接池，连接池指标通过它取得全部连接池
+ */
+public interface ConnectionPools {
+
+    List<HikariDataSource> pools();
+}
@@ -0,0 +1,124 @@
+package com.example1.springbootdemo.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 在同一进程内的两个H2内存库之间模拟异步复制，只用于本地开发和测试读写分离
+ *
+ * 每隔一个复制间隔，把主库中的任务表和心跳表整表同步到各副本：副本通过H2的链接表（CREATE LINKED TABLE）读取主库，
+ * MERGE插入和更新的行，再删除主库中已不存在的行。副本的表结构第一次同步时用主库的SCRIPT NODATA生成，包括索引。
+ * 复制间隔就是副本落后主库的时间，调大它可以观察读请求因延迟过大或读己之写回退到主库。
+ * 每次都扫描整张表，不适合大数据量
+ */
+public class LocalH2Replication {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalH2Replication.class);
+
+    /**
+     * 复制的表，都以id为主键。心跳表先于任务表复制：副本的心跳时间不晚于任务表被复制的时间，
+     * 心跳时间不早于某次写入的副本一定已经有了这次写入
+     */
+    private static final List<String> TABLES = List.of(ReplicaSet.HEARTBEAT_TABLE.toUpperCase(Locale.ROOT), "TODO");
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final String primaryUrl;
+    private final String username;
+    private final String password;
+
+    /**
+     * 每个副本已经建好的表
+     */
+    private final List<Set<String>> createdTables = new ArrayList<>();
+
+    /**
+     * @param primaryUrl 主库的JDBC URL，副本中的链接表通过它连接主库（H2内存库需要DB_CLOSE_DELAY=-1）
+     */
+    public LocalH2Replication(ReplicaSet replicaSet, String primaryUrl, String username, String password) {
+        this.primary = replicaSet.primary();
+        this.replicas = new ArrayList<>(replicaSet.replicas().values());
+        this.primaryUrl = primaryUrl;
+        this.username = username;
+        this.password = password;
+        replicas.forEach(replica -> createdTables.add(new HashSet<>()));
+    }
+
+    @Scheduled(fixedDelayString = "${todo.datasource.local-replication.interval:500ms}")
+    public void replicate() {
+        for (int i = 0; i < replicas.size(); i++) {
+            try (Connection connection = replicas.get(i).getConnection()) {
+                for (String table : TABLES) {
+                    replicate(connection, table, createdTables.get(i));
+                }
+            } catch (SQLException e) {
+                log.warn("模拟复制失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void replicate(Connection replica, String table, Set<String> created) throws SQLException {
+        if (!created.contains(table)) {
+            if (!createTable(replica, table)) {
+                // 主库中还没有这张表（如心跳表在第一次检查时才创建）
+                return;
+            }
+            created.add(table);
+        }
+        String linked = "PRIMARY_" + table;
+        try (Statement statement = replica.createStatement()) {
+            statement.executeUpdate("MERGE INTO " + table + " KEY(id) SELECT * FROM " + linked);
+            statement.executeUpdate("DELETE FROM " + table + " WHERE id NOT IN (SELECT id FROM " + linked + ")");
+        }
+    }
+
+    /**
+     * 按主库的表结构在副本中建表，并建立指向主库的链接表
+     * @return 主库中没有这张表时返回false
+     */
+    private boolean createTable(Connection replica, String table) throws SQLException {
+        List<String> ddl = new ArrayList<>();
+        try (Connection connection = primary.getConnection(); Statement statement = connection.createStatement()) {
+            try (ResultSet exists = statement.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+                    + "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = '" + table + "'")) {
+                exists.next();
+                if (exists.getInt(1) == 0) {
+                    return false;
+                }
+            }
+            try (ResultSet script = statement.executeQuery("SCRIPT NODATA NOPASSWORDS NOSETTINGS TABLE PUBLIC." + table)) {
+                while (script.next()) {
+                    String sql = script.getString(1);
+                    // 只取表、约束和索引，跳过用户、序列和注释
+                    if (sql.startsWith("CREATE MEMORY TABLE") || sql.startsWith("CREATE CACHED TABLE")
+                            || sql.startsWith("ALTER TABLE") || sql.startsWith("CREATE INDEX")
+                            || sql.startsWith("CREATE UNIQUE INDEX")) {
+                        ddl.add(sql);
+                    }
+                }
+            }
+        }
+        try (Statement statement = replica.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + table);
+            for (String sql : ddl) {
+                statement.execute(sql);
+            }
+            statement.execute("CREATE LINKED TABLE IF NOT EXISTS PRIMARY_" + table + "('org.h2.Driver', '"
+                    + primaryUrl + "', '" + username + "', '" + password + "', 'PUBLIC', '" + table + "') READONLY");
+        }
+        log.info("已在只读副本中创建表 {}，开始模拟复制", table);
+        return true;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example1.springbootdemo.datasource;
+
+import com.example1.springbootdemo.metrics.CurrentTimedMethod;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个连接池在当前统计周期内的运行信号：获取连接的等待时间、连接的占用时间（借出到归还）和同时借出的连接数峰值
+ *
+ * 作为Hikari的MetricsTrackerFactory安装，包装Micrometer的实现，hikaricp.*指标照常导出；
+ * 每次借出和归还另外累计到当前周期，由AdaptivePoolController每个周期取出一次。
+ * 借出和超时的回调在等待连接的线程上执行，等待超过阈值或超时即为一次连接池耗尽，记下当时的CurrentTimedMethod
+ */
+final class PoolSignals implements MetricsTrackerFactory {
+
+    /**
+     * 没有绑定@Timed方法的线程（如并行查询各分片的虚拟线程、定时任务）
+     */
+    private static final String UNKNOWN_METHOD = "unknown";
+
+    /**
+     * 一个统计周期的信号
+     * @param exhaustedBy 等待超过阈值或超时的方法 -> 次数
+     */
+    record Window(long acquisitions, long waitNanos, long maxWaitNanos, long timeouts, long usages, long usageMillis,
+                  int peakInUse, Map<String, Long> exhaustedBy) {
+
+        double avgWaitMillis() {
+            return acquisitions == 0 ? 0 : waitNanos / 1e6 / acquisitions;
+        }
+
+        double maxWaitMillis() {
+            return maxWaitNanos / 1e6;
+        }
+
+        double avgUsageMillis() {
+            return usages == 0 ? 0 : (double) usageMillis / usages;
+        }
+    }
+
+    private final String poolName;
+    private final MetricsTrackerFactory delegate;
+    private final long exhaustionThresholdNanos;
+    private final MeterRegistry registry;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder usages = new LongAdder();
+    private final LongAdder usageMillis = new LongAdder();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+    private final Map<String, LongAdder> exhaustedBy = new ConcurrentHashMap<>();
+    private final Map<String, Counter> exhaustionCounters = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate 原本的MetricsTrackerFactory（Micrometer）
+     * @param exhaustionThresholdNanos 获取连接的等待时间超过它即记为连接池耗尽
+     */
+    PoolSignals(String poolName, MetricsTrackerFactory delegate, long exhaustionThresholdNanos, MeterRegistry registry) {
+        this.poolName = poolName;
+        this.delegate = delegate;
+        this.exhaustionThresholdNanos = exhaustionThresholdNanos;
+        this.registry = registry;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        IMetricsTracker tracker = delegate.create(poolName, poolStats);
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                tracker.recordConnectionCreatedMillis(connectionCreatedMillis);
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                tracker.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+                acquired(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                tracker.recordConnectionUsageMillis(elapsedBorrowedMillis);
+                released(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                tracker.recordConnectionTimeout();
+                timeouts.increment();
+                exhausted("timeout");
+            }
+
+            @Override
+            public void close() {
+                tracker.close();
+            }
+        };
+    }
+
+    String poolName() {
+        return poolName;
+    }
+
+    /**
+     * 取出当前周期的信号并开始新的周期
+     */
+    Window snapshot() {
+        Map<String, Long> methods = new TreeMap<>();
+        exhaustedBy.forEach((method, count) -> {
+            long sum = count.sumThenReset();
+            if (sum > 0) {
+                methods.put(method, sum);
+            }
+        });
+        return new Window(acquisitions.sumThenReset(), waitNanos.sumThenReset(), maxWaitNanos.getAndSet(0),
+                timeouts.sumThenReset(), usages.sumThenReset(), usageMillis.sumThenReset(),
+                peakInUse.getAndSet(inUse.get()), methods);
+    }
+
+    private void acquired(long waitedNanos) {
+        acquisitions.increment();
+        waitNanos.add(waitedNanos);
+        maxWaitNanos.accumulateAndGet(waitedNanos, Math::max);
+        peakInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+        if (waitedNanos >= exhaustionThresholdNanos) {
+            exhausted("waited");
+        }
+    }
+
+    private void released(long borrowedMillis) {
+        usages.increment();
+        usageMillis.add(borrowedMillis);
+        // 安装之前借出的连接归还时不再减少
+        inUse.updateAndGet(count -> Math.max(0, count - 1));
+    }
+
+    private void exhausted(String outcome) {
+        String method = CurrentTimedMethod.get();
+        if (method == null) {
+            method = UNKNOWN_METHOD;
+        }
+        exhaustedBy.computeIfAbsent(method, key -> new LongAdder()).increment();
+        String tagMethod = method;
+        exhaustionCounters.computeIfAbsent(method + ":" + outcome, key -> Counter.builder("todo.db.pool.exhaustion")
+                .description("获取连接等待超过阈值（waited）或超时（timeout）的次数，按等待连接的方法统计")
+                .tag("pool", poolName)
+                .tag("method", tagMethod)
+                .tag("outcome", outcome)
+                .register(registry)).increment();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example1.springbootdemo.datasource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 读写分离的数据源
+ *
+ * 只读事务（@Transactional(readOnly = true)）中的语句发往ReplicaSet选出的只读副本，
+ * 写事务和事务之外的语句发往主库。JpaTransactionManager在开始事务时就获取连接，之后才登记只读标记，
+ * 所以在路由外面包一层LazyConnectionDataSourceProxy：事务中执行第一条语句时才取得真正的连接，
+ * 这时已经知道事务是否只读；没有执行语句的事务（如只命中缓存的读取）也不占用连接。
+ * 连接池由ReplicaSet持有和关闭
+ */
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy {
+
+    private final ReplicaSet replicaSet;
+
+    public ReadWriteRoutingDataSource(ReplicaSet replicaSet) {
+        this.replicaSet = replicaSet;
+        AbstractRoutingDataSource router = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                    return ReplicaSet.PRIMARY;
+                }
+                return replicaSet.selectForRead(ReadYourWrites.requiredTime());
+            }
+        };
+        Map<Object, Object> targets = new HashMap<>(replicaSet.replicas());
+        targets.put(ReplicaSet.PRIMARY, replicaSet.primary());
+        router.setTargetDataSources(targets);
+        router.setDefaultTargetDataSource(replicaSet.primary());
+        router.setLenientFallback(false);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+    }
+
+    public ReplicaSet getReplicaSet() {
+        return replicaSet;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example1.springbootdemo.datasource;
+
+/**
+ * 当前请求对只读副本的要求：客户端最后一次写入的时间
+ * 由ReadYourWritesFilter在请求开始时绑定到当前线程，ReadWriteRoutingDataSource选择副本时读取。
+ * 异步处理（如流式导出）由ReadYourWritesCallableInterceptor把同样的要求带到执行它的线程
+ */
+final class ReadYourWrites {
+
+    /**
+     * 修改请求本身：它的读取全部发往主库
+     */
+    static final long PRIMARY_ONLY = Long.MAX_VALUE;
+
+    private static final ThreadLocal<Long> REQUIRED_TIME = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    /**
+     * 副本的心跳时间不能早于的时间（毫秒），没有要求时为0
+     */
+    static long requiredTime() {
+        Long time = REQUIRED_TIME.get();
+        return time != null ? time : 0;
+    }
+
+    static void begin(long requiredTime) {
+        REQUIRED_TIME.set(requiredTime);
+    }
+
+    static void end() {
+        REQUIRED_TIME.remove();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example1.springbootdemo.datasource;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 把请求对只读副本的要求带到异步处理的线程
+ *
+ * 流式响应（StreamingResponseBody）和Callable在MVC的异步执行器中运行，ReadYourWritesFilter绑定到请求线程的要求
+ * 在那里不可见，导出等查询会被发往还没有复制到客户端最后一次写入的副本。开始异步处理时在请求线程中记下要求，
+ * 执行前绑定到异步线程，执行后解除
+ */
+public class ReadYourWritesCallableInterceptor implements CallableProcessingInterceptor {
+
+    private static final String REQUIRED_TIME_ATTRIBUTE = ReadYourWritesCallableInterceptor.class.getName() + ".requiredTime";
+
+    @Override
+    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+        request.setAttribute(REQUIRED_TIME_ATTRIBUTE, ReadYourWrites.requiredTime(), RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        if (request.getAttribute(REQUIRED_TIME_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Long requiredTime) {
+            ReadYourWrites.begin(requiredTime);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        ReadYourWrites.end();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example1.springbootdemo.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Set;
+
+/**
+ * 读己之写：客户端的修改请求成功后，它之后的读请求只发往已经复制到这次修改的副本
+ *
+ * 修改请求（POST、PUT、PATCH、DELETE）处理期间的读取全部发往主库；成功时在响应提交之前（此时事务已提交）
+ * 通过Cookie把当前时间交给客户端。之后的请求带着这个时间，只有心跳时间不早于它的副本才能接收该客户端的只读事务，
+ * 没有这样的副本时发往主库。可用副本的延迟不超过上限，所以Cookie的有效期与复制延迟上限相同，过期后不再需要。
+ * 不保存Cookie的客户端没有这个保证，读取可能落后最多一个复制延迟上限
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "todo-last-write";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final long maxAgeMillis;
+
+    /**
+     * @param maxAgeMillis Cookie的有效期，即只读副本的复制延迟上限
+     */
+    public ReadYourWritesFilter(long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (SAFE_METHODS.contains(request.getMethod())) {
+            ReadYourWrites.begin(lastWriteTime(request));
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                ReadYourWrites.end();
+            }
+            return;
+        }
+        LastWriteResponse wrapped = new LastWriteResponse(response);
+        ReadYourWrites.begin(ReadYourWrites.PRIMARY_ONLY);
+        try {
+            filterChain.doFilter(request, wrapped);
+        } finally {
+            ReadYourWrites.end();
+        }
+        wrapped.beforeCommit();
+    }
+
+    /**
+     * 请求中Cookie记录的最后一次写入时间，没有、无法解析或已过期时为0
+     */
+    private long lastWriteTime(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    long time = Long.parseLong(cookie.getValue());
+                    return System.currentTimeMillis() - time <= maxAgeMillis ? time : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 在响应提交之前（第一次获取输出流、flush或请求结束时）写入Cookie，失败的修改不写入
+     */
+    private class LastWriteResponse extends HttpServletResponseWrapper {
+
+        private boolean cookieAdded;
+
+        LastWriteResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        void beforeCommit() {
+            if (cookieAdded || isCommitted()) {
+                return;
+            }
+            cookieAdded = true;
+            if (getStatus() < 400) {
+                Cookie cookie = new Cookie(COOKIE_NAME, String.valueOf(System.currentTimeMillis()));
+                cookie.setPath("/");
+                cookie.setHttpOnly(true);
+                cookie.setMaxAge((int) Math.max(1, (maxAgeMillis + 999) / 1000));
+                addCookie(cookie);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            beforeCommit();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            beforeCommit();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            beforeCommit();
+            super.flushBuffer();
+        }
+    }
+}
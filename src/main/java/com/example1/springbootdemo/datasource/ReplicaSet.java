@@ -0,0 +1,283 @@
+package com.example1.springbootdemo.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 主库和只读副本的连接池，以及各副本的健康状态和复制延迟
+ *
+ * 复制延迟用心跳表测量：每个检查间隔向主库的心跳表写入当前时间（毫秒），再从各副本读出已经复制过去的值。
+ * 副本上的心跳时间表示在它之前提交到主库的修改都已复制到该副本，当前时间与之相减即复制延迟，
+ * 最多偏大一个检查间隔，不会偏小。只使用普通的SQL，MySQL等数据库自身的复制和本地模拟复制（LocalH2Replication）都适用。
+ *
+ * 查询心跳失败的副本标记为不可用，复制延迟超过上限的副本暂不接收读请求，之后的检查恢复正常时自动重新加入。
+ * 心跳时间由各应用实例的时钟写入和比较，多个实例之间的时钟偏差会计入复制延迟
+ */
+public class ReplicaSet implements ConnectionPools, MeterBinder, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaSet.class);
+
+    /**
+     * 主库在路由数据源中的键
+     */
+    static final String PRIMARY = "primary";
+
+    static final String HEARTBEAT_TABLE = "todo_replication_heartbeat";
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final int checkTimeoutSeconds;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    /**
+     * 只读事务因没有可用副本、或没有副本复制到客户端最后一次写入而发往主库的次数
+     */
+    private final LongAdder unavailableFallbacks = new LongAdder();
+    private final LongAdder readYourWritesFallbacks = new LongAdder();
+
+    private volatile boolean heartbeatTableCreated;
+
+    /**
+     * @param primary 主库连接池
+     * @param replicas 副本名称 -> 连接池，按配置顺序
+     * @param maxLag 复制延迟上限，超过时副本暂不接收读请求；必须大于检查间隔
+     * @param checkInterval 写入心跳和检查副本的间隔
+     */
+    public ReplicaSet(HikariDataSource primary, Map<String, HikariDataSource> replicas, Duration maxLag,
+                      Duration checkInterval) {
+        if (maxLag.compareTo(checkInterval) <= 0) {
+            throw new IllegalArgumentException("只读副本的复制延迟上限必须大于检查间隔，否则正常的副本也会被判定为延迟过大");
+        }
+        this.primary = primary;
+        this.replicas = new ArrayList<>();
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        this.maxLagMillis = maxLag.toMillis();
+        this.checkTimeoutSeconds = (int) Math.max(1, checkInterval.toSeconds());
+    }
+
+    HikariDataSource primary() {
+        return primary;
+    }
+
+    /**
+     * 副本名称 -> 连接池
+     */
+    Map<String, HikariDataSource> replicas() {
+        Map<String, HikariDataSource> result = new LinkedHashMap<>();
+        for (Replica replica : replicas) {
+            result.put(replica.name, replica.dataSource);
+        }
+        return result;
+    }
+
+    /**
+     * 全部连接池：主库在前，副本按配置顺序
+     */
+    @Override
+    public List<HikariDataSource> pools() {
+        List<HikariDataSource> pools = new ArrayList<>();
+        pools.add(primary);
+        replicas.forEach(replica -> pools.add(replica.dataSource));
+        return pools;
+    }
+
+    public long maxLagMillis() {
+        return maxLagMillis;
+    }
+
+    /**
+     * 为只读事务选择数据源：在可用、复制延迟不超过上限、且心跳时间不早于requiredTime的副本中轮询，
+     * 没有这样的副本时返回主库。修改请求中的读取（PRIMARY_ONLY）直接发往主库，不计入回退次数
+     * @param requiredTime 客户端最后一次写入的时间（毫秒），0表示没有要求
+     * @return 路由数据源中的键
+     */
+    String selectForRead(long requiredTime) {
+        int count = replicas.size();
+        if (count == 0 || requiredTime == ReadYourWrites.PRIMARY_ONLY) {
+            return PRIMARY;
+        }
+        long now = System.currentTimeMillis();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), count);
+        boolean available = false;
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if (!replica.isAvailable(now)) {
+                continue;
+            }
+            available = true;
+            if (replica.replicatedTime >= requiredTime) {
+                replica.reads.increment();
+                return replica.name;
+            }
+        }
+        (available ? readYourWritesFallbacks : unavailableFallbacks).increment();
+        return PRIMARY;
+    }
+
+    /**
+     * 向主库写入心跳，再读取各副本复制到的心跳时间
+     */
+    @Scheduled(fixedDelayString = "${todo.datasource.replica.check-interval:1s}")
+    public void check() {
+        writeHeartbeat();
+        for (Replica replica : replicas) {
+            replica.check();
+        }
+    }
+
+    private void writeHeartbeat() {
+        try (Connection connection = primary.getConnection(); Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(checkTimeoutSeconds);
+            if (!heartbeatTableCreated) {
+                statement.execute("CREATE TABLE IF NOT EXISTS " + HEARTBEAT_TABLE
+                        + " (id INT NOT NULL PRIMARY KEY, beat BIGINT NOT NULL)");
+                heartbeatTableCreated = true;
+            }
+            long now = System.currentTimeMillis();
+            if (statement.executeUpdate("UPDATE " + HEARTBEAT_TABLE + " SET beat = " + now + " WHERE id = 1") == 0) {
+                statement.executeUpdate("INSERT INTO " + HEARTBEAT_TABLE + " (id, beat) VALUES (1, " + now + ")");
+            }
+        } catch (SQLException e) {
+            // 主库不可用时副本的延迟随时间增大，读请求也会回到主库
+            log.warn("写入复制心跳失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 连接池指标（hikaricp.*，与Spring Boot为单个数据源导出的相同），
+     * 以及每个副本的复制延迟、是否可用和接收的读事务数，回退到主库的读事务数
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (HikariDataSource pool : pools()) {
+            if (pool.getMetricRegistry() == null && pool.getMetricsTrackerFactory() == null) {
+                pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+        }
+        for (Replica replica : replicas) {
+            TimeGauge.builder("todo.db.replica.lag", replica, TimeUnit.MILLISECONDS,
+                            r -> r.replicatedTime == 0 ? Double.NaN : Math.max(0, System.currentTimeMillis() - r.replicatedTime))
+                    .description("只读副本的复制延迟，按心跳表测量；尚未读到心跳时为NaN")
+                    .tag("replica", replica.name)
+                    .register(registry);
+            Gauge.builder("todo.db.replica.available", replica, r -> r.isAvailable(System.currentTimeMillis()) ? 1 : 0)
+                    .description("只读副本是否接收读请求：1为可用且复制延迟不超过上限")
+                    .tag("replica", replica.name)
+                    .register(registry);
+            FunctionCounter.builder("todo.db.routing.reads", replica.reads, LongAdder::sum)
+                    .description("只读事务发往的数据源")
+                    .tag("target", replica.name)
+                    .tag("reason", "replica")
+                    .register(registry);
+        }
+        FunctionCounter.builder("todo.db.routing.reads", unavailableFallbacks, LongAdder::sum)
+                .description("只读事务发往的数据源")
+                .tag("target", PRIMARY)
+                .tag("reason", "no-available-replica")
+                .register(registry);
+        FunctionCounter.builder("todo.db.routing.reads", readYourWritesFallbacks, LongAdder::sum)
+                .description("只读事务发往的数据源")
+                .tag("target", PRIMARY)
+                .tag("reason", "read-your-writes")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        replicas.forEach(replica -> replica.dataSource.close());
+        primary.close();
+    }
+
+    /**
+     * 一个只读副本的状态，只由检查线程修改
+     */
+    private final class Replica {
+
+        final String name;
+        final HikariDataSource dataSource;
+        final LongAdder reads = new LongAdder();
+
+        /**
+         * 副本上的心跳时间，0表示尚未读到
+         */
+        volatile long replicatedTime;
+        volatile boolean reachable;
+
+        /**
+         * 是否检查过、上一次检查时是否延迟过大，只用于记录状态变化的日志
+         */
+        boolean checked;
+        boolean lagging;
+
+        Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        /**
+         * 可用且复制延迟不超过上限。延迟按当前时间计算，检查卡住时延迟随时间增大，副本自动退出
+         */
+        boolean isAvailable(long now) {
+            return reachable && now - replicatedTime <= maxLagMillis;
+        }
+
+        void check() {
+            long beat;
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(
+                         "SELECT beat FROM " + HEARTBEAT_TABLE + " WHERE id = 1")) {
+                statement.setQueryTimeout(checkTimeoutSeconds);
+                try (ResultSet result = statement.executeQuery()) {
+                    beat = result.next() ? result.getLong(1) : 0;
+                }
+            } catch (SQLException e) {
+                if (reachable || !checked) {
+                    log.warn("只读副本 {} 不可用，读请求不再发往该副本: {}", name, e.getMessage());
+                }
+                reachable = false;
+                checked = true;
+                return;
+            }
+            if (!reachable) {
+                log.info("只读副本 {} 已可用", name);
+            }
+            checked = true;
+            replicatedTime = Math.max(replicatedTime, beat);
+            reachable = true;
+            long lag = System.currentTimeMillis() - replicatedTime;
+            if (lag > maxLagMillis != lagging) {
+                lagging = !lagging;
+                if (lagging) {
+                    log.warn("只读副本 {} 的复制延迟为 {} ms，超过上限 {} ms，读请求暂时发往其他副本或主库", name, lag, maxLagMillis);
+                } else {
+                    log.info("只读副本 {} 的复制延迟恢复为 {} ms", name, lag);
+                }
+            }
+        }
+    }
+}
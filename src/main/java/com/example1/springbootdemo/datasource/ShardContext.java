@@ -0,0 +1,33 @@
+package com.example1.springbootdemo.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * 当前线程访问的分片
+ * 由ShardSet.call绑定，ShardRoutingDataSource取得真正的连接时读取；未绑定时使用第一个分片
+ */
+final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    static Integer current() {
+        return CURRENT.get();
+    }
+
+    static <T> T call(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
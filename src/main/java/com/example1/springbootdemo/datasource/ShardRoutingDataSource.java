@@ -0,0 +1,43 @@
+package com.example1.springbootdemo.datasource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 分片的数据源：连接发往当前线程通过ShardSet.call绑定的分片，未绑定时发往第一个分片
+ * （Hibernate启动、按ddl-auto建表、查询计划检查等）。
+ *
+ * 与ReadWriteRoutingDataSource一样在路由外面包一层LazyConnectionDataSourceProxy：
+ * TodoService方法上的事务在进入分片之前就已开始，不执行语句，不应占用第一个分片的连接；
+ * 真正的语句都在ShardedTodoStore为每个分片单独开启的事务中执行。连接池由ShardSet持有和关闭
+ */
+public class ShardRoutingDataSource extends LazyConnectionDataSourceProxy {
+
+    private final ShardSet shardSet;
+
+    public ShardRoutingDataSource(ShardSet shardSet) {
+        this.shardSet = shardSet;
+        AbstractRoutingDataSource router = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return ShardContext.current();
+            }
+        };
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shardSet.size(); shard++) {
+            targets.put(shard, shardSet.pools().get(shard));
+        }
+        router.setTargetDataSources(targets);
+        router.setDefaultTargetDataSource(shardSet.pools().get(0));
+        router.setLenientFallback(false);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+    }
+
+    public ShardSet getShardSet() {
+        return shardSet;
+    }
+}
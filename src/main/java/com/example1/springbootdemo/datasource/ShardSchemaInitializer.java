@@ -0,0 +1,51 @@
+package com.example1.springbootdemo.datasource;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 在第一个分片之外的各分片上按实体映射建表
+ * Hibernate启动时只在默认连接（第一个分片）上执行spring.jpa.hibernate.ddl-auto，这里在其余分片上以同样的设置再执行一遍。
+ * 作为Integrator注册到Hibernate，以取得启动时的映射元数据。create-drop时其余分片上的表在关闭时不删除
+ */
+public class ShardSchemaInitializer implements Integrator {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardSchemaInitializer.class);
+
+    private volatile Metadata metadata;
+    private volatile SessionFactoryImplementor sessionFactory;
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        this.metadata = metadata;
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    /**
+     * 在Hibernate启动之后、访问其余分片之前调用
+     */
+    public void initialize(ShardSet shardSet) {
+        if (metadata == null) {
+            throw new IllegalStateException("Hibernate尚未启动，无法在各分片上建表");
+        }
+        for (int shard = 1; shard < shardSet.size(); shard++) {
+            ShardContext.call(shard, () -> {
+                SchemaManagementToolCoordinator.process(metadata, sessionFactory.getServiceRegistry(),
+                        sessionFactory.getProperties(), action -> {
+                        });
+                return null;
+            });
+            log.debug("已在分片 {} 上执行表结构管理", shardSet.name(shard));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example1.springbootdemo.datasource;
+
+import com.example1.springbootdemo.id.SnowflakeIdGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * 各分片的连接池，以及任务ID到分片的映射
+ *
+ * 两种分片方式：
+ * - HASH（默认）：按ID的哈希取模，数据和读写均匀分布在各分片上；分片数改变后大部分任务所在的分片随之改变，需要迁移数据
+ * - RANGE：按ID范围。ID是Snowflake风格的，ID范围就是创建时间段：第i个分片保存range-starts[i-1]之后创建的任务。
+ *   扩容时为之后的时间段增加分片即可，旧数据不动；但新建的任务都写入最后一个分片。
+ *   按ID顺序遍历（重建索引、分批删除）时跳过ID范围不相交的分片
+ */
+public class ShardSet implements ConnectionPools, MeterBinder, DisposableBean {
+
+    public enum Strategy {
+        HASH, RANGE
+    }
+
+    private final List<String> names;
+    private final List<HikariDataSource> pools;
+    private final Strategy strategy;
+
+    /**
+     * 按范围分片时每个分片的最小ID，第一个分片为Long.MIN_VALUE
+     */
+    private final long[] rangeStarts;
+
+    /**
+     * 每个分片上按ID路由的操作数，以及作为并行查询所有分片的一部分执行的操作数
+     */
+    private final LongAdder[] routed;
+    private final LongAdder[] scattered;
+
+    /**
+     * @param shards 分片名称 -> 连接池，按配置顺序
+     * @param strategy 分片方式
+     * @param rangeStarts 按范围分片时第2个及之后每个分片的起始时间，按哈希分片时忽略
+     */
+    public ShardSet(Map<String, HikariDataSource> shards, Strategy strategy, List<Instant> rangeStarts) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("至少需要配置一个分片");
+        }
+        this.names = List.copyOf(shards.keySet());
+        this.pools = List.copyOf(shards.values());
+        this.strategy = strategy;
+        this.rangeStarts = new long[names.size()];
+        if (strategy == Strategy.RANGE) {
+            if (rangeStarts.size() != names.size() - 1) {
+                throw new IllegalArgumentException("按范围分片时range-starts的个数应比分片数少一，依次为第2个及之后每个分片的起始时间");
+            }
+            this.rangeStarts[0] = Long.MIN_VALUE;
+            for (int i = 1; i < names.size(); i++) {
+                this.rangeStarts[i] = SnowflakeIdGenerator.minIdAt(rangeStarts.get(i - 1));
+                if (this.rangeStarts[i] <= this.rangeStarts[i - 1]) {
+                    throw new IllegalArgumentException("range-starts必须按时间递增且晚于ID的起始时间");
+                }
+            }
+        }
+        this.routed = new LongAdder[names.size()];
+        this.scattered = new LongAdder[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            routed[i] = new LongAdder();
+            scattered[i] = new LongAdder();
+        }
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public String name(int shard) {
+        return names.get(shard);
+    }
+
+    /**
+     * ID所在的分片
+     */
+    public int shardOf(long id) {
+        if (strategy == Strategy.HASH) {
+            return (int) Long.remainderUnsigned(mix(id), names.size());
+        }
+        int found = Arrays.binarySearch(rangeStarts, id);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    public int[] all() {
+        return IntStream.range(0, names.size()).toArray();
+    }
+
+    /**
+     * 可能有ID在(afterId, maxId]之间的任务的分片，按哈希分片时为全部分片
+     */
+    public int[] shardsBetween(long afterId, long maxId) {
+        if (strategy == Strategy.HASH) {
+            return all();
+        }
+        int last = names.size() - 1;
+        return IntStream.rangeClosed(0, last)
+                .filter(shard -> rangeStarts[shard] <= maxId && (shard == last || rangeStarts[shard + 1] - 1 > afterId))
+                .toArray();
+    }
+
+    /**
+     * 在指定分片上执行，期间从ShardRoutingDataSource取得的连接都来自该分片
+     * @param scatter 是否是并行查询所有分片的一部分，只用于统计
+     */
+    public <T> T call(int shard, boolean scatter, Supplier<T> work) {
+        (scatter ? scattered : routed)[shard].increment();
+        return ShardContext.call(shard, work);
+    }
+
+    /**
+     * 全部连接池，按分片顺序
+     */
+    @Override
+    public List<HikariDataSource> pools() {
+        return pools;
+    }
+
+    /**
+     * 连接池指标（hikaricp.*，与Spring Boot为单个数据源导出的相同），以及每个分片上执行的操作数
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (HikariDataSource pool : pools) {
+            if (pool.getMetricRegistry() == null && pool.getMetricsTrackerFactory() == null) {
+                pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+        }
+        for (int shard = 0; shard < names.size(); shard++) {
+            FunctionCounter.builder("todo.db.shard.operations", routed[shard], LongAdder::sum)
+                    .description("各分片上执行的存储操作数：routed为按ID路由到该分片，scatter为并行查询所有分片的一部分")
+                    .tag("shard", names.get(shard))
+                    .tag("mode", "routed")
+                    .register(registry);
+            FunctionCounter.builder("todo.db.shard.operations", scattered[shard], LongAdder::sum)
+                    .description("各分片上执行的存储操作数：routed为按ID路由到该分片，scatter为并行查询所有分片的一部分")
+                    .tag("shard", names.get(shard))
+                    .tag("mode", "scatter")
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    /**
+     * 打散ID的各位（MurmurHash3的64位终结函数）。Snowflake风格的ID低位是节点号和毫秒内序号，
+     * 低并发时序号总是0，直接取模会集中在少数分片上
+     */
+    private static long mix(long id) {
+        id ^= id >>> 33;
+        id *= 0xff51afd7ed558ccdL;
+        id ^= id >>> 33;
+        id *= 0xc4ceb9fe1a85ec53L;
+        id ^= id >>> 33;
+        return id;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example1.springbootdemo.dto;
+
+import java.util.List;
+
+/**
+ * 批量创建结果
+ * 包含每一项的处理结果和整体吞吐量
+ */
+public class BatchCreateResult {
+
+    /**
+     * 每一项的结果，顺序与请求一致
+     */
+    private final List<ItemResult> items;
+
+    /**
+     * 创建成功的条数
+     */
+    private final int created;
+
+    /**
+     * 校验失败的条数
+     */
+    private final int failed;
+
+    /**
+     * 总耗时（毫秒），包括校验和写入
+     */
+    private final long elapsedMillis;
+
+    /**
+     * 每秒创建的条数
+     */
+    private final double itemsPerSecond;
+
+    public BatchCreateResult(List<ItemResult> items, int created, int failed, long elapsedMillis) {
+        this.items = items;
+        this.created = created;
+        this.failed = failed;
+        this.elapsedMillis = elapsedMillis;
+        this.itemsPerSecond = created * 1000.0 / Math.max(elapsedMillis, 1);
+    }
+
+    public List<ItemResult> getItems() {
+        return items;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getItemsPerSecond() {
+        return itemsPerSecond;
+    }
+
+    /**
+     * 单项结果
+     */
+    public static class ItemResult {
+
+        /**
+         * 在请求数组中的下标
+         */
+        private final int index;
+
+        private final boolean success;
+
+        /**
+         * 创建成功时的任务ID
+         */
+        private final Long id;
+
+        /**
+         * 校验失败时的错误信息
+         */
+        private final List<String> errors;
+
+        private ItemResult(int index, boolean success, Long id, List<String> errors) {
+            this.index = index;
+            this.success = success;
+            this.id = id;
+            this.errors = errors;
+        }
+
+        public static ItemResult created(int index, Long id) {
+            return new ItemResult(index, true, id, null);
+        }
+
+        public static ItemResult failed(int index, List<String> errors) {
+            return new ItemResult(index, false, null, errors);
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example1.springbootdemo.dto;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ * 包含当前页数据和指向下一页的游标，不统计总数
+ * @param <T> 数据类型
+ */
+public class CursorPage<T> {
+
+    /**
+     * 当前页数据
+     */
+    private final List<T> items;
+
+    /**
+     * 下一页游标，没有更多数据时为null
+     */
+    private final String nextCursor;
+
+    /**
+     * 是否还有下一页
+     */
+    private final boolean hasMore;
+
+    public CursorPage(List<T> items, String nextCursor, boolean hasMore) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+}
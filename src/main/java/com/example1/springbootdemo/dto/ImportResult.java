@@ -0,0 +1,120 @@
+package com.example1.springbootdemo.dto;
+
+import java.util.List;
+
+/**
+ * 导入结果
+ * 包含导入条数、吞吐量和被拒绝记录的日志，拒绝日志有条数上限
+ */
+public class ImportResult {
+
+    /**
+     * 读取到的记录条数，不含CSV表头和空行
+     */
+    private final long total;
+
+    /**
+     * 导入成功的条数
+     */
+    private final long imported;
+
+    /**
+     * 被拒绝的条数
+     */
+    private final long rejected;
+
+    /**
+     * 提交的批次数
+     */
+    private final int chunks;
+
+    /**
+     * 总耗时（毫秒），包括解析、校验和写入
+     */
+    private final long elapsedMillis;
+
+    /**
+     * 每秒导入的条数
+     */
+    private final double itemsPerSecond;
+
+    /**
+     * 被拒绝的记录，按发现的先后顺序
+     */
+    private final List<RejectedRecord> rejectedRecords;
+
+    /**
+     * 被拒绝的记录超过日志上限，rejectedRecords只包含前面的部分
+     */
+    private final boolean rejectedRecordsTruncated;
+
+    public ImportResult(long total, long imported, int chunks, long elapsedMillis,
+                        List<RejectedRecord> rejectedRecords, long rejected) {
+        this.total = total;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.chunks = chunks;
+        this.elapsedMillis = elapsedMillis;
+        this.itemsPerSecond = imported * 1000.0 / Math.max(elapsedMillis, 1);
+        this.rejectedRecords = rejectedRecords;
+        this.rejectedRecordsTruncated = rejected > rejectedRecords.size();
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getItemsPerSecond() {
+        return itemsPerSecond;
+    }
+
+    public List<RejectedRecord> getRejectedRecords() {
+        return rejectedRecords;
+    }
+
+    public boolean isRejectedRecordsTruncated() {
+        return rejectedRecordsTruncated;
+    }
+
+    /**
+     * 被拒绝的记录
+     */
+    public static class RejectedRecord {
+
+        /**
+         * 记录在文件中开始的行号（从1开始）
+         */
+        private final long line;
+
+        private final List<String> errors;
+
+        public RejectedRecord(long line, List<String> errors) {
+            this.line = line;
+            this.errors = errors;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+}
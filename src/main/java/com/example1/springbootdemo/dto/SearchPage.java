@@ -0,0 +1,53 @@
+package com.example1.springbootdemo.dto;
+
+import java.util.List;
+
+/**
+ * 搜索分页结果
+ * @param <T> 数据类型
+ */
+public class SearchPage<T> {
+
+    /**
+     * 当前页数据，按相关度从高到低排列
+     */
+    private final List<T> items;
+
+    /**
+     * 命中总数
+     */
+    private final long total;
+
+    /**
+     * 页码，从0开始
+     */
+    private final int page;
+
+    /**
+     * 每页条数
+     */
+    private final int size;
+
+    public SearchPage(List<T> items, long total, int page, int size) {
+        this.items = items;
+        this.total = total;
+        this.page = page;
+        this.size = size;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example1.springbootdemo.dto;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * 部分更新的结果
+ *
+ * @param changes 响应中返回的字段：任务ID、被修改的字段、更新时间和新版本号（值为null表示清除了该字段）
+ * @param version 新版本号，用于生成ETag
+ */
+public record TodoChanges(TodoView changes, long version) {
+
+    /**
+     * @param id 任务ID
+     * @param values 被修改的属性 -> 新值，属性名与TodoField的参数名一致
+     * @param updateTime 更新时间，没有修改任何字段时为null，不出现在结果中
+     * @param version 新版本号
+     * @return 部分更新的结果
+     * @throws IllegalArgumentException 属性名不是TodoField
+     */
+    public static TodoChanges of(Long id, Map<String, Object> values, LocalDateTime updateTime, long version) {
+        Map<TodoField, Object> fields = new EnumMap<>(TodoField.class);
+        fields.put(TodoField.ID, id);
+        values.forEach((name, value) -> fields.put(TodoField.fromParam(name), value));
+        if (updateTime != null) {
+            fields.put(TodoField.UPDATE_TIME, updateTime);
+        }
+        fields.put(TodoField.VERSION, version);
+        return new TodoChanges(TodoView.of(fields, EnumSet.copyOf(fields.keySet())), version);
+    }
+}
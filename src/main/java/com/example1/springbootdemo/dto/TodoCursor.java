@@ -0,0 +1,116 @@
+package com.example1.springbootdemo.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Todo列表分页游标
+ * 记录上一页最后一条记录的排序键和ID，编码成不透明的字符串交给客户端，
+ * 下一页通过 (排序键, id) 做索引定位，不再使用OFFSET，翻页深度不影响查询开销
+ */
+public class TodoCursor {
+
+    private static final String VERSION = "v1";
+    private static final String SEPARATOR = "|";
+
+    private final TodoSortField sortField;
+    private final boolean ascending;
+    private final LocalDateTime createTime;
+    private final Integer priority;
+    private final Long id;
+
+    private TodoCursor(TodoSortField sortField, boolean ascending, LocalDateTime createTime, Integer priority, Long id) {
+        this.sortField = sortField;
+        this.ascending = ascending;
+        this.createTime = createTime;
+        this.priority = priority;
+        this.id = id;
+    }
+
+    /**
+     * 以某条记录作为当前页的最后一条，生成指向下一页的游标
+     * @param todo 当前页最后一条记录，需要读取了ID和排序字段
+     * @param sortField 排序字段
+     * @param ascending 是否升序
+     * @return 游标
+     */
+    public static TodoCursor after(TodoView todo, TodoSortField sortField, boolean ascending) {
+        return new TodoCursor(sortField, ascending, todo.createTime(), todo.priority(), todo.id());
+    }
+
+    /**
+     * 编码为URL安全的Base64字符串
+     * @return 游标字符串
+     */
+    public String encode() {
+        String key = sortField == TodoSortField.PRIORITY
+                ? (priority == null ? "" : priority.toString())
+                : createTime.toString();
+        String raw = VERSION + SEPARATOR + sortField.getParamName() + SEPARATOR + (ascending ? "asc" : "desc")
+                + SEPARATOR + key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析客户端传回的游标，并校验其排序方式与本次请求一致
+     * @param token 游标字符串
+     * @param expectedField 本次请求的排序字段
+     * @param expectedAscending 本次请求是否升序
+     * @return 游标
+     * @throws IllegalArgumentException 游标格式错误或与排序条件不匹配
+     */
+    public static TodoCursor decode(String token, TodoSortField expectedField, boolean expectedAscending) {
+        String[] parts;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            parts = raw.split("\\|", -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        // 排序字段和方向必须是encode写出的值，不能像请求参数那样把未知的值当作默认值
+        if (parts.length != 5 || !VERSION.equals(parts[0])
+                || !parts[1].equals(TodoSortField.fromParam(parts[1]).getParamName())
+                || !(parts[2].equals("asc") || parts[2].equals("desc"))) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+
+        TodoSortField sortField = TodoSortField.fromParam(parts[1]);
+        boolean ascending = "asc".equals(parts[2]);
+        if (sortField != expectedField || ascending != expectedAscending) {
+            throw new IllegalArgumentException("分页游标与排序条件不匹配，请从第一页重新查询");
+        }
+
+        try {
+            Long id = Long.valueOf(parts[4]);
+            if (sortField == TodoSortField.PRIORITY) {
+                Integer priority = parts[3].isEmpty() ? null : Integer.valueOf(parts[3]);
+                return new TodoCursor(sortField, ascending, null, priority, id);
+            }
+            return new TodoCursor(sortField, ascending, LocalDateTime.parse(parts[3]), null, id);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    public TodoSortField getSortField() {
+        return sortField;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
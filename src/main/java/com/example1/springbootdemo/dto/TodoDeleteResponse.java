@@ -0,0 +1,15 @@
+package com.example1.springbootdemo.dto;
+
+/**
+ * 批量删除响应
+ *
+ * @param success 是否成功
+ * @param message 提示信息
+ * @param deletedCount 删除条数
+ */
+public record TodoDeleteResponse(boolean success, String message, int deletedCount) {
+
+    public static TodoDeleteResponse ok(String message, int deletedCount) {
+        return new TodoDeleteResponse(true, message, deletedCount);
+    }
+}
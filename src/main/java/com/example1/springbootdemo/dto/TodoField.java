@@ -0,0 +1,98 @@
+package com.example1.springbootdemo.dto;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Todo响应中可选择的字段
+ * 对应请求参数fields的取值，名称与JSON字段名、实体属性名一致
+ */
+public enum TodoField {
+
+    ID("id", "id"),
+
+    CONTENT("content", "content"),
+
+    DESCRIPTION("description", "description"),
+
+    COMPLETED("completed", "completed"),
+
+    PRIORITY("priority", "priority"),
+
+    CREATE_TIME("createTime", "create_time"),
+
+    UPDATE_TIME("updateTime", "update_time"),
+
+    VERSION("version", "version");
+
+    /**
+     * 单个任务的默认字段：全部字段
+     */
+    public static final Set<TodoField> ALL = Collections.unmodifiableSet(EnumSet.allOf(TodoField.class));
+
+    /**
+     * 列表、分页和搜索的默认字段
+     * 不含描述（TEXT类型，长度不受限制）和版本号，列表查询因此不读取描述列
+     */
+    public static final Set<TodoField> SUMMARY = Collections.unmodifiableSet(
+            EnumSet.of(ID, CONTENT, COMPLETED, PRIORITY, CREATE_TIME, UPDATE_TIME));
+
+    private final String paramName;
+    private final String column;
+
+    TodoField(String paramName, String column) {
+        this.paramName = paramName;
+        this.column = column;
+    }
+
+    public String getParamName() {
+        return paramName;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * 排序字段对应的响应字段，生成游标时需要读取
+     */
+    public static TodoField of(TodoSortField sortField) {
+        return sortField == TodoSortField.PRIORITY ? PRIORITY : CREATE_TIME;
+    }
+
+    /**
+     * 解析请求参数fields，多个字段以逗号分隔
+     * @param fields 请求参数，为空时返回默认字段
+     * @param defaults 默认字段
+     * @return 选择的字段
+     * @throws IllegalArgumentException 包含未知字段
+     */
+    public static Set<TodoField> parse(String fields, Set<TodoField> defaults) {
+        if (fields == null || fields.isBlank()) {
+            return defaults;
+        }
+        Set<TodoField> selected = EnumSet.noneOf(TodoField.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            selected.add(fromParam(trimmed));
+        }
+        if (selected.isEmpty()) {
+            return defaults;
+        }
+        return Collections.unmodifiableSet(selected);
+    }
+
+    static TodoField fromParam(String name) {
+        for (TodoField field : values()) {
+            if (field.paramName.equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("不支持的字段: " + name
+                + "，可选字段: id, content, description, completed, priority, createTime, updateTime, version");
+    }
+}
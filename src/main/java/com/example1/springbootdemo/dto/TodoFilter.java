@@ -0,0 +1,133 @@
+package com.example1.springbootdemo.dto;
+
+/**
+ * Todo列表查询条件
+ * 状态、优先级、关键词和排序可以任意组合，由TodoRepository在一条SQL中完成过滤和排序
+ */
+public class TodoFilter {
+
+    /**
+     * 完成状态，null表示不限
+     */
+    private Boolean completed;
+
+    /**
+     * 优先级，null表示不限
+     */
+    private Integer priority;
+
+    /**
+     * 关键词，匹配任务内容或描述，null表示不限
+     */
+    private String keyword;
+
+    /**
+     * 排序字段
+     */
+    private TodoSortField sortField = TodoSortField.CREATE_TIME;
+
+    /**
+     * 是否升序
+     */
+    private boolean ascending;
+
+    /**
+     * 根据列表接口的请求参数构建查询条件
+     * @param status 任务状态 (completed/incomplete)，其他取值表示不限
+     * @param priority 优先级
+     * @param keyword 关键词
+     * @param sortBy 排序字段
+     * @param sortOrder 排序方向 (asc/desc)
+     * @return 查询条件
+     */
+    public static TodoFilter of(String status, Integer priority, String keyword, String sortBy, String sortOrder) {
+        TodoFilter filter = new TodoFilter();
+        if ("completed".equals(status)) {
+            filter.completed = true;
+        } else if ("incomplete".equals(status)) {
+            filter.completed = false;
+        }
+        filter.priority = priority;
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            filter.keyword = keyword.trim();
+        }
+        filter.sortField = TodoSortField.fromParam(sortBy);
+        filter.ascending = "asc".equalsIgnoreCase(sortOrder);
+        return filter;
+    }
+
+    /**
+     * 是否包含任何过滤条件（排序除外）
+     * @return 有过滤条件返回true
+     */
+    public boolean hasConditions() {
+        return completed != null || priority != null || keyword != null;
+    }
+
+    /**
+     * 查询形状：只由“哪些条件存在”和排序方式决定，与具体取值无关
+     * 形状相同的查询生成相同的JPQL，可以复用已编译的查询计划
+     * @param withCursor 是否带游标定位条件
+     * @param cursorPriorityNull 游标记录的优先级是否为空
+     * @return 形状标识
+     */
+    public String shapeKey(boolean withCursor, boolean cursorPriorityNull) {
+        return (completed != null ? "C" : "-")
+                + (priority != null ? "P" : "-")
+                + (keyword != null ? "K" : "-")
+                + sortField.name().charAt(0)
+                + (ascending ? "A" : "D")
+                + (withCursor ? (cursorPriorityNull ? "N" : "S") : "-");
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(Boolean completed) {
+        this.completed = completed;
+    }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public void setKeyword(String keyword) {
+        this.keyword = keyword;
+    }
+
+    public TodoSortField getSortField() {
+        return sortField;
+    }
+
+    public void setSortField(TodoSortField sortField) {
+        this.sortField = sortField;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public void setAscending(boolean ascending) {
+        this.ascending = ascending;
+    }
+
+    @Override
+    public String toString() {
+        return "TodoFilter{" +
+                "completed=" + completed +
+                ", priority=" + priority +
+                ", keyword='" + keyword + '\'' +
+                ", sortField=" + sortField +
+                ", ascending=" + ascending +
+                '}';
+    }
+}
@@ -0,0 +1,21 @@
+package com.example1.springbootdemo.dto;
+
+/**
+ * 导入文件中的一条任务
+ * 校验规则与TodoRequest相同，另外允许带上完成状态，便于从其他系统迁移数据
+ */
+public class TodoImportRecord extends TodoRequest {
+
+    /**
+     * 是否已完成（可选），为空时视为未完成
+     */
+    private Boolean completed;
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(Boolean completed) {
+        this.completed = completed;
+    }
+}
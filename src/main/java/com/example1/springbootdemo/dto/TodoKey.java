@@ -0,0 +1,39 @@
+package com.example1.springbootdemo.dto;
+
+/**
+ * Todo的ID、分组字段和版本号
+ * 批量操作和部分更新只需要这几个字段即可维护搜索索引、缓存和统计计数，不必加载完整实体（尤其是TEXT类型的描述）
+ */
+public class TodoKey {
+
+    private final Long id;
+
+    private final boolean completed;
+
+    private final Integer priority;
+
+    private final Long version;
+
+    public TodoKey(Long id, Boolean completed, Integer priority, Long version) {
+        this.id = id;
+        this.completed = Boolean.TRUE.equals(completed);
+        this.priority = priority;
+        this.version = version;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example1.springbootdemo.dto;
+
+import java.util.List;
+
+/**
+ * Todo列表响应，返回全部符合条件的任务
+ *
+ * @param success 是否成功
+ * @param message 提示信息
+ * @param data 任务列表
+ * @param total 任务条数
+ */
+public record TodoListResponse(boolean success, String message, List<TodoView> data, int total) {
+
+    public static TodoListResponse ok(String message, List<TodoView> data) {
+        return new TodoListResponse(true, message, data, data.size());
+    }
+}
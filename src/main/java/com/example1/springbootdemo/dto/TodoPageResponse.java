@@ -0,0 +1,22 @@
+package com.example1.springbootdemo.dto;
+
+import java.util.List;
+
+/**
+ * Todo游标分页响应，不统计总数
+ *
+ * @param success 是否成功
+ * @param message 提示信息
+ * @param data 当前页任务
+ * @param size 当前页条数
+ * @param nextCursor 下一页游标，没有更多数据时为null
+ * @param hasMore 是否还有下一页
+ */
+public record TodoPageResponse(boolean success, String message, List<TodoView> data, int size,
+                               String nextCursor, boolean hasMore) {
+
+    public static TodoPageResponse ok(String message, CursorPage<TodoView> page) {
+        return new TodoPageResponse(true, message, page.getItems(), page.getItems().size(),
+                page.getNextCursor(), page.isHasMore());
+    }
+}
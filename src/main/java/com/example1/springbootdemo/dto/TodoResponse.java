@@ -0,0 +1,16 @@
+package com.example1.springbootdemo.dto;
+
+/**
+ * Todo接口的通用响应结构
+ *
+ * @param success 是否成功
+ * @param message 提示信息
+ * @param data 响应数据
+ * @param <T> 数据类型
+ */
+public record TodoResponse<T>(boolean success, String message, T data) {
+
+    public static <T> TodoResponse<T> ok(String message, T data) {
+        return new TodoResponse<>(true, message, data);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example1.springbootdemo.dto;
+
+import java.util.List;
+
+/**
+ * Todo搜索分页响应
+ *
+ * @param success 是否成功
+ * @param message 提示信息
+ * @param data 当前页任务
+ * @param total 命中总数
+ * @param page 页码，从0开始
+ * @param size 每页条数
+ */
+public record TodoSearchResponse(boolean success, String message, List<TodoView> data, long total,
+                                 int page, int size) {
+
+    public static TodoSearchResponse ok(String message, SearchPage<TodoView> result) {
+        return new TodoSearchResponse(true, message, result.getItems(), result.getTotal(),
+                result.getPage(), result.getSize());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example1.springbootdemo.dto;
+
+/**
+ * Todo列表排序字段
+ * 对应请求参数sortBy的取值
+ */
+public enum TodoSortField {
+
+    /**
+     * 按创建时间排序
+     */
+    CREATE_TIME("createTime"),
+
+    /**
+     * 按优先级排序
+     */
+    PRIORITY("priority");
+
+    private final String paramName;
+
+    TodoSortField(String paramName) {
+        this.paramName = paramName;
+    }
+
+    public String getParamName() {
+        return paramName;
+    }
+
+    /**
+     * 根据请求参数解析排序字段
+     * 未知的取值按创建时间排序，与原有列表接口的行为保持一致
+     * @param sortBy 请求参数sortBy
+     * @return 排序字段
+     */
+    public static TodoSortField fromParam(String sortBy) {
+        return PRIORITY.paramName.equals(sortBy) ? PRIORITY : CREATE_TIME;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example1.springbootdemo.dto;
+
+import java.util.Map;
+
+/**
+ * Todo统计信息
+ * 同一次统计中的各项数字来自同一个快照，相互一致
+ */
+public class TodoStats {
+
+    /**
+     * 任务总数
+     */
+    private final long total;
+
+    /**
+     * 已完成任务数
+     */
+    private final long completed;
+
+    /**
+     * 未完成任务数
+     */
+    private final long incomplete;
+
+    /**
+     * 按优先级分组的统计，键为优先级（1-3），未设置优先级的键为none
+     */
+    private final Map<String, PriorityCount> byPriority;
+
+    public TodoStats(long total, long completed, long incomplete, Map<String, PriorityCount> byPriority) {
+        this.total = total;
+        this.completed = completed;
+        this.incomplete = incomplete;
+        this.byPriority = byPriority;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getIncomplete() {
+        return incomplete;
+    }
+
+    public Map<String, PriorityCount> getByPriority() {
+        return byPriority;
+    }
+
+    /**
+     * 单个优先级下的任务数
+     */
+    public static class PriorityCount {
+
+        private final long total;
+        private final long completed;
+        private final long incomplete;
+
+        public PriorityCount(long completed, long incomplete) {
+            this.total = completed + incomplete;
+            this.completed = completed;
+            this.incomplete = incomplete;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getIncomplete() {
+            return incomplete;
+        }
+    }
+}
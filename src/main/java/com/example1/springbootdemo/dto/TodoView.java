@@ -0,0 +1,148 @@
+package com.example1.springbootdemo.dto;
+
+import com.example1.springbootdemo.entity.ReactiveTodo;
+import com.example1.springbootdemo.entity.Todo;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Todo任务的响应视图
+ * 接口不再直接序列化实体，只输出fields中选择的字段（值为null的字段也会输出）。
+ * 列表查询按字段投影得到视图，未选择的字段可能没有从数据库读取，值为null；
+ * 为生成ETag和游标，ID、版本号和排序字段总会读取，但只有被选择时才输出
+ *
+ * @param fields 输出的字段
+ */
+@JsonSerialize(using = TodoView.Serializer.class)
+public record TodoView(Long id, String content, String description, Boolean completed, Integer priority,
+                       LocalDateTime createTime, LocalDateTime updateTime, Long version, Set<TodoField> fields) {
+
+    /**
+     * 由实体生成视图
+     * @param todo 实体
+     * @param fields 输出的字段
+     * @return 视图
+     */
+    public static TodoView from(Todo todo, Set<TodoField> fields) {
+        return new TodoView(todo.getId(), todo.getContent(), todo.getDescription(), todo.getCompleted(),
+                todo.getPriority(), todo.getCreateTime(), todo.getUpdateTime(), todo.getVersion(), fields);
+    }
+
+    /**
+     * 由响应式实体生成视图
+     * @param todo 实体，可能只读取了部分列
+     * @param fields 输出的字段
+     * @return 视图
+     */
+    public static TodoView from(ReactiveTodo todo, Set<TodoField> fields) {
+        return new TodoView(todo.getId(), todo.getContent(), todo.getDescription(), todo.getCompleted(),
+                todo.getPriority(), todo.getCreateTime(), todo.getUpdateTime(), todo.getVersion(), fields);
+    }
+
+    /**
+     * 由投影查询读取的列生成视图
+     * @param values 字段 -> 读取到的值，没有读取的字段不出现
+     * @param fields 输出的字段
+     * @return 视图
+     */
+    public static TodoView of(Map<TodoField, Object> values, Set<TodoField> fields) {
+        return new TodoView(
+                (Long) values.get(TodoField.ID),
+                (String) values.get(TodoField.CONTENT),
+                (String) values.get(TodoField.DESCRIPTION),
+                (Boolean) values.get(TodoField.COMPLETED),
+                (Integer) values.get(TodoField.PRIORITY),
+                (LocalDateTime) values.get(TodoField.CREATE_TIME),
+                (LocalDateTime) values.get(TodoField.UPDATE_TIME),
+                (Long) values.get(TodoField.VERSION),
+                fields);
+    }
+
+    /**
+     * 按fields的顺序（即TodoField的声明顺序）输出选择的字段
+     * 字段名使用预先编码的SerializedString；日期序列化器在ObjectMapper创建本序列化器时解析一次，
+     * 格式与直接序列化实体时一致
+     */
+    static class Serializer extends StdSerializer<TodoView> implements ContextualSerializer {
+
+        private static final SerializedString[] NAMES = new SerializedString[TodoField.values().length];
+
+        static {
+            for (TodoField field : TodoField.values()) {
+                NAMES[field.ordinal()] = new SerializedString(field.getParamName());
+            }
+        }
+
+        private final JsonSerializer<Object> dateSerializer;
+
+        Serializer() {
+            this(null);
+        }
+
+        private Serializer(JsonSerializer<Object> dateSerializer) {
+            super(TodoView.class);
+            this.dateSerializer = dateSerializer;
+        }
+
+        @Override
+        public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property)
+                throws JsonMappingException {
+            return new Serializer(provider.findValueSerializer(LocalDateTime.class, property));
+        }
+
+        @Override
+        public void serialize(TodoView view, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(view);
+            for (TodoField field : view.fields) {
+                gen.writeFieldName(NAMES[field.ordinal()]);
+                switch (field) {
+                    case ID -> writeNumber(gen, view.id);
+                    case CONTENT -> gen.writeString(view.content);
+                    case DESCRIPTION -> gen.writeString(view.description);
+                    case COMPLETED -> {
+                        if (view.completed == null) {
+                            gen.writeNull();
+                        } else {
+                            gen.writeBoolean(view.completed);
+                        }
+                    }
+                    case PRIORITY -> writeNumber(gen, view.priority);
+                    case CREATE_TIME -> writeDate(gen, provider, view.createTime);
+                    case UPDATE_TIME -> writeDate(gen, provider, view.updateTime);
+                    case VERSION -> writeNumber(gen, view.version);
+                }
+            }
+            gen.writeEndObject();
+        }
+
+        private void writeNumber(JsonGenerator gen, Number value) throws IOException {
+            if (value == null) {
+                gen.writeNull();
+            } else {
+                gen.writeNumber(value.longValue());
+            }
+        }
+
+        private void writeDate(JsonGenerator gen, SerializerProvider provider, LocalDateTime value) throws IOException {
+            if (value == null) {
+                gen.writeNull();
+            } else if (dateSerializer != null) {
+                dateSerializer.serialize(value, gen, provider);
+            } else {
+                provider.defaultSerializeValue(value, gen);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example1.springbootdemo.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Todo待办事项（R2DBC映射）
+ * reactive profile下使用，与Todo映射同一张todo表，JSON字段与Todo完全一致，
+ * 两套实现对外返回相同的数据结构。表结构见 db/reactive/schema-*.sql
+ */
+@Table("todo")
+public class ReactiveTodo {
+
+    /**
+     * 主键ID，由数据库自增生成
+     */
+    @Id
+    private Long id;
+
+    /**
+     * 任务内容
+     */
+    private String content;
+
+    /**
+     * 是否完成
+     */
+    private Boolean completed;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+
+    /**
+     * 任务优先级（可选字段）
+     * 1-低优先级，2-中优先级，3-高优先级
+     */
+    private Integer priority;
+
+    /**
+     * 任务描述（可选字段）
+     */
+    private String description;
+
+    /**
+     * 版本号，插入时为0，每次修改加1
+     */
+    @Version
+    private Long version;
+
+    public ReactiveTodo() {
+    }
+
+    /**
+     * 新建未完成的任务，创建时间和更新时间取当前时间
+     * @param content 任务内容
+     * @param description 任务描述
+     * @param priority 优先级
+     */
+    public ReactiveTodo(String content, String description, Integer priority) {
+        this.content = content;
+        this.description = description;
+        this.priority = priority;
+        this.completed = false;
+        this.createTime = LocalDateTime.now();
+        this.updateTime = this.createTime;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(Boolean completed) {
+        this.completed = completed;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public boolean isCompleted() {
+        return completed != null && completed;
+    }
+}
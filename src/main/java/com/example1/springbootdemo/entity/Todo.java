@@ -1,5 +1,6 @@
 package com.example1.springbootdemo.entity;
 
+import com.example1.springbootdemo.id.SnowflakeId;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -10,17 +11,38 @@ import java.time.LocalDateTime;
  * Todo待办事项实体类
  * 包含ID、任务内容、是否完成等字段
  * 使用JPA注解映射到数据库表
+ * 
+ * 索引与TodoRepository中的查询一一对应：
+ * - (completed, priority, create_time, id)：按状态+优先级过滤并按创建时间排序/翻页，以及按状态统计
+ * - (completed, priority, id)：按状态过滤并按优先级排序/翻页
+ * - (completed, create_time, id)：按状态过滤并按创建时间排序/翻页
+ * - (completed, id)：分批删除已完成任务时按ID顺序读取
+ * - (priority, create_time, id)：按优先级过滤并按创建时间排序/翻页
+ * - (create_time, id)：按创建时间排序和游标分页
+ * - (priority, id)：按优先级排序和游标分页
+ * 等值条件之后的索引列与ORDER BY一致时，数据库按索引顺序读取，不需要额外排序；
+ * QueryPlanVerifier在启动时检查Hibernate实际发出的语句，TodoRepositoryQueryPlanTests在有数据的表上检查
  */
 @Entity
-@Table(name = "todo")
+@Table(name = "todo", indexes = {
+        @Index(name = "idx_todo_completed_priority", columnList = "completed, priority, create_time, id"),
+        @Index(name = "idx_todo_completed_priority_id", columnList = "completed, priority, id"),
+        @Index(name = "idx_todo_completed_create_time", columnList = "completed, create_time, id"),
+        @Index(name = "idx_todo_completed_id", columnList = "completed, id"),
+        @Index(name = "idx_todo_priority_create_time", columnList = "priority, create_time, id"),
+        @Index(name = "idx_todo_create_time", columnList = "create_time, id"),
+        @Index(name = "idx_todo_priority", columnList = "priority, id")
+})
 public class Todo {
     
     
     /**
      * 主键ID
+     * 由SnowflakeIdGenerator在内存中生成，全局唯一且大致按时间递增，不访问数据库：
+     * 插入前即可拿到ID，Hibernate才能把多条INSERT合并为JDBC批量执行；分片时各分片的ID也不会冲突
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     @Column(name = "id")
     private Long id;
     
@@ -63,6 +85,14 @@ public class Todo {
     @Column(name = "description", columnDefinition = "TEXT")
     private String description;
     
+    /**
+     * 版本号（乐观锁）
+     * 每次修改加1，对外作为ETag，用于条件请求和并发修改检测
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+    
     /**
      * 无参构造函数
      */
@@ -91,6 +121,22 @@ public class Todo {
         this.description = description;
     }
     
+    /**
+     * 复制构造函数
+     * 生成与原对象字段相同的独立副本，用于记录修改前的状态
+     * @param other 被复制的Todo
+     */
+    public Todo(Todo other) {
+        this.id = other.id;
+        this.content = other.content;
+        this.completed = other.completed;
+        this.createTime = other.createTime;
+        this.updateTime = other.updateTime;
+        this.priority = other.priority;
+        this.description = other.description;
+        this.version = other.version;
+    }
+    
     // Getter和Setter方法
     public Long getId() {
         return id;
@@ -176,6 +222,14 @@ public class Todo {
         return this.completed != null && this.completed;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     @Override
     public String toString() {
         return "Todo{" +
@@ -186,6 +240,7 @@ public class Todo {
                 ", updateTime=" + updateTime +
                 ", priority=" + priority +
                 ", description='" + description + '\'' +
+                ", version=" + version +
                 '}';
     }
     
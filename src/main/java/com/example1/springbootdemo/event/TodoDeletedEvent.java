@@ -0,0 +1,23 @@
+package com.example1.springbootdemo.event;
+
+import com.example1.springbootdemo.entity.Todo;
+
+/**
+ * Todo删除事件
+ * 删除单个Todo任务并提交成功后发布
+ */
+public class TodoDeletedEvent {
+
+    /**
+     * 被删除的任务
+     */
+    private final Todo todo;
+
+    public TodoDeletedEvent(Todo todo) {
+        this.todo = todo;
+    }
+
+    public Todo getTodo() {
+        return todo;
+    }
+}
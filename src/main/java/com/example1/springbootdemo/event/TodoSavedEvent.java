@@ -0,0 +1,41 @@
+package com.example1.springbootdemo.event;
+
+import com.example1.springbootdemo.entity.Todo;
+
+/**
+ * Todo保存事件
+ * 新建或更新Todo任务并提交成功后发布，用于同步搜索索引等派生数据
+ */
+public class TodoSavedEvent {
+
+    /**
+     * 修改前的任务，新建时为null
+     */
+    private final Todo previous;
+
+    /**
+     * 保存后的任务
+     */
+    private final Todo current;
+
+    public TodoSavedEvent(Todo previous, Todo current) {
+        this.previous = previous;
+        this.current = current;
+    }
+
+    public Todo getPrevious() {
+        return previous;
+    }
+
+    public Todo getCurrent() {
+        return current;
+    }
+
+    /**
+     * 是否为新建任务
+     * @return 新建返回true
+     */
+    public boolean isCreated() {
+        return previous == null;
+    }
+}
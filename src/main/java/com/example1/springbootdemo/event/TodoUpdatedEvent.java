@@ -0,0 +1,61 @@
+package com.example1.springbootdemo.event;
+
+import com.example1.springbootdemo.dto.TodoKey;
+
+/**
+ * Todo字段更新事件
+ * 通过UPDATE语句直接修改部分字段并提交成功后发布，事件中不带完整的任务数据
+ */
+public class TodoUpdatedEvent {
+
+    /**
+     * 任务ID
+     */
+    private final Long id;
+
+    /**
+     * 修改前的状态和优先级，只有状态或优先级被修改时才不为null
+     */
+    private final TodoKey previous;
+
+    /**
+     * 修改后的状态和优先级，只有状态或优先级被修改时才不为null
+     */
+    private final TodoKey current;
+
+    /**
+     * 内容或描述是否被修改
+     */
+    private final boolean textChanged;
+
+    public TodoUpdatedEvent(Long id, TodoKey previous, TodoKey current, boolean textChanged) {
+        this.id = id;
+        this.previous = previous;
+        this.current = current;
+        this.textChanged = textChanged;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public TodoKey getPrevious() {
+        return previous;
+    }
+
+    public TodoKey getCurrent() {
+        return current;
+    }
+
+    public boolean isTextChanged() {
+        return textChanged;
+    }
+
+    /**
+     * 状态或优先级是否被修改
+     * @return 被修改返回true
+     */
+    public boolean isKeyChanged() {
+        return current != null;
+    }
+}
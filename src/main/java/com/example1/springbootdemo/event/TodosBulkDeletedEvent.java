@@ -0,0 +1,34 @@
+package com.example1.springbootdemo.event;
+
+import com.example1.springbootdemo.dto.TodoKey;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Todo批量删除事件
+ * 批量删除（删除已完成任务、清空所有任务）按批次执行，每个批次提交成功后发布一次
+ */
+public class TodosBulkDeletedEvent {
+
+    /**
+     * 本批次被删除的任务
+     */
+    private final List<TodoKey> todos;
+
+    public TodosBulkDeletedEvent(List<TodoKey> todos) {
+        this.todos = todos;
+    }
+
+    public List<TodoKey> getTodos() {
+        return todos;
+    }
+
+    /**
+     * 本批次被删除的任务ID
+     * @return 任务ID列表
+     */
+    public List<Long> getIds() {
+        return todos.stream().map(TodoKey::getId).collect(Collectors.toList());
+    }
+}
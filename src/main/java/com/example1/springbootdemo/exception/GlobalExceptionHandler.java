@@ -1,16 +1,27 @@
 package com.example1.springbootdemo.exception;
 
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.server.NotAcceptableStatusException;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.server.UnsupportedMediaTypeStatusException;
 
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -33,6 +44,74 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
+    /**
+     * 处理版本号不匹配异常（If-Match条件不满足）
+     */
+    @ExceptionHandler(TodoVersionMismatchException.class)
+    public ResponseEntity<Map<String, Object>> handleTodoVersionMismatchException(TodoVersionMismatchException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", e.getMessage());
+        response.put("error", "PRECONDITION_FAILED");
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(response);
+    }
+
+    /**
+     * 处理服务繁忙异常（并发请求超过上限）
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<Map<String, Object>> handleServiceBusyException(ServiceBusyException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", e.getMessage());
+        response.put("error", "SERVICE_BUSY");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    /**
+     * 处理乐观锁冲突异常（保存时任务已被其他请求修改）
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleOptimisticLockingFailureException(OptimisticLockingFailureException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "Todo任务已被其他请求修改，请重新获取后再试");
+        response.put("error", "CONCURRENT_MODIFICATION");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    /**
+     * 处理请求体校验异常（Spring MVC）
+     */
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ResponseEntity<Map<String, Object>> handleMethodArgumentNotValidException(MethodArgumentNotValidException e) {
+        return validationFailed(e.getBindingResult().getFieldErrors());
+    }
+
+    /**
+     * 处理请求体校验异常（WebFlux）
+     */
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, Object>> handleWebExchangeBindException(WebExchangeBindException e) {
+        return validationFailed(e.getFieldErrors());
+    }
+
+    /**
+     * 处理路径变量、请求参数上的约束校验异常
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<Map<String, Object>> handleConstraintViolationException(ConstraintViolationException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", e.getConstraintViolations().stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.joining("; ")));
+        response.put("error", "VALIDATION_ERROR");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
     /**
      * 处理参数验证异常
      */
@@ -57,6 +136,46 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
+    /**
+     * 处理请求参数缺失或类型转换异常（WebFlux）
+     */
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<Map<String, Object>> handleServerWebInputException(ServerWebInputException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        if (e.getCause() instanceof TypeMismatchException mismatch && mismatch.getRequiredType() != null
+                && e.getMethodParameter() != null) {
+            response.put("message", "参数类型错误: " + e.getMethodParameter().getParameterName()
+                    + " 应该是 " + mismatch.getRequiredType().getSimpleName() + " 类型");
+            response.put("error", "INVALID_PARAMETER_TYPE");
+        } else {
+            response.put("message", e.getReason());
+            response.put("error", "INVALID_ARGUMENT");
+        }
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    /**
+     * 处理无法按Accept请求头返回的情况（如对批量创建接口请求Protobuf格式）
+     * 请求方不接受任何可以生成的格式，因此不返回响应体
+     */
+    @ExceptionHandler({HttpMediaTypeNotAcceptableException.class, NotAcceptableStatusException.class})
+    public ResponseEntity<Void> handleNotAcceptableException(Exception e) {
+        return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+    }
+
+    /**
+     * 处理不支持的请求体格式
+     */
+    @ExceptionHandler({HttpMediaTypeNotSupportedException.class, UnsupportedMediaTypeStatusException.class})
+    public ResponseEntity<Map<String, Object>> handleUnsupportedMediaTypeException(Exception e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "不支持的请求体格式: " + e.getMessage());
+        response.put("error", "UNSUPPORTED_MEDIA_TYPE");
+        return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(response);
+    }
+
     /**
      * 处理空指针异常
      */
@@ -92,4 +211,20 @@ public class GlobalExceptionHandler {
         response.put("error", "RUNTIME_ERROR");
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
     }
+
+    /**
+     * 请求体校验失败的响应，errors中按字段给出错误信息
+     */
+    private ResponseEntity<Map<String, Object>> validationFailed(List<FieldError> fieldErrors) {
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (FieldError fieldError : fieldErrors) {
+            errors.putIfAbsent(fieldError.getField(), fieldError.getDefaultMessage());
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", String.join("; ", errors.values()));
+        response.put("error", "VALIDATION_ERROR");
+        response.put("errors", errors);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
 }
\ No newline at end of file
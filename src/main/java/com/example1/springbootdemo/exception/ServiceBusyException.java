@@ -0,0 +1,26 @@
+package com.example1.springbootdemo.exception;
+
+/**
+ * 服务繁忙异常
+ * 并发请求数超过数据库访问上限且排队超时时抛出，对应HTTP 503
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    /**
+     * 建议客户端重试前等待的秒数
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * @param message 错误信息
+     * @param retryAfterSeconds 建议客户端重试前等待的秒数
+     */
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example1.springbootdemo.exception;
+
+/**
+ * Todo版本号不匹配异常
+ * 条件请求（If-Match）中的版本号与任务当前版本号不一致时抛出，对应HTTP 412
+ */
+public class TodoVersionMismatchException extends RuntimeException {
+
+    /**
+     * 带ID的构造函数
+     * @param id Todo的ID
+     */
+    public TodoVersionMismatchException(Long id) {
+        super("ID为 " + id + " 的Todo任务已被修改，请重新获取后再试");
+    }
+}
@@ -0,0 +1,141 @@
+package com.example1.springbootdemo.io;
+
+import com.example1.springbootdemo.entity.ReactiveTodo;
+import com.example1.springbootdemo.entity.Todo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Todo的CSV读写
+ * 字段包含逗号、双引号或换行时用双引号包裹，内部的双引号写成两个双引号（RFC 4180）
+ */
+public final class TodoCsv {
+
+    /**
+     * 导出文件的表头
+     */
+    public static final String HEADER = "id,content,description,completed,priority,createTime,updateTime,version";
+
+    private TodoCsv() {
+    }
+
+    /**
+     * 把一条任务格式化为一行CSV（不含换行符）
+     * @param todo 任务
+     * @return CSV行
+     */
+    public static String format(Todo todo) {
+        return format(todo.getId(), todo.getContent(), todo.getDescription(), todo.isCompleted(), todo.getPriority(),
+                todo.getCreateTime(), todo.getUpdateTime(), todo.getVersion());
+    }
+
+    /**
+     * 把一条任务格式化为一行CSV（不含换行符），列与format(Todo)相同
+     * @param todo 任务
+     * @return CSV行
+     */
+    public static String format(ReactiveTodo todo) {
+        return format(todo.getId(), todo.getContent(), todo.getDescription(), todo.isCompleted(), todo.getPriority(),
+                todo.getCreateTime(), todo.getUpdateTime(), todo.getVersion());
+    }
+
+    private static String format(Long id, String content, String description, boolean completed, Integer priority,
+                                 LocalDateTime createTime, LocalDateTime updateTime, Long version) {
+        StringBuilder line = new StringBuilder(128);
+        line.append(id).append(',');
+        appendField(line, content);
+        line.append(',');
+        appendField(line, description);
+        line.append(',').append(completed).append(',');
+        if (priority != null) {
+            line.append(priority);
+        }
+        line.append(',');
+        if (createTime != null) {
+            line.append(createTime);
+        }
+        line.append(',');
+        if (updateTime != null) {
+            line.append(updateTime);
+        }
+        line.append(',');
+        if (version != null) {
+            line.append(version);
+        }
+        return line.toString();
+    }
+
+    /**
+     * 把一条CSV记录拆分为字段，与format使用相同的转义规则
+     * 没有被双引号包裹的空字段解析为null
+     * @param record 一条记录，字段内容中可以包含换行
+     * @return 字段列表
+     * @throws IllegalArgumentException 双引号不成对或引号后紧跟其他字符
+     */
+    public static List<String> parse(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        int length = record.length();
+        while (true) {
+            field.setLength(0);
+            boolean wasQuoted = false;
+            if (i < length && record.charAt(i) == '"') {
+                wasQuoted = true;
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        throw new IllegalArgumentException("双引号没有闭合");
+                    }
+                    char c = record.charAt(i++);
+                    if (c == '"') {
+                        if (i < length && record.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+                if (i < length && record.charAt(i) != ',') {
+                    throw new IllegalArgumentException("第 " + (fields.size() + 1) + " 列的双引号后不能有其他字符");
+                }
+            } else {
+                while (i < length && record.charAt(i) != ',') {
+                    field.append(record.charAt(i++));
+                }
+            }
+            fields.add(field.isEmpty() && !wasQuoted ? null : field.toString());
+            if (i >= length) {
+                return fields;
+            }
+            // 跳过逗号
+            i++;
+        }
+    }
+
+    private static void appendField(StringBuilder line, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+}
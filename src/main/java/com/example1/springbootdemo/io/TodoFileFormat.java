@@ -0,0 +1,50 @@
+package com.example1.springbootdemo.io;
+
+/**
+ * Todo导入导出的文件格式
+ */
+public enum TodoFileFormat {
+
+    /**
+     * 每行一个JSON对象
+     */
+    NDJSON("ndjson", "application/x-ndjson"),
+
+    /**
+     * 逗号分隔，首行为表头，字段按RFC 4180转义
+     */
+    CSV("csv", "text/csv");
+
+    private final String extension;
+    private final String contentType;
+
+    TodoFileFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 解析请求参数中的格式，忽略大小写
+     * @param param 参数值，为null时默认NDJSON
+     * @return 文件格式
+     */
+    public static TodoFileFormat fromParam(String param) {
+        if (param == null || param.isBlank()) {
+            return NDJSON;
+        }
+        for (TodoFileFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(param.trim())) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("不支持的文件格式: " + param + "，可选值为 ndjson、csv");
+    }
+}
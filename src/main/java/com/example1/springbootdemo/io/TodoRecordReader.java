@@ -0,0 +1,155 @@
+package com.example1.springbootdemo.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 逐条读取导入文件中的记录
+ * 一次只在内存中保留一条记录，超过长度上限的记录只保留上限以内的部分并标记为过长，
+ * 剩余内容直接跳过，单条超长记录不会占用更多内存。
+ * CSV模式下带引号字段内的换行属于字段内容，不会结束记录；换行可以是\n、\r\n或\r
+ */
+public class TodoRecordReader implements Closeable {
+
+    private final Reader reader;
+    private final int maxLength;
+    private final boolean quoted;
+
+    private final StringBuilder record = new StringBuilder(256);
+
+    /**
+     * 下一条记录开始的行号（从1开始）
+     */
+    private long nextLine = 1;
+
+    /**
+     * 最近一条记录开始的行号
+     */
+    private long lineNumber;
+
+    private boolean tooLong;
+
+    private boolean unclosedQuote;
+
+    /**
+     * 多读的一个字符，用于识别\r\n和转义的双引号
+     */
+    private int pending = -1;
+
+    /**
+     * @param reader 输入，内部不再额外缓冲，调用方应传入带缓冲的Reader
+     * @param maxLength 单条记录的最大字符数
+     * @param quoted 是否按CSV规则处理双引号
+     */
+    public TodoRecordReader(Reader reader, int maxLength, boolean quoted) {
+        this.reader = reader;
+        this.maxLength = maxLength;
+        this.quoted = quoted;
+    }
+
+    /**
+     * 读取下一条记录
+     * CSV模式下只有字段开头的双引号才开始一个带引号的字段，字段中间的双引号按普通字符处理；
+     * 带引号的字段内两个连续的双引号表示一个双引号。引号内的内容超过长度上限后，下一个换行即结束记录，
+     * 并标记为引号未闭合，一个缺少闭合引号的字段最多吞掉长度上限以内的内容，不会读到文件末尾
+     * @return 记录内容（不含换行符），没有更多记录时返回null
+     */
+    public String next() throws IOException {
+        record.setLength(0);
+        tooLong = false;
+        unclosedQuote = false;
+        lineNumber = nextLine;
+        boolean inQuotes = false;
+        boolean fieldStart = true;
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+        while (c != -1) {
+            if (c == '\n' || c == '\r') {
+                nextLine++;
+                if (c == '\r') {
+                    int following = read();
+                    if (following == '\n') {
+                        if (inQuotes) {
+                            append('\r');
+                        }
+                        c = following;
+                    } else {
+                        pending = following;
+                    }
+                }
+                if (!inQuotes) {
+                    break;
+                }
+                if (tooLong) {
+                    unclosedQuote = true;
+                    break;
+                }
+            } else if (c == '"' && quoted) {
+                if (inQuotes) {
+                    int following = read();
+                    if (following == '"') {
+                        append('"');
+                    } else {
+                        inQuotes = false;
+                        pending = following;
+                    }
+                } else if (fieldStart) {
+                    inQuotes = true;
+                }
+            }
+            fieldStart = c == ',' && !inQuotes;
+            append(c);
+            c = read();
+        }
+        if (inQuotes) {
+            unclosedQuote = true;
+        }
+        return record.toString();
+    }
+
+    /**
+     * 最近一条记录开始的行号，用于报告被拒绝的记录
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * 最近一条记录是否超过长度上限
+     */
+    public boolean isTooLong() {
+        return tooLong;
+    }
+
+    /**
+     * 最近一条记录中带引号的字段是否没有闭合（读到文件末尾，或超过长度上限后遇到换行）
+     */
+    public boolean isUnclosedQuote() {
+        return unclosedQuote;
+    }
+
+    private void append(int c) {
+        if (record.length() < maxLength) {
+            record.append((char) c);
+        } else {
+            tooLong = true;
+        }
+    }
+
+    private int read() throws IOException {
+        if (pending != -1) {
+            int c = pending;
+            pending = -1;
+            return c;
+        }
+        return reader.read();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
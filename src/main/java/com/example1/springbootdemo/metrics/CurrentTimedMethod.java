@@ -0,0 +1,38 @@
+package com.example1.springbootdemo.metrics;
+
+/**
+ * 当前线程正在执行的@Timed Bean方法，如TodoService.getTodos
+ * 由TimedMethodInterceptor在方法执行期间绑定，嵌套调用时为最内层的方法。
+ * 连接池等待过久或超时时用它指出是哪个方法在等待连接；在其他线程（如并行查询各分片的虚拟线程）中为空
+ */
+public final class CurrentTimedMethod {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private CurrentTimedMethod() {
+    }
+
+    /**
+     * @return 类名.方法名，不在@Timed Bean的方法中时为null
+     */
+    public static String get() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return 之前绑定的方法，方法结束时交给exit恢复
+     */
+    static String enter(String method) {
+        String previous = CURRENT.get();
+        CURRENT.set(method);
+        return previous;
+    }
+
+    static void exit(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
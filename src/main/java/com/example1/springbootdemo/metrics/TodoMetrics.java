@@ -0,0 +1,53 @@
+package com.example1.springbootdemo.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Todo接口业务指标
+ * 列表和搜索接口每次查询返回的条数记录到todo.result.size，按接口打标签（list/page/search），
+ * 用于观察客户端是否在拉取过大的结果集。计量器在启动时注册好，记录时不再按名称查找
+ */
+@Component
+public class TodoMetrics {
+
+    private final DistributionSummary listResultSize;
+    private final DistributionSummary pageResultSize;
+    private final DistributionSummary searchResultSize;
+
+    public TodoMetrics(MeterRegistry registry) {
+        this.listResultSize = resultSize(registry, "list");
+        this.pageResultSize = resultSize(registry, "page");
+        this.searchResultSize = resultSize(registry, "search");
+    }
+
+    /**
+     * 不分页的列表查询返回条数
+     */
+    public void recordListResult(int size) {
+        listResultSize.record(size);
+    }
+
+    /**
+     * 游标分页查询一页的条数
+     */
+    public void recordPageResult(int size) {
+        pageResultSize.record(size);
+    }
+
+    /**
+     * 搜索一页的条数
+     */
+    public void recordSearchResult(int size) {
+        searchResultSize.record(size);
+    }
+
+    private static DistributionSummary resultSize(MeterRegistry registry, String endpoint) {
+        return DistributionSummary.builder("todo.result.size")
+                .description("列表和搜索接口返回的任务条数")
+                .baseUnit("todos")
+                .tag("endpoint", endpoint)
+                .register(registry);
+    }
+}
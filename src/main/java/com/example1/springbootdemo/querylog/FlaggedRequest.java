@@ -0,0 +1,94 @@
+package com.example1.springbootdemo.querylog;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 被标记为存在查询问题（疑似N+1、语句过多）的请求
+ */
+public class FlaggedRequest {
+
+    /**
+     * 请求结束的时间
+     */
+    private final LocalDateTime time;
+
+    /**
+     * 请求方法和路径，如 "GET /api/todos"
+     */
+    private final String request;
+
+    /**
+     * 执行的SQL语句数，一次批量执行计为一条
+     */
+    private final int statements;
+
+    /**
+     * 其中批量执行的次数
+     */
+    private final int batches;
+
+    /**
+     * SQL执行总耗时（毫秒）
+     */
+    private final double queryMillis;
+
+    /**
+     * Hibernate加载的实体数
+     */
+    private final int entityLoads;
+
+    /**
+     * Hibernate flush次数
+     */
+    private final int flushes;
+
+    /**
+     * 发现的问题说明
+     */
+    private final List<String> issues;
+
+    public FlaggedRequest(LocalDateTime time, String request, int statements, int batches, double queryMillis,
+                          int entityLoads, int flushes, List<String> issues) {
+        this.time = time;
+        this.request = request;
+        this.statements = statements;
+        this.batches = batches;
+        this.queryMillis = queryMillis;
+        this.entityLoads = entityLoads;
+        this.flushes = flushes;
+        this.issues = issues;
+    }
+
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    public String getRequest() {
+        return request;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public double getQueryMillis() {
+        return queryMillis;
+    }
+
+    public int getEntityLoads() {
+        return entityLoads;
+    }
+
+    public int getFlushes() {
+        return flushes;
+    }
+
+    public List<String> getIssues() {
+        return issues;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example1.springbootdemo.querylog;
+
+import org.hibernate.Interceptor;
+import org.hibernate.type.Type;
+
+import java.util.Iterator;
+
+/**
+ * Hibernate拦截器：实体加载和flush计入当前请求
+ * 作为SessionFactory级别的拦截器被所有会话共享，本身不保存状态
+ */
+public class QueryCountingInterceptor implements Interceptor {
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        RequestQueries request = RequestQueries.current();
+        if (request != null) {
+            request.entityLoaded();
+        }
+        return false;
+    }
+
+    @Override
+    public void postFlush(Iterator<Object> entities) {
+        RequestQueries request = RequestQueries.current();
+        if (request != null) {
+            request.flushed();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example1.springbootdemo.querylog;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * JDBC语句执行监听器（datasource-proxy）
+ * 语句计入当前请求的计数；耗时超过阈值的语句连同绑定参数记入慢查询日志
+ */
+public class QueryExecutionRecorder implements QueryExecutionListener {
+
+    private static final String START_NANOS = QueryExecutionRecorder.class.getName() + ".start";
+
+    /**
+     * 慢查询中批量执行最多保留的参数组数
+     */
+    private static final int MAX_PARAMETER_SETS = 10;
+
+    /**
+     * 单个参数值最多保留的字符数
+     */
+    private static final int MAX_PARAMETER_LENGTH = 200;
+
+    private final QueryLog queryLog;
+
+    public QueryExecutionRecorder(QueryLog queryLog) {
+        this.queryLog = queryLog;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long start = execInfo.getCustomValue(START_NANOS, Long.class);
+        long elapsedNanos = start != null ? System.nanoTime() - start : execInfo.getElapsedTime() * 1_000_000;
+
+        RequestQueries request = RequestQueries.current();
+        if (request != null) {
+            for (QueryInfo queryInfo : queryInfoList) {
+                request.statementExecuted(queryInfo.getQuery(), execInfo.isBatch());
+            }
+            request.addQueryTime(elapsedNanos);
+        }
+
+        if (queryLog.isSlow(elapsedNanos)) {
+            for (QueryInfo queryInfo : queryInfoList) {
+                queryLog.recordSlowQuery(new SlowQuery(LocalDateTime.now(), elapsedNanos / 1_000_000.0,
+                        queryInfo.getQuery(), parameters(queryInfo), execInfo.isBatch() ? execInfo.getBatchSize() : 0,
+                        execInfo.isSuccess(), request != null ? request.getRequest() : null));
+            }
+        }
+    }
+
+    /**
+     * 把绑定参数转换为字符串，按参数位置排序
+     */
+    private static List<List<String>> parameters(QueryInfo queryInfo) {
+        List<List<String>> result = new ArrayList<>();
+        for (List<ParameterSetOperation> operations : queryInfo.getParametersList()) {
+            if (result.size() == MAX_PARAMETER_SETS) {
+                break;
+            }
+            List<ParameterSetOperation> sorted = new ArrayList<>(operations);
+            sorted.sort(Comparator.comparing(operation -> String.valueOf(operation.getArgs()[0]),
+                    Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder())));
+            List<String> values = new ArrayList<>(sorted.size());
+            for (ParameterSetOperation operation : sorted) {
+                values.add(format(operation));
+            }
+            result.add(values);
+        }
+        return result;
+    }
+
+    private static String format(ParameterSetOperation operation) {
+        Object[] args = operation.getArgs();
+        if (ParameterSetOperation.isSetNullParameterOperation(operation) || args.length < 2 || args[1] == null) {
+            return "null";
+        }
+        String value = String.valueOf(args[1]);
+        return value.length() > MAX_PARAMETER_LENGTH ? value.substring(0, MAX_PARAMETER_LENGTH) + "..." : value;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example1.springbootdemo.querylog;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SQL观测记录
+ *
+ * 保存最近的慢查询（含绑定参数）和最近被标记为存在查询问题的请求，各自是一个固定容量的环形缓冲区；
+ * 同时累计每个请求的语句数、实体加载数和flush次数。每个请求的语句数还导出为todo.db.request.statements指标。
+ * 结果通过 /actuator/queries 查看
+ */
+@Component
+@Profile("!reactive")
+public class QueryLog implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryLog.class);
+
+    private final long slowQueryThresholdNanos;
+    private final int nPlusOneThreshold;
+    private final int maxStatementsPerRequest;
+    private final List<String> ignoredPaths;
+
+    private final RingBuffer<SlowQuery> slowQueries;
+    private final RingBuffer<FlaggedRequest> flaggedRequests;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder entityLoads = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAccumulator maxStatements = new LongAccumulator(Math::max, 0);
+
+    private volatile DistributionSummary statementsPerRequest;
+
+    public QueryLog(@Value("${todo.query-log.slow-query-threshold:100ms}") Duration slowQueryThreshold,
+                    @Value("${todo.query-log.capacity:100}") int capacity,
+                    @Value("${todo.query-log.n-plus-one-threshold:10}") int nPlusOneThreshold,
+                    @Value("${todo.query-log.max-statements-per-request:100}") int maxStatementsPerRequest,
+                    @Value("${todo.query-log.ignored-paths:}") List<String> ignoredPaths) {
+        this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.maxStatementsPerRequest = maxStatementsPerRequest;
+        this.ignoredPaths = ignoredPaths;
+        this.slowQueries = new RingBuffer<>(capacity);
+        this.flaggedRequests = new RingBuffer<>(capacity);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        statementsPerRequest = DistributionSummary.builder("todo.db.request.statements")
+                .description("每个请求执行的SQL语句数")
+                .baseUnit("statements")
+                .register(registry);
+    }
+
+    /**
+     * 该路径的请求是否不做检查（如按设计会执行大量语句的批量写入接口）
+     */
+    public boolean isIgnored(String path) {
+        return ignoredPaths.contains(path);
+    }
+
+    public boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= slowQueryThresholdNanos;
+    }
+
+    public void recordSlowQuery(SlowQuery query) {
+        slowQueries.add(query);
+        log.warn("慢查询 {}ms: {} 参数: {}", String.format("%.1f", query.getElapsedMillis()), query.getSql(),
+                query.getParameters());
+    }
+
+    /**
+     * 请求结束时累计计数，并检查是否存在查询问题
+     */
+    public void requestCompleted(RequestQueries request) {
+        requests.increment();
+        statements.add(request.getStatements());
+        entityLoads.add(request.getEntityLoads());
+        flushes.add(request.getFlushes());
+        maxStatements.accumulate(request.getStatements());
+        DistributionSummary summary = statementsPerRequest;
+        if (summary != null) {
+            summary.record(request.getStatements());
+        }
+
+        List<String> issues = request.findIssues(nPlusOneThreshold, maxStatementsPerRequest);
+        if (!issues.isEmpty()) {
+            flaggedRequests.add(new FlaggedRequest(LocalDateTime.now(), request.getRequest(),
+                    request.getStatements(), request.getBatches(), request.getQueryNanos() / 1_000_000.0,
+                    request.getEntityLoads(), request.getFlushes(), issues));
+            log.warn("请求存在查询问题 {}: {}", request.getRequest(), issues);
+        }
+    }
+
+    /**
+     * 按请求累计的统计
+     */
+    public Map<String, Object> getRequestStats() {
+        long count = requests.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", count);
+        stats.put("statements", statements.sum());
+        stats.put("entityLoads", entityLoads.sum());
+        stats.put("flushes", flushes.sum());
+        stats.put("averageStatementsPerRequest", count == 0 ? 0 : statements.sum() / (double) count);
+        stats.put("maxStatementsPerRequest", maxStatements.get());
+        return stats;
+    }
+
+    /**
+     * 当前的阈值配置
+     */
+    public Map<String, Object> getThresholds() {
+        Map<String, Object> thresholds = new LinkedHashMap<>();
+        thresholds.put("slowQueryMillis", slowQueryThresholdNanos / 1_000_000.0);
+        thresholds.put("nPlusOne", nPlusOneThreshold);
+        thresholds.put("maxStatementsPerRequest", maxStatementsPerRequest);
+        thresholds.put("ignoredPaths", ignoredPaths);
+        return thresholds;
+    }
+
+    /**
+     * 最近的慢查询，最新的在前
+     */
+    public List<SlowQuery> getSlowQueries() {
+        return slowQueries.newestFirst();
+    }
+
+    public long getSlowQueryTotal() {
+        return slowQueries.getTotal();
+    }
+
+    /**
+     * 最近被标记的请求，最新的在前
+     */
+    public List<FlaggedRequest> getFlaggedRequests() {
+        return flaggedRequests.newestFirst();
+    }
+
+    public long getFlaggedRequestTotal() {
+        return flaggedRequests.getTotal();
+    }
+
+    /**
+     * 清空记录和计数
+     */
+    public void clear() {
+        slowQueries.clear();
+        flaggedRequests.clear();
+        requests.reset();
+        statements.reset();
+        entityLoads.reset();
+        flushes.reset();
+        maxStatements.reset();
+    }
+}
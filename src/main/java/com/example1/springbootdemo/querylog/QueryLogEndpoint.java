@@ -0,0 +1,74 @@
+package com.example1.springbootdemo.querylog;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SQL观测管理端点 /actuator/queries
+ * GET返回Hibernate统计、按请求的语句统计、最近的慢查询和被标记的请求；DELETE清空这些记录和统计
+ */
+@Component
+@Endpoint(id = "queries")
+@Profile("!reactive")
+public class QueryLogEndpoint {
+
+    @Autowired
+    private QueryLog queryLog;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @ReadOperation
+    public Map<String, Object> queries() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("thresholds", queryLog.getThresholds());
+        result.put("hibernate", hibernateStatistics());
+        result.put("perRequest", queryLog.getRequestStats());
+        result.put("slowQueryTotal", queryLog.getSlowQueryTotal());
+        result.put("slowQueries", queryLog.getSlowQueries());
+        result.put("flaggedRequestTotal", queryLog.getFlaggedRequestTotal());
+        result.put("flaggedRequests", queryLog.getFlaggedRequests());
+        return result;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        queryLog.clear();
+        statistics().clear();
+    }
+
+    private Map<String, Object> hibernateStatistics() {
+        Statistics statistics = statistics();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        result.put("since", statistics.getStart());
+        result.put("sessionsOpened", statistics.getSessionOpenCount());
+        result.put("transactions", statistics.getTransactionCount());
+        result.put("statementsPrepared", statistics.getPrepareStatementCount());
+        result.put("queriesExecuted", statistics.getQueryExecutionCount());
+        result.put("queryMaxTimeMillis", statistics.getQueryExecutionMaxTime());
+        result.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+        result.put("entityLoads", statistics.getEntityLoadCount());
+        result.put("entityFetches", statistics.getEntityFetchCount());
+        result.put("entityInserts", statistics.getEntityInsertCount());
+        result.put("entityUpdates", statistics.getEntityUpdateCount());
+        result.put("entityDeletes", statistics.getEntityDeleteCount());
+        result.put("flushes", statistics.getFlushCount());
+        result.put("optimisticLockFailures", statistics.getOptimisticFailureCount());
+        return result;
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
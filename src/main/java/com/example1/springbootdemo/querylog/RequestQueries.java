@@ -0,0 +1,156 @@
+package com.example1.springbootdemo.querylog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 一个请求执行的SQL和Hibernate操作计数
+ * 请求开始时绑定到当前线程，JDBC监听器和Hibernate拦截器在同一线程上累加，请求结束时检查是否存在查询问题。
+ * 请求内部分出的线程（如分片并行查询）通过callWith绑定同一个实例，计数可能被多个线程同时累加，因此加锁；
+ * 请求结束后才执行的异步线程（如流式导出）中的查询不计入请求
+ */
+public class RequestQueries {
+
+    private static final ThreadLocal<RequestQueries> CURRENT = new ThreadLocal<>();
+
+    private final String request;
+
+    private int statements;
+    private int batches;
+    private long queryNanos;
+    private int entityLoads;
+    private int flushes;
+
+    /**
+     * 每条非批量SELECT语句的执行次数，用于识别N+1查询
+     */
+    private final Map<String, Integer> selectCounts = new HashMap<>();
+
+    private RequestQueries(String request) {
+        this.request = request;
+    }
+
+    /**
+     * 开始记录当前线程上的请求
+     * @param request 请求方法和路径，如 "GET /api/todos"
+     */
+    public static RequestQueries begin(String request) {
+        RequestQueries queries = new RequestQueries(request);
+        CURRENT.set(queries);
+        return queries;
+    }
+
+    /**
+     * 当前线程上正在记录的请求，不在请求中时返回null
+     */
+    public static RequestQueries current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 在当前线程上把queries作为当前请求执行work，结束后恢复原来的绑定
+     * 用于请求处理过程中交给其他线程执行的查询，调用方在提交任务前通过current()取得queries
+     * @param queries 要绑定的请求，为null时不计入任何请求
+     */
+    public static <T> T callWith(RequestQueries queries, Supplier<T> work) {
+        RequestQueries previous = CURRENT.get();
+        CURRENT.set(queries);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * 记录一条执行的语句
+     * @param batch 是否为批量执行，批量执行是有意的批处理，不参与N+1检查
+     */
+    synchronized void statementExecuted(String sql, boolean batch) {
+        statements++;
+        if (batch) {
+            batches++;
+        } else if (isSelect(sql)) {
+            selectCounts.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    synchronized void addQueryTime(long nanos) {
+        queryNanos += nanos;
+    }
+
+    synchronized void entityLoaded() {
+        entityLoads++;
+    }
+
+    synchronized void flushed() {
+        flushes++;
+    }
+
+    /**
+     * 检查查询问题
+     * 同一条SELECT执行次数达到阈值、且加载的实体数也达到阈值时判定为疑似N+1（逐条加载关联数据），
+     * 同样重复执行但不加载实体的语句（如分块删除时逐块查询待删除任务的ID）不算；非批量语句总数超过上限时判定为语句过多
+     * @param nPlusOneThreshold 同一条查询的重复次数阈值
+     * @param maxStatements 单个请求的非批量语句数上限
+     * @return 问题说明，没有问题时为空列表
+     */
+    synchronized List<String> findIssues(int nPlusOneThreshold, int maxStatements) {
+        List<String> issues = new ArrayList<>();
+        if (entityLoads >= nPlusOneThreshold) {
+            selectCounts.forEach((sql, count) -> {
+                if (count >= nPlusOneThreshold) {
+                    issues.add("疑似N+1查询：同一条查询执行了" + count + "次，共加载" + entityLoads + "个实体: " + sql);
+                }
+            });
+        }
+        int single = statements - batches;
+        if (single > maxStatements) {
+            issues.add("语句过多：执行了" + single + "条非批量SQL，超过上限" + maxStatements);
+        }
+        return issues;
+    }
+
+    private static boolean isSelect(String sql) {
+        int start = 0;
+        while (start < sql.length() && Character.isWhitespace(sql.charAt(start))) {
+            start++;
+        }
+        return sql.regionMatches(true, start, "select", 0, 6);
+    }
+
+    public String getRequest() {
+        return request;
+    }
+
+    public synchronized int getStatements() {
+        return statements;
+    }
+
+    public synchronized int getBatches() {
+        return batches;
+    }
+
+    public synchronized long getQueryNanos() {
+        return queryNanos;
+    }
+
+    public synchronized int getEntityLoads() {
+        return entityLoads;
+    }
+
+    public synchronized int getFlushes() {
+        return flushes;
+    }
+}
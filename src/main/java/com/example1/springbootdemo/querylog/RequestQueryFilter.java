@@ -0,0 +1,38 @@
+package com.example1.springbootdemo.querylog;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 在请求处理期间记录执行的SQL，请求结束时交给QueryLog检查
+ */
+public class RequestQueryFilter extends OncePerRequestFilter {
+
+    private final QueryLog queryLog;
+
+    public RequestQueryFilter(QueryLog queryLog) {
+        this.queryLog = queryLog;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return queryLog.isIgnored(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestQueries queries = RequestQueries.begin(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestQueries.end();
+            queryLog.requestCompleted(queries);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example1.springbootdemo.querylog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 固定容量的环形缓冲区，写满后覆盖最早的元素
+ * 只用于记录慢查询、问题请求这类低频事件，直接加锁即可
+ */
+public class RingBuffer<T> {
+
+    private final Object[] items;
+
+    /**
+     * 累计写入的元素个数，下一个元素写入 next % capacity
+     */
+    private long next;
+
+    public RingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("容量必须大于0");
+        }
+        this.items = new Object[capacity];
+    }
+
+    public synchronized void add(T item) {
+        items[(int) (next++ % items.length)] = item;
+    }
+
+    /**
+     * 当前保留的元素，最新的在前
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<T> newestFirst() {
+        int size = (int) Math.min(next, items.length);
+        List<T> result = new ArrayList<>(size);
+        for (long i = next - 1; i >= next - size; i--) {
+            result.add((T) items[(int) (i % items.length)]);
+        }
+        return result;
+    }
+
+    /**
+     * 累计写入的元素个数，包括已被覆盖的
+     */
+    public synchronized long getTotal() {
+        return next;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(items, null);
+        next = 0;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example1.springbootdemo.querylog;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 一条慢查询记录
+ */
+public class SlowQuery {
+
+    /**
+     * 执行完成的时间
+     */
+    private final LocalDateTime time;
+
+    /**
+     * 执行耗时（毫秒），批量执行时为整批的耗时
+     */
+    private final double elapsedMillis;
+
+    private final String sql;
+
+    /**
+     * 绑定参数，每组对应一次执行；批量执行时只保留前几组
+     */
+    private final List<List<String>> parameters;
+
+    /**
+     * 批量执行的条数，非批量执行为0
+     */
+    private final int batchSize;
+
+    private final boolean success;
+
+    /**
+     * 发起查询的请求，如 "GET /api/todos"；不在请求中执行（如定时任务）时为null
+     */
+    private final String request;
+
+    public SlowQuery(LocalDateTime time, double elapsedMillis, String sql, List<List<String>> parameters,
+                     int batchSize, boolean success, String request) {
+        this.time = time;
+        this.elapsedMillis = elapsedMillis;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.batchSize = batchSize;
+        this.success = success;
+        this.request = request;
+    }
+
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<List<String>> getParameters() {
+        return parameters;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getRequest() {
+        return request;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example1.springbootdemo.repository;
+
+import com.example1.springbootdemo.entity.ReactiveTodo;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Todo响应式数据访问接口
+ * reactive profile下由Spring Data R2DBC实现，对应TodoRepository，所有方法都返回Mono/Flux，不阻塞调用线程。
+ * 组合条件查询和部分字段更新见ReactiveTodoRepositoryCustom
+ *
+ * @author SpringBootDemo
+ * @since 1.0
+ */
+public interface ReactiveTodoRepository extends ReactiveCrudRepository<ReactiveTodo, Long>, ReactiveTodoRepositoryCustom {
+
+    /**
+     * 按ID顺序读取所有待办事项，结果按订阅方的请求量逐批从数据库拉取
+     * @return 待办事项流
+     */
+    Flux<ReactiveTodo> findAllByOrderByIdAsc();
+
+    /**
+     * 切换完成状态，同时刷新更新时间并递增版本号
+     * @param id 任务ID
+     * @param updateTime 更新时间
+     * @return 实际更新条数，任务不存在时为0
+     */
+    @Modifying
+    @Query("update todo set completed = not completed, update_time = :updateTime, version = version + 1 where id = :id")
+    Mono<Integer> toggleCompleted(Long id, LocalDateTime updateTime);
+
+    /**
+     * 版本号一致时切换完成状态
+     * @param id 任务ID
+     * @param version 期望的版本号
+     * @param updateTime 更新时间
+     * @return 实际更新条数，任务不存在或版本号不一致时为0
+     */
+    @Modifying
+    @Query("update todo set completed = not completed, update_time = :updateTime, version = version + 1 " +
+            "where id = :id and version = :version")
+    Mono<Integer> toggleCompletedIfVersion(Long id, Long version, LocalDateTime updateTime);
+
+    /**
+     * 版本号一致时删除
+     * @param id 任务ID
+     * @param version 期望的版本号
+     * @return 实际删除条数
+     */
+    @Modifying
+    @Query("delete from todo where id = :id and version = :version")
+    Mono<Integer> deleteByIdAndVersion(Long id, Long version);
+
+    /**
+     * 删除所有已完成的待办事项
+     * @return 删除条数
+     */
+    @Modifying
+    @Query("delete from todo where completed = true")
+    Mono<Integer> deleteCompleted();
+
+    /**
+     * 删除所有待办事项
+     * @return 删除条数
+     */
+    @Modifying
+    @Query("delete from todo")
+    Mono<Integer> deleteAllTodos();
+}
@@ -0,0 +1,65 @@
+package com.example1.springbootdemo.repository;
+
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.entity.ReactiveTodo;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Todo响应式自定义查询接口
+ * 由ReactiveTodoRepositoryImpl实现，与TodoRepositoryCustom一一对应
+ *
+ * @author SpringBootDemo
+ * @since 1.0
+ */
+public interface ReactiveTodoRepositoryCustom {
+
+    /**
+     * 按组合条件查询待办事项，所有过滤条件和排序在一条SQL中完成
+     * 只读取选择的字段对应的列，以及ID、版本号和排序字段，其余属性为null
+     *
+     * @param filter 查询条件
+     * @param after 游标，为null时从头开始
+     * @param limit 最大返回条数，为null时不限制
+     * @param fields 选择的字段
+     * @return 待办事项流
+     */
+    Flux<ReactiveTodo> findByFilter(TodoFilter filter, TodoCursor after, Integer limit, Set<TodoField> fields);
+
+    /**
+     * 在内容和描述中按关键词搜索，按创建时间倒序分页
+     * 只读取选择的字段对应的列，以及ID和版本号，其余属性为null
+     *
+     * @param keyword 关键词
+     * @param offset 跳过的条数
+     * @param size 最大返回条数
+     * @param fields 选择的字段
+     * @return 待办事项流
+     */
+    Flux<ReactiveTodo> search(String keyword, long offset, int size, Set<TodoField> fields);
+
+    /**
+     * 统计关键词匹配的条数
+     *
+     * @param keyword 关键词
+     * @return 匹配条数
+     */
+    Mono<Long> countSearch(String keyword);
+
+    /**
+     * 版本号一致时按ID更新指定字段，一条UPDATE语句完成，同时刷新更新时间并把版本号设为期望值加1
+     *
+     * @param id 任务ID
+     * @param values 列名 -> 新值，列名只能是content、description、priority、completed
+     * @param expectedVersion 期望的版本号
+     * @param updateTime 更新时间
+     * @return 实际更新条数，任务不存在或版本号不一致时为0
+     */
+    Mono<Long> updateFields(Long id, Map<String, Object> values, Long expectedVersion, LocalDateTime updateTime);
+}
@@ -0,0 +1,151 @@
+package com.example1.springbootdemo.repository;
+
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoSortField;
+import com.example1.springbootdemo.entity.ReactiveTodo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.dialect.Escaper;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.data.relational.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Todo响应式组合条件查询实现
+ * 过滤、排序和游标定位条件与TodoRepositoryImpl拼接的JPQL保持一致，由R2DBC的Criteria生成SQL
+ *
+ * @author SpringBootDemo
+ * @since 1.0
+ */
+public class ReactiveTodoRepositoryImpl implements ReactiveTodoRepositoryCustom {
+
+    /**
+     * 允许通过updateFields修改的属性
+     */
+    private static final Set<String> UPDATABLE_FIELDS = Set.of("content", "description", "priority", "completed");
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    @Override
+    public Flux<ReactiveTodo> findByFilter(TodoFilter filter, TodoCursor after, Integer limit, Set<TodoField> fields) {
+        List<Criteria> conditions = new ArrayList<>();
+        if (filter.getCompleted() != null) {
+            conditions.add(Criteria.where("completed").is(filter.getCompleted()));
+        }
+        if (filter.getPriority() != null) {
+            conditions.add(Criteria.where("priority").is(filter.getPriority()));
+        }
+        if (filter.getKeyword() != null) {
+            conditions.add(keywordCriteria(filter.getKeyword()));
+        }
+        if (after != null) {
+            conditions.add(cursorCriteria(filter.getSortField(), filter.isAscending(), after));
+        }
+
+        Sort.Direction direction = filter.isAscending() ? Sort.Direction.ASC : Sort.Direction.DESC;
+        String sortProperty = filter.getSortField() == TodoSortField.PRIORITY ? "priority" : "createTime";
+        Query query = Query.query(Criteria.from(conditions))
+                .columns(columns(fields, TodoField.of(filter.getSortField())))
+                .sort(Sort.by(direction, sortProperty, "id"));
+        if (limit != null) {
+            query = query.limit(limit);
+        }
+        return template.select(ReactiveTodo.class).matching(query).all();
+    }
+
+    @Override
+    public Flux<ReactiveTodo> search(String keyword, long offset, int size, Set<TodoField> fields) {
+        Query query = Query.query(keywordCriteria(keyword))
+                .columns(columns(fields, null))
+                .sort(Sort.by(Sort.Direction.DESC, "createTime", "id"))
+                .offset(offset)
+                .limit(size);
+        return template.select(ReactiveTodo.class).matching(query).all();
+    }
+
+    @Override
+    public Mono<Long> countSearch(String keyword) {
+        return template.count(Query.query(keywordCriteria(keyword)), ReactiveTodo.class);
+    }
+
+    @Override
+    public Mono<Long> updateFields(Long id, Map<String, Object> values, Long expectedVersion, LocalDateTime updateTime) {
+        if (!UPDATABLE_FIELDS.containsAll(values.keySet())) {
+            return Mono.error(new IllegalArgumentException("不支持更新的字段: " + values.keySet()));
+        }
+        Update update = Update.update("updateTime", updateTime).set("version", expectedVersion + 1);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            update = update.set(entry.getKey(), entry.getValue());
+        }
+        return template.update(ReactiveTodo.class)
+                .matching(Query.query(Criteria.where("id").is(id).and("version").is(expectedVersion)))
+                .apply(update);
+    }
+
+    /**
+     * 实际读取的列：选择的字段加上ID、版本号和排序字段，与TodoRepositoryImpl.selectColumns一致
+     */
+    private List<String> columns(Set<TodoField> fields, TodoField sortField) {
+        EnumSet<TodoField> selected = EnumSet.of(TodoField.ID, TodoField.VERSION);
+        selected.addAll(fields);
+        if (sortField != null) {
+            selected.add(sortField);
+        }
+        List<String> columns = new ArrayList<>(selected.size());
+        for (TodoField field : selected) {
+            columns.add(field.getColumn());
+        }
+        return columns;
+    }
+
+    /**
+     * 内容或描述包含关键词，忽略大小写，LIKE通配符按字面匹配
+     */
+    private Criteria keywordCriteria(String keyword) {
+        String pattern = "%" + Escaper.DEFAULT.escape(keyword) + "%";
+        return Criteria.where("content").like(pattern).ignoreCase(true)
+                .or("description").like(pattern).ignoreCase(true);
+    }
+
+    /**
+     * 游标定位条件，与TodoRepositoryImpl.cursorPredicate一致
+     * 优先级为空的记录依赖数据库把NULL视为最小值
+     */
+    private Criteria cursorCriteria(TodoSortField sortField, boolean ascending, TodoCursor after) {
+        Long id = after.getId();
+        if (sortField == TodoSortField.CREATE_TIME) {
+            LocalDateTime createTime = after.getCreateTime();
+            return ascending
+                    ? Criteria.where("createTime").greaterThanOrEquals(createTime)
+                            .and(Criteria.where("createTime").greaterThan(createTime).or("id").greaterThan(id))
+                    : Criteria.where("createTime").lessThanOrEquals(createTime)
+                            .and(Criteria.where("createTime").lessThan(createTime).or("id").lessThan(id));
+        }
+        Integer priority = after.getPriority();
+        if (priority == null) {
+            return ascending
+                    ? Criteria.where("priority").isNull().and("id").greaterThan(id)
+                            .or(Criteria.where("priority").isNotNull())
+                    : Criteria.where("priority").isNull().and("id").lessThan(id);
+        }
+        return ascending
+                ? Criteria.where("priority").greaterThanOrEquals(priority)
+                        .and(Criteria.where("priority").greaterThan(priority).or("id").greaterThan(id))
+                : Criteria.where("priority").lessThanOrEquals(priority)
+                        .and(Criteria.where("priority").lessThan(priority).or("id").lessThan(id))
+                        .or(Criteria.where("priority").isNull());
+    }
+}
@@ -1,21 +1,36 @@
 package com.example1.springbootdemo.repository;
 
+import com.example1.springbootdemo.dto.TodoKey;
 import com.example1.springbootdemo.entity.Todo;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Todo数据访问层接口
- * 继承JpaRepository提供基本的CRUD操作
+ * 继承JpaRepository提供基本的CRUD操作，
+ * 继承TodoRepositoryCustom提供组合条件查询
  * 
  * @author SpringBootDemo
  * @since 1.0
  */
 @Repository
-public interface TodoRepository extends JpaRepository<Todo, Long> {
+public interface TodoRepository extends JpaRepository<Todo, Long>, TodoRepositoryCustom {
     
     /**
      * 根据完成状态查询待办事项
@@ -50,6 +65,15 @@ public interface TodoRepository extends JpaRepository<Todo, Long> {
      */
     long countByCompleted(Boolean completed);
     
+    /**
+     * 按完成状态和优先级分组统计待办事项数量
+     * 可以只扫描(completed, priority)索引完成
+     * 
+     * @return 每行为 [完成状态, 优先级, 数量]
+     */
+    @Query("select t.completed, t.priority, count(t) from Todo t group by t.completed, t.priority")
+    List<Object[]> countGroupByCompletedAndPriority();
+    
     /**
      * 根据内容包含关键词搜索待办事项（忽略大小写）
      * 
@@ -75,6 +99,27 @@ public interface TodoRepository extends JpaRepository<Todo, Long> {
      */
     List<Todo> findByContentContainingIgnoreCaseOrDescriptionContainingIgnoreCase(String content, String description);
     
+    /**
+     * 根据内容或描述包含关键词分页搜索待办事项（忽略大小写）
+     * 未启用全文索引时作为搜索的回退实现
+     * 
+     * @param content 内容搜索关键词
+     * @param description 描述搜索关键词
+     * @param pageable 分页参数
+     * @return 匹配的待办事项分页结果
+     */
+    Page<Todo> findByContentContainingIgnoreCaseOrDescriptionContainingIgnoreCase(String content, String description, Pageable pageable);
+    
+    /**
+     * 按ID顺序分批读取待办事项
+     * 用于全量重建索引等需要遍历全表的场景
+     * 
+     * @param id 上一批最后一条记录的ID
+     * @param limit 每批条数
+     * @return 待办事项列表
+     */
+    List<Todo> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+    
     /**
      * 获取所有待办事项并按创建时间排序
      * 
@@ -111,4 +156,127 @@ public interface TodoRepository extends JpaRepository<Todo, Long> {
      * @return 排序后的待办事项列表
      */
     List<Todo> findAll(Sort sort);
-}
\ No newline at end of file
+    
+    /**
+     * 按ID顺序取ID在(afterId, maxId]之间的一批已完成任务的ID和分组字段，用于分批删除
+     * 沿(completed, id)索引按ID顺序读取，选出后没有删除的任务（如被并发改为未完成）不会被再次选中
+     * 
+     * @param afterId 上一批最后一个ID
+     * @param maxId 本次操作开始时的最大ID，之后新建的任务不受影响
+     * @param limit 批次大小
+     * @return 已完成任务
+     */
+    @Query("select new com.example1.springbootdemo.dto.TodoKey(t.id, t.completed, t.priority, t.version) " +
+            "from Todo t where t.completed = true and t.id > :afterId and t.id <= :maxId order by t.id")
+    List<TodoKey> findCompletedKeys(@Param("afterId") Long afterId, @Param("maxId") Long maxId, Limit limit);
+    
+    /**
+     * 按ID顺序取ID在(afterId, maxId]之间的一批任务的ID和分组字段，用于分批删除
+     * 
+     * @param afterId 上一批最后一个ID
+     * @param maxId 本次操作开始时的最大ID，之后新建的任务不受影响
+     * @param limit 批次大小
+     * @return 任务列表
+     */
+    @Query("select new com.example1.springbootdemo.dto.TodoKey(t.id, t.completed, t.priority, t.version) " +
+            "from Todo t where t.id > :afterId and t.id <= :maxId order by t.id")
+    List<TodoKey> findKeysBetween(@Param("afterId") Long afterId, @Param("maxId") Long maxId, Limit limit);
+    
+    /**
+     * 按ID顺序流式读取所有任务
+     * 结果集按fetch size分批从数据库游标读取，不会一次性加载到内存；实体以只读方式加载，不做脏检查。
+     * 必须在事务中消费，读完后关闭Stream；调用方应及时detach已处理的实体，避免持久化上下文增长
+     * 
+     * @return 任务流
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select t from Todo t order by t.id")
+    Stream<Todo> streamAllByOrderByIdAsc();
+    
+    /**
+     * 按ID查询任务的状态和优先级，不读取内容和描述
+     * 
+     * @param id 任务ID
+     * @return 任务的ID、状态和优先级
+     */
+    @Query("select new com.example1.springbootdemo.dto.TodoKey(t.id, t.completed, t.priority, t.version) " +
+            "from Todo t where t.id = :id")
+    Optional<TodoKey> findKeyById(@Param("id") Long id);
+    
+    /**
+     * 在一条UPDATE语句中切换完成状态并递增版本号，不需要先读取，并发切换也不会丢失
+     * 
+     * @param id 任务ID
+     * @param updateTime 更新时间
+     * @return 实际更新条数，任务不存在时为0
+     */
+    @Modifying
+    @Query("update Todo t set t.completed = case when t.completed = true then false else true end, " +
+            "t.updateTime = :updateTime, t.version = t.version + 1 where t.id = :id")
+    int toggleCompleted(@Param("id") Long id, @Param("updateTime") LocalDateTime updateTime);
+    
+    /**
+     * 版本号与期望一致时切换完成状态并递增版本号
+     * 
+     * @param id 任务ID
+     * @param version 期望的版本号
+     * @param updateTime 更新时间
+     * @return 实际更新条数，任务不存在或版本号不一致时为0
+     */
+    @Modifying
+    @Query("update Todo t set t.completed = case when t.completed = true then false else true end, " +
+            "t.updateTime = :updateTime, t.version = t.version + 1 where t.id = :id and t.version = :version")
+    int toggleCompletedIfVersion(@Param("id") Long id, @Param("version") Long version,
+                                 @Param("updateTime") LocalDateTime updateTime);
+    
+    /**
+     * 版本号与期望一致时删除任务
+     * 
+     * @param id 任务ID
+     * @param version 期望的版本号
+     * @return 实际删除条数，任务不存在或版本号不一致时为0
+     */
+    @Modifying
+    @Query("delete from Todo t where t.id = :id and t.version = :version")
+    int deleteByIdAndVersion(@Param("id") Long id, @Param("version") Long version);
+    
+    /**
+     * 查询当前最大ID
+     * 
+     * @return 最大ID，表为空时为null
+     */
+    @Query("select max(t.id) from Todo t")
+    Long findMaxId();
+    
+    /**
+     * 查询指定ID中仍然存在的ID
+     * 
+     * @param ids 任务ID
+     * @return 存在的任务ID
+     */
+    @Query("select t.id from Todo t where t.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 按ID删除仍处于已完成状态的任务，一条DELETE语句完成
+     * 
+     * @param ids 任务ID
+     * @return 实际删除条数
+     */
+    @Modifying
+    @Query("delete from Todo t where t.id in :ids and t.completed = true")
+    int deleteCompletedByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 按ID删除任务，一条DELETE语句完成
+     * 
+     * @param ids 任务ID
+     * @return 实际删除条数
+     */
+    @Modifying
+    @Query("delete from Todo t where t.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
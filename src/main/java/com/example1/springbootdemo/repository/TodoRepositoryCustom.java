@@ -0,0 +1,65 @@
+package com.example1.springbootdemo.repository;
+
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoView;
+import com.example1.springbootdemo.entity.Todo;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Todo自定义查询接口
+ * 由TodoRepositoryImpl实现，Spring Data会把它合并到TodoRepository中
+ *
+ * @author SpringBootDemo
+ * @since 1.0
+ */
+public interface TodoRepositoryCustom {
+
+    /**
+     * 按组合条件查询待办事项，只读取选择的字段对应的列
+     * 所有过滤条件和排序在一条SQL中完成；ID、版本号和排序字段总会读取，用于生成ETag和游标
+     *
+     * @param filter 查询条件
+     * @param after 游标，为null时从头开始
+     * @param limit 最大返回条数，为null时不限制
+     * @param fields 选择的字段
+     * @return 待办事项视图列表
+     */
+    List<TodoView> findViewsByFilter(TodoFilter filter, TodoCursor after, Integer limit, Set<TodoField> fields);
+
+    /**
+     * 按ID批量读取待办事项，只读取选择的字段对应的列，并保持传入ID的顺序
+     * 数据库中不存在的ID会被忽略
+     *
+     * @param ids 任务ID
+     * @param fields 选择的字段
+     * @return 待办事项视图列表
+     */
+    List<TodoView> findViewsByIds(List<Long> ids, Set<TodoField> fields);
+
+    /**
+     * 批量插入待办事项
+     * 每满一个JDBC批次刷新并清空持久化上下文，插入语句按批次发送，内存占用与总条数无关。
+     * 需要在事务中调用，插入后传入的对象已填充ID，但不再受持久化上下文管理
+     *
+     * @param todos 新建的待办事项
+     */
+    void insertAll(List<Todo> todos);
+
+    /**
+     * 按ID更新指定字段，一条UPDATE语句完成，同时刷新更新时间并递增版本号
+     * 需要在事务中调用
+     *
+     * @param id 任务ID
+     * @param values 属性名 -> 新值，属性名只能是content、description、priority、completed
+     * @param expectedVersion 期望的版本号，不为null时只有版本号一致才更新
+     * @param updateTime 更新时间
+     * @return 实际更新条数，任务不存在或版本号不一致时为0
+     */
+    int updateFields(Long id, Map<String, Object> values, Long expectedVersion, LocalDateTime updateTime);
+}
@@ -0,0 +1,275 @@
+package com.example1.springbootdemo.repository;
+
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoSortField;
+import com.example1.springbootdemo.dto.TodoView;
+import com.example1.springbootdemo.entity.Todo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Todo组合条件查询实现
+ *
+ * 每种“查询形状”（哪些条件存在 + 排序方式 + 是否带游标）只拼接一次JPQL并缓存，
+ * 具体取值一律以绑定参数传入。相同形状得到完全相同的JPQL字符串，
+ * Hibernate据此命中自身的查询计划缓存，不会重复解析和生成SQL。
+ * 列表查询按选择的字段投影，只读取需要的列，默认不读取TEXT类型的描述。
+ *
+ * @author SpringBootDemo
+ * @since 1.0
+ */
+public class TodoRepositoryImpl implements TodoRepositoryCustom {
+
+    private static final char LIKE_ESCAPE = '!';
+
+    /**
+     * 允许通过updateFields修改的属性
+     */
+    private static final Set<String> UPDATABLE_FIELDS = Set.of("content", "description", "priority", "completed");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 查询形状 -> JPQL
+     * 形状组合是有限的（条件有无 × 排序 × 游标类型 × 选择的字段；更新语句为字段组合 × 是否校验版本号），不需要淘汰策略
+     */
+    private final Map<String, String> jpqlCache = new ConcurrentHashMap<>();
+
+    /**
+     * 与hibernate.jdbc.batch_size保持一致，每个批次刷新一次
+     */
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    public List<TodoView> findViewsByFilter(TodoFilter filter, TodoCursor after, Integer limit, Set<TodoField> fields) {
+        List<TodoField> columns = selectColumns(fields, TodoField.of(filter.getSortField()));
+        boolean cursorPriorityNull = after != null && after.getPriority() == null;
+        String jpql = jpqlCache.computeIfAbsent(filter.shapeKey(after != null, cursorPriorityNull) + ":" + columns,
+                key -> buildJpql(filter, after != null, cursorPriorityNull, columns));
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class);
+        if (filter.getCompleted() != null) {
+            query.setParameter("completed", filter.getCompleted());
+        }
+        if (filter.getPriority() != null) {
+            query.setParameter("priority", filter.getPriority());
+        }
+        if (filter.getKeyword() != null) {
+            query.setParameter("keyword", toLikePattern(filter.getKeyword()));
+        }
+        if (after != null) {
+            query.setParameter("cursorId", after.getId());
+            if (filter.getSortField() == TodoSortField.CREATE_TIME) {
+                query.setParameter("cursorCreateTime", after.getCreateTime());
+            } else if (!cursorPriorityNull) {
+                query.setParameter("cursorPriority", after.getPriority());
+            }
+        }
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+
+        List<Object[]> rows = query.getResultList();
+        List<TodoView> views = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            views.add(toView(row, columns, fields));
+        }
+        return views;
+    }
+
+    @Override
+    public List<TodoView> findViewsByIds(List<Long> ids, Set<TodoField> fields) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<TodoField> columns = selectColumns(fields, null);
+        String jpql = jpqlCache.computeIfAbsent("ids:" + columns,
+                key -> selectClause(columns) + " where t.id in :ids");
+
+        Map<Long, TodoView> byId = new HashMap<>(ids.size() * 2);
+        for (Object[] row : entityManager.createQuery(jpql, Object[].class).setParameter("ids", ids).getResultList()) {
+            TodoView view = toView(row, columns, fields);
+            byId.put(view.id(), view);
+        }
+        List<TodoView> views = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            TodoView view = byId.get(id);
+            if (view != null) {
+                views.add(view);
+            }
+        }
+        return views;
+    }
+
+    @Override
+    public void insertAll(List<Todo> todos) {
+        for (int i = 0; i < todos.size(); i++) {
+            entityManager.persist(todos.get(i));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    public int updateFields(Long id, Map<String, Object> values, Long expectedVersion, LocalDateTime updateTime) {
+        Set<String> fields = new TreeSet<>(values.keySet());
+        if (!UPDATABLE_FIELDS.containsAll(fields)) {
+            throw new IllegalArgumentException("不支持更新的字段: " + fields);
+        }
+        boolean versioned = expectedVersion != null;
+        String jpql = jpqlCache.computeIfAbsent("update:" + fields + ":" + versioned,
+                key -> buildUpdateJpql(fields, versioned));
+
+        Query query = entityManager.createQuery(jpql);
+        values.forEach(query::setParameter);
+        query.setParameter("id", id);
+        query.setParameter("updateTime", updateTime);
+        if (versioned) {
+            query.setParameter("expectedVersion", expectedVersion);
+        }
+        return query.executeUpdate();
+    }
+
+    /**
+     * 拼接部分字段更新的JPQL，参数名与属性名相同
+     */
+    private String buildUpdateJpql(Set<String> fields, boolean versioned) {
+        StringBuilder jpql = new StringBuilder("update Todo t set ");
+        for (String field : fields) {
+            jpql.append("t.").append(field).append(" = :").append(field).append(", ");
+        }
+        jpql.append("t.updateTime = :updateTime, t.version = t.version + 1 where t.id = :id");
+        if (versioned) {
+            jpql.append(" and t.version = :expectedVersion");
+        }
+        return jpql.toString();
+    }
+
+    /**
+     * 根据查询形状拼接JPQL
+     */
+    private String buildJpql(TodoFilter filter, boolean withCursor, boolean cursorPriorityNull, List<TodoField> columns) {
+        StringBuilder where = new StringBuilder();
+        if (filter.getCompleted() != null) {
+            and(where, "t.completed = :completed");
+        }
+        if (filter.getPriority() != null) {
+            and(where, "t.priority = :priority");
+        }
+        if (filter.getKeyword() != null) {
+            and(where, "(lower(t.content) like :keyword escape '" + LIKE_ESCAPE + "' " +
+                    "or lower(t.description) like :keyword escape '" + LIKE_ESCAPE + "')");
+        }
+        if (withCursor) {
+            and(where, cursorPredicate(filter.getSortField(), filter.isAscending(), cursorPriorityNull));
+        }
+
+        String direction = filter.isAscending() ? "asc" : "desc";
+        String sortProperty = filter.getSortField() == TodoSortField.PRIORITY ? "t.priority" : "t.createTime";
+
+        StringBuilder jpql = new StringBuilder(selectClause(columns));
+        if (!where.isEmpty()) {
+            jpql.append(" where ").append(where);
+        }
+        jpql.append(" order by ").append(sortProperty).append(' ').append(direction)
+                .append(", t.id ").append(direction);
+        return jpql.toString();
+    }
+
+    /**
+     * 实际读取的列：选择的字段加上ID、版本号和排序字段，按TodoField的声明顺序排列
+     */
+    private List<TodoField> selectColumns(Set<TodoField> fields, TodoField sortField) {
+        EnumSet<TodoField> columns = EnumSet.of(TodoField.ID, TodoField.VERSION);
+        columns.addAll(fields);
+        if (sortField != null) {
+            columns.add(sortField);
+        }
+        return List.copyOf(columns);
+    }
+
+    private String selectClause(List<TodoField> columns) {
+        StringBuilder select = new StringBuilder("select ");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                select.append(", ");
+            }
+            select.append("t.").append(columns.get(i).getParamName());
+        }
+        return select.append(" from Todo t").toString();
+    }
+
+    private TodoView toView(Object[] row, List<TodoField> columns, Set<TodoField> fields) {
+        Map<TodoField, Object> values = new EnumMap<>(TodoField.class);
+        for (int i = 0; i < columns.size(); i++) {
+            values.put(columns.get(i), row[i]);
+        }
+        return TodoView.of(values, fields);
+    }
+
+    /**
+     * 游标定位条件，以 (排序键, id) 定位，配合limit只读取一页数据，翻页深度不影响查询开销
+     * 优先级可能为空，H2和MySQL都把NULL视为最小值：升序时NULL在最前，降序时NULL在最后，
+     * 因此不写NULLS FIRST/LAST，保证排序可以直接走 (priority, id) 索引
+     */
+    private String cursorPredicate(TodoSortField sortField, boolean ascending, boolean cursorPriorityNull) {
+        if (sortField == TodoSortField.CREATE_TIME) {
+            return ascending
+                    ? "t.createTime >= :cursorCreateTime and (t.createTime > :cursorCreateTime or t.id > :cursorId)"
+                    : "t.createTime <= :cursorCreateTime and (t.createTime < :cursorCreateTime or t.id < :cursorId)";
+        }
+        if (cursorPriorityNull) {
+            return ascending
+                    ? "((t.priority is null and t.id > :cursorId) or t.priority is not null)"
+                    : "t.priority is null and t.id < :cursorId";
+        }
+        return ascending
+                ? "t.priority >= :cursorPriority and (t.priority > :cursorPriority or t.id > :cursorId)"
+                : "((t.priority <= :cursorPriority and (t.priority < :cursorPriority or t.id < :cursorId)) " +
+                        "or t.priority is null)";
+    }
+
+    private void and(StringBuilder where, String predicate) {
+        if (!where.isEmpty()) {
+            where.append(" and ");
+        }
+        where.append(predicate);
+    }
+
+    /**
+     * 转义LIKE通配符，按“包含关键词、忽略大小写”匹配
+     */
+    private String toLikePattern(String keyword) {
+        StringBuilder pattern = new StringBuilder("%");
+        for (char c : keyword.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
@@ -0,0 +1,490 @@
+package com.example1.springbootdemo.search;
+
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoKey;
+import com.example1.springbootdemo.dto.TodoSortField;
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.store.TodoStore;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.cjk.CJKBigramFilter;
+import org.apache.lucene.analysis.cjk.CJKWidthFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 基于Lucene的进程内全文索引
+ *
+ * 中文按CJK二元组（bigram）切分：索引时同时写入单字和二元组，查询时只用二元组（单字查询退化为单字），
+ * 关键词的每个词元都必须出现在内容或描述中，效果接近原来的“包含关键词”，但走倒排索引并按BM25相关度排序。
+ * 完成状态、优先级和创建时间以DocValues保存，列表接口带关键词查询时可以在索引内完成过滤、排序和游标翻页。
+ *
+ * 关键词按词元匹配而不是子串匹配：“学习”能匹配“学习Spring”，但英文只匹配完整的单词，ja不能匹配java。
+ *
+ * 索引保存在内存中，与默认的H2内存库一致，启动时从TodoStore全量重建。重建在内嵌Web服务器开始接受请求之前完成，
+ * 重建期间（例如定时任务）并发写入的任务以写事件为准，不会被重建读到的旧数据覆盖。
+ */
+@Component
+@ConditionalOnProperty(name = "todo.search.engine", havingValue = "lucene", matchIfMissing = true)
+@Profile("!reactive")
+public class LuceneTodoSearchIndex implements TodoSearchIndex, SmartLifecycle, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(LuceneTodoSearchIndex.class);
+
+    private static final String ID = "id";
+    private static final String ID_VALUE = "id_value";
+    private static final String CONTENT = "content";
+    private static final String DESCRIPTION = "description";
+    private static final String COMPLETED = "completed";
+    private static final String PRIORITY = "priority";
+    private static final String CREATE_TIME = "create_time";
+
+    /**
+     * 内容命中比描述命中更相关
+     */
+    private static final float CONTENT_BOOST = 2.0f;
+
+    /**
+     * 单次查询最多使用的词元数，防止超长关键词生成过多子句
+     */
+    private static final int MAX_QUERY_TOKENS = 64;
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    /**
+     * 早于内嵌Web服务器（SmartLifecycle.DEFAULT_PHASE - 2048）启动，重建完成前不接受请求
+     */
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    @Autowired
+    private TodoStore todoStore;
+
+    /**
+     * 单次搜索最多返回的结果数
+     */
+    @Value("${todo.search.max-results:10000}")
+    private int maxResults;
+
+    private final Directory directory = new ByteBuffersDirectory();
+    private final Analyzer queryAnalyzer = new CjkAnalyzer(false);
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    /**
+     * 有未刷新的写入时，下一次搜索前先刷新searcher，保证写入后立即可搜
+     */
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    /**
+     * 重建期间写事件对索引的修改，不在重建时为null
+     * 重建写入一批任务和写事件更新索引都在rebuildLock内进行，重建据此跳过或修正读取批次时的旧数据
+     */
+    private volatile RebuildChanges rebuildChanges;
+
+    private final Object rebuildLock = new Object();
+
+    private volatile boolean running;
+
+    public LuceneTodoSearchIndex() throws IOException {
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(new CjkAnalyzer(true)));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    @Override
+    public void start() {
+        rebuild();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * 从TodoStore全量重建索引，按ID分批读取，内存占用与表大小无关
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        RebuildChanges changes = new RebuildChanges();
+        rebuildChanges = changes;
+        try {
+            clear();
+            long lastId = 0;
+            long count = 0;
+            List<Todo> batch;
+            do {
+                batch = todoStore.findBatchAfter(lastId, REBUILD_BATCH_SIZE);
+                synchronized (rebuildLock) {
+                    for (Todo todo : batch) {
+                        if (!changes.replaced.contains(todo.getId())) {
+                            TodoKey key = changes.keys.get(todo.getId());
+                            write(todo, key != null ? key.isCompleted() : todo.isCompleted(),
+                                    key != null ? key.getPriority() : todo.getPriority());
+                        }
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getId();
+                }
+                count += batch.size();
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+            log.info("全文索引重建完成，共 {} 条，耗时 {} ms", count, System.currentTimeMillis() - start);
+        } finally {
+            rebuildChanges = null;
+        }
+    }
+
+    @Override
+    public void index(Todo todo) {
+        RebuildChanges changes = rebuildChanges;
+        if (changes == null) {
+            write(todo, todo.isCompleted(), todo.getPriority());
+            return;
+        }
+        synchronized (rebuildLock) {
+            changes.replaced.add(todo.getId());
+            write(todo, todo.isCompleted(), todo.getPriority());
+        }
+    }
+
+    private void write(Todo todo, boolean completed, Integer priority) {
+        String id = String.valueOf(todo.getId());
+        Document document = new Document();
+        document.add(new StringField(ID, id, Field.Store.YES));
+        document.add(new NumericDocValuesField(ID_VALUE, todo.getId()));
+        if (todo.getContent() != null) {
+            document.add(new TextField(CONTENT, todo.getContent(), Field.Store.NO));
+        }
+        if (todo.getDescription() != null) {
+            document.add(new TextField(DESCRIPTION, todo.getDescription(), Field.Store.NO));
+        }
+        document.add(new NumericDocValuesField(COMPLETED, completed ? 1 : 0));
+        document.add(new NumericDocValuesField(PRIORITY, priorityKey(priority)));
+        document.add(new NumericDocValuesField(CREATE_TIME, createTimeKey(todo.getCreateTime())));
+        try {
+            writer.updateDocument(new Term(ID, id), document);
+        } catch (IOException e) {
+            throw new UncheckedIOException("更新全文索引失败", e);
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * 重建期间的状态修改可能早于重建写入这条任务，此时updateDocValues找不到文档，记下来由重建写入时使用
+     */
+    @Override
+    public void updateKey(TodoKey todo) {
+        RebuildChanges changes = rebuildChanges;
+        if (changes == null) {
+            writeKey(todo);
+            return;
+        }
+        synchronized (rebuildLock) {
+            changes.keys.put(todo.getId(), todo);
+            writeKey(todo);
+        }
+    }
+
+    private void writeKey(TodoKey todo) {
+        try {
+            writer.updateDocValues(new Term(ID, String.valueOf(todo.getId())),
+                    new NumericDocValuesField(COMPLETED, todo.isCompleted() ? 1 : 0),
+                    new NumericDocValuesField(PRIORITY, priorityKey(todo.getPriority())));
+        } catch (IOException e) {
+            throw new UncheckedIOException("更新全文索引失败", e);
+        }
+        dirty.set(true);
+    }
+
+    @Override
+    public void remove(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        RebuildChanges changes = rebuildChanges;
+        if (changes == null) {
+            delete(ids);
+            return;
+        }
+        synchronized (rebuildLock) {
+            changes.replaced.addAll(ids);
+            delete(ids);
+        }
+    }
+
+    private void delete(Collection<Long> ids) {
+        Term[] terms = ids.stream().map(id -> new Term(ID, String.valueOf(id))).toArray(Term[]::new);
+        try {
+            writer.deleteDocuments(terms);
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除全文索引失败", e);
+        }
+        dirty.set(true);
+    }
+
+    @Override
+    public void clear() {
+        try {
+            writer.deleteAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException("清空全文索引失败", e);
+        }
+        dirty.set(true);
+    }
+
+    @Override
+    public TodoSearchHits search(String keyword, int offset, int size) {
+        Query query = buildTextQuery(keyword);
+        if (query == null) {
+            return new TodoSearchHits(List.of(), 0);
+        }
+        if (offset >= maxResults) {
+            throw new IllegalArgumentException("搜索结果最多只能翻到前 " + maxResults + " 条，请缩小关键词范围");
+        }
+        int end = (int) Math.min((long) offset + size, maxResults);
+
+        IndexSearcher searcher = acquire();
+        try {
+            TopDocs topDocs = searcher.search(query, end);
+            long total = topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO
+                    ? topDocs.totalHits.value
+                    : searcher.count(query);
+            StoredFields storedFields = searcher.storedFields();
+            Set<String> idField = Set.of(ID);
+            List<Long> ids = new ArrayList<>();
+            for (int i = offset; i < topDocs.scoreDocs.length; i++) {
+                ids.add(Long.valueOf(storedFields.document(topDocs.scoreDocs[i].doc, idField).get(ID)));
+            }
+            return new TodoSearchHits(ids, total);
+        } catch (IOException e) {
+            throw new UncheckedIOException("全文搜索失败", e);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    @Override
+    public List<Long> findIds(TodoFilter filter, TodoCursor after, Integer limit) {
+        Query textQuery = buildTextQuery(filter.getKeyword());
+        if (textQuery == null) {
+            return List.of();
+        }
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder().add(textQuery, BooleanClause.Occur.MUST);
+        if (filter.getCompleted() != null) {
+            builder.add(NumericDocValuesField.newSlowExactQuery(COMPLETED, filter.getCompleted() ? 1 : 0),
+                    BooleanClause.Occur.FILTER);
+        }
+        if (filter.getPriority() != null) {
+            builder.add(NumericDocValuesField.newSlowExactQuery(PRIORITY, filter.getPriority()),
+                    BooleanClause.Occur.FILTER);
+        }
+
+        // 与数据库排序保持一致：排序键相同时按ID排序，优先级为空视为最小值
+        boolean reverse = !filter.isAscending();
+        String sortKey = filter.getSortField() == TodoSortField.PRIORITY ? PRIORITY : CREATE_TIME;
+        Sort sort = new Sort(new SortField(sortKey, SortField.Type.LONG, reverse),
+                new SortField(ID_VALUE, SortField.Type.LONG, reverse));
+        // 不分页时多取一条，用于判断命中数是否超过上限
+        int size = Math.max(1, limit != null ? Math.min(limit, maxResults) : maxResults + 1);
+
+        IndexSearcher searcher = acquire();
+        try {
+            TopDocs topDocs;
+            if (after == null) {
+                topDocs = searcher.search(builder.build(), size, sort);
+            } else {
+                long afterKey = filter.getSortField() == TodoSortField.PRIORITY
+                        ? priorityKey(after.getPriority())
+                        : createTimeKey(after.getCreateTime());
+                // 文档号取最大值：排序值完全相同的只有游标记录本身，会被排除
+                FieldDoc afterDoc = new FieldDoc(Integer.MAX_VALUE, Float.NaN, new Object[]{afterKey, after.getId()});
+                topDocs = searcher.searchAfter(afterDoc, builder.build(), size, sort);
+            }
+            if (limit == null && topDocs.scoreDocs.length > maxResults) {
+                throw new IllegalArgumentException("关键词匹配的任务超过 " + maxResults + " 条，请使用limit和cursor分页获取");
+            }
+            List<Long> ids = new ArrayList<>(topDocs.scoreDocs.length);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                ids.add((Long) ((FieldDoc) scoreDoc).fields[1]);
+            }
+            return ids;
+        } catch (IOException e) {
+            throw new UncheckedIOException("全文搜索失败", e);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    /**
+     * 关键词的每个词元都必须出现在内容或描述中
+     */
+    private Query buildTextQuery(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        try (TokenStream stream = queryAnalyzer.tokenStream(CONTENT, keyword)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken() && tokens.size() < MAX_QUERY_TOKENS) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException("关键词分词失败", e);
+        }
+        if (tokens.isEmpty()) {
+            return null;
+        }
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (String token : tokens) {
+            Query anyField = new BooleanQuery.Builder()
+                    .add(new BoostQuery(new TermQuery(new Term(CONTENT, token)), CONTENT_BOOST), BooleanClause.Occur.SHOULD)
+                    .add(new TermQuery(new Term(DESCRIPTION, token)), BooleanClause.Occur.SHOULD)
+                    .build();
+            builder.add(anyField, BooleanClause.Occur.MUST);
+        }
+        return builder.build();
+    }
+
+    private IndexSearcher acquire() {
+        try {
+            if (dirty.getAndSet(false)) {
+                searcherManager.maybeRefreshBlocking();
+            }
+            return searcherManager.acquire();
+        } catch (IOException e) {
+            throw new UncheckedIOException("刷新全文索引失败", e);
+        }
+    }
+
+    private void release(IndexSearcher searcher) {
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            log.warn("释放索引searcher失败", e);
+        }
+    }
+
+    private static long priorityKey(Integer priority) {
+        return priority != null ? priority : 0;
+    }
+
+    /**
+     * 创建时间转换为微秒时间戳，与数据库TIMESTAMP(6)精度一致
+     */
+    private static long createTimeKey(LocalDateTime createTime) {
+        if (createTime == null) {
+            return 0;
+        }
+        return createTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + createTime.getNano() / 1_000;
+    }
+
+    /**
+     * 中日韩文本分析器：标准分词 → 全半角归一 → 小写 → CJK二元组
+     */
+    private static final class CjkAnalyzer extends Analyzer {
+
+        private final boolean outputUnigrams;
+
+        CjkAnalyzer(boolean outputUnigrams) {
+            this.outputUnigrams = outputUnigrams;
+        }
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer source = new StandardTokenizer();
+            TokenStream result = new CJKWidthFilter(source);
+            result = new LowerCaseFilter(result);
+            result = new CJKBigramFilter(result, CJKBigramFilter.HAN | CJKBigramFilter.HIRAGANA
+                    | CJKBigramFilter.KATAKANA | CJKBigramFilter.HANGUL, outputUnigrams);
+            return new TokenStreamComponents(source, result);
+        }
+    }
+
+    /**
+     * 重建期间写事件的修改，由rebuildLock保护
+     */
+    private static final class RebuildChanges {
+
+        /**
+         * 被重新索引或删除的任务，重建不再写入
+         */
+        private final Set<Long> replaced = new HashSet<>();
+
+        /**
+         * 只修改了完成状态或优先级的任务，重建写入时使用这里的值
+         */
+        private final Map<Long, TodoKey> keys = new HashMap<>();
+    }
+}
@@ -0,0 +1,32 @@
+package com.example1.springbootdemo.search;
+
+import java.util.List;
+
+/**
+ * 全文搜索命中结果
+ */
+public class TodoSearchHits {
+
+    /**
+     * 当前页命中的任务ID，按相关度从高到低排列
+     */
+    private final List<Long> ids;
+
+    /**
+     * 命中总数
+     */
+    private final long total;
+
+    public TodoSearchHits(List<Long> ids, long total) {
+        this.ids = ids;
+        this.total = total;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+}
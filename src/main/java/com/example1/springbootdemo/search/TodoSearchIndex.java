@@ -0,0 +1,64 @@
+package com.example1.springbootdemo.search;
+
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoKey;
+import com.example1.springbootdemo.entity.Todo;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Todo全文搜索索引
+ * 维护任务内容和描述的倒排索引，替代 LIKE '%关键词%' 的全表扫描。
+ * 关键词按分词结果匹配，与LIKE的子串匹配不完全相同（见具体实现）。
+ * 索引随Todo的写操作同步更新（见TodoSearchIndexSynchronizer），
+ * 未启用索引时TodoService回退到数据库LIKE查询。
+ */
+public interface TodoSearchIndex {
+
+    /**
+     * 新增或替换一条任务的索引
+     * @param todo 任务
+     */
+    void index(Todo todo);
+
+    /**
+     * 只更新一条任务的完成状态和优先级，不重新分词
+     * 任务不在索引中时不做任何操作
+     * @param todo 任务的ID、状态和优先级
+     */
+    void updateKey(TodoKey todo);
+
+    /**
+     * 删除指定任务的索引
+     * @param ids 任务ID
+     */
+    void remove(Collection<Long> ids);
+
+    /**
+     * 清空索引
+     */
+    void clear();
+
+    /**
+     * 按相关度搜索
+     * @param keyword 关键词
+     * @param offset 跳过的条数
+     * @param size 返回条数，offset + size超过结果数上限时只返回上限以内的部分
+     * @return 按相关度从高到低排列的任务ID和命中总数（不受上限影响）
+     * @throws IllegalArgumentException offset超过结果数上限
+     */
+    TodoSearchHits search(String keyword, int offset, int size);
+
+    /**
+     * 按组合条件搜索，结果按条件中的排序方式排列
+     * 用于列表接口带关键词的查询，支持游标分页
+     * @param filter 查询条件，关键词不能为空
+     * @param after 游标，为null时从头开始
+     * @param limit 最大返回条数，为null时返回全部命中
+     * @return 任务ID列表
+     * @throws IllegalArgumentException limit为null且命中数超过索引允许的上限，不会静默截断
+     */
+    List<Long> findIds(TodoFilter filter, TodoCursor after, Integer limit);
+}
@@ -0,0 +1,70 @@
+package com.example1.springbootdemo.search;
+
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.event.TodoDeletedEvent;
+import com.example1.springbootdemo.event.TodoSavedEvent;
+import com.example1.springbootdemo.event.TodoUpdatedEvent;
+import com.example1.springbootdemo.event.TodosBulkDeletedEvent;
+import com.example1.springbootdemo.store.TodoStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * 搜索索引同步器
+ * 监听Todo写事件，在事务提交后更新搜索索引；没有事务时在写操作完成后立即更新
+ */
+@Component
+@Profile("!reactive")
+public class TodoSearchIndexSynchronizer {
+
+    @Autowired(required = false)
+    private TodoSearchIndex searchIndex;
+
+    @Autowired
+    private TodoStore todoStore;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSaved(TodoSavedEvent event) {
+        if (searchIndex != null) {
+            searchIndex.index(event.getCurrent());
+        }
+    }
+
+    /**
+     * 只修改了状态或优先级时直接更新DocValues；内容或描述被修改时需要重新分词，读取完整数据后重建该条索引
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUpdated(TodoUpdatedEvent event) {
+        if (searchIndex == null) {
+            return;
+        }
+        if (event.isTextChanged()) {
+            Todo todo = todoStore.findById(event.getId()).orElse(null);
+            if (todo != null) {
+                searchIndex.index(todo);
+            } else {
+                searchIndex.remove(List.of(event.getId()));
+            }
+        } else if (event.isKeyChanged()) {
+            searchIndex.updateKey(event.getCurrent());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeleted(TodoDeletedEvent event) {
+        if (searchIndex != null) {
+            searchIndex.remove(List.of(event.getTodo().getId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkDeleted(TodosBulkDeletedEvent event) {
+        if (searchIndex != null) {
+            searchIndex.remove(event.getIds());
+        }
+    }
+}
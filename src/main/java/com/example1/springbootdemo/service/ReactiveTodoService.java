@@ -0,0 +1,363 @@
+package com.example1.springbootdemo.service;
+
+import com.example1.springbootdemo.dto.CursorPage;
+import com.example1.springbootdemo.dto.SearchPage;
+import com.example1.springbootdemo.dto.TodoChanges;
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoRequest;
+import com.example1.springbootdemo.dto.TodoStats;
+import com.example1.springbootdemo.dto.TodoView;
+import com.example1.springbootdemo.entity.ReactiveTodo;
+import com.example1.springbootdemo.exception.TodoNotFoundException;
+import com.example1.springbootdemo.exception.TodoVersionMismatchException;
+import com.example1.springbootdemo.io.TodoCsv;
+import com.example1.springbootdemo.io.TodoFileFormat;
+import com.example1.springbootdemo.repository.ReactiveTodoRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Todo待办事项响应式业务逻辑服务类
+ * reactive profile下替代TodoService，使用ReactiveTodoRepository通过R2DBC访问数据库，
+ * 所有方法返回Mono/Flux，请求处理线程不会阻塞在数据库调用上。
+ * 校验规则、异常和返回的数据结构与TodoService一致
+ */
+@Service
+@Profile("reactive")
+public class ReactiveTodoService {
+
+    /**
+     * 部分更新与并发修改冲突时的最大尝试次数
+     */
+    private static final int UPDATE_ATTEMPTS = 3;
+
+    /**
+     * 统计时的优先级分组数：无优先级 + 1~3
+     */
+    private static final int PRIORITY_BUCKETS = 4;
+
+    @Autowired
+    private ReactiveTodoRepository todoRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 创建新的Todo任务
+     * @param request 创建请求，已通过校验
+     * @return 保存后的Todo对象
+     */
+    public Mono<ReactiveTodo> createTodo(TodoRequest request) {
+        return Mono.fromSupplier(() -> new ReactiveTodo(requireContent(request.getContent()),
+                        request.getDescription(), request.getPriority()))
+                .flatMap(todoRepository::save);
+    }
+
+    /**
+     * 根据ID查询Todo任务
+     * @param id 任务ID
+     * @return Todo对象，不存在时发出TodoNotFoundException
+     */
+    public Mono<ReactiveTodo> getTodoById(Long id) {
+        return todoRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new TodoNotFoundException("Todo任务不存在，ID: " + id)));
+    }
+
+    /**
+     * 按组合条件查询Todo任务
+     * 结果逐条发出，订阅方处理不过来时不会继续从数据库读取，只读取选择的字段
+     * @param filter 查询条件
+     * @param fields 选择的字段
+     * @return 符合条件的Todo任务流
+     */
+    public Flux<TodoView> getTodos(TodoFilter filter, Set<TodoField> fields) {
+        return todoRepository.findByFilter(filter, null, null, fields).map(todo -> TodoView.from(todo, fields));
+    }
+
+    /**
+     * 按组合条件游标分页查询Todo任务
+     * 多取一条判断是否还有下一页，与TodoService.getTodosPage一致
+     * @param filter 查询条件
+     * @param after 游标，为null时从第一页开始
+     * @param limit 每页条数
+     * @param fields 选择的字段
+     * @return 当前页数据和下一页游标
+     */
+    public Mono<CursorPage<TodoView>> getTodosPage(TodoFilter filter, TodoCursor after, Integer limit,
+                                                   Set<TodoField> fields) {
+        int pageSize = resolvePageSize(limit);
+        return todoRepository.findByFilter(filter, after, pageSize + 1, fields)
+                .map(todo -> TodoView.from(todo, fields))
+                .collectList()
+                .map(todos -> {
+                    boolean hasMore = todos.size() > pageSize;
+                    List<TodoView> items = hasMore ? new ArrayList<>(todos.subList(0, pageSize)) : todos;
+                    String nextCursor = hasMore
+                            ? TodoCursor.after(items.get(items.size() - 1), filter.getSortField(), filter.isAscending()).encode()
+                            : null;
+                    return new CursorPage<>(items, nextCursor, hasMore);
+                });
+    }
+
+    /**
+     * 在内容和描述中搜索关键词，按创建时间倒序分页
+     * @param keyword 搜索关键词
+     * @param page 页码，从0开始
+     * @param size 每页条数
+     * @param fields 选择的字段
+     * @return 当前页数据和匹配总数
+     */
+    public Mono<SearchPage<TodoView>> searchTodos(String keyword, int page, Integer size, Set<TodoField> fields) {
+        return Mono.defer(() -> {
+            String trimmedKeyword = requireKeyword(keyword, page);
+            int pageSize = resolvePageSize(size);
+            return Mono.zip(
+                    todoRepository.search(trimmedKeyword, (long) page * pageSize, pageSize, fields)
+                            .map(todo -> TodoView.from(todo, fields))
+                            .collectList(),
+                    todoRepository.countSearch(trimmedKeyword),
+                    (items, total) -> new SearchPage<>(items, total, page, pageSize));
+        });
+    }
+
+    /**
+     * 在内容和描述中搜索关键词，逐条发出当前页的结果，不统计总数
+     * @param keyword 搜索关键词
+     * @param page 页码，从0开始
+     * @param size 每页条数
+     * @param fields 选择的字段
+     * @return 当前页的Todo任务流
+     */
+    public Flux<TodoView> streamSearch(String keyword, int page, Integer size, Set<TodoField> fields) {
+        return Flux.defer(() -> {
+            String trimmedKeyword = requireKeyword(keyword, page);
+            int pageSize = resolvePageSize(size);
+            return todoRepository.search(trimmedKeyword, (long) page * pageSize, pageSize, fields)
+                    .map(todo -> TodoView.from(todo, fields));
+        });
+    }
+
+    /**
+     * 导出所有Todo任务
+     * 每条任务格式化为一行文本逐条发出，网络写不动时不会继续从数据库读取，内存占用与任务总数无关。
+     * NDJSON每行是包含全部字段的TodoView，与接口返回的格式一致
+     * @param format 文件格式
+     * @return 文本行流，每行以换行符结尾，CSV格式先发出表头
+     */
+    public Flux<String> exportTodos(TodoFileFormat format) {
+        Flux<String> lines = todoRepository.findAllByOrderByIdAsc()
+                .map(todo -> (format == TodoFileFormat.CSV ? TodoCsv.format(todo) : toJson(todo)) + "\n");
+        return format == TodoFileFormat.CSV ? Flux.concat(Mono.just(TodoCsv.HEADER + "\n"), lines) : lines;
+    }
+
+    /**
+     * 更新Todo任务的部分字段，只写入不为null的参数
+     * 先读取当前版本号，再以它作为UPDATE的条件（比较并交换），期间被并发修改则重新读取后重试
+     * @param id 任务ID
+     * @param content 新的任务内容
+     * @param description 新的任务描述
+     * @param priority 新的优先级
+     * @param completed 新的完成状态
+     * @param expectedVersion 期望的版本号，为null时不校验
+     * @return 任务ID、被修改的字段、更新时间和新版本号
+     */
+    public Mono<TodoChanges> updateTodoFields(Long id, String content, String description,
+                                              Integer priority, Boolean completed, Long expectedVersion) {
+        return Mono.defer(() -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            if (content != null) {
+                values.put("content", requireContent(content));
+            }
+            if (description != null) {
+                values.put("description", description);
+            }
+            if (priority != null) {
+                values.put("priority", requirePriority(priority));
+            }
+            if (completed != null) {
+                values.put("completed", completed);
+            }
+            if (values.isEmpty()) {
+                return getTodoById(id).map(todo -> {
+                    if (expectedVersion != null && !expectedVersion.equals(todo.getVersion())) {
+                        throw new TodoVersionMismatchException(id);
+                    }
+                    return TodoChanges.of(id, values, null, todo.getVersion());
+                });
+            }
+            LocalDateTime updateTime = LocalDateTime.now();
+            return getTodoById(id)
+                    .flatMap(current -> {
+                        if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+                            return Mono.error(new TodoVersionMismatchException(id));
+                        }
+                        return todoRepository.updateFields(id, values, current.getVersion(), updateTime)
+                                .flatMap(updated -> {
+                                    if (updated > 0) {
+                                        return Mono.just(TodoChanges.of(id, values, updateTime, current.getVersion() + 1));
+                                    }
+                                    return Mono.error(expectedVersion != null
+                                            ? new TodoVersionMismatchException(id)
+                                            : new OptimisticLockingFailureException("Todo任务正在被并发修改，请稍后重试，ID: " + id));
+                                });
+                    })
+                    .retryWhen(Retry.max(UPDATE_ATTEMPTS - 1)
+                            .filter(OptimisticLockingFailureException.class::isInstance)
+                            .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        });
+    }
+
+    /**
+     * 切换Todo任务完成状态
+     * @param id 任务ID
+     * @param expectedVersion 期望的版本号，为null时不校验
+     * @return 任务ID、新的完成状态、更新时间和新版本号
+     */
+    @Transactional
+    public Mono<TodoChanges> toggleTodoStatus(Long id, Long expectedVersion) {
+        LocalDateTime updateTime = LocalDateTime.now();
+        Mono<Integer> toggle = expectedVersion == null
+                ? todoRepository.toggleCompleted(id, updateTime)
+                : todoRepository.toggleCompletedIfVersion(id, expectedVersion, updateTime);
+        return toggle
+                .flatMap(updated -> updated == 0 ? notUpdated(id, expectedVersion) : todoRepository.findById(id))
+                .map(todo -> TodoChanges.of(id, Map.of("completed", todo.isCompleted()), updateTime, todo.getVersion()));
+    }
+
+    /**
+     * 删除Todo任务
+     * @param id 任务ID
+     * @param expectedVersion 期望的版本号，为null时不校验
+     * @return 被删除的Todo对象
+     */
+    public Mono<ReactiveTodo> deleteTodo(Long id, Long expectedVersion) {
+        return getTodoById(id).flatMap(todo -> expectedVersion == null
+                ? todoRepository.deleteById(id).thenReturn(todo)
+                : todoRepository.deleteByIdAndVersion(id, expectedVersion)
+                        .flatMap(deleted -> deleted == 0 ? notUpdated(id, expectedVersion) : Mono.just(todo)));
+    }
+
+    /**
+     * 删除所有已完成的Todo任务
+     * @return 被删除的任务数量
+     */
+    public Mono<Integer> deleteCompletedTodos() {
+        return todoRepository.deleteCompleted();
+    }
+
+    /**
+     * 删除所有Todo任务
+     * @return 被删除的任务数量
+     */
+    public Mono<Integer> deleteAllTodos() {
+        return todoRepository.deleteAllTodos();
+    }
+
+    /**
+     * 获取Todo任务统计信息
+     * 一条GROUP BY查询按完成状态和优先级分组计数，返回结构与TodoStatsCounter.getStats一致
+     * @return 统计信息
+     */
+    public Mono<TodoStats> getStats() {
+        return databaseClient.sql("select completed, priority, count(*) as cnt from todo group by completed, priority")
+                .map((row, metadata) -> {
+                    Boolean completed = row.get("completed", Boolean.class);
+                    Integer priority = row.get("priority", Integer.class);
+                    Long count = row.get("cnt", Long.class);
+                    int bucket = priority != null && priority >= 1 && priority < PRIORITY_BUCKETS ? priority : 0;
+                    return new long[] {Boolean.TRUE.equals(completed) ? 1 : 0, bucket, count != null ? count : 0};
+                })
+                .all()
+                .reduce(new long[2 * PRIORITY_BUCKETS], (counts, group) -> {
+                    counts[(int) (group[0] * PRIORITY_BUCKETS + group[1])] += group[2];
+                    return counts;
+                })
+                .map(counts -> {
+                    long completed = 0;
+                    long incomplete = 0;
+                    Map<String, TodoStats.PriorityCount> byPriority = new LinkedHashMap<>();
+                    for (int bucket = 1; bucket <= PRIORITY_BUCKETS; bucket++) {
+                        int priorityBucket = bucket % PRIORITY_BUCKETS;
+                        long bucketCompleted = counts[PRIORITY_BUCKETS + priorityBucket];
+                        long bucketIncomplete = counts[priorityBucket];
+                        completed += bucketCompleted;
+                        incomplete += bucketIncomplete;
+                        byPriority.put(priorityBucket == 0 ? "none" : String.valueOf(priorityBucket),
+                                new TodoStats.PriorityCount(bucketCompleted, bucketIncomplete));
+                    }
+                    return new TodoStats(completed + incomplete, completed, incomplete, byPriority);
+                });
+    }
+
+    /**
+     * 条件更新或删除没有影响任何行时，区分任务不存在和版本号不一致
+     */
+    private <T> Mono<T> notUpdated(Long id, Long expectedVersion) {
+        return todoRepository.existsById(id).flatMap(exists -> Mono.error(expectedVersion != null && exists
+                ? new TodoVersionMismatchException(id)
+                : new TodoNotFoundException("Todo任务不存在，ID: " + id)));
+    }
+
+    private String toJson(ReactiveTodo todo) {
+        try {
+            return objectMapper.writeValueAsString(TodoView.from(todo, TodoField.ALL));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化Todo任务失败，ID: " + todo.getId(), e);
+        }
+    }
+
+    private String requireKeyword(String keyword, int page) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            throw new IllegalArgumentException("搜索关键词不能为空");
+        }
+        if (page < 0) {
+            throw new IllegalArgumentException("页码不能小于0");
+        }
+        return keyword.trim();
+    }
+
+    private String requireContent(String content) {
+        if (content == null || content.trim().isEmpty()) {
+            throw new IllegalArgumentException("任务内容不能为空");
+        }
+        return content.trim();
+    }
+
+    private Integer requirePriority(Integer priority) {
+        if (priority < 1 || priority > 3) {
+            throw new IllegalArgumentException("优先级必须在1-3之间");
+        }
+        return priority;
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return TodoService.DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("每页条数必须大于0");
+        }
+        return Math.min(limit, TodoService.MAX_PAGE_SIZE);
+    }
+}
@@ -1,23 +1,160 @@
 package com.example1.springbootdemo.service;
 
+import com.example1.springbootdemo.cache.TodoCache;
+import com.example1.springbootdemo.dto.BatchCreateResult;
+import com.example1.springbootdemo.dto.CursorPage;
+import com.example1.springbootdemo.dto.ImportResult;
+import com.example1.springbootdemo.dto.SearchPage;
+import com.example1.springbootdemo.dto.TodoChanges;
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoImportRecord;
+import com.example1.springbootdemo.dto.TodoKey;
+import com.example1.springbootdemo.dto.TodoRequest;
+import com.example1.springbootdemo.dto.TodoStats;
+import com.example1.springbootdemo.dto.TodoSortField;
+import com.example1.springbootdemo.dto.TodoView;
 import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.event.TodoDeletedEvent;
+import com.example1.springbootdemo.event.TodoSavedEvent;
+import com.example1.springbootdemo.event.TodoUpdatedEvent;
+import com.example1.springbootdemo.event.TodosBulkDeletedEvent;
 import com.example1.springbootdemo.exception.TodoNotFoundException;
-import com.example1.springbootdemo.repository.TodoRepository;
+import com.example1.springbootdemo.exception.TodoVersionMismatchException;
+import com.example1.springbootdemo.io.TodoCsv;
+import com.example1.springbootdemo.io.TodoFileFormat;
+import com.example1.springbootdemo.io.TodoRecordReader;
+import com.example1.springbootdemo.search.TodoSearchHits;
+import com.example1.springbootdemo.search.TodoSearchIndex;
+import com.example1.springbootdemo.stats.TodoStatsCounter;
+import com.example1.springbootdemo.store.TodoStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import java.util.stream.Collectors;
 
 /**
  * Todo待办事项业务逻辑服务类
- * 使用TodoRepository与MySQL数据库进行交互
+ * 通过TodoStore读写任务，默认由JPA访问数据库，todo.store=memory时使用进程内列式存储
+ * 每个公开方法的耗时记录到todo.service指标，按方法名和异常类型打标签（类内部互相调用不单独计时）
+ * 查询数据库的方法声明为只读事务，开启读写分离（todo.datasource.read-write-splitting.enabled）时发往只读副本；
+ * 只读取内存计数的统计方法不开启事务
  */
 @Service
+@Profile("!reactive")
+@Timed("todo.service")
 public class TodoService {
     
+    /**
+     * 游标分页默认每页条数
+     */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    
+    /**
+     * 游标分页每页最大条数
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+    
+    /**
+     * 分批删除时每隔多少批记录一次进度
+     */
+    private static final int DELETE_PROGRESS_LOG_INTERVAL = 10;
+    
+    /**
+     * 导入时每隔多少批记录一次进度
+     */
+    private static final int IMPORT_PROGRESS_LOG_INTERVAL = 100;
+    
+    /**
+     * 部分更新与并发修改冲突时的最大尝试次数
+     */
+    private static final int UPDATE_ATTEMPTS = 3;
+    
+    private static final Logger log = LoggerFactory.getLogger(TodoService.class);
+    
     @Autowired
-    private TodoRepository todoRepository;
+    private TodoStore todoStore;
+    
+    /**
+     * 全文搜索索引，通过todo.search.engine=database关闭时为null，搜索回退到数据库LIKE查询
+     */
+    @Autowired(required = false)
+    private TodoSearchIndex searchIndex;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private TodoCache todoCache;
+    
+    @Autowired
+    private TodoStatsCounter statsCounter;
+    
+    @Autowired
+    private Validator validator;
+    
+    /**
+     * 单次批量创建的最大条数
+     */
+    @Value("${todo.batch.max-size:50000}")
+    private int maxBatchSize;
+    
+    /**
+     * 分批删除时每批的条数
+     */
+    @Value("${todo.delete.chunk-size:1000}")
+    private int deleteChunkSize;
+    
+    /**
+     * 导入时每批提交的条数，每批一个事务
+     */
+    @Value("${todo.import.chunk-size:1000}")
+    private int importChunkSize;
+    
+    /**
+     * 导入文件中单条记录的最大字符数
+     */
+    @Value("${todo.import.max-record-length:8192}")
+    private int importMaxRecordLength;
+    
+    /**
+     * 导入结果中最多返回的被拒绝记录条数，超出的只计数
+     */
+    @Value("${todo.import.max-rejected-log:1000}")
+    private int importMaxRejectedLog;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
     
     /**
      * 创建新的Todo任务
@@ -25,12 +162,7 @@ public class TodoService {
      * @return 创建的Todo对象
      */
     public Todo createTodo(String content) {
-        if (content == null || content.trim().isEmpty()) {
-            throw new IllegalArgumentException("任务内容不能为空");
-        }
-        
-        Todo todo = new Todo(content.trim());
-        return todoRepository.save(todo);
+        return createTodo(content, null, null);
     }
     
     /**
@@ -40,13 +172,7 @@ public class TodoService {
      * @return 创建的Todo对象
      */
     public Todo createTodo(String content, String description) {
-        if (content == null || content.trim().isEmpty()) {
-            throw new IllegalArgumentException("任务内容不能为空");
-        }
-        
-        Todo todo = new Todo(content.trim());
-        todo.setDescription(description);
-        return todoRepository.save(todo);
+        return createTodo(content, description, null);
     }
     
     /**
@@ -57,18 +183,296 @@ public class TodoService {
      * @return 创建的Todo对象
      */
     public Todo createTodo(String content, String description, Integer priority) {
-        Todo todo = createTodo(content, description);
-        if (priority != null) {
-            if (priority < 1 || priority > 3) {
-                throw new IllegalArgumentException("优先级必须在1-3之间");
+        if (content == null || content.trim().isEmpty()) {
+            throw new IllegalArgumentException("任务内容不能为空");
+        }
+        if (priority != null && (priority < 1 || priority > 3)) {
+            throw new IllegalArgumentException("优先级必须在1-3之间");
+        }
+        
+        Todo todo = new Todo(content.trim());
+        todo.setDescription(description);
+        todo.setPriority(priority);
+        Todo saved = todoStore.save(todo);
+        eventPublisher.publishEvent(new TodoSavedEvent(null, saved));
+        return saved;
+    }
+    
+    /**
+     * 批量创建Todo任务
+     * 先逐项校验，校验通过的任务在同一个事务中按JDBC批次插入；校验失败的项不影响其他项
+     * @param requests 创建请求列表
+     * @return 每一项的结果和吞吐量
+     */
+    @Transactional
+    public BatchCreateResult createTodos(List<TodoRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("批量创建的任务列表不能为空");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("单次最多批量创建 " + maxBatchSize + " 条任务");
+        }
+        
+        long start = System.nanoTime();
+        BatchCreateResult.ItemResult[] results = new BatchCreateResult.ItemResult[requests.size()];
+        List<Todo> todos = new ArrayList<>(requests.size());
+        List<Integer> indexes = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            TodoRequest request = requests.get(i);
+            List<String> errors = validate(request);
+            if (!errors.isEmpty()) {
+                results[i] = BatchCreateResult.ItemResult.failed(i, errors);
+                continue;
             }
-            todo.setPriority(priority);
+            Todo todo = new Todo(request.getContent().trim());
+            todo.setDescription(request.getDescription());
+            todo.setPriority(request.getPriority());
+            todos.add(todo);
+            indexes.add(i);
         }
-        return todo;
+        
+        todoStore.insertAll(todos);
+        for (int i = 0; i < todos.size(); i++) {
+            Todo todo = todos.get(i);
+            results[indexes.get(i)] = BatchCreateResult.ItemResult.created(indexes.get(i), todo.getId());
+            eventPublisher.publishEvent(new TodoSavedEvent(null, todo));
+        }
+        
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new BatchCreateResult(Arrays.asList(results), todos.size(), requests.size() - todos.size(), elapsedMillis);
+    }
+    
+    /**
+     * 按TodoRequest上的校验注解校验单个请求
+     * @return 错误信息列表，校验通过时为空
+     */
+    private List<String> validate(TodoRequest request) {
+        if (request == null) {
+            return List.of("任务不能为空");
+        }
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<TodoRequest> violation : validator.validate(request)) {
+            errors.add(violation.getMessage());
+        }
+        return errors;
+    }
+    
+    /**
+     * 导入Todo任务
+     * 逐条读取并校验请求体中的记录，校验规则与创建接口相同，校验通过的记录攒满一批后在独立事务中批量插入。
+     * 读取与写入在同一线程中交替进行，数据库写入慢时自然不再读取请求体，内存中最多保留一批记录。
+     * 单条记录不合法只拒绝该记录；某一批写入失败只回滚该批，之前已提交的批次不受影响
+     * @param format 文件格式，CSV需要带表头，按列名识别content、description、priority、completed列
+     * @param input 请求体，由调用方关闭
+     * @return 导入条数、吞吐量和被拒绝记录的日志
+     */
+    public ImportResult importTodos(TodoFileFormat format, InputStream input) {
+        long start = System.currentTimeMillis();
+        boolean csv = format == TodoFileFormat.CSV;
+        ObjectReader jsonReader = objectMapper.readerFor(TodoImportRecord.class);
+        List<Todo> chunk = new ArrayList<>(importChunkSize);
+        List<Long> chunkLines = new ArrayList<>(importChunkSize);
+        List<ImportResult.RejectedRecord> rejectedRecords = new ArrayList<>();
+        long total = 0;
+        long imported = 0;
+        long rejected = 0;
+        int chunks = 0;
+        
+        try (TodoRecordReader reader = new TodoRecordReader(
+                new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024),
+                importMaxRecordLength, csv)) {
+            Map<String, Integer> columns = null;
+            String record;
+            while ((record = reader.next()) != null) {
+                if (record.isBlank()) {
+                    continue;
+                }
+                if (csv && columns == null) {
+                    columns = parseCsvHeader(record);
+                    continue;
+                }
+                total++;
+                
+                List<String> errors;
+                TodoImportRecord item = null;
+                if (reader.isUnclosedQuote()) {
+                    errors = List.of("双引号没有闭合");
+                } else if (reader.isTooLong()) {
+                    errors = List.of("记录长度超过 " + importMaxRecordLength + " 个字符");
+                } else {
+                    try {
+                        item = csv ? toImportRecord(TodoCsv.parse(record), columns) : jsonReader.readValue(record);
+                        errors = validate(item);
+                    } catch (JsonProcessingException e) {
+                        errors = List.of("JSON格式错误: " + e.getOriginalMessage());
+                    } catch (IllegalArgumentException e) {
+                        errors = List.of(e.getMessage());
+                    }
+                }
+                if (!errors.isEmpty()) {
+                    rejected++;
+                    if (rejectedRecords.size() < importMaxRejectedLog) {
+                        rejectedRecords.add(new ImportResult.RejectedRecord(reader.getLineNumber(), errors));
+                    }
+                    continue;
+                }
+                
+                Todo todo = new Todo(item.getContent().trim());
+                todo.setDescription(item.getDescription());
+                todo.setPriority(item.getPriority());
+                todo.setCompleted(Boolean.TRUE.equals(item.getCompleted()));
+                chunk.add(todo);
+                chunkLines.add(reader.getLineNumber());
+                if (chunk.size() < importChunkSize) {
+                    continue;
+                }
+                
+                int committed = commitImportChunk(chunk, chunkLines, rejectedRecords);
+                imported += committed;
+                rejected += chunk.size() - committed;
+                chunks++;
+                chunk.clear();
+                chunkLines.clear();
+                if (chunks % IMPORT_PROGRESS_LOG_INTERVAL == 0) {
+                    log.info("导入Todo任务进行中，已读取 {} 条，导入 {} 条，拒绝 {} 条（{} 批）", total, imported, rejected, chunks);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取导入文件失败，已导入 " + imported + " 条", e);
+        }
+        
+        if (!chunk.isEmpty()) {
+            int committed = commitImportChunk(chunk, chunkLines, rejectedRecords);
+            imported += committed;
+            rejected += chunk.size() - committed;
+            chunks++;
+        }
+        
+        long elapsedMillis = System.currentTimeMillis() - start;
+        log.info("导入Todo任务完成，格式 {}，共 {} 条，导入 {} 条，拒绝 {} 条，{} 批，耗时 {} ms",
+                format, total, imported, rejected, chunks, elapsedMillis);
+        return new ImportResult(total, imported, chunks, elapsedMillis, rejectedRecords, rejected);
+    }
+    
+    /**
+     * 在独立事务中插入一批导入的任务
+     * @return 成功插入的条数，写入失败时整批回滚并返回0，该批记录计入拒绝日志
+     */
+    private int commitImportChunk(List<Todo> chunk, List<Long> lines, List<ImportResult.RejectedRecord> rejectedRecords) {
+        try {
+            todoStore.inTransaction(() -> {
+                todoStore.insertAll(chunk);
+                for (Todo todo : chunk) {
+                    eventPublisher.publishEvent(new TodoSavedEvent(null, todo));
+                }
+                return null;
+            });
+            return chunk.size();
+        } catch (DataAccessException e) {
+            log.warn("导入Todo任务时第 {} 行开始的一批写入失败: {}", lines.get(0), e.getMostSpecificCause().getMessage());
+            List<String> errors = List.of("写入数据库失败: " + e.getMostSpecificCause().getMessage());
+            for (Long line : lines) {
+                if (rejectedRecords.size() >= importMaxRejectedLog) {
+                    break;
+                }
+                rejectedRecords.add(new ImportResult.RejectedRecord(line, errors));
+            }
+            return 0;
+        }
+    }
+    
+    /**
+     * 解析CSV表头，列名忽略大小写
+     * @return 列名 -> 列下标
+     */
+    private Map<String, Integer> parseCsvHeader(String header) {
+        List<String> names = TodoCsv.parse(header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i) != null) {
+                columns.putIfAbsent(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+        }
+        if (!columns.containsKey("content")) {
+            throw new IllegalArgumentException("CSV表头缺少content列");
+        }
+        return columns;
+    }
+    
+    /**
+     * 把一行CSV字段转换为导入记录
+     * @throws IllegalArgumentException 优先级或完成状态格式不正确
+     */
+    private TodoImportRecord toImportRecord(List<String> fields, Map<String, Integer> columns) {
+        TodoImportRecord record = new TodoImportRecord();
+        record.setContent(csvField(fields, columns, "content"));
+        record.setDescription(csvField(fields, columns, "description"));
+        String priority = csvField(fields, columns, "priority");
+        if (priority != null && !priority.isBlank()) {
+            try {
+                record.setPriority(Integer.valueOf(priority.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("优先级必须是整数: " + priority);
+            }
+        }
+        String completed = csvField(fields, columns, "completed");
+        if (completed != null && !completed.isBlank()) {
+            if ("true".equalsIgnoreCase(completed.trim())) {
+                record.setCompleted(true);
+            } else if ("false".equalsIgnoreCase(completed.trim())) {
+                record.setCompleted(false);
+            } else {
+                throw new IllegalArgumentException("完成状态必须是true或false: " + completed);
+            }
+        }
+        return record;
+    }
+    
+    private String csvField(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index != null && index < fields.size() ? fields.get(index) : null;
+    }
+    
+    /**
+     * 导出所有Todo任务
+     * 在只读事务中按ID顺序逐行读取并立即写出，内存占用与任务总数无关。
+     * NDJSON每行是包含全部字段的TodoView，与接口返回的格式一致，不直接序列化实体
+     * @param format 文件格式
+     * @param output 输出流，由调用方关闭
+     * @return 导出的条数
+     */
+    @Transactional(readOnly = true)
+    public long exportTodos(TodoFileFormat format, OutputStream output) {
+        long start = System.currentTimeMillis();
+        long count = 0;
+        try (Stream<Todo> todos = todoStore.streamAll()) {
+            OutputStream out = new BufferedOutputStream(output, 64 * 1024);
+            ObjectWriter jsonWriter = objectMapper.writerFor(TodoView.class);
+            if (format == TodoFileFormat.CSV) {
+                out.write((TodoCsv.HEADER + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            Iterator<Todo> iterator = todos.iterator();
+            while (iterator.hasNext()) {
+                Todo todo = iterator.next();
+                if (format == TodoFileFormat.CSV) {
+                    out.write(TodoCsv.format(todo).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    out.write(jsonWriter.writeValueAsBytes(TodoView.from(todo, TodoField.ALL)));
+                }
+                out.write('\n');
+                count++;
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("导出Todo任务失败", e);
+        }
+        log.info("导出Todo任务完成，格式 {}，共 {} 条，耗时 {} ms", format, count, System.currentTimeMillis() - start);
+        return count;
     }
     
     /**
      * 根据ID查询Todo任务
+     * 优先从缓存读取，返回的是副本，修改后需要通过更新方法保存
      * @param id 任务ID
      * @return Todo对象
      * @throws TodoNotFoundException 如果Todo不存在
@@ -78,32 +482,40 @@ public class TodoService {
             throw new IllegalArgumentException("Todo ID不能为空");
         }
         
-        return todoRepository.findById(id)
-                .orElseThrow(() -> new TodoNotFoundException("Todo任务不存在，ID: " + id));
+        // 先查缓存，未命中时再查询数据库。在读写事务中加载，即从主库读取：
+        // 缓存中的数据要保存到过期为止，不能从落后的只读副本加载已被修改或删除的旧数据
+        Todo todo = todoCache.get(id, key -> todoStore.inTransaction(() -> todoStore.findById(key).orElse(null)));
+        if (todo == null) {
+            throw new TodoNotFoundException("Todo任务不存在，ID: " + id);
+        }
+        return todo;
     }
     
     /**
      * 获取所有Todo任务
      * @return 所有Todo任务的列表
      */
+    @Transactional(readOnly = true)
     public List<Todo> getAllTodos() {
-        return todoRepository.findAll();
+        return todoStore.findAll();
     }
     
     /**
      * 获取已完成的Todo任务
      * @return 已完成的Todo任务列表
      */
+    @Transactional(readOnly = true)
     public List<Todo> getCompletedTodos() {
-        return todoRepository.findByCompleted(true);
+        return todoStore.findByCompleted(true);
     }
     
     /**
      * 获取未完成的Todo任务
      * @return 未完成的Todo任务列表
      */
+    @Transactional(readOnly = true)
     public List<Todo> getIncompleteTodos() {
-        return todoRepository.findByCompleted(false);
+        return todoStore.findByCompleted(false);
     }
     
     /**
@@ -111,27 +523,66 @@ public class TodoService {
      * @param priority 优先级
      * @return 指定优先级的Todo任务列表
      */
+    @Transactional(readOnly = true)
     public List<Todo> getTodosByPriority(Integer priority) {
         if (priority == null) {
             return new ArrayList<>();
         }
-        return todoRepository.findByPriority(priority);
+        return todoStore.findByPriority(priority);
     }
     
     /**
      * 根据关键词搜索Todo任务
-     * 使用JPA命名规范方法，让JPA自动生成SQL查询，提高效率
+     * 优先使用全文索引，结果按相关度排序；未启用索引时由存储同时搜索内容和描述
      * @param keyword 搜索关键词
      * @return 匹配的Todo任务列表
      */
+    @Transactional(readOnly = true)
     public List<Todo> searchTodos(String keyword) {
         if (keyword == null || keyword.trim().isEmpty()) {
             return getAllTodos();
         }
         
         String trimmedKeyword = keyword.trim();
-        // 使用JPA命名规范方法，同时搜索内容和描述
-        return todoRepository.findByContentContainingIgnoreCaseOrDescriptionContainingIgnoreCase(trimmedKeyword, trimmedKeyword);
+        if (searchIndex != null) {
+            TodoSearchHits hits = searchIndex.search(trimmedKeyword, 0, Integer.MAX_VALUE);
+            if (hits.getTotal() > hits.getIds().size()) {
+                throw new IllegalArgumentException("关键词匹配的任务有 " + hits.getTotal() + " 条，超过单次搜索的上限，请分页搜索");
+            }
+            return findAllInOrder(hits.getIds());
+        }
+        return todoStore.findByKeyword(trimmedKeyword);
+    }
+    
+    /**
+     * 根据关键词分页搜索Todo任务，结果按相关度排序
+     * 未启用全文索引时回退到存储的关键词查询，按创建时间倒序排列（读取完整实体后再裁剪字段）
+     * @param keyword 搜索关键词
+     * @param page 页码，从0开始
+     * @param size 每页条数，超过上限时按上限处理
+     * @param fields 选择的字段
+     * @return 当前页数据和命中总数
+     */
+    @Transactional(readOnly = true)
+    public SearchPage<TodoView> searchTodos(String keyword, int page, Integer size, Set<TodoField> fields) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            throw new IllegalArgumentException("搜索关键词不能为空");
+        }
+        if (page < 0) {
+            throw new IllegalArgumentException("页码不能小于0");
+        }
+        
+        String trimmedKeyword = keyword.trim();
+        int pageSize = resolvePageSize(size);
+        if (searchIndex == null) {
+            Page<Todo> result = todoStore.findByKeyword(trimmedKeyword, page, pageSize);
+            List<TodoView> views = result.getContent().stream().map(todo -> TodoView.from(todo, fields)).toList();
+            return new SearchPage<>(views, result.getTotalElements(), page, pageSize);
+        }
+        
+        int offset = (int) Math.min((long) page * pageSize, Integer.MAX_VALUE);
+        TodoSearchHits hits = searchIndex.search(trimmedKeyword, offset, pageSize);
+        return new SearchPage<>(todoStore.findViewsByIds(hits.getIds(), fields), hits.getTotal(), page, pageSize);
     }
     
     /**
@@ -144,10 +595,9 @@ public class TodoService {
             throw new IllegalArgumentException("Todo对象或ID不能为空");
         }
         
-        // 验证Todo是否存在
-        if (!todoRepository.existsById(todo.getId())) {
-            throw new TodoNotFoundException("ID为 " + todo.getId() + " 的Todo任务不存在");
-        }
+        // 验证Todo是否存在，同时记录修改前的状态
+        Todo previous = todoStore.findById(todo.getId())
+                .orElseThrow(() -> new TodoNotFoundException("ID为 " + todo.getId() + " 的Todo任务不存在"));
         
         // 验证内容
         if (todo.getContent() != null && todo.getContent().trim().isEmpty()) {
@@ -160,101 +610,220 @@ public class TodoService {
         }
         
         // 更新数据库中的Todo
-        return todoRepository.save(todo);
+        return saveChanges(previous, todo);
+    }
+    
+    /**
+     * 按请求更新Todo任务的部分字段
+     * 只写入传入的字段，不读取完整实体
+     * @param id 任务ID
+     * @param content 新的任务内容，为null时不修改
+     * @param description 新的任务描述，为null时不修改
+     * @param priority 新的优先级（1-3），为null时不修改
+     * @param completed 新的完成状态，为null时不修改
+     * @param expectedVersion 期望的版本号（来自If-Match），为null时不校验
+     * @return 任务ID、被修改的字段、更新时间和新版本号
+     * @throws TodoNotFoundException 如果Todo不存在
+     * @throws TodoVersionMismatchException 如果版本号与期望不一致
+     */
+    public TodoChanges updateTodoFields(Long id, String content, String description,
+                                        Integer priority, Boolean completed, Long expectedVersion) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (content != null) {
+            values.put("content", requireContent(content));
+        }
+        if (description != null) {
+            values.put("description", description);
+        }
+        if (priority != null) {
+            values.put("priority", requirePriority(priority));
+        }
+        if (completed != null) {
+            values.put("completed", completed);
+        }
+        return applyUpdate(id, values, expectedVersion);
     }
     
     /**
      * 更新Todo任务内容
      * @param id 任务ID
      * @param content 新的任务内容
-     * @return 更新后的Todo对象
+     * @return 任务ID、被修改的字段、更新时间和新版本号
      * @throws TodoNotFoundException 如果Todo不存在
      */
-    public Todo updateTodoContent(Long id, String content) {
-        Todo todo = getTodoById(id);
-        
-        if (content == null || content.trim().isEmpty()) {
-            throw new IllegalArgumentException("任务内容不能为空");
-        }
-        
-        todo.setContent(content.trim());
-        return todoRepository.save(todo);
+    public TodoChanges updateTodoContent(Long id, String content) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("content", requireContent(content));
+        return applyUpdate(id, values, null);
     }
     
     /**
      * 更新Todo任务描述
      * @param id 任务ID
      * @param description 新的任务描述
-     * @return 更新后的Todo对象
+     * @return 任务ID、被修改的字段、更新时间和新版本号
      * @throws TodoNotFoundException 如果Todo不存在
      */
-    public Todo updateTodoDescription(Long id, String description) {
-        Todo todo = getTodoById(id);
-        
-        todo.setDescription(description);
-        return todoRepository.save(todo);
+    public TodoChanges updateTodoDescription(Long id, String description) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("description", description);
+        return applyUpdate(id, values, null);
     }
     
     /**
      * 更新Todo任务优先级
      * @param id 任务ID
-     * @param priority 新的优先级（1-3）
-     * @return 更新后的Todo对象
+     * @param priority 新的优先级（1-3），为null时清除优先级
+     * @return 任务ID、被修改的字段、更新时间和新版本号
      * @throws TodoNotFoundException 如果Todo不存在
      */
-    public Todo updateTodoPriority(Long id, Integer priority) {
-        Todo todo = getTodoById(id);
-        
-        if (priority != null && (priority < 1 || priority > 3)) {
-            throw new IllegalArgumentException("优先级必须在1-3之间");
-        }
-        
-        todo.setPriority(priority);
-        return todoRepository.save(todo);
+    public TodoChanges updateTodoPriority(Long id, Integer priority) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("priority", priority != null ? requirePriority(priority) : null);
+        return applyUpdate(id, values, null);
     }
     
     /**
      * 标记Todo任务为已完成
      * @param id 任务ID
-     * @return 更新后的Todo对象
+     * @return 任务ID、被修改的字段、更新时间和新版本号
      * @throws TodoNotFoundException 如果Todo不存在
      */
-    public Todo markTodoAsCompleted(Long id) {
-        Todo todo = getTodoById(id);
-        
-        todo.markAsCompleted();
-        return todoRepository.save(todo);
+    public TodoChanges markTodoAsCompleted(Long id) {
+        return updateTodoFields(id, null, null, null, true, null);
     }
     
     /**
      * 标记Todo任务为未完成
      * @param id 任务ID
-     * @return 更新后的Todo对象
+     * @return 任务ID、被修改的字段、更新时间和新版本号
      * @throws TodoNotFoundException 如果Todo不存在
      */
-    public Todo markTodoAsIncomplete(Long id) {
-        Todo todo = getTodoById(id);
-        
-        todo.markAsIncomplete();
-        return todoRepository.save(todo);
+    public TodoChanges markTodoAsIncomplete(Long id) {
+        return updateTodoFields(id, null, null, null, false, null);
     }
     
     /**
      * 切换Todo任务的完成状态
      * @param id 任务ID
-     * @return 更新后的Todo对象
+     * @return 任务ID、新的完成状态、更新时间和新版本号
      * @throws TodoNotFoundException 如果Todo不存在
      */
-    public Todo toggleTodoStatus(Long id) {
-        Todo todo = getTodoById(id);
-        
-        if (todo.isCompleted()) {
-            todo.markAsIncomplete();
-        } else {
-            todo.markAsCompleted();
+    public TodoChanges toggleTodoStatus(Long id) {
+        return toggleTodoStatus(id, null);
+    }
+    
+    /**
+     * 切换Todo任务的完成状态
+     * 由存储原子地取反并返回新状态，不需要先读取任务，并发切换不会互相覆盖
+     * @param id 任务ID
+     * @param expectedVersion 期望的版本号（来自If-Match），为null时不校验
+     * @return 任务ID、新的完成状态、更新时间和新版本号
+     * @throws TodoNotFoundException 如果Todo不存在
+     * @throws TodoVersionMismatchException 如果版本号与期望不一致
+     */
+    public TodoChanges toggleTodoStatus(Long id, Long expectedVersion) {
+        requireId(id);
+        LocalDateTime updateTime = LocalDateTime.now();
+        TodoKey current = todoStore.inTransaction(() -> {
+            TodoKey toggled = todoStore.toggleCompleted(id, expectedVersion, updateTime);
+            if (toggled == null) {
+                throw notUpdated(id, expectedVersion);
+            }
+            TodoKey previous = new TodoKey(id, !toggled.isCompleted(), toggled.getPriority(), toggled.getVersion() - 1);
+            eventPublisher.publishEvent(new TodoUpdatedEvent(id, previous, toggled, false));
+            return toggled;
+        });
+        return TodoChanges.of(id, Map.of("completed", current.isCompleted()), updateTime, current.getVersion());
+    }
+    
+    /**
+     * 写入指定字段（JPA存储为一条UPDATE语句），版本号加1
+     * 修改状态或优先级时需要知道修改前的分组来维护统计计数：先读取ID、状态、优先级和版本号，
+     * 再以读到的版本号作为UPDATE的条件（比较并交换），期间被并发修改则重新读取后重试。
+     * 只修改内容或描述时，带期望版本号的更新只需要一条语句；不带时在同一事务中读取新版本号
+     * @param id 任务ID
+     * @param values 属性名 -> 新值
+     * @param expectedVersion 期望的版本号，为null时不校验
+     * @return 任务ID、被修改的字段、更新时间和新版本号
+     */
+    private TodoChanges applyUpdate(Long id, Map<String, Object> values, Long expectedVersion) {
+        requireId(id);
+        if (values.isEmpty()) {
+            Todo todo = getTodoById(id);
+            if (expectedVersion != null && !expectedVersion.equals(todo.getVersion())) {
+                throw new TodoVersionMismatchException(id);
+            }
+            return TodoChanges.of(id, values, null, todo.getVersion());
         }
+        boolean textChanged = values.containsKey("content") || values.containsKey("description");
+        boolean keyChanged = values.containsKey("completed") || values.containsKey("priority");
+        LocalDateTime updateTime = LocalDateTime.now();
         
-        return todoRepository.save(todo);
+        for (int attempt = 0; attempt < UPDATE_ATTEMPTS; attempt++) {
+            Long version = todoStore.inTransaction(() -> {
+                if (!keyChanged) {
+                    if (todoStore.updateFields(id, values, expectedVersion, updateTime) == 0) {
+                        throw notUpdated(id, expectedVersion);
+                    }
+                    eventPublisher.publishEvent(new TodoUpdatedEvent(id, null, null, textChanged));
+                    return expectedVersion != null
+                            ? expectedVersion + 1
+                            : todoStore.findKeyById(id).orElseThrow().getVersion();
+                }
+                TodoKey previous = todoStore.findKeyById(id)
+                        .orElseThrow(() -> new TodoNotFoundException("Todo任务不存在，ID: " + id));
+                if (expectedVersion != null && !expectedVersion.equals(previous.getVersion())) {
+                    throw new TodoVersionMismatchException(id);
+                }
+                if (todoStore.updateFields(id, values, previous.getVersion(), updateTime) == 0) {
+                    return null;
+                }
+                TodoKey current = new TodoKey(id,
+                        values.containsKey("completed") ? (Boolean) values.get("completed") : previous.isCompleted(),
+                        values.containsKey("priority") ? (Integer) values.get("priority") : previous.getPriority(),
+                        previous.getVersion() + 1);
+                eventPublisher.publishEvent(new TodoUpdatedEvent(id, previous, current, textChanged));
+                return current.getVersion();
+            });
+            if (version != null) {
+                return TodoChanges.of(id, values, updateTime, version);
+            }
+            if (expectedVersion != null) {
+                throw new TodoVersionMismatchException(id);
+            }
+        }
+        throw new OptimisticLockingFailureException("Todo任务正在被并发修改，请稍后重试，ID: " + id);
+    }
+    
+    /**
+     * 条件更新或删除没有影响任何行时，区分任务不存在和版本号不一致
+     */
+    private RuntimeException notUpdated(Long id, Long expectedVersion) {
+        if (expectedVersion != null && todoStore.existsById(id)) {
+            return new TodoVersionMismatchException(id);
+        }
+        return new TodoNotFoundException("Todo任务不存在，ID: " + id);
+    }
+    
+    private void requireId(Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Todo ID不能为空");
+        }
+    }
+    
+    private String requireContent(String content) {
+        if (content == null || content.trim().isEmpty()) {
+            throw new IllegalArgumentException("任务内容不能为空");
+        }
+        return content.trim();
+    }
+    
+    private Integer requirePriority(Integer priority) {
+        if (priority < 1 || priority > 3) {
+            throw new IllegalArgumentException("优先级必须在1-3之间");
+        }
+        return priority;
     }
     
     /**
@@ -264,33 +833,113 @@ public class TodoService {
      * @throws TodoNotFoundException 如果Todo不存在
      */
     public Todo deleteTodo(Long id) {
+        return deleteTodo(id, null);
+    }
+    
+    /**
+     * 删除Todo任务，可以要求版本号与期望一致
+     * @param id 任务ID
+     * @param expectedVersion 期望的版本号（来自If-Match），为null时不校验
+     * @return 被删除的Todo对象
+     * @throws TodoNotFoundException 如果Todo不存在
+     * @throws TodoVersionMismatchException 如果版本号与期望不一致
+     */
+    public Todo deleteTodo(Long id, Long expectedVersion) {
         if (id == null) {
             throw new IllegalArgumentException("任务ID不能为空");
         }
         
         Todo todo = getTodoById(id);
-        todoRepository.deleteById(id);
+        if (expectedVersion == null) {
+            todoStore.deleteById(id);
+        } else {
+            todoStore.inTransaction(() -> {
+                if (todoStore.deleteByIdAndVersion(id, expectedVersion) == 0) {
+                    throw notUpdated(id, expectedVersion);
+                }
+                return null;
+            });
+        }
+        eventPublisher.publishEvent(new TodoDeletedEvent(todo));
         return todo;
     }
     
     /**
      * 删除所有已完成的Todo任务
+     * 按ID顺序分批执行，每批一个短事务，不会长时间锁表或把所有任务加载到内存；执行期间新建的任务不受影响
      * @return 被删除的Todo任务数量
      */
     public int deleteCompletedTodos() {
-        List<Todo> completedTodos = todoRepository.findByCompleted(true);
-        todoRepository.deleteAll(completedTodos);
-        return completedTodos.size();
+        Long maxId = todoStore.findMaxId();
+        if (maxId == null) {
+            return 0;
+        }
+        return deleteInChunks("删除已完成任务",
+                afterId -> todoStore.findCompletedKeys(afterId, maxId, deleteChunkSize),
+                todoStore::deleteCompletedByIdIn);
     }
     
     /**
      * 清空所有Todo任务
+     * 按ID顺序分批删除开始时已存在的任务，执行期间新建的任务不受影响
      * @return 被删除的Todo任务数量
      */
     public int deleteAllTodos() {
-        long count = todoRepository.count();
-        todoRepository.deleteAll();
-        return (int) count;
+        Long maxId = todoStore.findMaxId();
+        if (maxId == null) {
+            return 0;
+        }
+        return deleteInChunks("清空所有任务",
+                afterId -> todoStore.findKeysBetween(afterId, maxId, deleteChunkSize),
+                todoStore::deleteByIdIn);
+    }
+    
+    /**
+     * 分批删除任务
+     * 每批在独立事务中选出一批任务并一次删除，提交后通过事件同步搜索索引、缓存和统计计数。
+     * 选出后被并发修改而不再满足删除条件的任务不会被删除，也不会出现在事件中
+     * @param operation 操作名称，用于记录进度
+     * @param selector 根据上一批最后一个ID选出下一批任务
+     * @param deleter 按ID删除，返回实际删除条数
+     * @return 删除总数
+     */
+    private int deleteInChunks(String operation, Function<Long, List<TodoKey>> selector,
+                               Function<List<Long>, Integer> deleter) {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        int deleted = 0;
+        int chunks = 0;
+        List<TodoKey> chunk;
+        do {
+            long afterId = lastId;
+            int[] deletedInChunk = new int[1];
+            chunk = todoStore.inTransaction(() -> {
+                List<TodoKey> keys = selector.apply(afterId);
+                if (keys.isEmpty()) {
+                    return keys;
+                }
+                List<Long> ids = keys.stream().map(TodoKey::getId).collect(Collectors.toList());
+                List<TodoKey> removed = keys;
+                if (deleter.apply(ids) < keys.size()) {
+                    Set<Long> remaining = new HashSet<>(todoStore.findExistingIds(ids));
+                    removed = keys.stream().filter(key -> !remaining.contains(key.getId())).collect(Collectors.toList());
+                }
+                eventPublisher.publishEvent(new TodosBulkDeletedEvent(removed));
+                deletedInChunk[0] = removed.size();
+                return keys;
+            });
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            lastId = chunk.get(chunk.size() - 1).getId();
+            deleted += deletedInChunk[0];
+            chunks++;
+            if (chunks % DELETE_PROGRESS_LOG_INTERVAL == 0) {
+                log.info("{}进行中，已删除 {} 条（{} 批）", operation, deleted, chunks);
+            }
+        } while (chunk.size() == deleteChunkSize);
+        log.info("{}完成，共删除 {} 条，{} 批，耗时 {} ms", operation, deleted, chunks, System.currentTimeMillis() - start);
+        return deleted;
     }
     
     /**
@@ -298,7 +947,7 @@ public class TodoService {
      * @return 任务总数
      */
     public int getTotalCount() {
-        return (int) todoRepository.count();
+        return (int) statsCounter.getStats().getTotal();
     }
     
     /**
@@ -306,7 +955,7 @@ public class TodoService {
      * @return 已完成任务数量
      */
     public int getCompletedCount() {
-        return (int) todoRepository.countByCompleted(true);
+        return (int) statsCounter.getStats().getCompleted();
     }
     
     /**
@@ -314,7 +963,31 @@ public class TodoService {
      * @return 未完成任务数量
      */
     public int getIncompleteCount() {
-        return getTotalCount() - getCompletedCount();
+        return (int) statsCounter.getStats().getIncomplete();
+    }
+    
+    /**
+     * 获取任务统计信息，包括按优先级分组的数量
+     * 读取内存中维护的计数，不查询数据库
+     * @return 统计信息
+     */
+    public TodoStats getStats() {
+        return statsCounter.getStats();
+    }
+    
+    /**
+     * 获取单条Todo缓存的命中统计
+     * @return 命中、未命中、淘汰次数和当前缓存条数
+     */
+    public Map<String, Object> getCacheStats() {
+        CacheStats stats = todoCache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", todoCache.size());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
     }
     
     /**
@@ -322,35 +995,128 @@ public class TodoService {
      * @param id 任务ID
      * @return 如果存在返回true，否则返回false
      */
+    @Transactional(readOnly = true)
     public boolean existsById(Long id) {
-        return id != null && todoRepository.existsById(id);
+        return id != null && todoStore.existsById(id);
     }
     
     /**
      * 获取按创建时间排序的Todo任务列表
-     * 使用数据库排序优化性能，避免在内存中排序大量数据
+     * 由存储完成排序（JPA存储使用数据库排序），避免在服务层排序大量数据
      * @param ascending 是否升序排列
      * @return 排序后的Todo任务列表
      */
+    @Transactional(readOnly = true)
     public List<Todo> getTodosSortedByCreateTime(boolean ascending) {
-        if (ascending) {
-            return todoRepository.findAllByOrderByCreateTimeAsc();
-        } else {
-            return todoRepository.findAllByOrderByCreateTimeDesc();
-        }
+        return todoStore.findAllSorted(TodoSortField.CREATE_TIME, ascending);
     }
     
     /**
      * 获取按优先级排序的Todo任务列表
-     * 使用JPA命名规范方法，让JPA自动生成SQL查询，提高效率
+     * 由存储完成排序（JPA存储使用数据库排序），优先级为空视为最小值
      * @param ascending 是否升序排列
      * @return 排序后的Todo任务列表
      */
+    @Transactional(readOnly = true)
     public List<Todo> getTodosSortedByPriority(boolean ascending) {
-        if (ascending) {
-            return todoRepository.findAllByOrderByPriorityAsc();
+        return todoStore.findAllSorted(TodoSortField.PRIORITY, ascending);
+    }
+    
+    /**
+     * 按组合条件获取Todo任务列表
+     * 状态、优先级、关键词和排序同时生效，由存储一次完成（JPA存储为一条SQL），只读取选择的字段
+     * @param filter 查询条件
+     * @param fields 选择的字段
+     * @return 符合条件的Todo任务列表
+     */
+    @Transactional(readOnly = true)
+    public List<TodoView> getTodos(TodoFilter filter, Set<TodoField> fields) {
+        if (filter.getKeyword() != null && searchIndex != null) {
+            return todoStore.findViewsByIds(searchIndex.findIds(filter, null, null), fields);
+        }
+        return todoStore.findViewsByFilter(filter, null, null, fields);
+    }
+    
+    /**
+     * 游标分页获取Todo任务列表
+     * 按 (排序键, id) 定位下一页，每页只读取limit+1条记录用于判断是否还有下一页，
+     * 无论翻到第几页，查询开销都相同
+     * @param filter 查询条件（含排序）
+     * @param after 上一页返回的游标，第一页传null
+     * @param limit 每页条数，为空时使用默认值，超过上限时按上限处理
+     * @param fields 选择的字段
+     * @return 当前页数据和下一页游标
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TodoView> getTodosPage(TodoFilter filter, TodoCursor after, Integer limit, Set<TodoField> fields) {
+        int pageSize = resolvePageSize(limit);
+        TodoSortField sortField = filter.getSortField();
+        boolean ascending = filter.isAscending();
+        
+        List<TodoView> todos;
+        if (filter.getKeyword() != null && searchIndex != null) {
+            // 带关键词时在全文索引中完成过滤、排序和游标定位，再按ID取回数据
+            todos = todoStore.findViewsByIds(searchIndex.findIds(filter, after, pageSize + 1), fields);
         } else {
-            return todoRepository.findAllByOrderByPriorityDesc();
+            todos = todoStore.findViewsByFilter(filter, after, pageSize + 1, fields);
+        }
+        
+        boolean hasMore = todos.size() > pageSize;
+        if (hasMore) {
+            todos = new ArrayList<>(todos.subList(0, pageSize));
+        }
+        String nextCursor = hasMore
+                ? TodoCursor.after(todos.get(todos.size() - 1), sortField, ascending).encode()
+                : null;
+        return new CursorPage<>(todos, nextCursor, hasMore);
+    }
+    
+    /**
+     * 保存修改后的Todo，并通知搜索索引等派生数据
+     * @param previous 修改前的状态
+     * @param todo 修改后的Todo
+     * @return 保存后的Todo
+     */
+    private Todo saveChanges(Todo previous, Todo todo) {
+        Todo saved = todoStore.save(todo);
+        eventPublisher.publishEvent(new TodoSavedEvent(previous, saved));
+        return saved;
+    }
+    
+    /**
+     * 按ID批量读取Todo，并保持传入ID的顺序
+     * 搜索索引中存在但已被删除的记录会被忽略
+     * @param ids 任务ID
+     * @return Todo任务列表
+     */
+    private List<Todo> findAllInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Todo> byId = todoStore.findAllById(ids).stream()
+                .collect(Collectors.toMap(Todo::getId, todo -> todo));
+        List<Todo> todos = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Todo todo = byId.get(id);
+            if (todo != null) {
+                todos.add(todo);
+            }
+        }
+        return todos;
+    }
+    
+    /**
+     * 校验并修正每页条数
+     * @param limit 请求的每页条数
+     * @return 实际使用的每页条数
+     */
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("每页条数必须大于0");
         }
+        return Math.min(limit, MAX_PAGE_SIZE);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,270 @@
+package com.example1.springbootdemo.stats;
+
+import com.example1.springbootdemo.dto.TodoKey;
+import com.example1.springbootdemo.dto.TodoStats;
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.event.TodoDeletedEvent;
+import com.example1.springbootdemo.event.TodoSavedEvent;
+import com.example1.springbootdemo.event.TodoUpdatedEvent;
+import com.example1.springbootdemo.event.TodosBulkDeletedEvent;
+import com.example1.springbootdemo.store.TodoStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Todo计数器
+ *
+ * 按“完成状态 × 优先级”维护8个计数（优先级为空单独算一档），统计接口直接读取，不再执行COUNT查询。
+ * 计数由Todo写事件在事务提交后增量更新，回滚的写操作不会计入。
+ * 启动时和之后每隔一段时间用一条GROUP BY查询与数据库对账，修正并发更新同一条任务等情况产生的偏差。
+ *
+ * 计数数组写入后不再修改，每次更新复制一份新数组并通过CAS整体替换：读取无锁且各项数字一致。
+ * 对账不能与尚未应用的增量重叠：事务提交后、增量应用前，查询结果已经包含这次修改，之后增量再加一次就会重复计数。
+ * 因此写事件发布时（仍在事务中）先记为待提交，事务结束并应用增量后才减掉。对账只在查询前后都没有待提交的写操作、
+ * 且查询期间计数没有变化（CAS成功）时采用结果，否则稍后重试，多次冲突后等待下一次对账。
+ * 不在事务中发布的写事件（数据已经写入）无法提前登记，与对账重叠时仍可能重复计数一次，由下一次对账修正。
+ */
+@Component
+@Profile("!reactive")
+public class TodoStatsCounter implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(TodoStatsCounter.class);
+
+    /**
+     * 优先级档位数：未设置、1、2、3
+     */
+    private static final int PRIORITY_BUCKETS = 4;
+
+    /**
+     * 对账与增量更新冲突时的最大重试次数
+     */
+    private static final int RECONCILE_ATTEMPTS = 5;
+
+    /**
+     * 对账重试前的等待时间
+     */
+    private static final long RECONCILE_RETRY_DELAY_MILLIS = 50;
+
+    @Autowired
+    private TodoStore todoStore;
+
+    private final AtomicReference<long[]> snapshot = new AtomicReference<>(new long[2 * PRIORITY_BUCKETS]);
+
+    /**
+     * 已发布写事件、事务尚未结束的写操作数
+     */
+    private final AtomicInteger pendingCommits = new AtomicInteger();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        reconcile();
+    }
+
+    /**
+     * 读取当前统计
+     * @return 统计信息
+     */
+    public TodoStats getStats() {
+        long[] counts = snapshot.get();
+        long completed = 0;
+        long incomplete = 0;
+        Map<String, TodoStats.PriorityCount> byPriority = new LinkedHashMap<>();
+        for (int bucket = 1; bucket <= PRIORITY_BUCKETS; bucket++) {
+            int priorityBucket = bucket % PRIORITY_BUCKETS;
+            // 计数可能暂时为负（见decrement），对外展示时按0处理
+            long bucketCompleted = Math.max(0, counts[index(true, priorityBucket)]);
+            long bucketIncomplete = Math.max(0, counts[index(false, priorityBucket)]);
+            completed += bucketCompleted;
+            incomplete += bucketIncomplete;
+            byPriority.put(priorityBucket == 0 ? "none" : String.valueOf(priorityBucket),
+                    new TodoStats.PriorityCount(bucketCompleted, bucketIncomplete));
+        }
+        return new TodoStats(completed + incomplete, completed, incomplete, byPriority);
+    }
+
+    @EventListener
+    public void onSaved(TodoSavedEvent event) {
+        Todo previous = event.getPrevious();
+        Todo current = event.getCurrent();
+        int removed = previous != null ? index(previous) : -1;
+        int added = index(current);
+        if (removed != added) {
+            afterCommit(counts -> move(counts, removed, added));
+        }
+    }
+
+    @EventListener
+    public void onUpdated(TodoUpdatedEvent event) {
+        if (!event.isKeyChanged()) {
+            return;
+        }
+        int removed = index(event.getPrevious());
+        int added = index(event.getCurrent());
+        if (removed != added) {
+            afterCommit(counts -> move(counts, removed, added));
+        }
+    }
+
+    @EventListener
+    public void onDeleted(TodoDeletedEvent event) {
+        int removed = index(event.getTodo());
+        afterCommit(counts -> move(counts, removed, -1));
+    }
+
+    @EventListener
+    public void onBulkDeleted(TodosBulkDeletedEvent event) {
+        afterCommit(counts -> {
+            for (TodoKey todo : event.getTodos()) {
+                decrement(counts, index(todo));
+            }
+        });
+    }
+
+    /**
+     * 定期与数据库对账
+     */
+    @Scheduled(initialDelayString = "${todo.stats.reconcile-interval:5m}",
+            fixedDelayString = "${todo.stats.reconcile-interval:5m}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * 用数据库中的实际数量替换计数
+     * 查询前后有待提交的写操作或查询期间计数被增量更新过则重试，多次冲突后放弃，等待下一次对账
+     */
+    void reconcile() {
+        for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+            if (attempt > 0 && !pause()) {
+                return;
+            }
+            long[] before = snapshot.get();
+            if (pendingCommits.get() > 0) {
+                continue;
+            }
+            long[] counts = new long[2 * PRIORITY_BUCKETS];
+            List<Object[]> rows = todoStore.countGroupByCompletedAndPriority();
+            for (Object[] row : rows) {
+                boolean completed = Boolean.TRUE.equals(row[0]);
+                counts[index(completed, priorityBucket((Integer) row[1]))] += ((Number) row[2]).longValue();
+            }
+            // 查询期间开始、尚未结束的事务可能已经提交，它的增量还没有应用
+            if (pendingCommits.get() > 0) {
+                continue;
+            }
+            if (snapshot.compareAndSet(before, counts)) {
+                if (!Arrays.equals(before, counts)) {
+                    log.info("Todo计数已与数据库对账修正: {} -> {}", Arrays.toString(before), Arrays.toString(counts));
+                }
+                return;
+            }
+        }
+        log.debug("Todo计数对账期间存在并发更新，等待下一次对账");
+    }
+
+    /**
+     * 在当前事务提交后应用增量，回滚时丢弃；不在事务中时立即应用
+     * 登记为待提交必须在事务提交之前，对账据此判断查询结果中是否可能包含尚未应用的增量
+     */
+    private void afterCommit(Consumer<long[]> modification) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update(modification);
+            return;
+        }
+        pendingCommits.incrementAndGet();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        update(modification);
+                    }
+                } finally {
+                    pendingCommits.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * 两次对账尝试之间等待待提交的写操作结束
+     * @return 线程被中断时返回false
+     */
+    private static boolean pause() {
+        try {
+            Thread.sleep(RECONCILE_RETRY_DELAY_MILLIS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 对一个分组减1、另一个分组加1，下标为-1表示不修改
+     */
+    private static void move(long[] counts, int decrement, int increment) {
+        if (decrement >= 0) {
+            decrement(counts, decrement);
+        }
+        if (increment >= 0) {
+            counts[increment]++;
+        }
+    }
+
+    /**
+     * 复制当前计数，修改后通过CAS替换，冲突时重试
+     */
+    private void update(Consumer<long[]> modification) {
+        long[] current;
+        long[] next;
+        do {
+            current = snapshot.get();
+            next = current.clone();
+            modification.accept(next);
+        } while (!snapshot.compareAndSet(current, next));
+    }
+
+    /**
+     * 不在这里截断为0：并发写操作的事件可能晚于后续操作的事件到达，计数会暂时为负，所有事件处理完后仍然正确
+     */
+    private static void decrement(long[] counts, int index) {
+        counts[index]--;
+    }
+
+    private static int index(Todo todo) {
+        return index(todo.isCompleted(), priorityBucket(todo.getPriority()));
+    }
+
+    private static int index(TodoKey todo) {
+        return index(todo.isCompleted(), priorityBucket(todo.getPriority()));
+    }
+
+    private static int index(boolean completed, int priorityBucket) {
+        return (completed ? PRIORITY_BUCKETS : 0) + priorityBucket;
+    }
+
+    /**
+     * 优先级1-3对应档位1-3，未设置或超出范围的归入档位0
+     */
+    private static int priorityBucket(Integer priority) {
+        return priority != null && priority >= 1 && priority < PRIORITY_BUCKETS ? priority : 0;
+    }
+}
@@ -0,0 +1,202 @@
+package com.example1.springbootdemo.store;
+
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoKey;
+import com.example1.springbootdemo.dto.TodoSortField;
+import com.example1.springbootdemo.dto.TodoView;
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.repository.TodoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 基于JPA的Todo存储（默认）
+ * 所有操作委托给TodoRepository，事务由TransactionTemplate管理
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "todo.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaTodoStore implements TodoStore {
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public <T> T inTransaction(Supplier<T> work) {
+        return transactionTemplate.execute(status -> work.get());
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        return todoRepository.save(todo);
+    }
+
+    @Override
+    public void insertAll(List<Todo> todos) {
+        todoRepository.insertAll(todos);
+    }
+
+    @Override
+    public Optional<Todo> findById(Long id) {
+        return todoRepository.findById(id);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return todoRepository.existsById(id);
+    }
+
+    @Override
+    public List<Todo> findAllById(Collection<Long> ids) {
+        return todoRepository.findAllById(ids);
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return todoRepository.findAll();
+    }
+
+    @Override
+    public List<Todo> findByCompleted(boolean completed) {
+        return todoRepository.findByCompleted(completed);
+    }
+
+    @Override
+    public List<Todo> findByPriority(Integer priority) {
+        return todoRepository.findByPriority(priority);
+    }
+
+    @Override
+    public List<Todo> findByKeyword(String keyword) {
+        return todoRepository.findByContentContainingIgnoreCaseOrDescriptionContainingIgnoreCase(keyword, keyword);
+    }
+
+    @Override
+    public Page<Todo> findByKeyword(String keyword, int page, int size) {
+        return todoRepository.findByContentContainingIgnoreCaseOrDescriptionContainingIgnoreCase(keyword, keyword,
+                PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createTime", "id")));
+    }
+
+    @Override
+    public List<Todo> findAllSorted(TodoSortField sortField, boolean ascending) {
+        if (sortField == TodoSortField.PRIORITY) {
+            return ascending ? todoRepository.findAllByOrderByPriorityAsc() : todoRepository.findAllByOrderByPriorityDesc();
+        }
+        return ascending ? todoRepository.findAllByOrderByCreateTimeAsc() : todoRepository.findAllByOrderByCreateTimeDesc();
+    }
+
+    @Override
+    public List<TodoView> findViewsByFilter(TodoFilter filter, TodoCursor after, Integer limit, Set<TodoField> fields) {
+        return todoRepository.findViewsByFilter(filter, after, limit, fields);
+    }
+
+    @Override
+    public List<TodoView> findViewsByIds(List<Long> ids, Set<TodoField> fields) {
+        return todoRepository.findViewsByIds(ids, fields);
+    }
+
+    @Override
+    public List<Todo> findBatchAfter(long afterId, int limit) {
+        return todoRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit));
+    }
+
+    /**
+     * 实体以只读方式从数据库游标读取，交给调用方之前从持久化上下文中移除，持久化上下文不会随导出增长
+     */
+    @Override
+    public Stream<Todo> streamAll() {
+        return todoRepository.streamAllByOrderByIdAsc().peek(entityManager::detach);
+    }
+
+    @Override
+    public Optional<TodoKey> findKeyById(Long id) {
+        return todoRepository.findKeyById(id);
+    }
+
+    @Override
+    public int updateFields(Long id, Map<String, Object> values, Long expectedVersion, LocalDateTime updateTime) {
+        return todoRepository.updateFields(id, values, expectedVersion, updateTime);
+    }
+
+    /**
+     * 在一条UPDATE语句中取反，随后在同一事务中读取新状态（行锁仍被本事务持有，读到的就是本次修改的结果）
+     */
+    @Override
+    public TodoKey toggleCompleted(Long id, Long expectedVersion, LocalDateTime updateTime) {
+        int updated = expectedVersion == null
+                ? todoRepository.toggleCompleted(id, updateTime)
+                : todoRepository.toggleCompletedIfVersion(id, expectedVersion, updateTime);
+        return updated == 0 ? null : todoRepository.findKeyById(id).orElseThrow();
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        todoRepository.deleteById(id);
+    }
+
+    @Override
+    public int deleteByIdAndVersion(Long id, Long version) {
+        return todoRepository.deleteByIdAndVersion(id, version);
+    }
+
+    @Override
+    public List<TodoKey> findCompletedKeys(Long afterId, Long maxId, int limit) {
+        return todoRepository.findCompletedKeys(afterId, maxId, Limit.of(limit));
+    }
+
+    @Override
+    public List<TodoKey> findKeysBetween(Long afterId, Long maxId, int limit) {
+        return todoRepository.findKeysBetween(afterId, maxId, Limit.of(limit));
+    }
+
+    @Override
+    public Long findMaxId() {
+        return todoRepository.findMaxId();
+    }
+
+    @Override
+    public List<Long> findExistingIds(Collection<Long> ids) {
+        return todoRepository.findExistingIds(ids);
+    }
+
+    @Override
+    public int deleteCompletedByIdIn(Collection<Long> ids) {
+        return todoRepository.deleteCompletedByIdIn(ids);
+    }
+
+    @Override
+    public int deleteByIdIn(Collection<Long> ids) {
+        return todoRepository.deleteByIdIn(ids);
+    }
+
+    @Override
+    public List<Object[]> countGroupByCompletedAndPriority() {
+        return todoRepository.countGroupByCompletedAndPriority();
+    }
+}
@@ -0,0 +1,1283 @@
+package com.example1.springbootdemo.store;
+
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoKey;
+import com.example1.springbootdemo.dto.TodoSortField;
+import com.example1.springbootdemo.dto.TodoView;
+import com.example1.springbootdemo.entity.Todo;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 进程内列式Todo存储（todo.store=memory）
+ *
+ * 不经过ORM和JDBC，每条任务拆成基本类型的列保存：创建时间、更新时间（微秒时间戳，与数据库TIMESTAMP(6)精度一致）
+ * 和版本号为long，内容和描述为StringPool中的int编号，完成状态和优先级压缩在一个byte中。
+ * 除字符串外每条任务固定占用33字节，不为每条任务创建Todo、Boolean、Integer和LocalDateTime对象。
+ *
+ * ID由本存储按顺序分配且不复用，ID为n的任务保存在第n-1行，按ID定位不需要索引。
+ * 创建时间在分配ID时取得，且不早于上一次分配的创建时间，所以ID顺序就是 (创建时间, ID) 顺序：
+ * 按创建时间排序的查询按ID正向或反向扫描，取满一页即停止，与数据库走 (create_time, id) 索引的效果相同；
+ * 按优先级排序时依次扫描4个优先级档位（未设置视为最小）。
+ *
+ * 行按每段1024行分段保存，每段一把StampedLock（锁分段）：单条读写只锁所在的段，
+ * 扫描逐段加读锁，写操作只阻塞正在扫描同一段的读操作。每段记录各状态字节的行数，
+ * 扫描时跳过没有符合状态条件的行的段。整段的任务都被删除后释放该段。
+ *
+ * 未设置todo.store.data-dir时数据只保存在内存中，重启后丢失（与默认的H2内存库一致）。
+ * 设置后每次修改在所在段的写锁内追加到写前日志（WriteAheadLog），fsync完成后才返回，
+ * 同一个inTransaction中的多次修改只等待最后一次；定期把全部任务写入快照（SnapshotFile）并删除快照之前的日志。
+ * 启动时加载最新的快照，再重放快照之后的日志，恢复耗时记录在日志和todo.store.recovery.time指标中。
+ * 快照期间的修改可能同时出现在快照和之后的日志中，日志记录的是整行的结果，重放后结果相同。
+ *
+ * 多条记录的修改不能回滚
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "todo.store", havingValue = "memory")
+public class MemoryTodoStore implements TodoStore, InitializingBean, DisposableBean, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryTodoStore.class);
+
+    private static final String LOCK_FILE = "store.lock";
+
+    private static final int SEGMENT_SHIFT = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    /**
+     * 状态字节：第0位为该行是否有任务，第1位为是否完成，第2~3位为优先级（0表示未设置）
+     */
+    private static final int LIVE = 1;
+    private static final int COMPLETED = 1 << 1;
+    private static final int PRIORITY_SHIFT = 2;
+    private static final int PRIORITY_MASK = 3 << PRIORITY_SHIFT;
+    private static final int STATES = 1 << (PRIORITY_SHIFT + 2);
+
+    /**
+     * 优先级档位的扫描顺序
+     */
+    private static final int[] PRIORITY_ASCENDING = {0, 1, 2, 3};
+    private static final int[] PRIORITY_DESCENDING = {3, 2, 1, 0};
+
+    /**
+     * 允许通过updateFields修改的属性
+     */
+    private static final Set<String> UPDATABLE_FIELDS = Set.of("content", "description", "priority", "completed");
+
+    private final StringPool strings = new StringPool();
+
+    /**
+     * 段目录，扩容和释放段时整体替换；分配ID和修改目录时持有allocationLock
+     */
+    private volatile Segment[] segments = new Segment[16];
+
+    private final Object allocationLock = new Object();
+
+    /**
+     * 下一个分配的ID
+     */
+    private volatile long nextId = 1;
+
+    /**
+     * 上一次分配的创建时间（微秒），由allocationLock保护
+     */
+    private long lastCreateTime;
+
+    /**
+     * 持久化目录，为null时不持久化
+     */
+    private final Path dataDirectory;
+
+    /**
+     * 关闭时是否写入快照，写入后下次启动不需要重放日志
+     */
+    private final boolean snapshotOnShutdown;
+
+    private WriteAheadLog wal;
+    private FileLock directoryLock;
+
+    /**
+     * 上一次快照时日志的位置，日志没有新记录时跳过快照；由snapshotLock保护
+     */
+    private long snapshotPosition;
+    private final Object snapshotLock = new Object();
+
+    private volatile long recoveryNanos;
+
+    /**
+     * 当前线程所在的inTransaction中最后一条日志记录的位置，不在inTransaction中时为null
+     */
+    private final ThreadLocal<long[]> transactionPosition = new ThreadLocal<>();
+
+    public MemoryTodoStore(@Value("${todo.store.data-dir:}") String dataDirectory,
+                           @Value("${todo.store.snapshot-on-shutdown:true}") boolean snapshotOnShutdown) {
+        this.dataDirectory = dataDirectory.isBlank() ? null : Path.of(dataDirectory).toAbsolutePath();
+        this.snapshotOnShutdown = snapshotOnShutdown;
+    }
+
+    /**
+     * 配置了持久化目录时，加载最新的快照并重放之后的日志，然后开始写新的日志文件
+     */
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (dataDirectory == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        Files.createDirectories(dataDirectory);
+        FileChannel lockChannel = FileChannel.open(dataDirectory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        directoryLock = lockChannel.tryLock();
+        if (directoryLock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("持久化目录已被其他进程使用: " + dataDirectory);
+        }
+
+        Recovery recovery = new Recovery();
+        List<Long> snapshots = SnapshotFile.sequences(dataDirectory);
+        long snapshotSequence = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+        if (snapshotSequence > 0) {
+            recovery.nextId = SnapshotFile.read(dataDirectory, snapshotSequence, SEGMENT_SIZE, recovery::load);
+        }
+        long snapshotRows = recovery.puts;
+        long replayed = WriteAheadLog.replay(dataDirectory, snapshotSequence, recovery);
+        recovery.finish();
+        // 重放过日志时，即使之后没有修改，下一次快照也要写入，以便删除这些日志
+        snapshotPosition = replayed > 0 ? -1 : 0;
+
+        List<Long> logs = WriteAheadLog.sequences(dataDirectory);
+        long logSequence = Math.max(snapshotSequence, logs.isEmpty() ? 0 : logs.get(logs.size() - 1)) + 1;
+        wal = WriteAheadLog.open(dataDirectory, logSequence);
+        recoveryNanos = System.nanoTime() - start;
+        log.info("已从 {} 恢复 {} 条任务（快照 {} 行，重放日志 {} 条），耗时 {} ms", dataDirectory, recovery.live,
+                snapshotRows, replayed, TimeUnit.NANOSECONDS.toMillis(recoveryNanos));
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (wal == null) {
+            return;
+        }
+        try {
+            if (snapshotOnShutdown) {
+                snapshot();
+            }
+        } finally {
+            wal.close();
+            directoryLock.release();
+            directoryLock.channel().close();
+        }
+    }
+
+    /**
+     * 恢复耗时，日志中的记录数、fsync次数（记录数与之相除即平均每次fsync提交的记录数）和写入字节数
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (wal == null) {
+            return;
+        }
+        TimeGauge.builder("todo.store.recovery.time", this, TimeUnit.NANOSECONDS, store -> store.recoveryNanos)
+                .description("启动时加载快照和重放写前日志的耗时")
+                .register(registry);
+        FunctionCounter.builder("todo.store.wal.records", wal, WriteAheadLog::records)
+                .description("追加到写前日志的记录数")
+                .register(registry);
+        FunctionCounter.builder("todo.store.wal.syncs", wal, WriteAheadLog::syncs)
+                .description("写前日志的fsync次数，每次提交期间追加的全部记录")
+                .register(registry);
+        FunctionCounter.builder("todo.store.wal.bytes", wal, WriteAheadLog::bytes)
+                .description("写入写前日志的字节数")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * 定期写入快照，日志没有新记录时跳过
+     */
+    @Scheduled(initialDelayString = "${todo.store.snapshot-interval:10m}",
+            fixedDelayString = "${todo.store.snapshot-interval:10m}")
+    public void scheduledSnapshot() throws IOException {
+        if (wal != null) {
+            snapshot();
+        }
+    }
+
+    /**
+     * 写入快照：先切换到新的日志文件，再逐段加读锁把全部任务写入以新日志序号命名的快照，
+     * 完成后删除更早的快照和日志。之后的修改写入新日志，可能已包含在快照中，重放结果相同
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            if (wal.position() == snapshotPosition) {
+                return;
+            }
+            long start = System.nanoTime();
+            snapshotPosition = wal.position();
+            long sequence = wal.rotate();
+            long size;
+            long rows = 0;
+            try (SnapshotFile.Writer writer = new SnapshotFile.Writer(dataDirectory, sequence, SEGMENT_SIZE)) {
+                Segment[] directory = segments;
+                for (int index = 0; index < directory.length; index++) {
+                    Segment segment = directory[index];
+                    if (segment == null) {
+                        continue;
+                    }
+                    long stamp = segment.lock.readLock();
+                    try {
+                        writer.writeSegment(index, segment.states, segment.createTimes, segment.updateTimes,
+                                segment.versions, segment.contents, segment.descriptions, strings::get);
+                        rows += segment.live;
+                    } finally {
+                        segment.lock.unlockRead(stamp);
+                    }
+                }
+                size = writer.finish(nextId);
+            }
+            SnapshotFile.deleteBefore(dataDirectory, sequence);
+            WriteAheadLog.deleteBefore(dataDirectory, sequence);
+            log.info("已写入快照 {}：{} 条任务，{} 字节，耗时 {} ms", sequence, rows, size,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * 持久化时，其中的修改在work结束后一起等待fsync
+     */
+    @Override
+    public <T> T inTransaction(Supplier<T> work) {
+        if (wal == null || transactionPosition.get() != null) {
+            return work.get();
+        }
+        long[] position = new long[1];
+        transactionPosition.set(position);
+        try {
+            return work.get();
+        } finally {
+            transactionPosition.remove();
+            if (position[0] > 0) {
+                wal.awaitDurable(position[0]);
+            }
+        }
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        if (todo.getId() == null) {
+            insertAll(List.of(todo));
+            return new Todo(todo);
+        }
+        long id = todo.getId();
+        int state = state(todo.isCompleted(), todo.getPriority());
+        Todo saved = write(id, (segment, row) -> {
+            if (todo.getVersion() == null || segment.versions[row] != todo.getVersion()) {
+                throw new OptimisticLockingFailureException("Todo任务已被修改，ID: " + id);
+            }
+            setContent(segment, row, todo.getContent());
+            setDescription(segment, row, todo.getDescription());
+            segment.setState(row, state);
+            segment.updateTimes[row] = toMicros(LocalDateTime.now());
+            segment.versions[row]++;
+            return readTodo(segment, row, id);
+        });
+        if (saved == null) {
+            throw new OptimisticLockingFailureException("Todo任务不存在，ID: " + id);
+        }
+        return saved;
+    }
+
+    /**
+     * 一次分配所有ID，再按段写入，每段只加一次写锁
+     */
+    @Override
+    public void insertAll(List<Todo> todos) {
+        if (todos.isEmpty()) {
+            return;
+        }
+        int[] states = new int[todos.size()];
+        for (int i = 0; i < todos.size(); i++) {
+            states[i] = state(todos.get(i).isCompleted(), todos.get(i).getPriority());
+        }
+        long firstId;
+        long now;
+        synchronized (allocationLock) {
+            firstId = allocate(todos.size());
+            // 时钟回拨时沿用上一次的创建时间，保证ID顺序与创建时间顺序一致
+            now = Math.max(toMicros(LocalDateTime.now()), lastCreateTime);
+            lastCreateTime = now;
+        }
+        LocalDateTime createTime = fromMicros(now);
+        long position = 0;
+        int i = 0;
+        while (i < todos.size()) {
+            long id = firstId + i;
+            Segment segment = segments[segmentIndex(id)];
+            int row = row(id);
+            int end = Math.min(todos.size(), i + SEGMENT_SIZE - row);
+            long stamp = segment.lock.writeLock();
+            try {
+                for (; i < end; i++, row++) {
+                    Todo todo = todos.get(i);
+                    segment.contents[row] = strings.intern(todo.getContent());
+                    segment.descriptions[row] = strings.intern(todo.getDescription());
+                    segment.createTimes[row] = now;
+                    segment.updateTimes[row] = now;
+                    segment.versions[row] = 0;
+                    segment.setState(row, states[i]);
+                    segment.written++;
+                    todo.setId(firstId + i);
+                    todo.setCreateTime(createTime);
+                    todo.setUpdateTime(createTime);
+                    todo.setVersion(0L);
+                    position = logPut(segment, row, firstId + i);
+                }
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+        awaitDurable(position);
+    }
+
+    @Override
+    public Optional<Todo> findById(Long id) {
+        return Optional.ofNullable(read(id, (segment, row) -> readTodo(segment, row, id)));
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return read(id, (segment, row) -> Boolean.TRUE) != null;
+    }
+
+    @Override
+    public List<Todo> findAllById(Collection<Long> ids) {
+        List<Todo> todos = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            findById(id).ifPresent(todos::add);
+        }
+        return todos;
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return findTodos(0, 0, null);
+    }
+
+    @Override
+    public List<Todo> findByCompleted(boolean completed) {
+        return findTodos(COMPLETED, completed ? COMPLETED : 0, null);
+    }
+
+    @Override
+    public List<Todo> findByPriority(Integer priority) {
+        if (priority == null || priority < 1 || priority > 3) {
+            return new ArrayList<>();
+        }
+        return findTodos(PRIORITY_MASK, priority << PRIORITY_SHIFT, null);
+    }
+
+    @Override
+    public List<Todo> findByKeyword(String keyword) {
+        return findTodos(0, 0, keyword.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 需要命中总数，所以扫描全部命中的行，只读取当前页的任务
+     */
+    @Override
+    public Page<Todo> findByKeyword(String keyword, int page, int size) {
+        TodoFilter filter = new TodoFilter();
+        filter.setKeyword(keyword);
+        long[] ids = selectIds(filter, null, Integer.MAX_VALUE);
+        List<Todo> todos = new ArrayList<>(size);
+        long end = Math.min((long) (page + 1) * size, ids.length);
+        for (long i = Math.min((long) page * size, end); i < end; i++) {
+            findById(ids[(int) i]).ifPresent(todos::add);
+        }
+        return new PageImpl<>(todos, PageRequest.of(page, size), ids.length);
+    }
+
+    @Override
+    public List<Todo> findAllSorted(TodoSortField sortField, boolean ascending) {
+        TodoFilter filter = new TodoFilter();
+        filter.setSortField(sortField);
+        filter.setAscending(ascending);
+        long[] ids = selectIds(filter, null, Integer.MAX_VALUE);
+        List<Todo> todos = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            findById(id).ifPresent(todos::add);
+        }
+        return todos;
+    }
+
+    /**
+     * 先按排序顺序扫描状态列和字符串编号，只记录命中行的ID，取满一页后再读取这些行生成视图
+     */
+    @Override
+    public List<TodoView> findViewsByFilter(TodoFilter filter, TodoCursor after, Integer limit, Set<TodoField> fields) {
+        long[] ids = selectIds(filter, after, limit != null ? limit : Integer.MAX_VALUE);
+        Set<TodoField> columns = columns(fields, TodoField.of(filter.getSortField()));
+        List<TodoView> views = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            TodoView view = read(id, (segment, row) -> readView(segment, row, id, columns, fields));
+            if (view != null) {
+                views.add(view);
+            }
+        }
+        return views;
+    }
+
+    @Override
+    public List<TodoView> findViewsByIds(List<Long> ids, Set<TodoField> fields) {
+        Set<TodoField> columns = columns(fields, null);
+        List<TodoView> views = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            TodoView view = read(id, (segment, row) -> readView(segment, row, id, columns, fields));
+            if (view != null) {
+                views.add(view);
+            }
+        }
+        return views;
+    }
+
+    @Override
+    public List<Todo> findBatchAfter(long afterId, int limit) {
+        List<Todo> todos = new ArrayList<>(Math.min(limit, SEGMENT_SIZE));
+        scan(afterId + 1, true, 0, 0, (segment, row, id) -> {
+            todos.add(readTodo(segment, row, id));
+            return todos.size() < limit;
+        });
+        return todos;
+    }
+
+    @Override
+    public Stream<Todo> streamAll() {
+        Iterator<Todo> iterator = new Iterator<>() {
+            private List<Todo> batch = List.of();
+            private int position;
+            private long lastId;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (position < batch.size()) {
+                    return true;
+                }
+                if (exhausted) {
+                    return false;
+                }
+                batch = findBatchAfter(lastId, SEGMENT_SIZE);
+                position = 0;
+                exhausted = batch.size() < SEGMENT_SIZE;
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getId();
+                }
+                return !batch.isEmpty();
+            }
+
+            @Override
+            public Todo next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.get(position++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+
+    @Override
+    public Optional<TodoKey> findKeyById(Long id) {
+        return Optional.ofNullable(read(id, (segment, row) -> readKey(segment, row, id)));
+    }
+
+    @Override
+    public int updateFields(Long id, Map<String, Object> values, Long expectedVersion, LocalDateTime updateTime) {
+        if (!UPDATABLE_FIELDS.containsAll(values.keySet())) {
+            throw new IllegalArgumentException("不支持更新的字段: " + values.keySet());
+        }
+        int priorityBits = values.containsKey("priority") ? priorityBits((Integer) values.get("priority")) : 0;
+        Integer updated = write(id, (segment, row) -> {
+            if (expectedVersion != null && segment.versions[row] != expectedVersion) {
+                return 0;
+            }
+            int state = segment.states[row];
+            if (values.containsKey("content")) {
+                setContent(segment, row, (String) values.get("content"));
+            }
+            if (values.containsKey("description")) {
+                setDescription(segment, row, (String) values.get("description"));
+            }
+            if (values.containsKey("priority")) {
+                state = (state & ~PRIORITY_MASK) | priorityBits;
+            }
+            if (values.containsKey("completed")) {
+                state = Boolean.TRUE.equals(values.get("completed")) ? state | COMPLETED : state & ~COMPLETED;
+            }
+            segment.setState(row, state);
+            segment.updateTimes[row] = toMicros(updateTime);
+            segment.versions[row]++;
+            return 1;
+        });
+        return updated != null ? updated : 0;
+    }
+
+    @Override
+    public TodoKey toggleCompleted(Long id, Long expectedVersion, LocalDateTime updateTime) {
+        return write(id, (segment, row) -> {
+            if (expectedVersion != null && segment.versions[row] != expectedVersion) {
+                return null;
+            }
+            segment.setState(row, segment.states[row] ^ COMPLETED);
+            segment.updateTimes[row] = toMicros(updateTime);
+            segment.versions[row]++;
+            return readKey(segment, row, id);
+        });
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        delete(id, null, false);
+    }
+
+    @Override
+    public int deleteByIdAndVersion(Long id, Long version) {
+        return delete(id, version, false) ? 1 : 0;
+    }
+
+    @Override
+    public List<TodoKey> findCompletedKeys(Long afterId, Long maxId, int limit) {
+        List<TodoKey> keys = new ArrayList<>(Math.min(limit, SEGMENT_SIZE));
+        scan(afterId + 1, true, COMPLETED, COMPLETED, (segment, row, id) -> {
+            if (id > maxId) {
+                return false;
+            }
+            keys.add(readKey(segment, row, id));
+            return keys.size() < limit;
+        });
+        return keys;
+    }
+
+    @Override
+    public List<TodoKey> findKeysBetween(Long afterId, Long maxId, int limit) {
+        List<TodoKey> keys = new ArrayList<>(Math.min(limit, SEGMENT_SIZE));
+        scan(afterId + 1, true, 0, 0, (segment, row, id) -> {
+            if (id > maxId) {
+                return false;
+            }
+            keys.add(readKey(segment, row, id));
+            return keys.size() < limit;
+        });
+        return keys;
+    }
+
+    @Override
+    public Long findMaxId() {
+        long[] maxId = new long[1];
+        scan(Long.MAX_VALUE, false, 0, 0, (segment, row, id) -> {
+            maxId[0] = id;
+            return false;
+        });
+        return maxId[0] > 0 ? maxId[0] : null;
+    }
+
+    @Override
+    public List<Long> findExistingIds(Collection<Long> ids) {
+        List<Long> existing = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (existsById(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public int deleteCompletedByIdIn(Collection<Long> ids) {
+        int deleted = 0;
+        for (Long id : ids) {
+            if (delete(id, null, true)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public int deleteByIdIn(Collection<Long> ids) {
+        int deleted = 0;
+        for (Long id : ids) {
+            if (delete(id, null, false)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 累加每段按状态字节维护的行数，不扫描行
+     */
+    @Override
+    public List<Object[]> countGroupByCompletedAndPriority() {
+        long[] counts = new long[STATES];
+        for (Segment segment : segments) {
+            if (segment == null) {
+                continue;
+            }
+            long stamp = segment.lock.readLock();
+            try {
+                for (int state = 0; state < STATES; state++) {
+                    counts[state] += segment.stateCounts[state];
+                }
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (int state = 0; state < STATES; state++) {
+            if ((state & LIVE) != 0 && counts[state] > 0) {
+                rows.add(new Object[]{(state & COMPLETED) != 0, priority(state), counts[state]});
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 按状态位和关键词扫描，按ID顺序返回
+     * @param mask 状态字节中需要比较的位
+     * @param value 这些位的期望值
+     * @param lowerCaseKeyword 小写的关键词，为null时不限
+     */
+    private List<Todo> findTodos(int mask, int value, String lowerCaseKeyword) {
+        List<Todo> todos = new ArrayList<>();
+        scan(1, true, mask, value, (segment, row, id) -> {
+            if (lowerCaseKeyword == null || matches(segment, row, lowerCaseKeyword)) {
+                todos.add(readTodo(segment, row, id));
+            }
+            return true;
+        });
+        return todos;
+    }
+
+    /**
+     * 按条件中的排序方式取出游标之后的最多limit个ID，排序与数据库一致：(排序键, ID)，优先级为空视为最小值
+     * 按创建时间排序即按ID顺序扫描；按优先级排序时按顺序扫描各优先级档位，档位内按ID顺序。
+     * 游标所在的档位从游标ID之后开始，之前的档位跳过
+     */
+    private long[] selectIds(TodoFilter filter, TodoCursor after, int limit) {
+        int mask = 0;
+        int value = 0;
+        if (filter.getCompleted() != null) {
+            mask |= COMPLETED;
+            value |= filter.getCompleted() ? COMPLETED : 0;
+        }
+        Integer priority = filter.getPriority();
+        if (priority != null && (priority < 1 || priority > 3)) {
+            return new long[0];
+        }
+        String keyword = filter.getKeyword() != null ? filter.getKeyword().toLowerCase(Locale.ROOT) : null;
+        boolean ascending = filter.isAscending();
+        boolean byPriority = filter.getSortField() == TodoSortField.PRIORITY;
+
+        int[] buckets;
+        if (byPriority) {
+            buckets = ascending ? PRIORITY_ASCENDING : PRIORITY_DESCENDING;
+        } else {
+            // 按创建时间排序时不区分档位，有优先级条件时只扫描该档位
+            buckets = new int[]{priority != null ? priority : -1};
+        }
+        int cursorBucket = after != null && byPriority ? (after.getPriority() != null ? after.getPriority() : 0) : -1;
+        boolean beforeCursor = cursorBucket >= 0;
+
+        long[] ids = new long[Math.min(limit, 64)];
+        int[] size = new int[1];
+        for (int bucket : buckets) {
+            if (beforeCursor && bucket != cursorBucket) {
+                continue;
+            }
+            boolean cursorBucketReached = beforeCursor;
+            beforeCursor = false;
+            if (byPriority && priority != null && bucket != priority) {
+                continue;
+            }
+            int bucketMask = bucket >= 0 ? mask | PRIORITY_MASK : mask;
+            int bucketValue = bucket >= 0 ? value | bucket << PRIORITY_SHIFT : value;
+            long fromId;
+            if (after != null && (!byPriority || cursorBucketReached)) {
+                fromId = ascending ? after.getId() + 1 : after.getId() - 1;
+            } else {
+                fromId = ascending ? 1 : Long.MAX_VALUE;
+            }
+            long[][] buffer = {ids};
+            scan(fromId, ascending, bucketMask, bucketValue, (segment, row, id) -> {
+                if (keyword != null && !matches(segment, row, keyword)) {
+                    return true;
+                }
+                if (size[0] == buffer[0].length) {
+                    buffer[0] = Arrays.copyOf(buffer[0], (int) Math.min((long) size[0] * 2, limit));
+                }
+                buffer[0][size[0]++] = id;
+                return size[0] < limit;
+            });
+            ids = buffer[0];
+            if (size[0] >= limit) {
+                break;
+            }
+        }
+        return Arrays.copyOf(ids, size[0]);
+    }
+
+    private boolean matches(Segment segment, int row, String lowerCaseKeyword) {
+        String content = strings.getLowerCase(segment.contents[row]);
+        if (content != null && content.contains(lowerCaseKeyword)) {
+            return true;
+        }
+        String description = strings.getLowerCase(segment.descriptions[row]);
+        return description != null && description.contains(lowerCaseKeyword);
+    }
+
+    /**
+     * 从指定ID开始按ID顺序（正向或反向）访问状态符合条件的任务，逐段加读锁，跳过没有符合条件的行的段
+     * @param fromId 起始ID（含），超出范围时从最近的一端开始
+     * @param ascending 是否按ID升序
+     * @param mask 状态字节中需要比较的位（是否有任务总会比较）
+     * @param value 这些位的期望值
+     * @param visitor 返回false时停止
+     */
+    private void scan(long fromId, boolean ascending, int mask, int value, RowVisitor visitor) {
+        int stateMask = mask | LIVE;
+        int stateValue = value | LIVE;
+        long endId = nextId;
+        Segment[] directory = segments;
+        long id = ascending ? Math.max(1, fromId) : Math.min(endId - 1, fromId);
+        while (ascending ? id < endId : id >= 1) {
+            int index = segmentIndex(id);
+            long first = ((long) index << SEGMENT_SHIFT) + 1;
+            long last = Math.min(endId - 1, first + SEGMENT_MASK);
+            Segment segment = directory[index];
+            if (segment != null) {
+                long stamp = segment.lock.readLock();
+                try {
+                    if (segment.contains(stateMask, stateValue)) {
+                        for (; ascending ? id <= last : id >= first; id += ascending ? 1 : -1) {
+                            int row = row(id);
+                            if ((segment.states[row] & stateMask) == stateValue && !visitor.visit(segment, row, id)) {
+                                return;
+                            }
+                        }
+                    }
+                } finally {
+                    segment.lock.unlockRead(stamp);
+                }
+            }
+            id = ascending ? last + 1 : first - 1;
+        }
+    }
+
+    /**
+     * 在读锁下读取一条任务，任务不存在时返回null
+     */
+    private <T> T read(Long id, RowFunction<T> reader) {
+        Segment segment = id != null ? segment(id) : null;
+        if (segment == null) {
+            return null;
+        }
+        int row = row(id);
+        long stamp = segment.lock.readLock();
+        try {
+            return segment.isLive(row) ? reader.apply(segment, row) : null;
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 在写锁下修改一条任务，任务不存在时返回null
+     * 修改都会递增版本号，版本号变化时把修改后的整行写入日志
+     */
+    private <T> T write(Long id, RowFunction<T> writer) {
+        Segment segment = id != null ? segment(id) : null;
+        if (segment == null) {
+            return null;
+        }
+        int row = row(id);
+        T result;
+        long position = 0;
+        long stamp = segment.lock.writeLock();
+        try {
+            if (!segment.isLive(row)) {
+                return null;
+            }
+            long version = segment.versions[row];
+            result = writer.apply(segment, row);
+            if (segment.versions[row] != version) {
+                position = logPut(segment, row, id);
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+        awaitDurable(position);
+        return result;
+    }
+
+    /**
+     * 删除一条任务，释放它引用的字符串；整段都被删除后释放该段
+     * @param expectedVersion 期望的版本号，为null时不校验
+     * @param completedOnly 是否只删除已完成的任务
+     * @return 是否删除
+     */
+    private boolean delete(Long id, Long expectedVersion, boolean completedOnly) {
+        Segment segment = id != null ? segment(id) : null;
+        if (segment == null) {
+            return false;
+        }
+        int row = row(id);
+        boolean empty;
+        long position;
+        long stamp = segment.lock.writeLock();
+        try {
+            if (!segment.isLive(row)
+                    || (expectedVersion != null && segment.versions[row] != expectedVersion)
+                    || (completedOnly && (segment.states[row] & COMPLETED) == 0)) {
+                return false;
+            }
+            clear(segment, row);
+            empty = segment.live == 0 && segment.written == SEGMENT_SIZE;
+            position = wal != null ? wal.appendDelete(id) : 0;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+        if (empty) {
+            release(segmentIndex(id), segment);
+        }
+        awaitDurable(position);
+        return true;
+    }
+
+    /**
+     * 清空一行，释放它引用的字符串，调用方需要持有写锁
+     */
+    private void clear(Segment segment, int row) {
+        strings.release(segment.contents[row]);
+        strings.release(segment.descriptions[row]);
+        segment.contents[row] = StringPool.NULL;
+        segment.descriptions[row] = StringPool.NULL;
+        segment.setState(row, 0);
+    }
+
+    /**
+     * 把一行的当前内容写入日志，调用方需要持有写锁，保证同一行的日志记录与修改顺序一致
+     * @return 记录的结束位置，不持久化时为0
+     */
+    private long logPut(Segment segment, int row, long id) {
+        if (wal == null) {
+            return 0;
+        }
+        return wal.appendPut(id, segment.createTimes[row], segment.updateTimes[row], segment.versions[row],
+                segment.states[row], strings.get(segment.contents[row]), strings.get(segment.descriptions[row]));
+    }
+
+    /**
+     * 等待日志记录fsync；在inTransaction中时只记下位置，由inTransaction结束时统一等待
+     */
+    private void awaitDurable(long position) {
+        if (position == 0) {
+            return;
+        }
+        long[] pending = transactionPosition.get();
+        if (pending != null) {
+            pending[0] = Math.max(pending[0], position);
+        } else {
+            wal.awaitDurable(position);
+        }
+    }
+
+    /**
+     * 所有行都已写入且都已删除的段不会再被使用，从目录中移除
+     */
+    private void release(int index, Segment segment) {
+        synchronized (allocationLock) {
+            if (segments[index] == segment) {
+                Segment[] replaced = segments.clone();
+                replaced[index] = null;
+                segments = replaced;
+            }
+        }
+    }
+
+    /**
+     * 分配连续的ID，并为它们准备好所在的段，调用方需要持有allocationLock
+     * @return 第一个ID
+     */
+    private long allocate(int count) {
+        long firstId = nextId;
+        long lastId = firstId + count - 1;
+        int lastIndex = segmentIndex(lastId);
+        if (segments[Math.min(lastIndex, segments.length - 1)] == null || lastIndex >= segments.length) {
+            Segment[] directory = lastIndex < segments.length
+                    ? segments.clone()
+                    : Arrays.copyOf(segments, Math.max(segments.length * 2, lastIndex + 1));
+            for (int index = segmentIndex(firstId); index <= lastIndex; index++) {
+                if (directory[index] == null) {
+                    directory[index] = new Segment();
+                }
+            }
+            segments = directory;
+        }
+        nextId = lastId + 1;
+        return firstId;
+    }
+
+    private Segment segment(long id) {
+        if (id < 1 || id >= nextId) {
+            return null;
+        }
+        return segments[segmentIndex(id)];
+    }
+
+    private void setContent(Segment segment, int row, String content) {
+        int previous = segment.contents[row];
+        segment.contents[row] = strings.intern(content);
+        strings.release(previous);
+    }
+
+    private void setDescription(Segment segment, int row, String description) {
+        int previous = segment.descriptions[row];
+        segment.descriptions[row] = strings.intern(description);
+        strings.release(previous);
+    }
+
+    private Todo readTodo(Segment segment, int row, long id) {
+        int state = segment.states[row];
+        Todo todo = new Todo(strings.get(segment.contents[row]), strings.get(segment.descriptions[row]));
+        todo.setId(id);
+        todo.setCompleted((state & COMPLETED) != 0);
+        todo.setPriority(priority(state));
+        todo.setCreateTime(fromMicros(segment.createTimes[row]));
+        todo.setUpdateTime(fromMicros(segment.updateTimes[row]));
+        todo.setVersion(segment.versions[row]);
+        return todo;
+    }
+
+    private TodoKey readKey(Segment segment, int row, long id) {
+        int state = segment.states[row];
+        return new TodoKey(id, (state & COMPLETED) != 0, priority(state), segment.versions[row]);
+    }
+
+    /**
+     * 只读取columns中的字段，其余为null，与按列投影的数据库查询一致
+     */
+    private TodoView readView(Segment segment, int row, long id, Set<TodoField> columns, Set<TodoField> fields) {
+        int state = segment.states[row];
+        return new TodoView(
+                id,
+                columns.contains(TodoField.CONTENT) ? strings.get(segment.contents[row]) : null,
+                columns.contains(TodoField.DESCRIPTION) ? strings.get(segment.descriptions[row]) : null,
+                columns.contains(TodoField.COMPLETED) ? (state & COMPLETED) != 0 : null,
+                columns.contains(TodoField.PRIORITY) ? priority(state) : null,
+                columns.contains(TodoField.CREATE_TIME) ? fromMicros(segment.createTimes[row]) : null,
+                columns.contains(TodoField.UPDATE_TIME) ? fromMicros(segment.updateTimes[row]) : null,
+                segment.versions[row],
+                fields);
+    }
+
+    private static Set<TodoField> columns(Set<TodoField> fields, TodoField sortField) {
+        EnumSet<TodoField> columns = EnumSet.of(TodoField.ID, TodoField.VERSION);
+        columns.addAll(fields);
+        if (sortField != null) {
+            columns.add(sortField);
+        }
+        return columns;
+    }
+
+    private static int state(boolean completed, Integer priority) {
+        return LIVE | (completed ? COMPLETED : 0) | priorityBits(priority);
+    }
+
+    private static int priorityBits(Integer priority) {
+        if (priority == null) {
+            return 0;
+        }
+        if (priority < 1 || priority > 3) {
+            throw new IllegalArgumentException("优先级必须在1-3之间");
+        }
+        return priority << PRIORITY_SHIFT;
+    }
+
+    private static Integer priority(int state) {
+        int priority = (state & PRIORITY_MASK) >> PRIORITY_SHIFT;
+        return priority == 0 ? null : priority;
+    }
+
+    private static int segmentIndex(long id) {
+        return (int) ((id - 1) >>> SEGMENT_SHIFT);
+    }
+
+    private static int row(long id) {
+        return (int) ((id - 1) & SEGMENT_MASK);
+    }
+
+    /**
+     * 转换为UTC微秒时间戳，与数据库TIMESTAMP(6)精度一致
+     */
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * 启动时加载快照和重放日志，在存储被使用之前单线程执行，不加锁
+     */
+    private final class Recovery implements WriteAheadLog.RecordHandler {
+
+        long nextId = 1;
+        long lastCreateTime;
+        long puts;
+        long live;
+
+        /**
+         * 装入快照中的一段：每个字符串按本段中的引用数一次驻留，各列数组直接作为段的数组
+         */
+        void load(int index, byte[] states, long[] createTimes, long[] updateTimes, long[] versions,
+                  int[] contents, int[] descriptions, String[] localStrings) {
+            int[] references = new int[localStrings.length];
+            for (int row = 0; row < SEGMENT_SIZE; row++) {
+                if (contents[row] >= 0) {
+                    references[contents[row]]++;
+                }
+                if (descriptions[row] >= 0) {
+                    references[descriptions[row]]++;
+                }
+            }
+            int[] refs = new int[localStrings.length];
+            for (int i = 0; i < localStrings.length; i++) {
+                refs[i] = references[i] > 0 ? strings.intern(localStrings[i], references[i]) : StringPool.NULL;
+            }
+            for (int row = 0; row < SEGMENT_SIZE; row++) {
+                contents[row] = contents[row] >= 0 ? refs[contents[row]] : StringPool.NULL;
+                descriptions[row] = descriptions[row] >= 0 ? refs[descriptions[row]] : StringPool.NULL;
+                lastCreateTime = Math.max(lastCreateTime, createTimes[row]);
+            }
+            Segment segment = new Segment(states, createTimes, updateTimes, versions, contents, descriptions);
+            if (index >= segments.length) {
+                segments = Arrays.copyOf(segments, Math.max(segments.length * 2, index + 1));
+            }
+            segments[index] = segment;
+            puts += segment.live;
+        }
+
+        /**
+         * 写入一行，已存在时覆盖
+         */
+        @Override
+        public void put(long id, long createTime, long updateTime, long version, int state,
+                        String content, String description) {
+            Segment segment = segmentForRecovery(segmentIndex(id));
+            int row = row(id);
+            if (segment.isLive(row)) {
+                setContent(segment, row, content);
+                setDescription(segment, row, description);
+            } else {
+                segment.contents[row] = strings.intern(content);
+                segment.descriptions[row] = strings.intern(description);
+            }
+            segment.createTimes[row] = createTime;
+            segment.updateTimes[row] = updateTime;
+            segment.versions[row] = version;
+            segment.setState(row, state);
+            nextId = Math.max(nextId, id + 1);
+            lastCreateTime = Math.max(lastCreateTime, createTime);
+            puts++;
+        }
+
+        @Override
+        public void delete(long id) {
+            Segment segment = segmentIndex(id) < segments.length ? segments[segmentIndex(id)] : null;
+            if (segment != null && segment.isLive(row(id))) {
+                clear(segment, row(id));
+            }
+            nextId = Math.max(nextId, id + 1);
+        }
+
+        /**
+         * 设置下一个ID和创建时间；已分配的ID都算作已写入，整段都被删除的段直接释放
+         */
+        void finish() {
+            MemoryTodoStore.this.nextId = nextId;
+            MemoryTodoStore.this.lastCreateTime = lastCreateTime;
+            if (row(nextId) != 0) {
+                segmentForRecovery(segmentIndex(nextId));
+            }
+            Segment[] directory = segments;
+            for (int index = 0; index < directory.length; index++) {
+                Segment segment = directory[index];
+                if (segment == null) {
+                    continue;
+                }
+                long first = ((long) index << SEGMENT_SHIFT) + 1;
+                segment.written = (int) Math.max(0, Math.min(SEGMENT_SIZE, nextId - first));
+                if (segment.live == 0 && segment.written == SEGMENT_SIZE) {
+                    directory[index] = null;
+                }
+                live += segment.live;
+            }
+        }
+
+        private Segment segmentForRecovery(int index) {
+            if (index >= segments.length) {
+                segments = Arrays.copyOf(segments, Math.max(segments.length * 2, index + 1));
+            }
+            if (segments[index] == null) {
+                segments[index] = new Segment();
+            }
+            return segments[index];
+        }
+    }
+
+    /**
+     * 一段行的各列，全部字段由lock保护
+     */
+    private static final class Segment {
+
+        final StampedLock lock = new StampedLock();
+        final long[] createTimes;
+        final long[] updateTimes;
+        final long[] versions;
+        final int[] contents;
+        final int[] descriptions;
+        final byte[] states;
+
+        /**
+         * 状态字节 -> 行数，只统计有任务的行
+         */
+        final int[] stateCounts = new int[STATES];
+
+        /**
+         * 当前存在的任务数
+         */
+        int live;
+
+        /**
+         * 写入过任务的行数，等于段大小且live为0时整段可以释放
+         */
+        int written;
+
+        Segment() {
+            this(new byte[SEGMENT_SIZE], new long[SEGMENT_SIZE], new long[SEGMENT_SIZE], new long[SEGMENT_SIZE],
+                    new int[SEGMENT_SIZE], new int[SEGMENT_SIZE]);
+            Arrays.fill(contents, StringPool.NULL);
+            Arrays.fill(descriptions, StringPool.NULL);
+        }
+
+        /**
+         * 使用已有的各列数组，按状态字节统计任务数
+         */
+        Segment(byte[] states, long[] createTimes, long[] updateTimes, long[] versions,
+                int[] contents, int[] descriptions) {
+            this.states = states;
+            this.createTimes = createTimes;
+            this.updateTimes = updateTimes;
+            this.versions = versions;
+            this.contents = contents;
+            this.descriptions = descriptions;
+            for (byte state : states) {
+                if ((state & LIVE) != 0) {
+                    stateCounts[state]++;
+                    live++;
+                }
+            }
+        }
+
+        boolean isLive(int row) {
+            return (states[row] & LIVE) != 0;
+        }
+
+        /**
+         * 修改一行的状态字节，同时维护各状态的行数
+         */
+        void setState(int row, int state) {
+            int previous = states[row];
+            if ((previous & LIVE) != 0) {
+                stateCounts[previous]--;
+                live--;
+            }
+            if ((state & LIVE) != 0) {
+                stateCounts[state]++;
+                live++;
+            }
+            states[row] = (byte) state;
+        }
+
+        /**
+         * 是否有状态符合条件的行
+         */
+        boolean contains(int mask, int value) {
+            for (int state = 0; state < STATES; state++) {
+                if ((state & mask) == value && stateCounts[state] > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowVisitor {
+        boolean visit(Segment segment, int row, long id);
+    }
+
+    @FunctionalInterface
+    private interface RowFunction<T> {
+        T apply(Segment segment, int row);
+    }
+}
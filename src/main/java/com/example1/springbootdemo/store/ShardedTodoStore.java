@@ -0,0 +1,452 @@
+package com.example1.springbootdemo.store;
+
+import com.example1.springbootdemo.datasource.ShardSet;
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoKey;
+import com.example1.springbootdemo.dto.TodoSortField;
+import com.example1.springbootdemo.dto.TodoView;
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.id.SnowflakeIdGenerator;
+import com.example1.springbootdemo.querylog.RequestQueries;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 分片的Todo存储（todo.sharding.enabled=true）
+ *
+ * 任务按ID分布在ShardSet的各分片上，每个分片是一个结构相同的数据库。本类包装JpaTodoStore：
+ * 按ID的操作路由到ID所在的分片；查询并行发往所有分片（分散-收集），各分片按相同顺序返回，
+ * 在这里多路归并后再分页。新建任务时先由SnowflakeIdGenerator分配ID，再写入ID所在的分片。
+ *
+ * 每个分片上的操作在该分片单独的事务中执行，不支持跨分片事务：inTransaction直接执行，
+ * 与MemoryTodoStore一样，单条任务的修改是原子的，涉及多条任务的修改在异常时不会整体回滚。
+ * 关键词分页查询每个分片都要返回前(page + 1) * size条，页码越大开销越大，深分页应使用游标
+ */
+public class ShardedTodoStore implements TodoStore, DisposableBean {
+
+    /**
+     * 流式读取时每个分片每批读取的条数，每批在单独的只读事务中读取
+     */
+    private static final int STREAM_BATCH_SIZE = 1000;
+
+    private static final Comparator<Todo> BY_ID = Comparator.comparing(Todo::getId);
+
+    private static final Comparator<TodoKey> KEY_BY_ID = Comparator.comparing(TodoKey::getId);
+
+    private static final Comparator<Todo> BY_CREATE_TIME_DESC = Comparator.comparing(Todo::getCreateTime)
+            .thenComparing(Todo::getId).reversed();
+
+    private final TodoStore delegate;
+    private final ShardSet shardSet;
+    private final SnowflakeIdGenerator idGenerator;
+    private final TransactionTemplate writeTemplate;
+    private final TransactionTemplate readTemplate;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param delegate 在单个数据库上执行操作的存储，即JpaTodoStore
+     */
+    public ShardedTodoStore(TodoStore delegate, ShardSet shardSet, SnowflakeIdGenerator idGenerator,
+                            PlatformTransactionManager transactionManager) {
+        this.delegate = delegate;
+        this.shardSet = shardSet;
+        this.idGenerator = idGenerator;
+        // 调用方（如TodoService）的事务在进入分片之前已经开始，每个分片上的操作都要开启新的事务
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        readTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readTemplate.setReadOnly(true);
+    }
+
+    /**
+     * 不开启事务，每个分片上的操作各自在事务中执行
+     */
+    @Override
+    public <T> T inTransaction(Supplier<T> work) {
+        return work.get();
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        if (todo.getId() == null) {
+            todo.setId(idGenerator.nextId());
+        }
+        return write(shardSet.shardOf(todo.getId()), () -> delegate.save(todo));
+    }
+
+    @Override
+    public void insertAll(List<Todo> todos) {
+        for (Todo todo : todos) {
+            if (todo.getId() == null) {
+                todo.setId(idGenerator.nextId());
+            }
+        }
+        Map<Integer, List<Todo>> byShard = groupByShard(todos, Todo::getId);
+        scatter(byShard.keySet(), shard -> {
+            List<Todo> shardTodos = byShard.get(shard);
+            writeTemplate.executeWithoutResult(status -> delegate.insertAll(shardTodos));
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<Todo> findById(Long id) {
+        return read(shardSet.shardOf(id), () -> delegate.findById(id));
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return read(shardSet.shardOf(id), () -> delegate.existsById(id));
+    }
+
+    @Override
+    public List<Todo> findAllById(Collection<Long> ids) {
+        Map<Integer, List<Long>> byShard = groupByShard(ids, Function.identity());
+        return concat(scatter(byShard.keySet(), shard -> readOnly(() -> delegate.findAllById(byShard.get(shard)))));
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return concat(scatterAll(delegate::findAll));
+    }
+
+    @Override
+    public List<Todo> findByCompleted(boolean completed) {
+        return concat(scatterAll(() -> delegate.findByCompleted(completed)));
+    }
+
+    @Override
+    public List<Todo> findByPriority(Integer priority) {
+        return concat(scatterAll(() -> delegate.findByPriority(priority)));
+    }
+
+    @Override
+    public List<Todo> findByKeyword(String keyword) {
+        return concat(scatterAll(() -> delegate.findByKeyword(keyword)));
+    }
+
+    /**
+     * 每个分片返回按创建时间、ID倒序的前(page + 1) * size条和各自的命中数，归并后取第page页
+     */
+    @Override
+    public Page<Todo> findByKeyword(String keyword, int page, int size) {
+        int perShard = (int) Math.min(Integer.MAX_VALUE, ((long) page + 1) * size);
+        List<Page<Todo>> pages = scatterAll(() -> delegate.findByKeyword(keyword, 0, perShard));
+        long total = 0;
+        List<List<Todo>> sorted = new ArrayList<>(pages.size());
+        for (Page<Todo> shardPage : pages) {
+            total += shardPage.getTotalElements();
+            sorted.add(shardPage.getContent());
+        }
+        List<Todo> content = SortedMerge.merge(sorted, BY_CREATE_TIME_DESC, (int) Math.min(Integer.MAX_VALUE,
+                (long) page * size), size);
+        return new PageImpl<>(content, PageRequest.of(page, size), total);
+    }
+
+    @Override
+    public List<Todo> findAllSorted(TodoSortField sortField, boolean ascending) {
+        Comparator<Todo> comparator = sortField == TodoSortField.PRIORITY
+                ? Comparator.comparing(Todo::getPriority, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()))
+                : Comparator.comparing(Todo::getCreateTime);
+        comparator = comparator.thenComparing(Todo::getId);
+        return SortedMerge.merge(scatterAll(() -> delegate.findAllSorted(sortField, ascending)),
+                ascending ? comparator : comparator.reversed(), 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 每个分片按同一个游标各取limit条，归并后取前limit条，排序键相同时按ID排列，与单库时的顺序一致
+     */
+    @Override
+    public List<TodoView> findViewsByFilter(TodoFilter filter, TodoCursor after, Integer limit, Set<TodoField> fields) {
+        Comparator<TodoView> comparator = filter.getSortField() == TodoSortField.PRIORITY
+                ? Comparator.comparing(TodoView::priority, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()))
+                : Comparator.comparing(TodoView::createTime);
+        comparator = comparator.thenComparing(TodoView::id);
+        return SortedMerge.merge(scatterAll(() -> delegate.findViewsByFilter(filter, after, limit, fields)),
+                filter.isAscending() ? comparator : comparator.reversed(), 0,
+                limit != null ? limit : Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<TodoView> findViewsByIds(List<Long> ids, Set<TodoField> fields) {
+        Map<Integer, List<Long>> byShard = groupByShard(ids, Function.identity());
+        Map<Long, TodoView> byId = new HashMap<>(ids.size() * 2);
+        for (List<TodoView> views : scatter(byShard.keySet(),
+                shard -> readOnly(() -> delegate.findViewsByIds(byShard.get(shard), fields)))) {
+            for (TodoView view : views) {
+                byId.put(view.id(), view);
+            }
+        }
+        List<TodoView> views = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            TodoView view = byId.get(id);
+            if (view != null) {
+                views.add(view);
+            }
+        }
+        return views;
+    }
+
+    /**
+     * 按范围分片时只查询ID范围与之相交的分片
+     */
+    @Override
+    public List<Todo> findBatchAfter(long afterId, int limit) {
+        List<List<Todo>> batches = scatter(shards(shardSet.shardsBetween(afterId, Long.MAX_VALUE)),
+                shard -> readOnly(() -> delegate.findBatchAfter(afterId, limit)));
+        return SortedMerge.merge(batches, BY_ID, 0, limit);
+    }
+
+    /**
+     * 每个分片按ID分批读取，多路归并成一个按ID有序的流。每批在单独的只读事务中读取，
+     * 不需要调用方的事务，也不会长时间占用各分片的连接
+     */
+    @Override
+    public Stream<Todo> streamAll() {
+        List<Iterator<Todo>> sources = new ArrayList<>(shardSet.size());
+        for (int shard : shardSet.all()) {
+            sources.add(new ShardBatches(shard));
+        }
+        SortedMerge<Todo> merge = new SortedMerge<>(sources, BY_ID);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merge,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+
+    @Override
+    public Optional<TodoKey> findKeyById(Long id) {
+        return read(shardSet.shardOf(id), () -> delegate.findKeyById(id));
+    }
+
+    @Override
+    public int updateFields(Long id, Map<String, Object> values, Long expectedVersion, LocalDateTime updateTime) {
+        return write(shardSet.shardOf(id), () -> delegate.updateFields(id, values, expectedVersion, updateTime));
+    }
+
+    @Override
+    public TodoKey toggleCompleted(Long id, Long expectedVersion, LocalDateTime updateTime) {
+        return write(shardSet.shardOf(id), () -> delegate.toggleCompleted(id, expectedVersion, updateTime));
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        write(shardSet.shardOf(id), () -> {
+            delegate.deleteById(id);
+            return null;
+        });
+    }
+
+    @Override
+    public int deleteByIdAndVersion(Long id, Long version) {
+        return write(shardSet.shardOf(id), () -> delegate.deleteByIdAndVersion(id, version));
+    }
+
+    @Override
+    public List<TodoKey> findCompletedKeys(Long afterId, Long maxId, int limit) {
+        List<List<TodoKey>> batches = scatter(shards(shardSet.shardsBetween(afterId, maxId)),
+                shard -> readOnly(() -> delegate.findCompletedKeys(afterId, maxId, limit)));
+        return SortedMerge.merge(batches, KEY_BY_ID, 0, limit);
+    }
+
+    @Override
+    public List<TodoKey> findKeysBetween(Long afterId, Long maxId, int limit) {
+        List<List<TodoKey>> batches = scatter(shards(shardSet.shardsBetween(afterId, maxId)),
+                shard -> readOnly(() -> delegate.findKeysBetween(afterId, maxId, limit)));
+        return SortedMerge.merge(batches, KEY_BY_ID, 0, limit);
+    }
+
+    @Override
+    public Long findMaxId() {
+        Long max = null;
+        for (Long shardMax : scatterAll(delegate::findMaxId)) {
+            if (shardMax != null && (max == null || shardMax > max)) {
+                max = shardMax;
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public List<Long> findExistingIds(Collection<Long> ids) {
+        Map<Integer, List<Long>> byShard = groupByShard(ids, Function.identity());
+        return concat(scatter(byShard.keySet(), shard -> readOnly(() -> delegate.findExistingIds(byShard.get(shard)))));
+    }
+
+    @Override
+    public int deleteCompletedByIdIn(Collection<Long> ids) {
+        Map<Integer, List<Long>> byShard = groupByShard(ids, Function.identity());
+        return scatter(byShard.keySet(), shard -> writeTemplate.execute(
+                status -> delegate.deleteCompletedByIdIn(byShard.get(shard)))).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Override
+    public int deleteByIdIn(Collection<Long> ids) {
+        Map<Integer, List<Long>> byShard = groupByShard(ids, Function.identity());
+        return scatter(byShard.keySet(), shard -> writeTemplate.execute(
+                status -> delegate.deleteByIdIn(byShard.get(shard)))).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * 各分片的分组计数按(完成状态, 优先级)相加
+     */
+    @Override
+    public List<Object[]> countGroupByCompletedAndPriority() {
+        Map<List<Object>, Long> counts = new LinkedHashMap<>();
+        for (List<Object[]> rows : scatterAll(delegate::countGroupByCompletedAndPriority)) {
+            for (Object[] row : rows) {
+                counts.merge(Arrays.asList(row[0], row[1]), ((Number) row[2]).longValue(), Long::sum);
+            }
+        }
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> rows.add(new Object[]{key.get(0), key.get(1), count}));
+        return rows;
+    }
+
+    @Override
+    public void destroy() {
+        executor.close();
+    }
+
+    private <T> T write(int shard, Supplier<T> work) {
+        return shardSet.call(shard, false, () -> writeTemplate.execute(status -> work.get()));
+    }
+
+    private <T> T read(int shard, Supplier<T> work) {
+        return shardSet.call(shard, false, () -> readTemplate.execute(status -> work.get()));
+    }
+
+    private <T> T readOnly(Supplier<T> work) {
+        return readTemplate.execute(status -> work.get());
+    }
+
+    /**
+     * 在所有分片上执行同一个只读操作，结果按分片顺序排列
+     */
+    private <T> List<T> scatterAll(Supplier<T> work) {
+        return scatter(shards(shardSet.all()), shard -> readOnly(work));
+    }
+
+    /**
+     * 在多个分片上并行执行，结果按传入的分片顺序排列
+     * 第一个分片在当前线程执行，其余分片各用一个虚拟线程；任一分片失败时抛出它的异常。
+     * 虚拟线程上执行的语句同样计入当前请求（RequestQueries）
+     */
+    private <T> List<T> scatter(Collection<Integer> shards, Function<Integer, T> work) {
+        List<Integer> targets = List.copyOf(shards);
+        if (targets.isEmpty()) {
+            return new ArrayList<>();
+        }
+        boolean scatter = targets.size() > 1;
+        RequestQueries queries = RequestQueries.current();
+        List<CompletableFuture<T>> futures = new ArrayList<>(targets.size() - 1);
+        for (int i = 1; i < targets.size(); i++) {
+            int shard = targets.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> RequestQueries.callWith(queries,
+                    () -> shardSet.call(shard, true, () -> work.apply(shard))), executor));
+        }
+        List<T> results = new ArrayList<>(targets.size());
+        int first = targets.get(0);
+        results.add(shardSet.call(first, scatter, () -> work.apply(first)));
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    private static List<Integer> shards(int[] shards) {
+        return Arrays.stream(shards).boxed().toList();
+    }
+
+    private <E> Map<Integer, List<E>> groupByShard(Collection<E> items, Function<E, Long> id) {
+        Map<Integer, List<E>> byShard = new LinkedHashMap<>();
+        for (E item : items) {
+            byShard.computeIfAbsent(shardSet.shardOf(id.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return byShard;
+    }
+
+    private static <T> List<T> concat(List<List<T>> lists) {
+        if (lists.size() == 1) {
+            return lists.get(0);
+        }
+        List<T> result = new ArrayList<>(lists.stream().mapToInt(List::size).sum());
+        lists.forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * 一个分片上按ID顺序分批读取的全部任务
+     */
+    private class ShardBatches implements Iterator<Todo> {
+
+        private final int shard;
+        private Iterator<Todo> batch = Collections.emptyIterator();
+        private long afterId = Long.MIN_VALUE;
+        private boolean exhausted;
+
+        ShardBatches(int shard) {
+            this.shard = shard;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!batch.hasNext() && !exhausted) {
+                List<Todo> todos = shardSet.call(shard, true,
+                        () -> readOnly(() -> delegate.findBatchAfter(afterId, STREAM_BATCH_SIZE)));
+                exhausted = todos.size() < STREAM_BATCH_SIZE;
+                if (!todos.isEmpty()) {
+                    afterId = todos.get(todos.size() - 1).getId();
+                }
+                batch = todos.iterator();
+            }
+            return batch.hasNext();
+        }
+
+        @Override
+        public Todo next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.next();
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.example1.springbootdemo.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * 内存存储的快照文件（snapshot-序号.snap）
+ *
+ * 与内存中的布局一样按段按列保存，整数为小端序。文件头为 [魔数 long][格式版本 int][段大小 int][下一个ID long]，
+ * 之后每段依次为段号、状态字节列、创建时间列、更新时间列、版本号列、内容列、描述列和本段的字符串表，段号为-1表示结束。
+ * 内容列和描述列保存的是本段字符串表中的下标（-1表示null），同一段中相同的字符串只保存一次。
+ * 恢复时各列直接从映射的内存批量复制到段的数组中，每个字符串只解码和驻留一次，不按行解析。
+ *
+ * 文件按64MB的窗口映射到内存中读写，不经过read/write系统调用。
+ * 先写入临时文件，fsync后原子重命名为正式文件名，崩溃时不会留下不完整的快照
+ */
+final class SnapshotFile {
+
+    static final String PREFIX = "snapshot-";
+    static final String SUFFIX = ".snap";
+
+    private static final long MAGIC = 0x544F444F534E4150L;
+    private static final int FORMAT_VERSION = 1;
+    private static final int NEXT_ID_OFFSET = Long.BYTES + 2 * Integer.BYTES;
+    private static final int END = -1;
+
+    private static final int WINDOW_SIZE = 64 << 20;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * 读取快照的回调，每段调用一次，传入的数组归调用方所有
+     */
+    interface SegmentHandler {
+
+        /**
+         * @param contents 内容在strings中的下标，-1表示null
+         * @param descriptions 描述在strings中的下标，-1表示null
+         * @param strings 本段的字符串表
+         */
+        void segment(int index, byte[] states, long[] createTimes, long[] updateTimes, long[] versions,
+                     int[] contents, int[] descriptions, String[] strings);
+    }
+
+    static List<Long> sequences(Path directory) throws IOException {
+        return StoreFiles.sequences(directory, PREFIX, SUFFIX);
+    }
+
+    /**
+     * 读取快照，按段号顺序把每一段交给handler
+     * @param segmentSize 期望的段大小，与文件中的不一致时拒绝读取
+     * @return 快照中记录的下一个ID
+     */
+    static long read(Path directory, long sequence, int segmentSize, SegmentHandler handler) throws IOException {
+        Path file = StoreFiles.path(directory, PREFIX, sequence, SUFFIX);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedInput input = new MappedInput(channel);
+            if (channel.size() < NEXT_ID_OFFSET + Long.BYTES
+                    || input.getLong() != MAGIC || input.getInt() != FORMAT_VERSION) {
+                throw new IllegalStateException("不是有效的快照文件: " + file);
+            }
+            if (input.getInt() != segmentSize) {
+                throw new IllegalStateException("快照文件的段大小与当前版本不一致: " + file);
+            }
+            long nextId = input.getLong();
+            byte[] scratch = new byte[256];
+            for (int index; (index = input.getInt()) != END; ) {
+                byte[] states = new byte[segmentSize];
+                long[] createTimes = new long[segmentSize];
+                long[] updateTimes = new long[segmentSize];
+                long[] versions = new long[segmentSize];
+                int[] contents = new int[segmentSize];
+                int[] descriptions = new int[segmentSize];
+                input.get(states);
+                input.get(createTimes);
+                input.get(updateTimes);
+                input.get(versions);
+                input.get(contents);
+                input.get(descriptions);
+                String[] strings = new String[input.getInt()];
+                for (int i = 0; i < strings.length; i++) {
+                    int length = input.getInt();
+                    if (length > scratch.length) {
+                        scratch = new byte[Math.max(length, scratch.length * 2)];
+                    }
+                    input.get(scratch, length);
+                    strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                }
+                handler.segment(index, states, createTimes, updateTimes, versions, contents, descriptions, strings);
+            }
+            return nextId;
+        }
+    }
+
+    /**
+     * 删除序号小于sequence的快照，以及没有写完的临时文件
+     */
+    static void deleteBefore(Path directory, long sequence) throws IOException {
+        for (long existing : sequences(directory)) {
+            if (existing < sequence) {
+                Files.deleteIfExists(StoreFiles.path(directory, PREFIX, existing, SUFFIX));
+            }
+        }
+        Files.deleteIfExists(temporary(StoreFiles.path(directory, PREFIX, sequence, SUFFIX)));
+    }
+
+    private static Path temporary(Path file) {
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    /**
+     * 按段号升序逐段写入快照
+     */
+    static final class Writer implements Closeable {
+
+        private final Path directory;
+        private final Path file;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final MappedOutput output;
+        private final int segmentSize;
+
+        /**
+         * 字符串池编号 -> 本段字符串表中的下标，开放寻址，键为编号+1（0表示空位），每段结束后清空用过的位置
+         */
+        private final int[] localKeys;
+        private final int[] localValues;
+        private final int[] usedSlots;
+        private int usedCount;
+
+        private final int[] contentIndexes;
+        private final int[] descriptionIndexes;
+        private final byte[][] localStrings;
+        private int stringCount;
+        private boolean finished;
+
+        Writer(Path directory, long sequence, int segmentSize) throws IOException {
+            this.directory = directory;
+            this.file = StoreFiles.path(directory, PREFIX, sequence, SUFFIX);
+            this.temporary = temporary(file);
+            this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.output = new MappedOutput(channel);
+            this.segmentSize = segmentSize;
+            // 每段最多2*segmentSize个不同的字符串，表容量取其2倍以上的2的幂
+            int capacity = Integer.highestOneBit(segmentSize * 4 - 1) << 1;
+            this.localKeys = new int[capacity];
+            this.localValues = new int[capacity];
+            this.usedSlots = new int[2 * segmentSize];
+            this.contentIndexes = new int[segmentSize];
+            this.descriptionIndexes = new int[segmentSize];
+            this.localStrings = new byte[2 * segmentSize][];
+            output.putLong(MAGIC);
+            output.putInt(FORMAT_VERSION);
+            output.putInt(segmentSize);
+            output.putLong(0);
+        }
+
+        /**
+         * 写入一段，调用方需要持有该段的锁；没有任务的行内容和描述的编号应为StringPool.NULL
+         * @param strings 字符串池编号 -> 字符串
+         */
+        void writeSegment(int index, byte[] states, long[] createTimes, long[] updateTimes, long[] versions,
+                          int[] contents, int[] descriptions, IntFunction<String> strings) {
+            for (int row = 0; row < segmentSize; row++) {
+                contentIndexes[row] = localIndex(contents[row], strings);
+                descriptionIndexes[row] = localIndex(descriptions[row], strings);
+            }
+            output.putInt(index);
+            output.put(states);
+            output.put(createTimes);
+            output.put(updateTimes);
+            output.put(versions);
+            output.put(contentIndexes);
+            output.put(descriptionIndexes);
+            output.putInt(stringCount);
+            for (int i = 0; i < stringCount; i++) {
+                output.putInt(localStrings[i].length);
+                output.put(localStrings[i]);
+                localStrings[i] = null;
+            }
+            for (int i = 0; i < usedCount; i++) {
+                localKeys[usedSlots[i]] = 0;
+            }
+            usedCount = 0;
+            stringCount = 0;
+        }
+
+        /**
+         * 写入结束标记和下一个ID，fsync后重命名为正式文件
+         * @return 快照文件的字节数
+         */
+        long finish(long nextId) throws IOException {
+            output.putInt(END);
+            long size = output.position();
+            output.force();
+            channel.write(ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(0, nextId), NEXT_ID_OFFSET);
+            channel.truncate(size);
+            channel.force(true);
+            channel.close();
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            StoreFiles.syncDirectory(directory);
+            finished = true;
+            return size;
+        }
+
+        /**
+         * 没有调用finish时删除临时文件
+         */
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        private int localIndex(int ref, IntFunction<String> strings) {
+            if (ref == StringPool.NULL) {
+                return -1;
+            }
+            int mask = localKeys.length - 1;
+            int slot = (ref * 0x9E3779B9 >>> 16) & mask;
+            for (int key; (key = localKeys[slot]) != 0; slot = (slot + 1) & mask) {
+                if (key == ref + 1) {
+                    return localValues[slot];
+                }
+            }
+            localKeys[slot] = ref + 1;
+            localValues[slot] = stringCount;
+            usedSlots[usedCount++] = slot;
+            localStrings[stringCount] = strings.apply(ref).getBytes(StandardCharsets.UTF_8);
+            return stringCount++;
+        }
+    }
+
+    /**
+     * 按窗口映射文件顺序读取，窗口剩余的字节不够时从当前位置重新映射
+     */
+    private static final class MappedInput {
+
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        MappedInput(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        long getLong() throws IOException {
+            require(Long.BYTES);
+            return window.getLong();
+        }
+
+        int getInt() throws IOException {
+            require(Integer.BYTES);
+            return window.getInt();
+        }
+
+        void get(byte[] array) throws IOException {
+            get(array, array.length);
+        }
+
+        void get(byte[] array, int length) throws IOException {
+            for (int offset = 0; offset < length; ) {
+                int count = Math.min(length - offset, available(1));
+                window.get(array, offset, count);
+                offset += count;
+            }
+        }
+
+        void get(long[] array) throws IOException {
+            for (int offset = 0; offset < array.length; ) {
+                int count = Math.min(array.length - offset, available(Long.BYTES) / Long.BYTES);
+                window.asLongBuffer().get(array, offset, count);
+                window.position(window.position() + count * Long.BYTES);
+                offset += count;
+            }
+        }
+
+        void get(int[] array) throws IOException {
+            for (int offset = 0; offset < array.length; ) {
+                int count = Math.min(array.length - offset, available(Integer.BYTES) / Integer.BYTES);
+                window.asIntBuffer().get(array, offset, count);
+                window.position(window.position() + count * Integer.BYTES);
+                offset += count;
+            }
+        }
+
+        /**
+         * 保证窗口中至少还有bytes个字节，返回窗口剩余的字节数
+         */
+        private int available(int bytes) throws IOException {
+            require(bytes);
+            return window.remaining();
+        }
+
+        private void require(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                long position = windowStart + window.position();
+                if (position + bytes > size) {
+                    throw new IllegalStateException("快照文件不完整");
+                }
+                map(position);
+            }
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, WINDOW_SIZE));
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * 按窗口映射文件顺序写入，窗口剩余的空间不够时刷出当前窗口并从当前位置映射下一个窗口
+     */
+    private static final class MappedOutput {
+
+        private final FileChannel channel;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        MappedOutput(FileChannel channel) throws IOException {
+            this.channel = channel;
+            map(0);
+        }
+
+        long position() {
+            return windowStart + window.position();
+        }
+
+        void putLong(long value) {
+            require(Long.BYTES);
+            window.putLong(value);
+        }
+
+        void putInt(int value) {
+            require(Integer.BYTES);
+            window.putInt(value);
+        }
+
+        void put(byte[] array) {
+            for (int offset = 0; offset < array.length; ) {
+                int count = Math.min(array.length - offset, available(1));
+                window.put(array, offset, count);
+                offset += count;
+            }
+        }
+
+        void put(long[] array) {
+            for (int offset = 0; offset < array.length; ) {
+                int count = Math.min(array.length - offset, available(Long.BYTES) / Long.BYTES);
+                window.asLongBuffer().put(array, offset, count);
+                window.position(window.position() + count * Long.BYTES);
+                offset += count;
+            }
+        }
+
+        void put(int[] array) {
+            for (int offset = 0; offset < array.length; ) {
+                int count = Math.min(array.length - offset, available(Integer.BYTES) / Integer.BYTES);
+                window.asIntBuffer().put(array, offset, count);
+                window.position(window.position() + count * Integer.BYTES);
+                offset += count;
+            }
+        }
+
+        void force() {
+            window.force();
+        }
+
+        private int available(int bytes) {
+            require(bytes);
+            return window.remaining();
+        }
+
+        private void require(int bytes) {
+            if (window.remaining() < bytes) {
+                window.force();
+                try {
+                    map(position());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_WRITE, position, WINDOW_SIZE);
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
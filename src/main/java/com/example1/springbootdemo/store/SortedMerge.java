@@ -0,0 +1,78 @@
+package com.example1.springbootdemo.store;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * 多路归并：把多个各自有序的序列合并成一个有序序列，用于合并各分片按相同顺序返回的结果
+ * 每次只比较各序列的当前元素，不需要把所有结果放在一起重新排序
+ */
+final class SortedMerge<T> implements Iterator<T> {
+
+    /**
+     * 一个序列的当前元素
+     */
+    private static final class Head<T> {
+
+        private T value;
+        private final Iterator<T> rest;
+
+        private Head(T value, Iterator<T> rest) {
+            this.value = value;
+            this.rest = rest;
+        }
+    }
+
+    private final PriorityQueue<Head<T>> heads;
+
+    SortedMerge(List<? extends Iterator<T>> sources, Comparator<? super T> comparator) {
+        this.heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> comparator.compare(a.value, b.value));
+        for (Iterator<T> source : sources) {
+            if (source.hasNext()) {
+                heads.add(new Head<>(source.next(), source));
+            }
+        }
+    }
+
+    /**
+     * 合并多个有序列表，跳过前skip条，最多取limit条
+     */
+    static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> comparator, int skip, int limit) {
+        List<Iterator<T>> sources = new ArrayList<>(sorted.size());
+        for (List<T> list : sorted) {
+            sources.add(list.iterator());
+        }
+        SortedMerge<T> merge = new SortedMerge<>(sources, comparator);
+        for (int i = 0; i < skip && merge.hasNext(); i++) {
+            merge.next();
+        }
+        List<T> result = new ArrayList<>();
+        while (result.size() < limit && merge.hasNext()) {
+            result.add(merge.next());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        Head<T> head = heads.poll();
+        if (head == null) {
+            throw new NoSuchElementException();
+        }
+        T value = head.value;
+        if (head.rest.hasNext()) {
+            head.value = head.rest.next();
+            heads.add(head);
+        }
+        return value;
+    }
+}
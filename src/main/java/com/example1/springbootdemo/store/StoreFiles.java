@@ -0,0 +1,85 @@
+package com.example1.springbootdemo.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 写前日志和快照共用的部分：字符串的编码，以及按序号命名的文件
+ * 字符串编码为 [UTF-8字节数 int][UTF-8字节]，null的字节数为-1
+ */
+final class StoreFiles {
+
+    private StoreFiles() {
+    }
+
+    static byte[] encode(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * 编码后的字节数
+     */
+    static int stringSize(byte[] value) {
+        return Integer.BYTES + (value != null ? value.length : 0);
+    }
+
+    static void writeString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(value.length);
+        buffer.put(value);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 目录中名为 前缀+序号+后缀 的文件的序号，从小到大排列
+     */
+    static List<Long> sequences(Path directory, String prefix, String suffix) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    sequences.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // 不是本存储写入的文件，忽略
+                }
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+    static Path path(Path directory, String prefix, long sequence, String suffix) {
+        return directory.resolve(String.format("%s%019d%s", prefix, sequence, suffix));
+    }
+
+    /**
+     * fsync目录，使文件的创建、重命名和删除在崩溃后仍然有效
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example1.springbootdemo.store;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 驻留字符串池，MemoryTodoStore用它保存任务内容和描述
+ *
+ * 相同的字符串只保存一份，记录中只保存int编号，按引用计数回收，回收的编号放入空闲列表复用。
+ * 字符串 -> 编号使用开放寻址（线性探测）的int哈希表，不创建HashMap节点和装箱的Integer；
+ * 删除时向前移动后续元素，不留墓碑。同时保存转换为小写的副本（与原字符串相同时不重复保存），
+ * 关键词搜索不必每次转换。
+ *
+ * 写操作（intern、release）互斥执行；get不加锁，调用方需要持有引用该编号的记录所在分段的锁，
+ * 保证该编号在读取期间不会被回收
+ */
+final class StringPool {
+
+    /**
+     * 表示null的编号
+     */
+    static final int NULL = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * 编号 -> 字符串，扩容时整体替换，volatile保证无锁读取能看到复制后的内容
+     */
+    private volatile String[] values = new String[INITIAL_CAPACITY];
+
+    /**
+     * 编号 -> 小写副本，与原字符串相同时为null
+     */
+    private volatile String[] lowerCaseValues = new String[INITIAL_CAPACITY];
+
+    private int[] refCounts = new int[INITIAL_CAPACITY];
+
+    /**
+     * 哈希表，每个位置占两个int：编号+1（0表示空位）和打散后的哈希值。探测时先比较哈希值，
+     * 不必为每个冲突的位置读取字符串；扩容和删除时也直接使用保存的哈希值。容量为2的幂，装载因子不超过1/2
+     */
+    private int[] table = new int[INITIAL_CAPACITY * 2 * 2];
+
+    private int[] freeRefs = new int[16];
+    private int freeCount;
+
+    /**
+     * 已使用过的最大编号+1
+     */
+    private int highWater;
+
+    /**
+     * 当前保存的不同字符串个数
+     */
+    private int size;
+
+    /**
+     * 驻留字符串，引用计数加1
+     * @param value 字符串，可以为null
+     * @return 编号，null对应NULL
+     */
+    int intern(String value) {
+        return intern(value, 1);
+    }
+
+    /**
+     * 驻留字符串，引用计数加references，用于从快照恢复时一次登记同一字符串的多个引用
+     * @param value 字符串，可以为null
+     * @param references 引用数，大于0
+     * @return 编号，null对应NULL
+     */
+    synchronized int intern(String value, int references) {
+        if (value == null) {
+            return NULL;
+        }
+        int hash = hash(value);
+        int mask = capacity() - 1;
+        int slot = hash & mask;
+        for (int entry; (entry = table[slot * 2]) != 0; slot = (slot + 1) & mask) {
+            if (table[slot * 2 + 1] == hash && values[entry - 1].equals(value)) {
+                refCounts[entry - 1] += references;
+                return entry - 1;
+            }
+        }
+        int ref = allocate();
+        String lowerCase = value.toLowerCase(Locale.ROOT);
+        values[ref] = value;
+        lowerCaseValues[ref] = lowerCase.equals(value) ? null : lowerCase;
+        refCounts[ref] = references;
+        table[slot * 2] = ref + 1;
+        table[slot * 2 + 1] = hash;
+        if (++size * 2 > capacity()) {
+            rehash(capacity() * 2);
+        }
+        return ref;
+    }
+
+    /**
+     * 引用计数减1，减到0时回收
+     * @param ref 编号，NULL时不做任何操作
+     */
+    synchronized void release(int ref) {
+        if (ref == NULL || --refCounts[ref] > 0) {
+            return;
+        }
+        removeFromTable(ref);
+        values[ref] = null;
+        lowerCaseValues[ref] = null;
+        if (freeCount == freeRefs.length) {
+            freeRefs = Arrays.copyOf(freeRefs, freeCount * 2);
+        }
+        freeRefs[freeCount++] = ref;
+        size--;
+    }
+
+    String get(int ref) {
+        return ref == NULL ? null : values[ref];
+    }
+
+    /**
+     * 按Locale.ROOT转换为小写的字符串
+     */
+    String getLowerCase(int ref) {
+        if (ref == NULL) {
+            return null;
+        }
+        String lowerCase = lowerCaseValues[ref];
+        return lowerCase != null ? lowerCase : values[ref];
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return freeRefs[--freeCount];
+        }
+        if (highWater == values.length) {
+            int capacity = values.length * 2;
+            refCounts = Arrays.copyOf(refCounts, capacity);
+            lowerCaseValues = Arrays.copyOf(lowerCaseValues, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        return highWater++;
+    }
+
+    private void removeFromTable(int ref) {
+        int mask = capacity() - 1;
+        int slot = hash(values[ref]) & mask;
+        while (table[slot * 2] != ref + 1) {
+            slot = (slot + 1) & mask;
+        }
+        // 把后面探测链上、理想位置不在(slot, next]之间的元素前移，填补空位
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int entry = table[next * 2];
+            if (entry == 0) {
+                break;
+            }
+            int hash = table[next * 2 + 1];
+            if (((next - (hash & mask)) & mask) >= ((next - slot) & mask)) {
+                table[slot * 2] = entry;
+                table[slot * 2 + 1] = hash;
+                slot = next;
+            }
+        }
+        table[slot * 2] = 0;
+    }
+
+    private int capacity() {
+        return table.length / 2;
+    }
+
+    /**
+     * 打散后的哈希值，取低位即哈希表中的理想位置。内容相近的字符串（如只有末尾编号不同）的hashCode也相近，
+     * 直接取低位会落在连续的位置上，线性探测时连成很长的簇；乘以黄金分割常数并把高位混入低位后再取模打散
+     */
+    private static int hash(String value) {
+        int hash = value.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private void rehash(int capacity) {
+        int[] rehashed = new int[capacity * 2];
+        int mask = capacity - 1;
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != 0) {
+                int slot = table[i + 1] & mask;
+                while (rehashed[slot * 2] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                rehashed[slot * 2] = table[i];
+                rehashed[slot * 2 + 1] = table[i + 1];
+            }
+        }
+        table = rehashed;
+    }
+}
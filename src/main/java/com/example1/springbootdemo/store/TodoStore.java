@@ -0,0 +1,183 @@
+package com.example1.springbootdemo.store;
+
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoKey;
+import com.example1.springbootdemo.dto.TodoSortField;
+import com.example1.springbootdemo.dto.TodoView;
+import com.example1.springbootdemo.entity.Todo;
+import org.springframework.data.domain.Page;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Todo存储引擎
+ * TodoService、统计计数器和搜索索引通过它读写任务，不直接依赖JPA。
+ * 通过todo.store选择实现：jpa（默认）为JpaTodoStore，经TodoRepository访问数据库；
+ * memory为MemoryTodoStore，进程内的列式存储，不经过ORM和JDBC。
+ *
+ * 修改类方法需要在inTransaction中调用；返回的Todo都是独立对象，修改后需要通过save保存
+ */
+public interface TodoStore {
+
+    /**
+     * 在存储的事务中执行，事务边界由实现决定
+     * JPA实现在数据库事务中执行，异常时回滚；内存实现直接执行，单条记录的修改由行所在分段的锁保证原子性，
+     * 多条记录的修改不会因异常回滚
+     * @param work 要执行的操作
+     * @return 操作的返回值
+     */
+    <T> T inTransaction(Supplier<T> work);
+
+    /**
+     * 保存任务：ID为空时新建（分配ID、创建时间和更新时间，版本号从0开始），否则整条覆盖
+     * 覆盖时以任务上的版本号做乐观锁检查，成功后版本号加1
+     * @param todo 任务
+     * @return 保存后的任务
+     * @throws org.springframework.dao.OptimisticLockingFailureException 任务已被删除或版本号不一致
+     */
+    Todo save(Todo todo);
+
+    /**
+     * 批量新建任务，插入后传入的对象已填充ID、时间和版本号
+     * @param todos 新建的任务
+     */
+    void insertAll(List<Todo> todos);
+
+    Optional<Todo> findById(Long id);
+
+    boolean existsById(Long id);
+
+    /**
+     * 按ID批量读取，不保证顺序，不存在的ID会被忽略
+     */
+    List<Todo> findAllById(Collection<Long> ids);
+
+    List<Todo> findAll();
+
+    List<Todo> findByCompleted(boolean completed);
+
+    List<Todo> findByPriority(Integer priority);
+
+    /**
+     * 内容或描述包含关键词（忽略大小写）的任务
+     */
+    List<Todo> findByKeyword(String keyword);
+
+    /**
+     * 内容或描述包含关键词（忽略大小写）的任务，按创建时间、ID倒序分页
+     * @param keyword 关键词
+     * @param page 页码，从0开始
+     * @param size 每页条数
+     * @return 当前页和命中总数
+     */
+    Page<Todo> findByKeyword(String keyword, int page, int size);
+
+    /**
+     * 按创建时间或优先级排序的全部任务，优先级为空视为最小值
+     */
+    List<Todo> findAllSorted(TodoSortField sortField, boolean ascending);
+
+    /**
+     * 按组合条件查询，结果按条件中的排序方式排列（排序键相同时按ID），只填充选择的字段
+     * ID、版本号和排序字段总会填充，用于生成ETag和游标
+     *
+     * @param filter 查询条件
+     * @param after 游标，为null时从头开始
+     * @param limit 最大返回条数，为null时不限制
+     * @param fields 选择的字段
+     * @return 任务视图列表
+     */
+    List<TodoView> findViewsByFilter(TodoFilter filter, TodoCursor after, Integer limit, Set<TodoField> fields);
+
+    /**
+     * 按ID批量读取任务视图，保持传入ID的顺序，不存在的ID会被忽略
+     */
+    List<TodoView> findViewsByIds(List<Long> ids, Set<TodoField> fields);
+
+    /**
+     * 按ID顺序读取ID大于afterId的一批任务，用于全量重建索引
+     */
+    List<Todo> findBatchAfter(long afterId, int limit);
+
+    /**
+     * 按ID顺序流式读取所有任务，内存占用与任务总数无关
+     * JPA实现必须在事务中消费；读完后关闭Stream
+     */
+    Stream<Todo> streamAll();
+
+    Optional<TodoKey> findKeyById(Long id);
+
+    /**
+     * 按ID更新指定字段，同时刷新更新时间并递增版本号
+     * @param id 任务ID
+     * @param values 属性名 -> 新值，属性名只能是content、description、priority、completed
+     * @param expectedVersion 期望的版本号，不为null时只有版本号一致才更新
+     * @param updateTime 更新时间
+     * @return 实际更新条数，任务不存在或版本号不一致时为0
+     */
+    int updateFields(Long id, Map<String, Object> values, Long expectedVersion, LocalDateTime updateTime);
+
+    /**
+     * 切换完成状态并递增版本号，不需要先读取，并发切换不会丢失
+     * @param id 任务ID
+     * @param expectedVersion 期望的版本号，不为null时只有版本号一致才切换
+     * @param updateTime 更新时间
+     * @return 切换后的ID、状态、优先级和版本号，任务不存在或版本号不一致时为null
+     */
+    TodoKey toggleCompleted(Long id, Long expectedVersion, LocalDateTime updateTime);
+
+    void deleteById(Long id);
+
+    /**
+     * 版本号与期望一致时删除任务
+     * @return 实际删除条数
+     */
+    int deleteByIdAndVersion(Long id, Long version);
+
+    /**
+     * 按ID顺序取ID在(afterId, maxId]之间的一批已完成任务的ID和分组字段，用于分批删除
+     */
+    List<TodoKey> findCompletedKeys(Long afterId, Long maxId, int limit);
+
+    /**
+     * 按ID顺序取ID在(afterId, maxId]之间的一批任务的ID和分组字段，用于分批删除
+     */
+    List<TodoKey> findKeysBetween(Long afterId, Long maxId, int limit);
+
+    /**
+     * @return 当前最大ID，没有任务时为null
+     */
+    Long findMaxId();
+
+    /**
+     * 指定ID中仍然存在的ID
+     */
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    /**
+     * 按ID删除仍处于已完成状态的任务
+     * @return 实际删除条数
+     */
+    int deleteCompletedByIdIn(Collection<Long> ids);
+
+    /**
+     * 按ID删除任务
+     * @return 实际删除条数
+     */
+    int deleteByIdIn(Collection<Long> ids);
+
+    /**
+     * 按完成状态和优先级分组统计任务数量，数量为0的分组不返回
+     * @return 每行为 [完成状态, 优先级, 数量]
+     */
+    List<Object[]> countGroupByCompletedAndPriority();
+}
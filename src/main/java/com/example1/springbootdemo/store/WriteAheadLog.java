@@ -0,0 +1,471 @@
+package com.example1.springbootdemo.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * 内存存储的写前日志
+ *
+ * 每次修改追加一条记录：PUT为修改后的整行，DELETE为被删除的ID。重放时按顺序覆盖，
+ * 同一条记录重放多次结果不变，所以快照不需要与日志严格对齐。
+ * 记录格式为 [正文字节数 int][正文CRC32C int][正文]，正文第一个字节为记录类型，之后PUT为
+ * [ID long][创建时间 long][更新时间 long][版本号 long][状态字节 byte][内容][描述]（时间为UTC微秒时间戳，字符串编码见StoreFiles），
+ * DELETE为 [ID long]；
+ * 重放遇到长度或校验和不符的记录即停止，视为崩溃时没有写完的尾部并截断。
+ *
+ * 组提交：追加只把记录写入内存缓冲区并返回记录的结束位置，由单独的刷盘线程把缓冲区写入文件并fsync，
+ * 等待持久化的线程在包含自己记录的那次fsync完成后一起返回。一次fsync期间追加的记录由下一次fsync一起提交，
+ * 并发写越多，每次fsync合并的记录越多。
+ *
+ * 日志按快照切分为多个文件（wal-序号.log），快照覆盖序号小于它的日志文件
+ */
+final class WriteAheadLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    static final String PREFIX = "wal-";
+    static final String SUFFIX = ".log";
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 重放时每次映射的最大长度
+     */
+    private static final long MAX_WINDOW = 1L << 30;
+
+    private final Path directory;
+
+    /**
+     * 保护缓冲区、当前文件和各个位置
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasPending = lock.newCondition();
+    private final Condition synced = lock.newCondition();
+
+    /**
+     * 写文件与切换文件互斥
+     */
+    private final Object flushLock = new Object();
+
+    private final CRC32C checksum = new CRC32C();
+    private final Thread flusher;
+
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer flushing = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private FileChannel channel;
+    private long sequence;
+
+    /**
+     * 已追加和已持久化的字节数，从打开日志开始累计，跨文件连续
+     */
+    private long appendedPosition;
+    private long durablePosition;
+
+    private IOException failure;
+    private boolean closed;
+
+    private volatile long records;
+    private volatile long syncs;
+    private volatile long bytes;
+
+    /**
+     * 重放日志的回调
+     */
+    interface RecordHandler {
+
+        void put(long id, long createTime, long updateTime, long version, int state, String content, String description);
+
+        void delete(long id);
+    }
+
+    private WriteAheadLog(Path directory, long sequence) throws IOException {
+        this.directory = directory;
+        this.sequence = sequence;
+        this.channel = create(directory, sequence);
+        this.flusher = new Thread(this::flushLoop, "todo-wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * 新建序号为sequence的日志文件并开始追加
+     */
+    static WriteAheadLog open(Path directory, long sequence) throws IOException {
+        return new WriteAheadLog(directory, sequence);
+    }
+
+    /**
+     * 追加一条PUT记录
+     * @return 记录的结束位置，传给awaitDurable等待持久化
+     */
+    long appendPut(long id, long createTime, long updateTime, long version, int state, String content, String description) {
+        byte[] contentBytes = StoreFiles.encode(content);
+        byte[] descriptionBytes = StoreFiles.encode(description);
+        lock.lock();
+        try {
+            ByteBuffer buffer = reserve(1 + 4 * Long.BYTES + 1
+                    + StoreFiles.stringSize(contentBytes) + StoreFiles.stringSize(descriptionBytes));
+            int start = buffer.position();
+            buffer.position(start + HEADER_SIZE);
+            buffer.put(PUT);
+            buffer.putLong(id);
+            buffer.putLong(createTime);
+            buffer.putLong(updateTime);
+            buffer.putLong(version);
+            buffer.put((byte) state);
+            StoreFiles.writeString(buffer, contentBytes);
+            StoreFiles.writeString(buffer, descriptionBytes);
+            return finishRecord(buffer, start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 追加一条DELETE记录
+     * @return 记录的结束位置，传给awaitDurable等待持久化
+     */
+    long appendDelete(long id) {
+        lock.lock();
+        try {
+            ByteBuffer buffer = reserve(1 + Long.BYTES);
+            int start = buffer.position();
+            buffer.position(start + HEADER_SIZE);
+            buffer.put(DELETE);
+            buffer.putLong(id);
+            return finishRecord(buffer, start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待position之前的记录全部fsync
+     * @throws UncheckedIOException 日志写入失败
+     */
+    void awaitDurable(long position) {
+        lock.lock();
+        try {
+            while (durablePosition < position) {
+                if (failure != null) {
+                    throw new UncheckedIOException("写前日志写入失败", failure);
+                }
+                synced.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 把已追加的记录写入当前文件并fsync，之后的记录写入序号加1的新文件
+     * @return 新文件的序号，快照以它命名，覆盖它之前的所有日志文件
+     */
+    long rotate() throws IOException {
+        synchronized (flushLock) {
+            lock.lock();
+            try {
+                checkWritable();
+                try {
+                    write(channel, pending);
+                    channel.close();
+                    channel = create(directory, sequence + 1);
+                } catch (IOException e) {
+                    fail(e);
+                    throw e;
+                }
+                sequence++;
+                if (appendedPosition > durablePosition) {
+                    durablePosition = appendedPosition;
+                    syncs++;
+                }
+                synced.signalAll();
+                return sequence;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 已追加的字节数，没有新的修改时不变
+     */
+    long position() {
+        lock.lock();
+        try {
+            return appendedPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long records() {
+        return records;
+    }
+
+    long syncs() {
+        return syncs;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    /**
+     * 写入剩余的记录后关闭
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            hasPending.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (flushLock) {
+            channel.close();
+        }
+    }
+
+    /**
+     * 按序号顺序重放序号不小于fromSequence的日志文件，截断没有写完的尾部
+     * @return 重放的记录数
+     */
+    static long replay(Path directory, long fromSequence, RecordHandler handler) throws IOException {
+        long count = 0;
+        for (long sequence : sequences(directory)) {
+            if (sequence >= fromSequence) {
+                count += replay(StoreFiles.path(directory, PREFIX, sequence, SUFFIX), handler);
+            }
+        }
+        return count;
+    }
+
+    static List<Long> sequences(Path directory) throws IOException {
+        return StoreFiles.sequences(directory, PREFIX, SUFFIX);
+    }
+
+    /**
+     * 删除序号小于sequence的日志文件
+     */
+    static void deleteBefore(Path directory, long sequence) throws IOException {
+        for (long existing : sequences(directory)) {
+            if (existing < sequence) {
+                Files.deleteIfExists(StoreFiles.path(directory, PREFIX, existing, SUFFIX));
+            }
+        }
+    }
+
+    private static long replay(Path file, RecordHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            CRC32C checksum = new CRC32C();
+            MappedByteBuffer window = null;
+            long windowStart = 0;
+            long position = 0;
+            long count = 0;
+            while (position + HEADER_SIZE <= size) {
+                if (window == null || position + HEADER_SIZE > windowStart + window.limit()) {
+                    windowStart = position;
+                    window = map(channel, windowStart, size);
+                }
+                int offset = (int) (position - windowStart);
+                int length = window.getInt(offset);
+                int expected = window.getInt(offset + Integer.BYTES);
+                if (length <= 0 || position + HEADER_SIZE + length > size) {
+                    break;
+                }
+                if (offset + HEADER_SIZE + length > window.limit()) {
+                    // 记录跨过了映射窗口的末尾，从记录开头重新映射
+                    windowStart = position;
+                    window = map(channel, windowStart, size);
+                    offset = 0;
+                }
+                ByteBuffer body = window.slice(offset + HEADER_SIZE, length);
+                checksum.reset();
+                checksum.update(body.duplicate());
+                if ((int) checksum.getValue() != expected) {
+                    break;
+                }
+                apply(body, handler);
+                count++;
+                position += HEADER_SIZE + length;
+            }
+            if (position < size) {
+                log.warn("写前日志 {} 末尾 {} 字节不完整，已截断", file.getFileName(), size - position);
+                channel.truncate(position);
+                channel.force(true);
+            }
+            return count;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long start, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, MAX_WINDOW));
+    }
+
+    private static void apply(ByteBuffer body, RecordHandler handler) {
+        byte type = body.get();
+        if (type == PUT) {
+            long id = body.getLong();
+            long createTime = body.getLong();
+            long updateTime = body.getLong();
+            long version = body.getLong();
+            int state = body.get();
+            handler.put(id, createTime, updateTime, version, state, StoreFiles.readString(body), StoreFiles.readString(body));
+        } else if (type == DELETE) {
+            handler.delete(body.getLong());
+        } else {
+            throw new IllegalStateException("未知的写前日志记录类型: " + type);
+        }
+    }
+
+    private static FileChannel create(Path directory, long sequence) throws IOException {
+        FileChannel channel = FileChannel.open(StoreFiles.path(directory, PREFIX, sequence, SUFFIX),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        StoreFiles.syncDirectory(directory);
+        return channel;
+    }
+
+    /**
+     * 在缓冲区中为一条正文长度为bodySize的记录留出空间，调用方需要持有lock
+     */
+    private ByteBuffer reserve(int bodySize) {
+        checkWritable();
+        int size = HEADER_SIZE + bodySize;
+        if (pending.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        return pending;
+    }
+
+    /**
+     * 填写记录头，唤醒刷盘线程，调用方需要持有lock
+     */
+    private long finishRecord(ByteBuffer buffer, int start) {
+        int length = buffer.position() - start - HEADER_SIZE;
+        checksum.reset();
+        checksum.update(buffer.array(), start + HEADER_SIZE, length);
+        buffer.putInt(start, length);
+        buffer.putInt(start + Integer.BYTES, (int) checksum.getValue());
+        appendedPosition += HEADER_SIZE + length;
+        records++;
+        hasPending.signal();
+        return appendedPosition;
+    }
+
+    private void checkWritable() {
+        if (failure != null) {
+            throw new UncheckedIOException("写前日志写入失败", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("写前日志已关闭");
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                while (pending.position() == 0 && !closed && failure == null) {
+                    hasPending.awaitUninterruptibly();
+                }
+                if (failure != null || (closed && pending.position() == 0)) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            flush();
+        }
+    }
+
+    /**
+     * 把缓冲区中的记录写入当前文件并fsync；写文件期间新追加的记录进入另一个缓冲区，由下一次fsync提交
+     */
+    private void flush() {
+        synchronized (flushLock) {
+            ByteBuffer batch;
+            FileChannel target;
+            long position;
+            lock.lock();
+            try {
+                if (pending.position() == 0) {
+                    return;
+                }
+                batch = pending;
+                pending = flushing;
+                flushing = batch;
+                target = channel;
+                position = appendedPosition;
+            } finally {
+                lock.unlock();
+            }
+            IOException error = null;
+            try {
+                write(target, batch);
+            } catch (IOException e) {
+                error = e;
+            }
+            lock.lock();
+            try {
+                if (error != null) {
+                    fail(error);
+                } else {
+                    durablePosition = position;
+                    syncs++;
+                }
+                synced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 写入缓冲区中的全部内容并fsync，完成后清空缓冲区
+     */
+    private void write(FileChannel target, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        target.force(false);
+        buffer.clear();
+        bytes += length;
+    }
+
+    private void fail(IOException error) {
+        log.error("写前日志写入失败，之后的修改将全部失败", error);
+        failure = error;
+        synced.signalAll();
+    }
+}
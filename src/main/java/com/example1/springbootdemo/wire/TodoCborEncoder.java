@@ -0,0 +1,40 @@
+package com.example1.springbootdemo.wire;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * WebFlux的CBOR编码器
+ * Spring的Jackson2CborEncoder只实现了encodeValue，encode对任何Publisher都抛出异常，
+ * 而服务端写响应体时总是调用encode。这里把单个值（Mono）交给encodeValue，多个值的流仍不支持；
+ * 编码后因客户端断开而未写出的缓冲区在丢弃时释放
+ */
+public class TodoCborEncoder extends Jackson2CborEncoder {
+
+    public TodoCborEncoder(ObjectMapper mapper) {
+        super(mapper, TodoMediaTypes.CBOR);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, @Nullable MimeType mimeType,
+                                   @Nullable Map<String, Object> hints) {
+        if (inputStream instanceof Mono<?> mono) {
+            return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .flux();
+        }
+        return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+    }
+}
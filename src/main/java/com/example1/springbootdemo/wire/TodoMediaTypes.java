@@ -0,0 +1,25 @@
+package com.example1.springbootdemo.wire;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Todo接口支持的二进制传输格式
+ * Protobuf和CBOR使用Spring已定义的类型（application/x-protobuf、application/cbor），这里补充Smile
+ */
+public final class TodoMediaTypes {
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    public static final MediaType SMILE = MediaType.parseMediaType(SMILE_VALUE);
+
+    public static final String PROTOBUF_VALUE = MediaType.APPLICATION_PROTOBUF_VALUE;
+
+    public static final MediaType PROTOBUF = MediaType.APPLICATION_PROTOBUF;
+
+    public static final String CBOR_VALUE = MediaType.APPLICATION_CBOR_VALUE;
+
+    public static final MediaType CBOR = MediaType.APPLICATION_CBOR;
+
+    private TodoMediaTypes() {
+    }
+}
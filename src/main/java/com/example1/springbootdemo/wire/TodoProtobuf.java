@@ -0,0 +1,466 @@
+package com.example1.springbootdemo.wire;
+
+import com.example1.springbootdemo.dto.TodoDeleteResponse;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoListResponse;
+import com.example1.springbootdemo.dto.TodoPageResponse;
+import com.example1.springbootdemo.dto.TodoRequest;
+import com.example1.springbootdemo.dto.TodoResponse;
+import com.example1.springbootdemo.dto.TodoSearchResponse;
+import com.example1.springbootdemo.dto.TodoStats;
+import com.example1.springbootdemo.dto.TodoUpdateRequest;
+import com.example1.springbootdemo.dto.TodoView;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.springframework.core.ResolvableType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Todo接口的Protobuf编解码
+ * 协议定义见 static/schema/todo.proto，这里直接用protobuf-java的CodedOutputStream/CodedInputStream按字段编号读写，
+ * 不生成消息类，响应记录不需要先转换成Message对象。
+ * 响应中的Todo只写入视图选择的、值不为null的字段；嵌套消息先计算长度再写出，不额外复制字节。
+ * 字段编号和类型是手写的，TodoProtobufSchemaTests按todo.proto解析编码结果来核对
+ */
+public final class TodoProtobuf {
+
+    private static final int LENGTH_DELIMITED = WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+    /**
+     * Todo消息的字段编号，与TodoField的声明顺序一致（ordinal + 1）
+     */
+    private static final TodoField[] TODO_FIELDS = TodoField.values();
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private TodoProtobuf() {
+    }
+
+    /**
+     * 是否可以编码为Protobuf
+     * TodoResponse的data只支持TodoView（部分更新返回只选择了被修改字段的TodoView）和TodoStats；
+     * Map按错误响应编码（GlobalExceptionHandler的响应结构）
+     * @param type 声明的返回类型
+     */
+    public static boolean canWrite(ResolvableType type) {
+        Class<?> clazz = type.resolve(Object.class);
+        if (clazz == TodoResponse.class) {
+            Class<?> data = type.getGeneric(0).resolve(Object.class);
+            return data == TodoView.class || data == TodoStats.class || data == Object.class;
+        }
+        return clazz == TodoView.class || clazz == TodoListResponse.class || clazz == TodoPageResponse.class
+                || clazz == TodoSearchResponse.class || clazz == TodoDeleteResponse.class
+                || Map.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * 是否可以从Protobuf解码
+     */
+    public static boolean canRead(Class<?> clazz) {
+        return clazz == TodoRequest.class || clazz == TodoUpdateRequest.class || clazz == TodoView.class
+                || clazz == TodoResponse.class || clazz == TodoListResponse.class;
+    }
+
+    /**
+     * 编码并写出，写完后不关闭输出流
+     * @throws IllegalArgumentException 不支持的类型
+     */
+    public static void write(Object value, OutputStream output) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(output, 8192);
+        write(value, out);
+        out.flush();
+    }
+
+    /**
+     * 编码为字节数组
+     * @throws IllegalArgumentException 不支持的类型
+     */
+    public static byte[] toByteArray(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        try {
+            write(value, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 解码，未知字段直接跳过
+     * 解码得到的TodoView只选择消息中出现的字段；TodoResponse的data解码为TodoView
+     * @throws IllegalArgumentException 不支持的类型
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T read(InputStream input, Class<T> clazz) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(input);
+        Object value;
+        if (clazz == TodoRequest.class) {
+            value = readTodoRequest(in);
+        } else if (clazz == TodoUpdateRequest.class) {
+            value = readTodoUpdateRequest(in);
+        } else if (clazz == TodoView.class) {
+            value = readTodo(in);
+        } else if (clazz == TodoResponse.class) {
+            value = readTodoResponse(in);
+        } else if (clazz == TodoListResponse.class) {
+            value = readTodoListResponse(in);
+        } else {
+            throw new IllegalArgumentException("不支持的Protobuf消息类型: " + clazz.getName());
+        }
+        return (T) value;
+    }
+
+    // ==================== 编码 ====================
+
+    private static void write(Object value, CodedOutputStream out) throws IOException {
+        if (value instanceof TodoView view) {
+            writeTodo(view, out, false);
+        } else if (value instanceof TodoResponse<?> response) {
+            writeHeader(response.success(), response.message(), out);
+            writeData(response.data(), out);
+        } else if (value instanceof TodoListResponse response) {
+            writeHeader(response.success(), response.message(), out);
+            writeTodos(response.data(), out);
+            writeInt32(4, response.total(), out);
+        } else if (value instanceof TodoPageResponse response) {
+            writeHeader(response.success(), response.message(), out);
+            writeTodos(response.data(), out);
+            writeInt32(4, response.size(), out);
+            if (response.nextCursor() != null) {
+                out.writeString(5, response.nextCursor());
+            }
+            if (response.hasMore()) {
+                out.writeBool(6, true);
+            }
+        } else if (value instanceof TodoSearchResponse response) {
+            writeHeader(response.success(), response.message(), out);
+            writeTodos(response.data(), out);
+            if (response.total() != 0) {
+                out.writeInt64(4, response.total());
+            }
+            writeInt32(5, response.page(), out);
+            writeInt32(6, response.size(), out);
+        } else if (value instanceof TodoDeleteResponse response) {
+            writeHeader(response.success(), response.message(), out);
+            writeInt32(3, response.deletedCount(), out);
+        } else if (value instanceof Map<?, ?> error) {
+            writeError(error, out);
+        } else {
+            throw new IllegalArgumentException("不支持的Protobuf消息类型: " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * 所有响应消息共同的 success = 1、message = 2
+     */
+    private static void writeHeader(boolean success, String message, CodedOutputStream out) throws IOException {
+        if (success) {
+            out.writeBool(1, true);
+        }
+        if (message != null && !message.isEmpty()) {
+            out.writeString(2, message);
+        }
+    }
+
+    /**
+     * TodoResponse.data = 3：任务（部分更新时只有被修改的字段）或统计信息
+     */
+    private static void writeData(Object data, CodedOutputStream out) throws IOException {
+        if (data == null) {
+            return;
+        }
+        if (data instanceof TodoStats stats) {
+            out.writeTag(3, LENGTH_DELIMITED);
+            out.writeUInt32NoTag(statsSize(stats));
+            writeStats(stats, out);
+        } else if (data instanceof TodoView view) {
+            out.writeTag(3, LENGTH_DELIMITED);
+            writeTodo(view, out, true);
+        } else {
+            throw new IllegalArgumentException("不支持的Protobuf消息类型: " + data.getClass().getName());
+        }
+    }
+
+    /**
+     * repeated Todo data = 3
+     */
+    private static void writeTodos(List<TodoView> todos, CodedOutputStream out) throws IOException {
+        for (TodoView todo : todos) {
+            out.writeTag(3, LENGTH_DELIMITED);
+            writeTodo(todo, out, true);
+        }
+    }
+
+    /**
+     * 写出一个Todo消息
+     * 时间只格式化一次，计算长度和写出共用同一个字符串
+     * @param embedded 是否作为嵌套消息写出（先写长度）
+     */
+    private static void writeTodo(TodoView view, CodedOutputStream out, boolean embedded) throws IOException {
+        Set<TodoField> fields = view.fields();
+        String createTime = fields.contains(TodoField.CREATE_TIME) ? format(view.createTime()) : null;
+        String updateTime = fields.contains(TodoField.UPDATE_TIME) ? format(view.updateTime()) : null;
+        if (embedded) {
+            out.writeUInt32NoTag(todoSize(view, createTime, updateTime));
+        }
+        for (TodoField field : fields) {
+            int number = field.ordinal() + 1;
+            switch (field) {
+                case ID -> {
+                    if (view.id() != null) {
+                        out.writeInt64(number, view.id());
+                    }
+                }
+                case CONTENT -> {
+                    if (view.content() != null) {
+                        out.writeString(number, view.content());
+                    }
+                }
+                case DESCRIPTION -> {
+                    if (view.description() != null) {
+                        out.writeString(number, view.description());
+                    }
+                }
+                case COMPLETED -> {
+                    if (view.completed() != null) {
+                        out.writeBool(number, view.completed());
+                    }
+                }
+                case PRIORITY -> {
+                    if (view.priority() != null) {
+                        out.writeInt32(number, view.priority());
+                    }
+                }
+                case CREATE_TIME -> {
+                    if (createTime != null) {
+                        out.writeString(number, createTime);
+                    }
+                }
+                case UPDATE_TIME -> {
+                    if (updateTime != null) {
+                        out.writeString(number, updateTime);
+                    }
+                }
+                case VERSION -> {
+                    if (view.version() != null) {
+                        out.writeInt64(number, view.version());
+                    }
+                }
+            }
+        }
+    }
+
+    private static int todoSize(TodoView view, String createTime, String updateTime) {
+        int size = 0;
+        for (TodoField field : view.fields()) {
+            int number = field.ordinal() + 1;
+            switch (field) {
+                case ID -> size += view.id() != null ? CodedOutputStream.computeInt64Size(number, view.id()) : 0;
+                case CONTENT -> size += view.content() != null
+                        ? CodedOutputStream.computeStringSize(number, view.content()) : 0;
+                case DESCRIPTION -> size += view.description() != null
+                        ? CodedOutputStream.computeStringSize(number, view.description()) : 0;
+                case COMPLETED -> size += view.completed() != null
+                        ? CodedOutputStream.computeBoolSize(number, view.completed()) : 0;
+                case PRIORITY -> size += view.priority() != null
+                        ? CodedOutputStream.computeInt32Size(number, view.priority()) : 0;
+                case CREATE_TIME -> size += createTime != null
+                        ? CodedOutputStream.computeStringSize(number, createTime) : 0;
+                case UPDATE_TIME -> size += updateTime != null
+                        ? CodedOutputStream.computeStringSize(number, updateTime) : 0;
+                case VERSION -> size += view.version() != null
+                        ? CodedOutputStream.computeInt64Size(number, view.version()) : 0;
+            }
+        }
+        return size;
+    }
+
+    private static String format(LocalDateTime time) {
+        return time != null ? TIME_FORMAT.format(time) : null;
+    }
+
+    private static void writeStats(TodoStats stats, CodedOutputStream out) throws IOException {
+        writeInt64(1, stats.getTotal(), out);
+        writeInt64(2, stats.getCompleted(), out);
+        writeInt64(3, stats.getIncomplete(), out);
+        for (Map.Entry<String, TodoStats.PriorityCount> entry : stats.getByPriority().entrySet()) {
+            int countSize = priorityCountSize(entry.getValue());
+            int valueSize = CodedOutputStream.computeTagSize(2)
+                    + CodedOutputStream.computeUInt32SizeNoTag(countSize) + countSize;
+            out.writeTag(4, LENGTH_DELIMITED);
+            out.writeUInt32NoTag(CodedOutputStream.computeStringSize(1, entry.getKey()) + valueSize);
+            out.writeString(1, entry.getKey());
+            out.writeTag(2, LENGTH_DELIMITED);
+            out.writeUInt32NoTag(countSize);
+            writeInt64(1, entry.getValue().getTotal(), out);
+            writeInt64(2, entry.getValue().getCompleted(), out);
+            writeInt64(3, entry.getValue().getIncomplete(), out);
+        }
+    }
+
+    private static int statsSize(TodoStats stats) {
+        int size = int64Size(1, stats.getTotal()) + int64Size(2, stats.getCompleted())
+                + int64Size(3, stats.getIncomplete());
+        for (Map.Entry<String, TodoStats.PriorityCount> entry : stats.getByPriority().entrySet()) {
+            int countSize = priorityCountSize(entry.getValue());
+            int entrySize = CodedOutputStream.computeStringSize(1, entry.getKey())
+                    + CodedOutputStream.computeTagSize(2) + CodedOutputStream.computeUInt32SizeNoTag(countSize) + countSize;
+            size += CodedOutputStream.computeTagSize(4) + CodedOutputStream.computeUInt32SizeNoTag(entrySize) + entrySize;
+        }
+        return size;
+    }
+
+    private static int priorityCountSize(TodoStats.PriorityCount count) {
+        return int64Size(1, count.getTotal()) + int64Size(2, count.getCompleted())
+                + int64Size(3, count.getIncomplete());
+    }
+
+    /**
+     * GlobalExceptionHandler的错误响应：success、message、error和校验失败的字段
+     */
+    private static void writeError(Map<?, ?> error, CodedOutputStream out) throws IOException {
+        writeHeader(Boolean.TRUE.equals(error.get("success")), asString(error.get("message")), out);
+        String code = asString(error.get("error"));
+        if (code != null) {
+            out.writeString(3, code);
+        }
+        if (error.get("errors") instanceof Map<?, ?> errors) {
+            for (Map.Entry<?, ?> entry : errors.entrySet()) {
+                String key = String.valueOf(entry.getKey());
+                String value = String.valueOf(entry.getValue());
+                out.writeTag(4, LENGTH_DELIMITED);
+                out.writeUInt32NoTag(CodedOutputStream.computeStringSize(1, key)
+                        + CodedOutputStream.computeStringSize(2, value));
+                out.writeString(1, key);
+                out.writeString(2, value);
+            }
+        }
+    }
+
+    private static String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * proto3的非optional标量字段取默认值时不写出
+     */
+    private static void writeInt32(int number, int value, CodedOutputStream out) throws IOException {
+        if (value != 0) {
+            out.writeInt32(number, value);
+        }
+    }
+
+    private static void writeInt64(int number, long value, CodedOutputStream out) throws IOException {
+        if (value != 0) {
+            out.writeInt64(number, value);
+        }
+    }
+
+    private static int int64Size(int number, long value) {
+        return value != 0 ? CodedOutputStream.computeInt64Size(number, value) : 0;
+    }
+
+    // ==================== 解码 ====================
+
+    private static TodoRequest readTodoRequest(CodedInputStream in) throws IOException {
+        TodoRequest request = new TodoRequest();
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> request.setContent(in.readString());
+                case 2 -> request.setDescription(in.readString());
+                case 3 -> request.setPriority(in.readInt32());
+                default -> in.skipField(tag);
+            }
+        }
+        return request;
+    }
+
+    private static TodoUpdateRequest readTodoUpdateRequest(CodedInputStream in) throws IOException {
+        TodoUpdateRequest request = new TodoUpdateRequest();
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> request.setContent(in.readString());
+                case 2 -> request.setDescription(in.readString());
+                case 3 -> request.setPriority(in.readInt32());
+                case 4 -> request.setCompleted(in.readBool());
+                default -> in.skipField(tag);
+            }
+        }
+        return request;
+    }
+
+    private static TodoResponse<TodoView> readTodoResponse(CodedInputStream in) throws IOException {
+        boolean success = false;
+        String message = "";
+        TodoView data = null;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> success = in.readBool();
+                case 2 -> message = in.readString();
+                case 3 -> data = readEmbeddedTodo(in);
+                default -> in.skipField(tag);
+            }
+        }
+        return new TodoResponse<>(success, message, data);
+    }
+
+    private static TodoListResponse readTodoListResponse(CodedInputStream in) throws IOException {
+        boolean success = false;
+        String message = "";
+        List<TodoView> data = new ArrayList<>();
+        int total = 0;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> success = in.readBool();
+                case 2 -> message = in.readString();
+                case 3 -> data.add(readEmbeddedTodo(in));
+                case 4 -> total = in.readInt32();
+                default -> in.skipField(tag);
+            }
+        }
+        return new TodoListResponse(success, message, data, total);
+    }
+
+    private static TodoView readEmbeddedTodo(CodedInputStream in) throws IOException {
+        int limit = in.pushLimit(in.readRawVarint32());
+        TodoView todo = readTodo(in);
+        in.popLimit(limit);
+        return todo;
+    }
+
+    private static TodoView readTodo(CodedInputStream in) throws IOException {
+        Map<TodoField, Object> values = new EnumMap<>(TodoField.class);
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            int number = WireFormat.getTagFieldNumber(tag);
+            if (number < 1 || number > TODO_FIELDS.length) {
+                in.skipField(tag);
+                continue;
+            }
+            TodoField field = TODO_FIELDS[number - 1];
+            switch (field) {
+                case ID, VERSION -> values.put(field, in.readInt64());
+                case CONTENT, DESCRIPTION -> values.put(field, in.readString());
+                case COMPLETED -> values.put(field, in.readBool());
+                case PRIORITY -> values.put(field, in.readInt32());
+                case CREATE_TIME, UPDATE_TIME -> values.put(field, LocalDateTime.parse(in.readString(), TIME_FORMAT));
+            }
+        }
+        Set<TodoField> fields = values.isEmpty() ? Collections.emptySet() : EnumSet.copyOf(values.keySet());
+        return TodoView.of(values, fields);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example1.springbootdemo.wire;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDataBufferDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * WebFlux的Protobuf解码器，请求体聚合为一个缓冲区后由TodoProtobuf解码
+ */
+public class TodoProtobufDecoder extends AbstractDataBufferDecoder<Object> {
+
+    public TodoProtobufDecoder() {
+        super(TodoMediaTypes.PROTOBUF);
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return TodoProtobuf.canRead(elementType.resolve(Object.class)) && super.canDecode(elementType, mimeType);
+    }
+
+    @Override
+    public Object decode(DataBuffer buffer, ResolvableType targetType, @Nullable MimeType mimeType,
+                         @Nullable Map<String, Object> hints) throws DecodingException {
+        try (InputStream input = buffer.asInputStream()) {
+            return TodoProtobuf.read(input, targetType.resolve(Object.class));
+        } catch (IOException | RuntimeException e) {
+            throw new DecodingException("Protobuf请求体解析失败: " + e.getMessage(), e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+}
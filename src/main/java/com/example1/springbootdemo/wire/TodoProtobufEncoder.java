@@ -0,0 +1,50 @@
+package com.example1.springbootdemo.wire;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+
+/**
+ * WebFlux的Protobuf编码器，编码由TodoProtobuf完成
+ * 每个响应是一条完整的消息，先计算长度再一次性写入缓冲区。
+ * 已编码但因客户端断开而未写出的缓冲区在丢弃时释放
+ */
+public class TodoProtobufEncoder extends AbstractEncoder<Object> {
+
+    public TodoProtobufEncoder() {
+        super(TodoMediaTypes.PROTOBUF);
+    }
+
+    /**
+     * 与Jackson编码器一样接受Object类型：WebFlux据此把它归为通用编码器，排在JSON之后，
+     * 否则不带Accept的请求会优先协商到Protobuf。响应体的实际类型在写出前仍会按实例再判断一次
+     */
+    @Override
+    public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return (elementType.resolve(Object.class) == Object.class || TodoProtobuf.canWrite(elementType))
+                && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, @Nullable MimeType mimeType,
+                                   @Nullable Map<String, Object> hints) {
+        return Flux.from(inputStream)
+                .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    @Override
+    public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return bufferFactory.wrap(TodoProtobuf.toByteArray(value));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example1.springbootdemo.wire;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Spring MVC的Protobuf消息转换器，编解码由TodoProtobuf完成
+ * 只处理TodoProtobuf支持的类型，其他返回值（批量创建、导入结果等）协商到Protobuf时返回406
+ */
+public class TodoProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public TodoProtobufHttpMessageConverter() {
+        super(TodoMediaTypes.PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return TodoProtobuf.canRead(clazz) || TodoProtobuf.canWrite(ResolvableType.forClass(clazz));
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return TodoProtobuf.canRead(ResolvableType.forType(type).resolve(Object.class)) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        ResolvableType resolvable = type != null ? ResolvableType.forType(type) : ResolvableType.forClass(clazz);
+        // 声明为ResponseEntity<?>等通配类型时按实际返回值的类型判断
+        if (resolvable.resolve(Object.class) == Object.class) {
+            resolvable = ResolvableType.forClass(clazz);
+        }
+        return TodoProtobuf.canWrite(resolvable) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        return readInternal(ResolvableType.forType(type).resolve(Object.class), inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        try {
+            return TodoProtobuf.read(inputMessage.getBody(), clazz);
+        } catch (IOException | RuntimeException e) {
+            throw new HttpMessageNotReadableException("Protobuf请求体解析失败: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object value, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException {
+        TodoProtobuf.write(value, outputMessage.getBody());
+    }
+}
@@ -0,0 +1,22 @@
+-- reactive profile下的todo表（H2）
+-- 列与Todo实体一致；R2DBC不会自动建表，启动时由spring.sql.init执行本脚本
+-- 描述列使用VARCHAR而不是CLOB，R2DBC H2驱动把CLOB映射为流对象而不是字符串
+CREATE TABLE IF NOT EXISTS todo (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    content     VARCHAR(500)  NOT NULL,
+    completed   BOOLEAN       NOT NULL,
+    create_time TIMESTAMP(6)  NOT NULL,
+    update_time TIMESTAMP(6)  NOT NULL,
+    priority    INT,
+    description VARCHAR(1000),
+    version     BIGINT        NOT NULL
+);
+
+-- 索引与Todo实体上声明的索引一致
+CREATE INDEX IF NOT EXISTS idx_todo_completed_priority ON todo (completed, priority, create_time, id);
+CREATE INDEX IF NOT EXISTS idx_todo_completed_priority_id ON todo (completed, priority, id);
+CREATE INDEX IF NOT EXISTS idx_todo_completed_create_time ON todo (completed, create_time, id);
+CREATE INDEX IF NOT EXISTS idx_todo_completed_id ON todo (completed, id);
+CREATE INDEX IF NOT EXISTS idx_todo_priority_create_time ON todo (priority, create_time, id);
+CREATE INDEX IF NOT EXISTS idx_todo_create_time ON todo (create_time, id);
+CREATE INDEX IF NOT EXISTS idx_todo_priority ON todo (priority, id);
@@ -0,0 +1,20 @@
+-- reactive profile下的todo表（MySQL）
+-- 列与Todo实体一致；R2DBC不会自动建表，启动时由spring.sql.init执行本脚本
+CREATE TABLE IF NOT EXISTS todo (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    content     VARCHAR(500)  NOT NULL,
+    completed   BOOLEAN       NOT NULL,
+    create_time DATETIME(6)   NOT NULL,
+    update_time DATETIME(6)   NOT NULL,
+    priority    INT,
+    description TEXT,
+    version     BIGINT        NOT NULL,
+    -- 索引与Todo实体上声明的索引一致
+    INDEX idx_todo_completed_priority (completed, priority, create_time, id),
+    INDEX idx_todo_completed_priority_id (completed, priority, id),
+    INDEX idx_todo_completed_create_time (completed, create_time, id),
+    INDEX idx_todo_completed_id (completed, id),
+    INDEX idx_todo_priority_create_time (priority, create_time, id),
+    INDEX idx_todo_create_time (create_time, id),
+    INDEX idx_todo_priority (priority, id)
+);
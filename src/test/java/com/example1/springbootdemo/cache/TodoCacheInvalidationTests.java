@@ -0,0 +1,137 @@
+package com.example1.springbootdemo.cache;
+
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.exception.TodoNotFoundException;
+import com.example1.springbootdemo.service.TodoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 经过TodoService的每种写操作之后，getTodoById读到的都是提交后的数据
+ *
+ * 先用JDBC绕过服务直接修改数据库，证明读取确实来自缓存，再检查服务的写操作是否刷新或移除了缓存
+ */
+@SpringBootTest
+class TodoCacheInvalidationTests {
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        todoService.deleteAllTodos();
+    }
+
+    @Test
+    void readsComeFromCacheUntilServiceWrites() {
+        Long id = cached("原内容");
+        jdbcTemplate.update("update todo set content = ? where id = ?", "绕过服务修改", id);
+
+        assertThat(todoService.getTodoById(id).getContent()).isEqualTo("原内容");
+
+        todoService.updateTodoContent(id, "通过服务修改");
+        assertThat(todoService.getTodoById(id).getContent()).isEqualTo("通过服务修改");
+    }
+
+    @Test
+    void fullSaveRefreshesCachedTodo() {
+        Long id = cached("原内容");
+        Todo todo = todoService.getTodoById(id);
+        todo.setContent("整条保存");
+        todo.setPriority(3);
+
+        todoService.updateTodo(todo);
+
+        Todo read = todoService.getTodoById(id);
+        assertThat(read.getContent()).isEqualTo("整条保存");
+        assertThat(read.getPriority()).isEqualTo(3);
+        assertThat(read.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void partialUpdatesEvictCachedTodo() {
+        Long id = cached("原内容");
+
+        todoService.updateTodoFields(id, null, "新描述", 2, null, null);
+        Todo afterFields = todoService.getTodoById(id);
+        assertThat(afterFields.getDescription()).isEqualTo("新描述");
+        assertThat(afterFields.getPriority()).isEqualTo(2);
+
+        todoService.toggleTodoStatus(id);
+        Todo afterToggle = todoService.getTodoById(id);
+        assertThat(afterToggle.isCompleted()).isTrue();
+        assertThat(afterToggle.getVersion()).isEqualTo(2L);
+    }
+
+    @Test
+    void deletesEvictCachedTodo() {
+        Long deleted = cached("单条删除");
+        Long completed = cached("批量删除");
+        todoService.markTodoAsCompleted(completed);
+        todoService.getTodoById(completed);
+
+        todoService.deleteTodo(deleted);
+        todoService.deleteCompletedTodos();
+
+        assertThatThrownBy(() -> todoService.getTodoById(deleted)).isInstanceOf(TodoNotFoundException.class);
+        assertThatThrownBy(() -> todoService.getTodoById(completed)).isInstanceOf(TodoNotFoundException.class);
+    }
+
+    @Test
+    void readDuringUncommittedUpdateDoesNotLeaveStaleEntry() throws Exception {
+        Long id = cached("原内容");
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            todoService.updateTodoContent(id, "提交的新内容");
+            // 提交前其他线程读不到新内容，未命中时加载并缓存的是旧数据
+            String concurrentRead = CompletableFuture.supplyAsync(() -> todoService.getTodoById(id).getContent())
+                    .orTimeout(5, TimeUnit.SECONDS).join();
+            assertThat(concurrentRead).isEqualTo("原内容");
+        });
+
+        // 提交之后才移除缓存，上面缓存的旧数据不会留下来
+        assertThat(todoService.getTodoById(id).getContent()).isEqualTo("提交的新内容");
+    }
+
+    @Test
+    void rolledBackUpdateKeepsCachedTodo() {
+        Long id = cached("原内容");
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            todoService.updateTodoContent(id, "回滚的内容");
+            status.setRollbackOnly();
+        });
+
+        Todo read = todoService.getTodoById(id);
+        assertThat(read.getContent()).isEqualTo("原内容");
+        assertThat(read.getVersion()).isZero();
+    }
+
+    /**
+     * 新建任务并读取一次，使其进入缓存
+     */
+    private Long cached(String content) {
+        Long id = todoService.createTodo(content).getId();
+        todoService.getTodoById(id);
+        return id;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example1.springbootdemo.cache;
+
+import com.example1.springbootdemo.dto.TodoKey;
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.event.TodoDeletedEvent;
+import com.example1.springbootdemo.event.TodoSavedEvent;
+import com.example1.springbootdemo.event.TodoUpdatedEvent;
+import com.example1.springbootdemo.event.TodosBulkDeletedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TodoCacheTests {
+
+    private final TodoCache cache = new TodoCache(100, Duration.ofMinutes(10));
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void secondReadIsServedFromCache() {
+        assertThat(cache.get(1L, loader("数据库中的任务")).getContent()).isEqualTo("数据库中的任务");
+        assertThat(cache.get(1L, loader("不应再读取")).getContent()).isEqualTo("数据库中的任务");
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void missingTodoIsNotCached() {
+        assertThat(cache.get(1L, id -> {
+            loads.incrementAndGet();
+            return null;
+        })).isNull();
+        assertThat(cache.get(1L, loader("随后创建")).getContent()).isEqualTo("随后创建");
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void callerChangesDoNotLeakIntoCache() {
+        Todo loaded = todo(1L, "原内容", 0L);
+        Todo first = cache.get(1L, id -> loaded);
+        first.setContent("调用方修改");
+        loaded.setContent("加载后修改");
+
+        assertThat(cache.get(1L, loader("不应再读取")).getContent()).isEqualTo("原内容");
+    }
+
+    @Test
+    void savedTodoReplacesCachedCopy() {
+        Todo previous = cache.get(1L, loader("原内容"));
+        Todo current = todo(1L, "新内容", 1L);
+
+        cache.onSaved(new TodoSavedEvent(previous, current));
+        current.setContent("保存后修改");
+
+        Todo cached = cache.get(1L, loader("不应再读取"));
+        assertThat(cached.getContent()).isEqualTo("新内容");
+        assertThat(cached.getVersion()).isEqualTo(1L);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void createdTodoIsNotCached() {
+        cache.onSaved(new TodoSavedEvent(null, todo(1L, "新建", 0L)));
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void partialUpdateAndDeletesEvict() {
+        for (long id = 1; id <= 4; id++) {
+            cache.get(id, loader("旧数据"));
+        }
+
+        cache.onUpdated(new TodoUpdatedEvent(1L, null, null, true));
+        cache.onDeleted(new TodoDeletedEvent(todo(2L, "旧数据", 0L)));
+        cache.onBulkDeleted(new TodosBulkDeletedEvent(List.of(new TodoKey(3L, true, null, 0L))));
+
+        assertThat(cache.get(1L, loader("重新加载")).getContent()).isEqualTo("重新加载");
+        assertThat(cache.get(2L, id -> null)).isNull();
+        assertThat(cache.get(3L, id -> null)).isNull();
+        assertThat(cache.get(4L, loader("不应再读取")).getContent()).isEqualTo("旧数据");
+    }
+
+    @Test
+    void saveDuringLoadIsNotOverwrittenByLoadedData() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Todo> slowRead = CompletableFuture.supplyAsync(() -> cache.get(1L, id -> {
+            loading.countDown();
+            await(release);
+            return todo(1L, "加载到的旧数据", 0L);
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // 提交后的写入等待正在进行的加载完成，再覆盖加载结果
+        Thread save = new Thread(() ->
+                cache.onSaved(new TodoSavedEvent(todo(1L, "加载到的旧数据", 0L), todo(1L, "提交的新数据", 1L))));
+        save.start();
+        while (save.getState() == Thread.State.NEW || save.getState() == Thread.State.RUNNABLE) {
+            Thread.onSpinWait();
+        }
+        assertThat(save.isAlive()).isTrue();
+        release.countDown();
+        slowRead.get(5, TimeUnit.SECONDS);
+        save.join(5000);
+
+        assertThat(cache.get(1L, loader("不应再读取")).getContent()).isEqualTo("提交的新数据");
+    }
+
+    private Function<Long, Todo> loader(String content) {
+        return id -> {
+            loads.incrementAndGet();
+            return todo(id, content, 0L);
+        };
+    }
+
+    private static Todo todo(Long id, String content, Long version) {
+        Todo todo = new Todo(content);
+        todo.setId(id);
+        todo.setVersion(version);
+        return todo;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example1.springbootdemo.compression;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressionFilterTests {
+
+    private static final String BODY = "{\"data\":\"" + "x".repeat(4096) + "\"}";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final CompressionFilter filter = new CompressionFilter(1024, List.of(MediaType.APPLICATION_JSON), 6,
+            new CompressionMetrics(registry));
+
+    @Test
+    void compressedResponseGetsDistinctETag() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(gzipRequest(), response, respond("\"3\"", BODY));
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"3-gzip\"");
+    }
+
+    @Test
+    void weakETagStaysWeak() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(gzipRequest(), response, respond("W/\"abc\"", BODY));
+
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("W/\"abc-gzip\"");
+    }
+
+    @Test
+    void smallResponseKeepsETag() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(gzipRequest(), response, respond("\"3\"", "{}"));
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"3\"");
+    }
+
+    @Test
+    void conditionalHeadersAreSeenWithoutSuffix() throws Exception {
+        MockHttpServletRequest request = gzipRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"3-gzip\", \"2\"");
+        request.addHeader(HttpHeaders.IF_MATCH, "\"3-gzip\"");
+        List<String> seen = new ArrayList<>();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            HttpServletRequest http = (HttpServletRequest) req;
+            seen.add(http.getHeader(HttpHeaders.IF_NONE_MATCH));
+            seen.add(http.getHeaders(HttpHeaders.IF_MATCH).nextElement());
+            HttpServletResponse httpResponse = (HttpServletResponse) res;
+            httpResponse.setHeader(HttpHeaders.ETAG, "\"3\"");
+            httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        });
+
+        assertThat(seen).containsExactly("\"3\", \"2\"", "\"3\"");
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"3-gzip\"");
+    }
+
+    @Test
+    void singleByteWritesAreBufferedAndCompressed() throws Exception {
+        MockHttpServletResponse large = new MockHttpServletResponse();
+        filter.doFilter(gzipRequest(), large, respondByteByByte(BODY));
+
+        assertThat(large.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gunzip(large.getContentAsByteArray())).isEqualTo(BODY);
+
+        MockHttpServletResponse small = new MockHttpServletResponse();
+        filter.doFilter(gzipRequest(), small, respondByteByByte("{}"));
+
+        assertThat(small.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(small.getContentAsString()).isEqualTo("{}");
+        assertThat(small.getContentLength()).isEqualTo(2);
+    }
+
+    @Test
+    void responsesWithoutBodyAreNotCountedAsTooSmall() throws Exception {
+        filter.doFilter(gzipRequest(), new MockHttpServletResponse(),
+                (req, res) -> ((HttpServletResponse) res).setStatus(HttpServletResponse.SC_NOT_MODIFIED));
+        filter.doFilter(gzipRequest(), new MockHttpServletResponse(), (req, res) -> {
+            ((HttpServletResponse) res).setStatus(HttpServletResponse.SC_NO_CONTENT);
+            res.getOutputStream().flush();
+        });
+        assertThat(responses("too_small")).isZero();
+
+        filter.doFilter(gzipRequest(), new MockHttpServletResponse(), respond("\"3\"", "{}"));
+        assertThat(responses("too_small")).isEqualTo(1);
+    }
+
+    private double responses(String result) {
+        return registry.get("todo.compression.responses").tag("result", result).counter().count();
+    }
+
+    private static MockHttpServletRequest gzipRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/todos");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        return request;
+    }
+
+    private static FilterChain respond(String etag, String body) {
+        return (request, response) -> {
+            HttpServletResponse http = (HttpServletResponse) response;
+            http.setHeader(HttpHeaders.ETAG, etag);
+            http.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            http.getOutputStream().write(body.getBytes());
+        };
+    }
+
+    private static FilterChain respondByteByByte(String body) {
+        return (request, response) -> {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            OutputStream output = response.getOutputStream();
+            for (byte b : body.getBytes(StandardCharsets.UTF_8)) {
+                output.write(b);
+            }
+        };
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
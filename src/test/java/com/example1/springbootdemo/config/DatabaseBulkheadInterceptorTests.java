@@ -0,0 +1,70 @@
+package com.example1.springbootdemo.config;
+
+import com.example1.springbootdemo.exception.ServiceBusyException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DatabaseBulkheadInterceptorTests {
+
+    private final AtomicInteger poolSize = new AtomicInteger(2);
+
+    private final DatabaseBulkheadInterceptor bulkhead = new DatabaseBulkheadInterceptor(poolSize::get, 10);
+
+    @Test
+    void limitFollowsPoolSize() throws Exception {
+        List<MockHttpServletRequest> running = enter(2);
+        assertBusy();
+
+        poolSize.set(3);
+        running.addAll(enter(1));
+        assertThat(bulkhead.limit()).isEqualTo(3);
+        assertBusy();
+
+        running.forEach(this::leave);
+        assertThat(bulkhead.availablePermits()).isEqualTo(3);
+    }
+
+    @Test
+    void loweredLimitWaitsForRunningRequests() throws Exception {
+        poolSize.set(3);
+        List<MockHttpServletRequest> running = enter(3);
+
+        poolSize.set(1);
+        assertBusy();
+        assertThat(bulkhead.availablePermits()).isEqualTo(-2);
+
+        // 多出的两个请求完成后仍然没有空位，最后一个完成后才能进入
+        leave(running.get(0));
+        leave(running.get(1));
+        assertBusy();
+        leave(running.get(2));
+        enter(1);
+        assertBusy();
+    }
+
+    private List<MockHttpServletRequest> enter(int count) throws Exception {
+        List<MockHttpServletRequest> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/todos");
+            assertThat(bulkhead.preHandle(request, new MockHttpServletResponse(), null)).isTrue();
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    private void leave(MockHttpServletRequest request) {
+        bulkhead.afterCompletion(request, new MockHttpServletResponse(), null, null);
+    }
+
+    private void assertBusy() {
+        assertThatThrownBy(() -> enter(1)).isInstanceOf(ServiceBusyException.class);
+    }
+}
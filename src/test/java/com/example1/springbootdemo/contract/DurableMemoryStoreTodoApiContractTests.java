@@ -0,0 +1,12 @@
+package com.example1.springbootdemo.contract;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * 在持久化的进程内列式存储（todo.store=memory，设置了todo.store.data-dir）上运行契约测试，
+ * 每次修改都经过写前日志
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"todo.store=memory", "todo.store.data-dir=target/test-store/${random.uuid}"})
+class DurableMemoryStoreTodoApiContractTests extends TodoApiContractTests {
+}
@@ -0,0 +1,10 @@
+package com.example1.springbootdemo.contract;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * 在Spring MVC + 进程内列式存储（todo.store=memory）上运行契约测试
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "todo.store=memory")
+class MemoryStoreTodoApiContractTests extends TodoApiContractTests {
+}
@@ -0,0 +1,10 @@
+package com.example1.springbootdemo.contract;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * 在默认的Spring MVC + JPA实现上运行契约测试
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class MvcTodoApiContractTests extends TodoApiContractTests {
+}
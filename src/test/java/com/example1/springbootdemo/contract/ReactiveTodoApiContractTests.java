@@ -0,0 +1,12 @@
+package com.example1.springbootdemo.contract;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * 在reactive profile的WebFlux + R2DBC实现上运行契约测试
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+class ReactiveTodoApiContractTests extends TodoApiContractTests {
+}
@@ -0,0 +1,60 @@
+package com.example1.springbootdemo.contract;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在replica profile的读写分离上运行契约测试：H2主库加一个模拟复制的H2只读副本
+ * 两个测试客户端共用一个Cookie存储，像浏览器一样带上读己之写的Cookie，写入后立即读取也能读到
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("replica")
+class ReplicaTodoApiContractTests extends TodoApiContractTests {
+
+    private final CookieManager cookies = new CookieManager();
+
+    @Override
+    @BeforeEach
+    void clearTodos() {
+        client = client.mutate().filter(this::withCookies).build();
+        super.clearTodos();
+    }
+
+    @Override
+    protected HttpClient httpClient() {
+        return HttpClient.newBuilder().cookieHandler(cookies).build();
+    }
+
+    private Mono<ClientResponse> withCookies(ClientRequest request, ExchangeFunction next) {
+        URI uri = request.url();
+        try {
+            Map<String, List<String>> stored = cookies.get(uri, Map.of());
+            ClientRequest withCookies = ClientRequest.from(request)
+                    .headers(headers -> stored.forEach(headers::addAll))
+                    .build();
+            return next.exchange(withCookies).doOnNext(response -> {
+                try {
+                    cookies.put(uri, Map.of(HttpHeaders.SET_COOKIE, response.headers().header(HttpHeaders.SET_COOKIE)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
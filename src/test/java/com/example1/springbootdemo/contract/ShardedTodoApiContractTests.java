@@ -0,0 +1,12 @@
+package com.example1.springbootdemo.contract;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * 在shards profile的分片上运行契约测试：任务分布在三个H2内存库中，列表、分页和统计由各分片的结果合并而成
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("shards")
+class ShardedTodoApiContractTests extends TodoApiContractTests {
+}
@@ -0,0 +1,552 @@
+package com.example1.springbootdemo.contract;
+
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.wire.TodoMediaTypes;
+import com.example1.springbootdemo.wire.TodoProtoSchema;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Todo API契约测试
+ * 同一组用例分别在Spring MVC实现和WebFlux实现上运行，保证两种实现的路径、状态码、响应结构和ETag一致
+ */
+abstract class TodoApiContractTests {
+
+    @Autowired
+    protected WebTestClient client;
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeEach
+    void clearTodos() {
+        client.delete().uri("/api/todos")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.success").isEqualTo(true);
+    }
+
+    @Test
+    void createReturnsCreatedTodo() {
+        client.post().uri("/api/todos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("content", "学习Spring", "description", "契约测试", "priority", 2))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(true)
+                .jsonPath("$.data.id").isNumber()
+                .jsonPath("$.data.content").isEqualTo("学习Spring")
+                .jsonPath("$.data.priority").isEqualTo(2)
+                .jsonPath("$.data.completed").isEqualTo(false)
+                .jsonPath("$.data.version").isEqualTo(0);
+    }
+
+    @Test
+    void createRejectsInvalidRequest() {
+        client.post().uri("/api/todos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("content", "", "priority", 5))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false)
+                .jsonPath("$.error").isEqualTo("VALIDATION_ERROR")
+                .jsonPath("$.errors.content").exists()
+                .jsonPath("$.errors.priority").exists();
+    }
+
+    @Test
+    void getSupportsETagAndNotFound() {
+        long id = create("读书", 1);
+
+        String etag = client.get().uri("/api/todos/{id}", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"")
+                .expectBody()
+                .jsonPath("$.data.id").isEqualTo(id)
+                .returnResult().getResponseHeaders().getETag();
+
+        client.get().uri("/api/todos/{id}", id)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        client.get().uri("/api/todos/{id}", id + 1000)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false);
+    }
+
+    @Test
+    void updateChecksIfMatch() {
+        long id = create("写代码", 1);
+
+        client.put().uri("/api/todos/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("content", "写测试", "priority", 3))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody()
+                .jsonPath("$.data.id").isEqualTo(id)
+                .jsonPath("$.data.content").isEqualTo("写测试")
+                .jsonPath("$.data.priority").isEqualTo(3)
+                .jsonPath("$.data.updateTime").exists()
+                .jsonPath("$.data.version").isEqualTo(1)
+                .jsonPath("$.data.description").doesNotExist()
+                .jsonPath("$.data.completed").doesNotExist();
+
+        client.put().uri("/api/todos/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("content", "过期的修改"))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED)
+                .expectBody().jsonPath("$.success").isEqualTo(false);
+
+        client.get().uri("/api/todos/{id}", id)
+                .exchange()
+                .expectBody()
+                .jsonPath("$.data.content").isEqualTo("写测试");
+    }
+
+    @Test
+    void staleIfMatchRejectsToggleAndDelete() {
+        long id = create("条件请求", 1);
+        client.patch().uri("/api/todos/{id}/toggle", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.success").isEqualTo(true);
+
+        // 版本号已经是1，基于版本0的切换和删除都返回412，不修改任务
+        for (String stale : List.of("\"0\"", "\"0-cbor\"", "W/\"1\"", "\"other\"")) {
+            client.patch().uri("/api/todos/{id}/toggle", id)
+                    .header(HttpHeaders.IF_MATCH, stale)
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED)
+                    .expectBody()
+                    .jsonPath("$.success").isEqualTo(false)
+                    .jsonPath("$.error").isEqualTo("PRECONDITION_FAILED");
+            client.delete().uri("/api/todos/{id}", id)
+                    .header(HttpHeaders.IF_MATCH, stale)
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED)
+                    .expectBody().jsonPath("$.success").isEqualTo(false);
+        }
+        client.get().uri("/api/todos/{id}", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody()
+                .jsonPath("$.data.completed").isEqualTo(true);
+
+        client.patch().uri("/api/todos/{id}/toggle", id)
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2\"")
+                .expectBody()
+                .jsonPath("$.data.completed").isEqualTo(false);
+        client.delete().uri("/api/todos/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.success").isEqualTo(true);
+        client.get().uri("/api/todos/{id}", id)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.success").isEqualTo(false);
+    }
+
+    @Test
+    void ifMatchListAndWildcard() {
+        long id = create("多个ETag", 1);
+
+        // 列表中任意一个ETag与当前版本号一致即可
+        client.put().uri("/api/todos/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"7\", \"0-smile\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("content", "第一次修改"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody().jsonPath("$.success").isEqualTo(true);
+        client.put().uri("/api/todos/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"0\", \"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("content", "过期的修改"))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED)
+                .expectBody().jsonPath("$.success").isEqualTo(false);
+
+        // *只要求任务存在，不比较版本号
+        client.put().uri("/api/todos/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "*")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("content", "不校验版本号"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2\"")
+                .expectBody().jsonPath("$.success").isEqualTo(true);
+        client.put().uri("/api/todos/{id}", id + 1000)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("content", "不存在"))
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.success").isEqualTo(false);
+    }
+
+    @Test
+    void toggleFlipsCompleted() {
+        long id = create("跑步", 1);
+
+        client.patch().uri("/api/todos/{id}/toggle", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.completed").isEqualTo(true)
+                .jsonPath("$.data.version").isEqualTo(1)
+                .jsonPath("$.data.content").doesNotExist();
+
+        client.get().uri("/api/todos?status=completed")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.total").isEqualTo(1)
+                .jsonPath("$.data[0].id").isEqualTo(id);
+    }
+
+    @Test
+    void listPagesWithCursor() {
+        long first = create("任务一", 1);
+        long second = create("任务二", 1);
+
+        Map<?, ?> page = client.get().uri("/api/todos?limit=1&sortBy=id&sortOrder=asc")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectBody(Map.class)
+                .returnResult().getResponseBody();
+        assertThat(page.get("hasMore")).isEqualTo(true);
+        assertThat(page.get("size")).isEqualTo(1);
+        assertThat(((Number) ((Map<?, ?>) ((List<?>) page.get("data")).get(0)).get("id")).longValue())
+                .isEqualTo(first);
+
+        client.get().uri(builder -> builder.path("/api/todos")
+                        .queryParam("limit", 1)
+                        .queryParam("sortBy", "id")
+                        .queryParam("sortOrder", "asc")
+                        .queryParam("cursor", page.get("nextCursor"))
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.hasMore").isEqualTo(false)
+                .jsonPath("$.data[0].id").isEqualTo(second);
+    }
+
+    @Test
+    void listReturnsSelectedFields() {
+        long id = create("字段选择", 2);
+
+        client.get().uri("/api/todos")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data[0].length()").isEqualTo(6)
+                .jsonPath("$.data[0].content").isEqualTo("字段选择")
+                .jsonPath("$.data[0].createTime").exists()
+                .jsonPath("$.data[0].description").doesNotExist()
+                .jsonPath("$.data[0].version").doesNotExist();
+
+        client.get().uri("/api/todos?limit=10&fields=content,id,description")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data[0].length()").isEqualTo(3)
+                .jsonPath("$.data[0].id").isEqualTo(id)
+                .jsonPath("$.data[0].content").isEqualTo("字段选择")
+                .jsonPath("$.data[0].description").hasJsonPath()
+                .jsonPath("$.data[0].priority").doesNotExist();
+
+        client.get().uri("/api/todos?fields=id,secret")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("INVALID_ARGUMENT");
+    }
+
+    @Test
+    void searchMatchesContent() {
+        create("学习Java并发", 1);
+        create("学习Spring", 2);
+        create("买菜", 3);
+
+        client.get().uri("/api/todos/search?keyword=学习")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(true)
+                .jsonPath("$.total").isEqualTo(2)
+                .jsonPath("$.data.length()").isEqualTo(2);
+    }
+
+    @Test
+    void exportStreamsCsvAndNdjson() throws IOException {
+        create("导出一", 1);
+        create("导出二", 2);
+
+        String csv = client.get().uri("/api/todos/export?format=csv")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith("text/csv")
+                .expectHeader().exists(HttpHeaders.CONTENT_DISPOSITION)
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+        assertThat(csv.split("\r?\n")).hasSize(3);
+        assertThat(csv).startsWith("id,");
+
+        String ndjson = client.get().uri("/api/todos/export?format=ndjson")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+        assertThat(ndjson.split("\n")).hasSize(2).allMatch(line -> line.startsWith("{"));
+        // 每行与单个任务的响应一样是全部字段的视图，不是实体本身
+        List<String> names = new ArrayList<>();
+        new ObjectMapper().readTree(ndjson.split("\n")[0]).fieldNames().forEachRemaining(names::add);
+        assertThat(names).containsExactly(TodoField.ALL.stream().map(TodoField::getParamName).toArray(String[]::new));
+    }
+
+    @Test
+    void statsCountsByStatusAndPriority() {
+        long id = create("统计一", 1);
+        create("统计二", 1);
+        create("统计三", 3);
+        client.patch().uri("/api/todos/{id}/toggle", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.success").isEqualTo(true);
+
+        client.get().uri("/api/todos/stats")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.total").isEqualTo(3)
+                .jsonPath("$.data.completed").isEqualTo(1)
+                .jsonPath("$.data.incomplete").isEqualTo(2)
+                .jsonPath("$.data.byPriority.1.total").isEqualTo(2);
+    }
+
+    @Test
+    void deleteRemovesTodos() {
+        long done = create("已完成", 1);
+        long open = create("未完成", 1);
+        client.patch().uri("/api/todos/{id}/toggle", done)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.success").isEqualTo(true);
+
+        client.delete().uri("/api/todos/completed")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.deletedCount").isEqualTo(1);
+
+        client.delete().uri("/api/todos/{id}", open)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.id").isEqualTo(open);
+
+        client.get().uri("/api/todos/{id}", open)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.success").isEqualTo(false);
+    }
+
+    @Test
+    void negotiatesBinaryFormats() throws IOException {
+        // 请求和响应都按对外发布的todo.proto读写，与用protoc生成代码的客户端相同
+        byte[] request = TodoProtoSchema.builder("TodoRequest")
+                .setField(TodoProtoSchema.message("TodoRequest").findFieldByName("content"), "二进制格式")
+                .setField(TodoProtoSchema.message("TodoRequest").findFieldByName("priority"), 2)
+                .build().toByteArray();
+
+        byte[] created = client.post().uri("/api/todos")
+                .contentType(TodoMediaTypes.PROTOBUF)
+                .accept(TodoMediaTypes.PROTOBUF)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().contentTypeCompatibleWith(TodoMediaTypes.PROTOBUF)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+        DynamicMessage response = TodoProtoSchema.parse("TodoResponse", created);
+        Message todo = (Message) TodoProtoSchema.get(response, "data");
+        assertThat(TodoProtoSchema.get(response, "success")).isEqualTo(true);
+        assertThat(TodoProtoSchema.get(todo, "content")).isEqualTo("二进制格式");
+        assertThat(TodoProtoSchema.get(todo, "priority")).isEqualTo(2);
+        assertThat(TodoProtoSchema.get(todo, "completed")).isEqualTo(false);
+        assertThat(TodoProtoSchema.get(todo, "create_time")).isNotNull();
+        long id = (Long) TodoProtoSchema.get(todo, "id");
+
+        byte[] list = client.get().uri("/api/todos")
+                .accept(TodoMediaTypes.CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(TodoMediaTypes.CBOR)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+        JsonNode body = new CBORMapper().readTree(list);
+        assertThat(body.path("data").get(0).path("id").asLong()).isEqualTo(id);
+        assertThat(body.path("data").get(0).path("createTime").isTextual()).isTrue();
+
+        client.get().uri("/api/todos/{id}", id + 1000)
+                .accept(TodoMediaTypes.SMILE)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().contentTypeCompatibleWith(TodoMediaTypes.SMILE)
+                .expectBody().consumeWith(result -> assertThat(result.getResponseBody()).isNotEmpty());
+    }
+
+    @Test
+    void etagDependsOnRepresentation() {
+        long id = create("多种格式", 1);
+
+        client.get().uri("/api/todos/{id}", id)
+                .accept(TodoMediaTypes.CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0-cbor\"")
+                .expectHeader().values(HttpHeaders.VARY, vary -> assertThat(vary).contains(HttpHeaders.ACCEPT))
+                .expectBody().consumeWith(result -> assertThat(result.getResponseBody()).isNotEmpty());
+
+        // JSON的ETag不能让CBOR请求得到304，反之亦然
+        client.get().uri("/api/todos/{id}", id)
+                .accept(TodoMediaTypes.CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(TodoMediaTypes.CBOR)
+                .expectBody().consumeWith(result -> assertThat(result.getResponseBody()).isNotEmpty());
+        client.get().uri("/api/todos/{id}", id)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0-cbor\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"")
+                .expectBody().jsonPath("$.success").isEqualTo(true);
+        client.get().uri("/api/todos/{id}", id)
+                .accept(TodoMediaTypes.SMILE)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0-cbor\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0-smile\"")
+                .expectBody().consumeWith(result -> assertThat(result.getResponseBody()).isNotEmpty());
+        client.get().uri("/api/todos/{id}", id)
+                .accept(TodoMediaTypes.CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0-cbor\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().values(HttpHeaders.VARY, vary -> assertThat(vary).contains(HttpHeaders.ACCEPT))
+                .expectBody().isEmpty();
+
+        String jsonList = client.get().uri("/api/todos")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult().getResponseHeaders().getETag();
+        client.get().uri("/api/todos")
+                .accept(TodoMediaTypes.SMILE)
+                .header(HttpHeaders.IF_NONE_MATCH, jsonList)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(TodoMediaTypes.SMILE)
+                .expectBody().consumeWith(result -> assertThat(result.getResponseBody()).isNotEmpty());
+
+        // 任意格式的ETag都可以用于If-Match
+        client.put().uri("/api/todos/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"0-cbor\"")
+                .accept(TodoMediaTypes.SMILE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("priority", 2))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1-smile\"")
+                .expectBody().consumeWith(result -> assertThat(result.getResponseBody()).isNotEmpty());
+    }
+
+    @Test
+    void compressesOnlyLargeResponses() throws Exception {
+        long id = 0;
+        for (int i = 0; i < 30; i++) {
+            id = create("压缩测试任务" + i, i % 3 + 1);
+        }
+
+        // WebTestClient底层的Reactor Netty客户端会去掉手动设置的Accept-Encoding，这里直接用JDK的HttpClient
+        HttpClient http = httpClient();
+        HttpResponse<byte[]> list = http.send(HttpRequest.newBuilder(URI.create(baseUrl() + "/api/todos"))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip").build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(list.statusCode()).isEqualTo(200);
+        assertThat(list.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(list.body()))) {
+            JsonNode body = new ObjectMapper().readTree(input);
+            assertThat(body.path("data").size()).isEqualTo(30);
+        }
+
+        HttpResponse<String> single = http.send(HttpRequest.newBuilder(URI.create(baseUrl() + "/api/todos/" + id))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip").build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(single.statusCode()).isEqualTo(200);
+        assertThat(single.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).isEmpty();
+        assertThat(single.body()).contains("\"id\":" + id);
+    }
+
+    protected HttpClient httpClient() {
+        return HttpClient.newHttpClient();
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    private long create(String content, int priority) {
+        Map<?, ?> body = client.post().uri("/api/todos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("content", content, "priority", priority))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Map.class)
+                .returnResult().getResponseBody();
+        Number id = (Number) ((Map<?, ?>) body.get("data")).get("id");
+        return id.longValue();
+    }
+}
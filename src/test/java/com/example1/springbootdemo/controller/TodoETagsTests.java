@@ -0,0 +1,42 @@
+package com.example1.springbootdemo.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TodoETagsTests {
+
+    @Test
+    void missingOrWildcardIfMatchSkipsCheck() {
+        assertThat(TodoETags.parseIfMatch(null)).isNull();
+        assertThat(TodoETags.parseIfMatch(" ")).isNull();
+        assertThat(TodoETags.parseIfMatch("*")).isNull();
+        assertThat(TodoETags.parseIfMatch("\"1\", *")).isNull();
+    }
+
+    @Test
+    void versionsAreReadFromEveryFormat() {
+        assertThat(TodoETags.parseIfMatch("\"3\"")).containsExactly(3L);
+        assertThat(TodoETags.parseIfMatch("\"3-cbor\"")).containsExactly(3L);
+        assertThat(TodoETags.parseIfMatch("\"1\",\"2-smile\" , \"4-protobuf\"")).containsExactly(1L, 2L, 4L);
+    }
+
+    @Test
+    void weakAndForeignTagsNeverMatch() {
+        // If-Match使用强比较：弱ETag、未加引号的值和不是本服务生成的ETag都不对应任何版本号
+        assertThat(TodoETags.parseIfMatch("W/\"3\"")).isEmpty();
+        assertThat(TodoETags.parseIfMatch("3")).isEmpty();
+        assertThat(TodoETags.parseIfMatch("\"\"")).isEmpty();
+        assertThat(TodoETags.parseIfMatch("\"abc\", \"-1\", \"3-xml\", \"3-\", \"99999999999999999999\"")).isEmpty();
+        assertThat(TodoETags.parseIfMatch("W/\"3\", \"5\"")).containsExactly(5L);
+    }
+
+    @Test
+    void versionETagRoundTripsThroughIfMatch() {
+        for (String format : List.of("", "protobuf", "cbor", "smile")) {
+            assertThat(TodoETags.parseIfMatch(TodoETags.version(12L, format))).as(format).containsExactly(12L);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example1.springbootdemo.datasource;
+
+import com.example1.springbootdemo.datasource.AdaptivePoolController.Resize;
+import com.example1.springbootdemo.datasource.AdaptivePoolController.Sizing;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 调整决策，只构造信号不启动连接池
+ */
+class AdaptivePoolControllerTests {
+
+    private final AdaptivePoolController controller = new AdaptivePoolController(List::of, true, 5, 50,
+            Duration.ofMillis(5), Duration.ofMillis(50));
+
+    @Test
+    void starvedPoolGrowsByStepOrDemandCappedAtMaxSize() {
+        Sizing byTimeout = controller.decide(Sizing.initial(20), 20, window(0, 1, 10, 20), 0, 10);
+        assertThat(byTimeout.resize()).isEqualTo(Resize.GROW);
+        assertThat(byTimeout.size()).isEqualTo(25);
+        assertThat(byTimeout.sizeBeforeGrowth()).isEqualTo(20);
+        assertThat(byTimeout.grewLastPeriod()).isTrue();
+
+        // 平均等待超过目标值，或有线程正在等待，同样扩容；估计所需较多时直接扩到所需的1.25倍
+        assertThat(controller.decide(Sizing.initial(20), 20, window(6, 0, 10, 20), 0, 32).size()).isEqualTo(40);
+        assertThat(controller.decide(Sizing.initial(20), 20, window(0, 0, 10, 20), 3, 0).size()).isEqualTo(25);
+        assertThat(controller.decide(Sizing.initial(48), 48, window(0, 1, 10, 48), 0, 10).size()).isEqualTo(50);
+
+        Sizing atMax = controller.decide(Sizing.initial(50), 50, window(0, 1, 10, 50), 0, 100);
+        assertThat(atMax.resize()).isEqualTo(Resize.NONE);
+        assertThat(atMax.size()).isEqualTo(50);
+    }
+
+    @Test
+    void saturationAfterGrowthRollsBack() {
+        // 不等待的周期记下平时的占用时间
+        Sizing calm = controller.decide(Sizing.initial(20), 20, window(0, 0, 10, 15), 0, 10);
+        assertThat(calm.baselineUsageMillis()).isEqualTo(10);
+
+        Sizing grown = controller.decide(calm, 20, window(0, 1, 10, 20), 0, 10);
+        assertThat(grown.size()).isEqualTo(25);
+
+        // 扩容后仍在等待，连接占用时间翻了两倍以上
+        Sizing rolledBack = controller.decide(grown, 25, window(0, 1, 30, 25), 0, 30);
+        assertThat(rolledBack.resize()).isEqualTo(Resize.ROLLBACK);
+        assertThat(rolledBack.size()).isEqualTo(20);
+        assertThat(rolledBack.grewLastPeriod()).isFalse();
+        assertThat(rolledBack.baselineUsageMillis()).isEqualTo(10);
+
+        // 退回之后仍然饱和时保持不变，不再扩容
+        Sizing held = controller.decide(rolledBack, 20, window(0, 1, 30, 20), 0, 30);
+        assertThat(held.resize()).isEqualTo(Resize.NONE);
+        assertThat(held.size()).isEqualTo(20);
+    }
+
+    @Test
+    void saturationWithoutPriorGrowthKeepsSize() {
+        Sizing calm = controller.decide(Sizing.initial(20), 20, window(0, 0, 10, 15), 0, 10);
+
+        Sizing saturated = controller.decide(calm, 20, window(0, 1, 30, 20), 0, 30);
+
+        assertThat(saturated.resize()).isEqualTo(Resize.NONE);
+        assertThat(saturated.size()).isEqualTo(20);
+    }
+
+    @Test
+    void shrinksAfterThreeCalmPeriods() {
+        Sizing sizing = Sizing.initial(20);
+        for (int period = 1; period < 3; period++) {
+            sizing = controller.decide(sizing, 20, window(0, 0, 10, 2), 0, 1);
+            assertThat(sizing.resize()).isEqualTo(Resize.NONE);
+            assertThat(sizing.calmPeriods()).isEqualTo(period);
+        }
+
+        sizing = controller.decide(sizing, 20, window(0, 0, 10, 2), 0, 1);
+
+        assertThat(sizing.resize()).isEqualTo(Resize.SHRINK);
+        assertThat(sizing.size()).isEqualTo(15);
+        assertThat(sizing.calmPeriods()).isZero();
+    }
+
+    @Test
+    void busyPeriodResetsCalmCount() {
+        Sizing sizing = Sizing.initial(20);
+        sizing = controller.decide(sizing, 20, window(0, 0, 10, 2), 0, 1);
+        sizing = controller.decide(sizing, 20, window(0, 0, 10, 2), 0, 1);
+
+        sizing = controller.decide(sizing, 20, window(0, 0, 10, 10), 0, 5);
+        assertThat(sizing.calmPeriods()).isZero();
+
+        sizing = controller.decide(sizing, 20, window(0, 0, 10, 2), 0, 1);
+        assertThat(sizing.resize()).isEqualTo(Resize.NONE);
+        assertThat(sizing.size()).isEqualTo(20);
+    }
+
+    @Test
+    void shrinkIsFlooredAtMinSizeAndNeverGrows() {
+        assertThat(shrinkAfterCalmPeriods(6, 0, 0)).isEqualTo(5);
+        assertThat(shrinkAfterCalmPeriods(5, 0, 0)).isEqualTo(5);
+        // 不少于峰值和估计所需的1.25倍
+        assertThat(shrinkAfterCalmPeriods(40, 16, 4)).isEqualTo(30);
+        assertThat(shrinkAfterCalmPeriods(40, 4, 28)).isEqualTo(35);
+        // 借出峰值不高但估计所需超过当前大小时保持不变
+        assertThat(shrinkAfterCalmPeriods(20, 2, 30)).isEqualTo(20);
+    }
+
+    /**
+     * 连续三个周期借出峰值为peak，返回第三个周期之后的最大连接数
+     */
+    private int shrinkAfterCalmPeriods(int size, int peak, double demand) {
+        Sizing sizing = Sizing.initial(size);
+        for (int period = 0; period < 3; period++) {
+            sizing = controller.decide(sizing, size, window(0, 0, 10, peak), 0, demand);
+        }
+        assertThat(sizing.resize()).isEqualTo(sizing.size() < size ? Resize.SHRINK : Resize.NONE);
+        return sizing.size();
+    }
+
+    /**
+     * 100次借出，每次平均等待waitMillis、占用usageMillis
+     */
+    private static PoolSignals.Window window(long waitMillis, long timeouts, long usageMillis, int peakInUse) {
+        return new PoolSignals.Window(100, waitMillis * 1_000_000 * 100, waitMillis * 1_000_000, timeouts,
+                100, usageMillis * 100, peakInUse, Map.of());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example1.springbootdemo.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesFilterTests {
+
+    private static final long MAX_AGE_MILLIS = 5000;
+
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(MAX_AGE_MILLIS);
+
+    @Test
+    void writeReadsFromPrimaryAndSetsCookie() throws Exception {
+        List<Long> seen = new ArrayList<>();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        long before = System.currentTimeMillis();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/todos"), response, recordRequiredTime(seen));
+
+        assertThat(seen).containsExactly(ReadYourWrites.PRIMARY_ONLY);
+        Cookie cookie = response.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertThat(cookie).isNotNull();
+        assertThat(Long.parseLong(cookie.getValue())).isGreaterThanOrEqualTo(before);
+        assertThat(cookie.getMaxAge()).isEqualTo(5);
+        assertThat(ReadYourWrites.requiredTime()).isZero();
+    }
+
+    @Test
+    void failedWriteSetsNoCookie() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("PUT", "/api/todos/1"), response,
+                (req, res) -> ((HttpServletResponse) res).setStatus(HttpServletResponse.SC_CONFLICT));
+
+        assertThat(response.getCookie(ReadYourWritesFilter.COOKIE_NAME)).isNull();
+    }
+
+    @Test
+    void laterReadsCarryTheWriteTime() throws Exception {
+        MockHttpServletResponse written = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("DELETE", "/api/todos/1"), written, (req, res) -> { });
+        Cookie cookie = written.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        List<Long> seen = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest read = new MockHttpServletRequest("GET", "/api/todos");
+            read.setCookies(cookie);
+            filter.doFilter(read, new MockHttpServletResponse(), recordRequiredTime(seen));
+        }
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/todos"), new MockHttpServletResponse(),
+                recordRequiredTime(seen));
+
+        long writeTime = Long.parseLong(cookie.getValue());
+        assertThat(seen).containsExactly(writeTime, writeTime, 0L);
+    }
+
+    @Test
+    void expiredOrInvalidCookieIsIgnored() throws Exception {
+        List<Long> seen = new ArrayList<>();
+        for (String value : List.of(String.valueOf(System.currentTimeMillis() - MAX_AGE_MILLIS - 1000), "abc")) {
+            MockHttpServletRequest read = new MockHttpServletRequest("GET", "/api/todos");
+            read.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, value));
+            filter.doFilter(read, new MockHttpServletResponse(), recordRequiredTime(seen));
+        }
+
+        assertThat(seen).containsExactly(0L, 0L);
+    }
+
+    @Test
+    void asyncProcessingKeepsRequiredTime() throws Exception {
+        ReadYourWritesCallableInterceptor interceptor = new ReadYourWritesCallableInterceptor();
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest("GET", "/api/todos/export"));
+        Callable<Long> task = ReadYourWrites::requiredTime;
+        ReadYourWrites.begin(1234);
+        try {
+            interceptor.beforeConcurrentHandling(request, task);
+        } finally {
+            ReadYourWrites.end();
+        }
+
+        long[] afterTask = new long[1];
+        long seen = CompletableFuture.supplyAsync(() -> {
+            try {
+                interceptor.preProcess(request, task);
+                long result = task.call();
+                interceptor.postProcess(request, task, result);
+                afterTask[0] = ReadYourWrites.requiredTime();
+                return result;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).get();
+
+        assertThat(seen).isEqualTo(1234);
+        assertThat(afterTask[0]).isZero();
+    }
+
+    private static FilterChain recordRequiredTime(List<Long> seen) {
+        return (request, response) -> seen.add(ReadYourWrites.requiredTime());
+    }
+}
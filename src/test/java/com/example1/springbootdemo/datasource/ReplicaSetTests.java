@@ -0,0 +1,153 @@
+package com.example1.springbootdemo.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 主库和一个只读副本都是H2内存库，由测试手动调用LocalH2Replication控制复制进度
+ */
+class ReplicaSetTests {
+
+    private static final Duration MAX_LAG = Duration.ofMillis(500);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private ReplicaSet replicaSet;
+    private LocalH2Replication replication;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        String primaryUrl = "jdbc:h2:mem:primary-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        replicaSet = new ReplicaSet(pool(primaryUrl), Map.of("replica-1", pool("jdbc:h2:mem:replica-"
+                + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1")), MAX_LAG, Duration.ofMillis(100));
+        replicaSet.bindTo(registry);
+        replication = new LocalH2Replication(replicaSet, primaryUrl, "sa", "");
+        execute(replicaSet.primary(), "CREATE TABLE todo (id BIGINT PRIMARY KEY, content VARCHAR(100))");
+    }
+
+    @AfterEach
+    void tearDown() {
+        replicaSet.destroy();
+    }
+
+    @Test
+    void readsGoToPrimaryUntilReplicaHasHeartbeat() throws SQLException {
+        replicaSet.check();
+
+        assertThat(replicaSet.selectForRead(0)).isEqualTo(ReplicaSet.PRIMARY);
+        assertThat(fallbacks("no-available-replica")).isEqualTo(1);
+
+        replicate();
+        assertThat(replicaSet.selectForRead(0)).isEqualTo("replica-1");
+        assertThat(replicaReads()).isEqualTo(1);
+    }
+
+    @Test
+    void writeNotYetReplicatedIsReadFromPrimary() throws Exception {
+        execute(replicaSet.primary(), "INSERT INTO todo VALUES (1, 'first')");
+        replicate();
+        // 心跳以毫秒记录，隔开几毫秒，写入时间一定晚于已复制的心跳、早于下一次心跳
+        Thread.sleep(5);
+        execute(replicaSet.primary(), "INSERT INTO todo VALUES (2, 'second')");
+        long lastWrite = System.currentTimeMillis();
+        Thread.sleep(5);
+
+        String target = replicaSet.selectForRead(lastWrite);
+
+        assertThat(target).isEqualTo(ReplicaSet.PRIMARY);
+        assertThat(count(dataSource(target))).isEqualTo(2);
+        assertThat(count(dataSource("replica-1"))).isEqualTo(1);
+        assertThat(fallbacks("read-your-writes")).isEqualTo(1);
+
+        // 复制追上之后，同一个要求可以由副本满足
+        replicate();
+        target = replicaSet.selectForRead(lastWrite);
+        assertThat(target).isEqualTo("replica-1");
+        assertThat(count(dataSource(target))).isEqualTo(2);
+    }
+
+    @Test
+    void stoppedReplicationTakesReplicaOutAfterMaxLag() throws Exception {
+        replicate();
+        assertThat(replicaSet.selectForRead(0)).isEqualTo("replica-1");
+
+        // 复制停止后主库的心跳继续前进，副本上的心跳不再变化
+        Thread.sleep(MAX_LAG.toMillis() + 100);
+        replicaSet.check();
+
+        assertThat(replicaSet.selectForRead(0)).isEqualTo(ReplicaSet.PRIMARY);
+        assertThat(fallbacks("no-available-replica")).isEqualTo(1);
+
+        replicate();
+        assertThat(replicaSet.selectForRead(0)).isEqualTo("replica-1");
+    }
+
+    @Test
+    void primaryOnlyGoesToPrimaryWithoutCountingFallback() throws SQLException {
+        replicate();
+
+        assertThat(replicaSet.selectForRead(ReadYourWrites.PRIMARY_ONLY)).isEqualTo(ReplicaSet.PRIMARY);
+        assertThat(fallbacks("read-your-writes")).isZero();
+        assertThat(fallbacks("no-available-replica")).isZero();
+        assertThat(replicaReads()).isZero();
+    }
+
+    /**
+     * 写入心跳、复制到副本、再检查一次：副本读到复制时的心跳
+     */
+    private void replicate() {
+        replicaSet.check();
+        replication.replicate();
+        replicaSet.check();
+    }
+
+    private DataSource dataSource(String name) {
+        return name.equals(ReplicaSet.PRIMARY) ? replicaSet.primary() : replicaSet.replicas().get(name);
+    }
+
+    private double fallbacks(String reason) {
+        return registry.get("todo.db.routing.reads").tag("target", ReplicaSet.PRIMARY).tag("reason", reason)
+                .functionCounter().count();
+    }
+
+    private double replicaReads() {
+        return registry.get("todo.db.routing.reads").tag("target", "replica-1").functionCounter().count();
+    }
+
+    private static HikariDataSource pool(String url) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(url);
+        pool.setUsername("sa");
+        pool.setPassword("");
+        pool.setMaximumPoolSize(2);
+        return pool;
+    }
+
+    private static void execute(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long count(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM todo")) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example1.springbootdemo.datasource;
+
+import com.example1.springbootdemo.id.SnowflakeIdGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * 分片映射，连接池只创建不连接
+ */
+class ShardSetTests {
+
+    private static final Instant SECOND_START = Instant.parse("2026-01-01T00:00:00Z");
+    private static final Instant THIRD_START = Instant.parse("2026-07-01T00:00:00Z");
+
+    private static final long SECOND = SnowflakeIdGenerator.minIdAt(SECOND_START);
+    private static final long THIRD = SnowflakeIdGenerator.minIdAt(THIRD_START);
+
+    @Test
+    void hashSpreadsSnowflakeIdsEvenly() {
+        ShardSet shards = new ShardSet(pools(4), ShardSet.Strategy.HASH, List.of());
+        int[] counts = new int[4];
+        // 低并发时序号总是0，ID只有毫秒数不同
+        for (long millis = 0; millis < 40_000; millis++) {
+            long id = SnowflakeIdGenerator.minIdAt(SECOND_START.plusMillis(millis));
+            int shard = shards.shardOf(id);
+            assertThat(shard).isEqualTo(shards.shardOf(id));
+            counts[shard]++;
+        }
+
+        for (int count : counts) {
+            assertThat(count).isBetween(9_000, 11_000);
+        }
+    }
+
+    @Test
+    void hashHandlesExtremeIdsAndScansAllShards() {
+        ShardSet shards = new ShardSet(pools(3), ShardSet.Strategy.HASH, List.of());
+
+        for (long id : new long[]{0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE}) {
+            assertThat(shards.shardOf(id)).as("id %d", id).isBetween(0, 2);
+        }
+        assertThat(shards.shardsBetween(SECOND, SECOND + 1)).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void rangeShardOfAtBoundaries() {
+        ShardSet shards = rangeShards();
+
+        assertThat(shards.shardOf(0)).isZero();
+        assertThat(shards.shardOf(SECOND - 1)).isZero();
+        assertThat(shards.shardOf(SECOND)).isEqualTo(1);
+        assertThat(shards.shardOf(THIRD - 1)).isEqualTo(1);
+        assertThat(shards.shardOf(THIRD)).isEqualTo(2);
+        assertThat(shards.shardOf(Long.MAX_VALUE)).isEqualTo(2);
+        assertThat(shards.shardOf(Long.MIN_VALUE)).isZero();
+    }
+
+    @Test
+    void rangeShardsBetweenSkipsDisjointShards() {
+        ShardSet shards = rangeShards();
+
+        // 区间为(afterId, maxId]
+        assertThat(shards.shardsBetween(0, Long.MAX_VALUE)).containsExactly(0, 1, 2);
+        assertThat(shards.shardsBetween(SECOND - 1, THIRD - 1)).containsExactly(1);
+        assertThat(shards.shardsBetween(SECOND - 2, THIRD - 1)).containsExactly(0, 1);
+        assertThat(shards.shardsBetween(SECOND - 1, THIRD)).containsExactly(1, 2);
+        assertThat(shards.shardsBetween(0, SECOND - 1)).containsExactly(0);
+        assertThat(shards.shardsBetween(THIRD - 1, Long.MAX_VALUE)).containsExactly(2);
+        assertThat(shards.shardsBetween(THIRD, THIRD + 100)).containsExactly(2);
+    }
+
+    @Test
+    void rangeStartsMustMatchShardsAndIncrease() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new ShardSet(pools(3), ShardSet.Strategy.RANGE, List.of(SECOND_START)));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new ShardSet(pools(3), ShardSet.Strategy.RANGE, List.of(THIRD_START, SECOND_START)));
+        // 早于ID起始时间的范围都从ID 0开始，无法区分
+        assertThatIllegalArgumentException().isThrownBy(() -> new ShardSet(pools(3), ShardSet.Strategy.RANGE,
+                List.of(Instant.parse("2020-01-01T00:00:00Z"), Instant.parse("2021-01-01T00:00:00Z"))));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new ShardSet(Map.of(), ShardSet.Strategy.HASH, List.of()));
+    }
+
+    private static ShardSet rangeShards() {
+        return new ShardSet(pools(3), ShardSet.Strategy.RANGE, List.of(SECOND_START, THIRD_START));
+    }
+
+    private static Map<String, HikariDataSource> pools(int count) {
+        Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            pools.put("shard-" + i, new HikariDataSource());
+        }
+        return pools;
+    }
+}
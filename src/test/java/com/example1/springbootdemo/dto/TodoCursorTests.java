@@ -0,0 +1,97 @@
+package com.example1.springbootdemo.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class TodoCursorTests {
+
+    private static final LocalDateTime CREATE_TIME = LocalDateTime.of(2024, 3, 1, 8, 30, 15, 123456000);
+
+    @Test
+    void createTimeCursorRoundTrips() {
+        TodoCursor cursor = TodoCursor.decode(TodoCursor.after(view(42L, 2), TodoSortField.CREATE_TIME, false).encode(),
+                TodoSortField.CREATE_TIME, false);
+
+        assertThat(cursor.getSortField()).isEqualTo(TodoSortField.CREATE_TIME);
+        assertThat(cursor.isAscending()).isFalse();
+        assertThat(cursor.getCreateTime()).isEqualTo(CREATE_TIME);
+        assertThat(cursor.getPriority()).isNull();
+        assertThat(cursor.getId()).isEqualTo(42L);
+    }
+
+    @Test
+    void priorityCursorRoundTripsWithAndWithoutPriority() {
+        TodoCursor withPriority = TodoCursor.decode(TodoCursor.after(view(7L, 3), TodoSortField.PRIORITY, true).encode(),
+                TodoSortField.PRIORITY, true);
+        assertThat(withPriority.getPriority()).isEqualTo(3);
+        assertThat(withPriority.getCreateTime()).isNull();
+        assertThat(withPriority.getId()).isEqualTo(7L);
+
+        // 未设置优先级的任务排在最前（升序）或最后（降序），游标中记为空
+        String token = TodoCursor.after(view(8L, null), TodoSortField.PRIORITY, false).encode();
+        TodoCursor withoutPriority = TodoCursor.decode(token, TodoSortField.PRIORITY, false);
+        assertThat(withoutPriority.getPriority()).isNull();
+        assertThat(withoutPriority.getId()).isEqualTo(8L);
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String token = TodoCursor.after(view(Long.MAX_VALUE, 1), TodoSortField.CREATE_TIME, true).encode();
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void cursorFromAnotherSortOrderIsRejected() {
+        String token = TodoCursor.after(view(42L, 2), TodoSortField.CREATE_TIME, false).encode();
+
+        assertThatIllegalArgumentException().isThrownBy(() -> TodoCursor.decode(token, TodoSortField.CREATE_TIME, true))
+                .withMessageContaining("不匹配");
+        assertThatIllegalArgumentException().isThrownBy(() -> TodoCursor.decode(token, TodoSortField.PRIORITY, false))
+                .withMessageContaining("不匹配");
+    }
+
+    @Test
+    void tamperedCursorIsRejected() {
+        for (String raw : new String[]{
+                "v2|createTime|desc|2024-03-01T08:30:15.123456|42",
+                "v1|title|desc|2024-03-01T08:30:15.123456|42",
+                "v1|createTime|DESC|2024-03-01T08:30:15.123456|42",
+                "v1|createTime|desc|2024-03-01 08:30|42",
+                "v1|createTime|desc||42",
+                "v1|createTime|desc|2024-03-01T08:30:15.123456|abc",
+                "v1|createTime|desc|2024-03-01T08:30:15.123456|",
+                "v1|createTime|desc|2024-03-01T08:30:15.123456|42|1",
+                "v1|createTime|desc|2024-03-01T08:30:15.123456"}) {
+            assertThatIllegalArgumentException().as(raw)
+                    .isThrownBy(() -> TodoCursor.decode(encode(raw), TodoSortField.CREATE_TIME, false))
+                    .withMessage("无效的分页游标");
+        }
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> TodoCursor.decode(encode("v1|priority|asc|high|42"), TodoSortField.PRIORITY, true))
+                .withMessage("无效的分页游标");
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        for (String token : new String[]{"", "不是游标", "abc$%", "a"}) {
+            assertThatIllegalArgumentException().as(token)
+                    .isThrownBy(() -> TodoCursor.decode(token, TodoSortField.CREATE_TIME, false))
+                    .withMessage("无效的分页游标");
+        }
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static TodoView view(Long id, Integer priority) {
+        return new TodoView(id, "任务", null, false, priority, CREATE_TIME, CREATE_TIME, 0L, TodoField.ALL);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example1.springbootdemo.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class SnowflakeIdGeneratorTests {
+
+    private static final long START = Instant.parse("2026-06-01T00:00:00Z").toEpochMilli();
+
+    private final AtomicLong clock = new AtomicLong(START);
+
+    private final SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, clock::get);
+
+    @Test
+    void idCarriesTimeWorkerAndSequence() {
+        long id = generator.nextId();
+
+        assertThat(millis(id)).isEqualTo(START - SnowflakeIdGenerator.EPOCH_MILLIS);
+        assertThat(worker(id)).isEqualTo(5);
+        assertThat(sequence(id)).isZero();
+        assertThat(id).isPositive().isLessThan(1L << 53);
+    }
+
+    @Test
+    void sequenceOverflowBorrowsNextMillisecond() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            ids.add(generator.nextId());
+        }
+
+        long base = START - SnowflakeIdGenerator.EPOCH_MILLIS;
+        // 时钟不动：每毫秒256个，第257个借用下一毫秒，序号从0开始
+        assertThat(sequence(ids.get(255))).isEqualTo(255);
+        assertThat(millis(ids.get(255))).isEqualTo(base);
+        assertThat(sequence(ids.get(256))).isZero();
+        assertThat(millis(ids.get(256))).isEqualTo(base + 1);
+        assertThat(millis(ids.get(599))).isEqualTo(base + 2);
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        assertThat(ids).allMatch(id -> worker(id) == 5);
+
+        // 实际时间追上借用的时间之前，继续在借用的毫秒内分配
+        clock.set(START + 1);
+        assertThat(millis(generator.nextId())).isEqualTo(base + 2);
+        clock.set(START + 10);
+        long caughtUp = generator.nextId();
+        assertThat(millis(caughtUp)).isEqualTo(base + 10);
+        assertThat(sequence(caughtUp)).isZero();
+    }
+
+    @Test
+    void clockGoingBackKeepsIdsIncreasing() {
+        long before = generator.nextId();
+        clock.set(START - 5_000);
+
+        long after = generator.nextId();
+
+        assertThat(after).isGreaterThan(before);
+        assertThat(millis(after)).isEqualTo(millis(before));
+        assertThat(sequence(after)).isEqualTo(sequence(before) + 1);
+    }
+
+    @Test
+    void concurrentCallersGetUniqueIncreasingIdsPerThread() {
+        SnowflakeIdGenerator realClock = new SnowflakeIdGenerator(1);
+        List<CompletableFuture<List<Long>>> threads = IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    for (int j = 0; j < 20_000; j++) {
+                        ids.add(realClock.nextId());
+                    }
+                    return ids;
+                }))
+                .toList();
+
+        Set<Long> all = new HashSet<>();
+        for (CompletableFuture<List<Long>> thread : threads) {
+            List<Long> ids = thread.join();
+            assertThat(ids).isSorted();
+            all.addAll(ids);
+        }
+        assertThat(all).hasSize(8 * 20_000);
+    }
+
+    @Test
+    void minIdAtBoundsIdsGeneratedFromThatTime() {
+        long boundary = SnowflakeIdGenerator.minIdAt(Instant.ofEpochMilli(START));
+
+        clock.set(START - 1);
+        assertThat(new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_WORKER_ID, clock::get).nextId())
+                .isLessThan(boundary);
+        assertThat(new SnowflakeIdGenerator(0, () -> START).nextId()).isEqualTo(boundary);
+        assertThat(SnowflakeIdGenerator.minIdAt(Instant.EPOCH)).isZero();
+    }
+
+    @Test
+    void workerIdMustFitFourBits() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new SnowflakeIdGenerator(-1));
+        assertThatIllegalArgumentException().isThrownBy(() -> new SnowflakeIdGenerator(16));
+    }
+
+    private static long millis(long id) {
+        return id >>> 12;
+    }
+
+    private static long worker(long id) {
+        return (id >>> 8) & 0xF;
+    }
+
+    private static long sequence(long id) {
+        return id & 0xFF;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example1.springbootdemo.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TodoRecordReaderTests {
+
+    @Test
+    void quoteInsideUnquotedFieldIsLiteral() throws IOException {
+        TodoRecordReader reader = csv("content,priority\nbuy 5\" screws,1\nnext,2\n", 100);
+
+        assertThat(reader.next()).isEqualTo("content,priority");
+        assertThat(reader.next()).isEqualTo("buy 5\" screws,1");
+        assertThat(reader.isUnclosedQuote()).isFalse();
+        assertThat(reader.next()).isEqualTo("next,2");
+        assertThat(reader.getLineNumber()).isEqualTo(3);
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void quotedFieldKeepsNewlinesAndEscapedQuotes() throws IOException {
+        TodoRecordReader reader = csv("\"line 1\nsay \"\"hi\"\", ok\",1\nnext,2", 100);
+
+        String record = reader.next();
+        assertThat(record).isEqualTo("\"line 1\nsay \"\"hi\"\", ok\",1");
+        assertThat(TodoCsv.parse(record)).containsExactly("line 1\nsay \"hi\", ok", "1");
+        assertThat(reader.getLineNumber()).isEqualTo(1);
+        assertThat(reader.next()).isEqualTo("next,2");
+        assertThat(reader.getLineNumber()).isEqualTo(3);
+    }
+
+    @Test
+    void crlfEndsRecordsAndStaysInsideQuotedFields() throws IOException {
+        TodoRecordReader reader = csv("a,1\r\n\"b\r\nc\",2\r\nd,3\r", 100);
+
+        assertThat(reader.next()).isEqualTo("a,1");
+        assertThat(reader.next()).isEqualTo("\"b\r\nc\",2");
+        assertThat(reader.getLineNumber()).isEqualTo(2);
+        assertThat(reader.next()).isEqualTo("d,3");
+        assertThat(reader.getLineNumber()).isEqualTo(4);
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void emptyQuotedFieldDoesNotOpenQuote() throws IOException {
+        TodoRecordReader reader = csv("\"\",1\nnext,2\n", 100);
+
+        assertThat(readAll(reader)).containsExactly("\"\",1", "next,2");
+    }
+
+    @Test
+    void unclosedQuoteIsCutAtFirstLineBreakAfterMaxLength() throws IOException {
+        TodoRecordReader reader = csv("\"never closed,1\nsecond,2\nthird,3\nfourth,4\n", 20);
+
+        reader.next();
+        assertThat(reader.isUnclosedQuote()).isTrue();
+        assertThat(reader.isTooLong()).isTrue();
+        assertThat(reader.next()).isEqualTo("third,3");
+        assertThat(reader.isUnclosedQuote()).isFalse();
+        assertThat(reader.getLineNumber()).isEqualTo(3);
+        assertThat(reader.next()).isEqualTo("fourth,4");
+    }
+
+    @Test
+    void unclosedQuoteAtEndOfInputIsReported() throws IOException {
+        TodoRecordReader reader = csv("ok,1\n\"open,2\nstill open", 100);
+
+        assertThat(reader.next()).isEqualTo("ok,1");
+        assertThat(reader.isUnclosedQuote()).isFalse();
+        assertThat(reader.next()).isEqualTo("\"open,2\nstill open");
+        assertThat(reader.isUnclosedQuote()).isTrue();
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void ndjsonIgnoresQuotes() throws IOException {
+        TodoRecordReader reader = new TodoRecordReader(
+                new StringReader("{\"content\":\"a\\\"\"}\n{\"content\":\"b\"}\n"), 100, false);
+
+        assertThat(readAll(reader)).containsExactly("{\"content\":\"a\\\"\"}", "{\"content\":\"b\"}");
+    }
+
+    @Test
+    void overlongRecordIsTruncatedAndRestSkipped() throws IOException {
+        TodoRecordReader reader = csv("0123456789abcdef\nnext\n", 10);
+
+        assertThat(reader.next()).isEqualTo("0123456789");
+        assertThat(reader.isTooLong()).isTrue();
+        assertThat(reader.next()).isEqualTo("next");
+        assertThat(reader.isTooLong()).isFalse();
+    }
+
+    private static TodoRecordReader csv(String input, int maxLength) {
+        return new TodoRecordReader(new StringReader(input), maxLength, true);
+    }
+
+    private static List<String> readAll(TodoRecordReader reader) throws IOException {
+        List<String> records = new ArrayList<>();
+        String record;
+        while ((record = reader.next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,202 @@
+package com.example1.springbootdemo.repository;
+
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoSortField;
+import com.example1.springbootdemo.dto.TodoView;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 组合条件查询和游标翻页
+ *
+ * 每种条件组合和排序方式都从第一页按游标翻到最后一页，拼接起来要与在内存中过滤、排序的结果完全一致：
+ * 数据中有相同的创建时间和优先级（排序键相同，靠ID区分）和未设置的优先级（NULL视为最小值），
+ * 翻页时不能重复或遗漏
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:filter;DB_CLOSE_DELAY=-1",
+        "todo.search.engine=database"
+})
+class TodoRepositoryFilterTests {
+
+    private static final int PAGE_SIZE = 4;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Row> rows = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("delete from todo");
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        List<Object[]> values = new ArrayList<>();
+        for (int i = 1; i <= 41; i++) {
+            // 每3条任务的创建时间相同，每5条中有一条没有优先级
+            LocalDateTime createTime = start.plusMinutes(i / 3);
+            Integer priority = i % 5 == 0 ? null : i % 4 + 1;
+            String content = switch (i % 6) {
+                case 0 -> "Buy milk";
+                case 1 -> "学习 Spring";
+                case 2 -> "打折 50%_OFF";
+                default -> "任务" + i;
+            };
+            String description = i % 7 == 0 ? "remember to BUY" : null;
+            Row row = new Row((long) i, content, description, i % 3 == 0, priority, createTime);
+            rows.add(row);
+            Timestamp time = Timestamp.valueOf(createTime);
+            values.add(new Object[]{row.id(), content, description, row.completed(), priority, time, time});
+        }
+        jdbcTemplate.batchUpdate("insert into todo (id, content, description, completed, priority, create_time, "
+                + "update_time, version) values (?, ?, ?, ?, ?, ?, ?, 0)", values);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from todo");
+    }
+
+    @Test
+    void everyFilterCombinationPagesThroughAllMatches() {
+        int combinations = 0;
+        for (Boolean completed : new Boolean[]{null, true, false}) {
+            for (Integer priority : new Integer[]{null, 2}) {
+                for (String keyword : new String[]{null, "buy", "50%_", "%"}) {
+                    for (TodoSortField sortField : TodoSortField.values()) {
+                        for (boolean ascending : new boolean[]{false, true}) {
+                            TodoFilter filter = new TodoFilter();
+                            filter.setCompleted(completed);
+                            filter.setPriority(priority);
+                            filter.setKeyword(keyword);
+                            filter.setSortField(sortField);
+                            filter.setAscending(ascending);
+
+                            assertThat(pageThrough(filter)).as(filter.toString()).isEqualTo(expected(filter));
+                            combinations++;
+                        }
+                    }
+                }
+            }
+        }
+        assertThat(combinations).isEqualTo(96);
+    }
+
+    @Test
+    void keywordMatchesContentOrDescriptionIgnoringCase() {
+        TodoFilter filter = TodoFilter.of(null, null, "  BUY ", "createTime", "asc");
+
+        List<Long> ids = pageThrough(filter);
+
+        assertThat(ids).isNotEmpty().isEqualTo(expected(filter));
+        assertThat(ids).contains(6L, 7L);
+    }
+
+    @Test
+    void likeWildcardsInKeywordAreLiteral() {
+        TodoFilter percent = TodoFilter.of(null, null, "%", "createTime", "asc");
+        TodoFilter underscore = TodoFilter.of(null, null, "0%_o", "createTime", "asc");
+
+        assertThat(pageThrough(percent)).isEqualTo(pageThrough(underscore))
+                .isEqualTo(rows.stream().filter(row -> row.content().contains("%")).map(Row::id).toList());
+    }
+
+    @Test
+    void fullLastPageIsFollowedByEmptyPage() {
+        TodoFilter filter = new TodoFilter();
+        filter.setCompleted(true);
+        List<TodoView> all = todoRepository.findViewsByFilter(filter, null, null, TodoField.SUMMARY);
+        assertThat(all).hasSize(13);
+
+        // 以最后一条记录为游标，不论它在时间相同的一组中的位置，之后都没有数据
+        TodoCursor afterLast = TodoCursor.after(all.get(all.size() - 1), filter.getSortField(), filter.isAscending());
+        assertThat(todoRepository.findViewsByFilter(filter, afterLast, PAGE_SIZE, TodoField.SUMMARY)).isEmpty();
+    }
+
+    @Test
+    void cursorOnSharedSortKeyContinuesWithinTheTie() {
+        TodoFilter filter = TodoFilter.of(null, null, null, "createTime", "desc");
+        // ID 3、4、5 的创建时间相同，降序时依次为 5、4、3
+        TodoView middle = todoRepository.findViewsByIds(List.of(4L), TodoField.ALL).get(0);
+
+        List<TodoView> next = todoRepository.findViewsByFilter(filter,
+                TodoCursor.after(middle, TodoSortField.CREATE_TIME, false), 3, TodoField.SUMMARY);
+
+        assertThat(next).extracting(TodoView::id).containsExactly(3L, 2L, 1L);
+    }
+
+    @Test
+    void priorityCursorCrossesIntoNullPriorities() {
+        TodoFilter descending = TodoFilter.of(null, null, null, "priority", "desc");
+        TodoFilter ascending = TodoFilter.of(null, null, null, "priority", "asc");
+        List<Long> nullPriorities = rows.stream().filter(row -> row.priority() == null).map(Row::id).toList();
+
+        // 降序时未设置优先级的任务在最后，升序时在最前
+        List<Long> descendingIds = pageThrough(descending);
+        assertThat(descendingIds.subList(descendingIds.size() - nullPriorities.size(), descendingIds.size()))
+                .isEqualTo(nullPriorities.reversed());
+        assertThat(pageThrough(ascending).subList(0, nullPriorities.size())).isEqualTo(nullPriorities);
+    }
+
+    /**
+     * 每页PAGE_SIZE条，以上一页最后一条记录生成游标，直到取不满一页
+     */
+    private List<Long> pageThrough(TodoFilter filter) {
+        List<Long> ids = new ArrayList<>();
+        TodoCursor cursor = null;
+        while (true) {
+            String token = cursor == null ? null : cursor.encode();
+            List<TodoView> page = todoRepository.findViewsByFilter(filter,
+                    token == null ? null : TodoCursor.decode(token, filter.getSortField(), filter.isAscending()),
+                    PAGE_SIZE, TodoField.SUMMARY);
+            page.forEach(view -> ids.add(view.id()));
+            if (page.size() < PAGE_SIZE) {
+                return ids;
+            }
+            cursor = TodoCursor.after(page.get(page.size() - 1), filter.getSortField(), filter.isAscending());
+        }
+    }
+
+    /**
+     * 在内存中按相同的语义过滤和排序：关键词忽略大小写匹配内容或描述，NULL优先级最小，排序键相同时按ID
+     */
+    private List<Long> expected(TodoFilter filter) {
+        Comparator<Row> order = filter.getSortField() == TodoSortField.PRIORITY
+                ? Comparator.comparing(Row::priority, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()))
+                : Comparator.comparing(Row::createTime);
+        order = order.thenComparing(Row::id);
+        return rows.stream()
+                .filter(row -> filter.getCompleted() == null || row.completed() == filter.getCompleted())
+                .filter(row -> filter.getPriority() == null || filter.getPriority().equals(row.priority()))
+                .filter(row -> filter.getKeyword() == null || contains(row.content(), filter.getKeyword())
+                        || contains(row.description(), filter.getKeyword()))
+                .sorted(filter.isAscending() ? order : order.reversed())
+                .map(Row::id)
+                .toList();
+    }
+
+    private static boolean contains(String text, String keyword) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(keyword.toLowerCase(Locale.ROOT));
+    }
+
+    private record Row(Long id, String content, String description, boolean completed, Integer priority,
+                       LocalDateTime createTime) {
+    }
+}
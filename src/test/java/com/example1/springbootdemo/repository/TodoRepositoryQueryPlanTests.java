@@ -0,0 +1,228 @@
+package com.example1.springbootdemo.repository;
+
+import com.example1.springbootdemo.config.QueryPlanVerifier;
+import com.example1.springbootdemo.dto.TodoCursor;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoSortField;
+import com.example1.springbootdemo.dto.TodoView;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.ChainListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * TodoRepository的查询计划
+ *
+ * 在有数据的表上调用仓库方法，记录Hibernate实际发出的SQL和绑定参数，再逐条交给QueryPlanVerifier检查，
+ * 要求都用上索引、不做全表扫描，带ORDER BY的语句有索引可以按顺序读取、不额外排序。
+ * 空表上H2总是选择全表扫描，所以先写入足够多的行并执行ANALYZE。
+ * 另外检查启动时的空跑检查在同样的数据上通过，缺少索引时按估计行数和阈值决定是否启动失败
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-plan;DB_CLOSE_DELAY=-1",
+        "todo.search.engine=database"
+})
+class TodoRepositoryQueryPlanTests {
+
+    private static final int ROWS = 20_000;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private QueryPlanVerifier queryPlanVerifier;
+
+    private final List<CapturedStatement> statements = new CopyOnWriteArrayList<>();
+
+    private final QueryExecutionListener capture = new QueryExecutionListener() {
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            for (QueryInfo queryInfo : queryInfoList) {
+                statements.add(new CapturedStatement(queryInfo.getQuery(), parameters(queryInfo)));
+            }
+        }
+    };
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("delete from todo");
+        LocalDateTime start = LocalDateTime.now().minusDays(30);
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int i = 1; i <= ROWS; i++) {
+            Timestamp time = Timestamp.valueOf(start.plusSeconds(i * 60L));
+            rows.add(new Object[]{(long) i, "任务" + i, i % 3 == 0, i % 10 == 0 ? null : i % 5 + 1, time, time});
+        }
+        jdbcTemplate.batchUpdate("insert into todo (id, content, completed, priority, create_time, update_time, version) "
+                + "values (?, ?, ?, ?, ?, ?, 0)", rows);
+        jdbcTemplate.execute("analyze");
+        chain().addListener(capture);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        chain().getListeners().remove(capture);
+        jdbcTemplate.update("delete from todo");
+    }
+
+    @Test
+    void repositoryQueriesUseIndexes() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Map<String, Runnable> calls = new LinkedHashMap<>();
+        calls.put("findByCompleted", () -> todoRepository.findByCompleted(true));
+        calls.put("findByPriority", () -> todoRepository.findByPriority(1));
+        calls.put("findByCompletedAndPriority", () -> todoRepository.findByCompletedAndPriority(true, 1));
+        calls.put("countByCompleted", () -> todoRepository.countByCompleted(true));
+        calls.put("findAllByOrderByCreateTimeDesc", () -> todoRepository.findAllByOrderByCreateTimeDesc());
+        calls.put("findAllByOrderByPriorityAsc", () -> todoRepository.findAllByOrderByPriorityAsc());
+        calls.put("findByIdGreaterThanOrderByIdAsc", () -> todoRepository.findByIdGreaterThanOrderByIdAsc(100L, Limit.of(500)));
+        calls.put("findCompletedKeys", () -> todoRepository.findCompletedKeys(0L, 5000L, Limit.of(1000)));
+        calls.put("findKeysBetween", () -> todoRepository.findKeysBetween(0L, 5000L, Limit.of(1000)));
+        calls.put("findKeyById", () -> todoRepository.findKeyById(42L));
+        calls.put("findViewsByIds", () -> todoRepository.findViewsByIds(List.of(3L, 1L, 2L), TodoField.SUMMARY));
+        calls.put("findExistingIds", () -> todoRepository.findExistingIds(List.of(1L, 2L, ROWS + 1L)));
+        calls.put("findMaxId", () -> todoRepository.findMaxId());
+        calls.put("countGroupByCompletedAndPriority", () -> todoRepository.countGroupByCompletedAndPriority());
+        for (TodoSortField sortField : TodoSortField.values()) {
+            for (boolean ascending : new boolean[]{false, true}) {
+                for (Boolean completed : new Boolean[]{null, false}) {
+                    for (Integer priority : new Integer[]{null, 2}) {
+                        TodoFilter filter = new TodoFilter();
+                        filter.setSortField(sortField);
+                        filter.setAscending(ascending);
+                        filter.setCompleted(completed);
+                        filter.setPriority(priority);
+                        calls.put("findViewsByFilter(" + filter.shapeKey(true, false) + ")", () -> listTwoPages(filter));
+                    }
+                }
+            }
+        }
+
+        List<String> violations = new ArrayList<>();
+        calls.forEach((method, call) -> {
+            statements.clear();
+            readOnly.executeWithoutResult(status -> call.run());
+            // 下面的EXPLAIN同样经过数据源，先取出仓库方法发出的语句
+            List<CapturedStatement> executed = List.copyOf(statements);
+            assertThat(executed).as(method).isNotEmpty();
+            for (CapturedStatement statement : executed) {
+                String problem = queryPlanVerifier.problem(statement.sql(), statement.parameters());
+                if (problem != null) {
+                    violations.add(method + " " + problem + ": " + statement.sql());
+                }
+            }
+        });
+        assertThat(violations).isEmpty();
+    }
+
+    /**
+     * 读取第一页，再用最后一条记录生成游标读取第二页
+     */
+    private void listTwoPages(TodoFilter filter) {
+        List<TodoView> first = todoRepository.findViewsByFilter(filter, null, 21, TodoField.SUMMARY);
+        TodoView last = first.get(first.size() - 1);
+        todoRepository.findViewsByFilter(filter, TodoCursor.after(last, filter.getSortField(), filter.isAscending()),
+                21, TodoField.SUMMARY);
+    }
+
+    @Test
+    void startupCheckPassesOnSeededTable() {
+        assertThat(queryPlanVerifier.verify()).isEmpty();
+
+        ReflectionTestUtils.setField(queryPlanVerifier, "fullScanThreshold", 1_000L);
+        queryPlanVerifier.run(null);
+    }
+
+    @Test
+    void startupCheckFailsOnFullScanOnlyAboveThreshold() {
+        jdbcTemplate.execute("drop index idx_todo_priority");
+        jdbcTemplate.execute("drop index idx_todo_priority_create_time");
+        try {
+            assertThat(queryPlanVerifier.verify()).anyMatch(violation -> violation.startsWith("findByPriority 全表扫描"));
+
+            ReflectionTestUtils.setField(queryPlanVerifier, "fullScanThreshold", 1_000L);
+            assertThatIllegalStateException().isThrownBy(() -> queryPlanVerifier.run(null))
+                    .withMessageContaining("findByPriority");
+
+            // 估计行数来自统计信息，没有超过阈值时只记录日志
+            ReflectionTestUtils.setField(queryPlanVerifier, "fullScanThreshold", (long) ROWS);
+            queryPlanVerifier.run(null);
+        } finally {
+            ReflectionTestUtils.setField(queryPlanVerifier, "fullScanThreshold", 10_000L);
+            jdbcTemplate.execute("create index idx_todo_priority on todo (priority, id)");
+            jdbcTemplate.execute("create index idx_todo_priority_create_time on todo (priority, create_time, id)");
+        }
+    }
+
+    @Test
+    void startupCheckDoesNotReadTheTable() {
+        statements.clear();
+
+        queryPlanVerifier.verify();
+
+        // 空跑的语句在执行之前被拦下，只有EXPLAIN和读取元数据的语句真正执行
+        assertThat(statements).isNotEmpty()
+                .allSatisfy(statement -> assertThat(statement.sql().toLowerCase(Locale.ROOT))
+                        .matches("(explain|select index_name|select row_count_estimate).*"));
+    }
+
+    private ChainListener chain() {
+        return (ChainListener) ((ProxyDataSource) dataSource).getProxyConfig().getQueryListener();
+    }
+
+    private static List<Object> parameters(QueryInfo queryInfo) {
+        List<Object> values = new ArrayList<>();
+        if (queryInfo.getParametersList().isEmpty()) {
+            return values;
+        }
+        List<ParameterSetOperation> operations = new ArrayList<>(queryInfo.getParametersList().get(0));
+        operations.sort(Comparator.comparingInt(operation -> (Integer) operation.getArgs()[0]));
+        for (ParameterSetOperation operation : operations) {
+            values.add(operation.getMethod().getName().equals("setNull") ? null : operation.getArgs()[1]);
+        }
+        return values;
+    }
+
+    private record CapturedStatement(String sql, List<Object> parameters) {
+    }
+}
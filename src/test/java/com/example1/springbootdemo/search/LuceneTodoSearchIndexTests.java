@@ -0,0 +1,97 @@
+package com.example1.springbootdemo.search;
+
+import com.example1.springbootdemo.dto.TodoFilter;
+import com.example1.springbootdemo.dto.TodoKey;
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.store.TodoStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LuceneTodoSearchIndexTests {
+
+    private final TodoStore store = mock(TodoStore.class);
+    private LuceneTodoSearchIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        index = new LuceneTodoSearchIndex();
+        ReflectionTestUtils.setField(index, "todoStore", store);
+        ReflectionTestUtils.setField(index, "maxResults", 3);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        index.destroy();
+    }
+
+    @Test
+    void keywordMatchesTokensNotSubstrings() {
+        index.index(todo(1, "学习Spring Boot", false));
+        index.index(todo(2, "learn java", false));
+
+        assertThat(ids("学习")).containsExactly(1L);
+        assertThat(ids("spring")).containsExactly(1L);
+        assertThat(ids("java")).containsExactly(2L);
+        assertThat(ids("ja")).isEmpty();
+    }
+
+    @Test
+    void unpagedListFailsInsteadOfTruncating() {
+        for (long id = 1; id <= 4; id++) {
+            index.index(todo(id, "学习 " + id, false));
+        }
+
+        assertThatThrownBy(() -> ids("学习")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(index.findIds(filter("学习"), null, 2)).hasSize(2);
+        assertThat(index.search("学习", 0, 10).getTotal()).isEqualTo(4);
+        assertThatThrownBy(() -> index.search("学习", 3, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rebuildKeepsChangesMadeAfterBatchWasRead() {
+        when(store.findBatchAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            List<Todo> batch = List.of(todo(1, "旧的内容", false), todo(2, "将被删除", false), todo(3, "将被完成", false));
+            // 批次读取之后、写入索引之前到达的写事件
+            index.index(todo(1, "新的内容", false));
+            index.remove(List.of(2L));
+            index.updateKey(new TodoKey(3L, true, 2, 1L));
+            return batch;
+        });
+
+        index.rebuild();
+
+        assertThat(ids("新的")).containsExactly(1L);
+        assertThat(ids("旧的")).isEmpty();
+        assertThat(ids("删除")).isEmpty();
+        assertThat(index.findIds(TodoFilter.of("completed", 2, "完成", null, null), null, null)).containsExactly(3L);
+    }
+
+    private List<Long> ids(String keyword) {
+        return index.findIds(filter(keyword), null, null);
+    }
+
+    private static TodoFilter filter(String keyword) {
+        return TodoFilter.of(null, null, keyword, null, null);
+    }
+
+    private static Todo todo(long id, String content, boolean completed) {
+        Todo todo = new Todo(content);
+        todo.setId(id);
+        todo.setCompleted(completed);
+        todo.setCreateTime(LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(id));
+        return todo;
+    }
+}
@@ -0,0 +1,260 @@
+package com.example1.springbootdemo.service;
+
+import com.example1.springbootdemo.dto.TodoChanges;
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.event.TodoUpdatedEvent;
+import com.example1.springbootdemo.event.TodosBulkDeletedEvent;
+import com.example1.springbootdemo.exception.TodoNotFoundException;
+import com.example1.springbootdemo.exception.TodoVersionMismatchException;
+import com.example1.springbootdemo.store.MemoryTodoStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class TodoServiceTests {
+
+    private final MemoryTodoStore store = spy(new MemoryTodoStore("", false));
+    private final List<Object> events = new ArrayList<>();
+    private final TodoService service = new TodoService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "todoStore", store);
+        ReflectionTestUtils.setField(service, "eventPublisher", (ApplicationEventPublisher) events::add);
+        ReflectionTestUtils.setField(service, "deleteChunkSize", 3);
+    }
+
+    @Test
+    void deleteCompletedWalksIdsInChunks() {
+        List<Long> ids = insert(10);
+        for (int i : new int[]{1, 2, 4, 6, 7, 8, 9}) {
+            complete(ids.get(i));
+        }
+
+        assertThat(service.deleteCompletedTodos()).isEqualTo(7);
+
+        assertThat(deletedChunks()).containsExactly(
+                List.of(ids.get(1), ids.get(2), ids.get(4)),
+                List.of(ids.get(6), ids.get(7), ids.get(8)),
+                List.of(ids.get(9)));
+        assertThat(store.findAll()).extracting(Todo::getId).containsExactly(ids.get(0), ids.get(3), ids.get(5));
+        InOrder order = inOrder(store);
+        order.verify(store).findCompletedKeys(0L, ids.get(9), 3);
+        order.verify(store).findCompletedKeys(ids.get(4), ids.get(9), 3);
+        order.verify(store).findCompletedKeys(ids.get(8), ids.get(9), 3);
+    }
+
+    @Test
+    void deleteCompletedSkipsTaskReopenedBeforeDelete() {
+        List<Long> ids = insert(4);
+        ids.forEach(this::complete);
+        // 选出之后、删除之前被并发改为未完成的任务不删除，之后的批次也不会再选中它
+        doAnswer(invocation -> {
+            Todo reopened = store.findById(ids.get(1)).orElseThrow();
+            reopened.setCompleted(false);
+            store.save(reopened);
+            return invocation.callRealMethod();
+        }).doCallRealMethod().when(store).deleteCompletedByIdIn(anyList());
+
+        assertThat(service.deleteCompletedTodos()).isEqualTo(3);
+
+        assertThat(deletedChunks()).containsExactly(List.of(ids.get(0), ids.get(2)), List.of(ids.get(3)));
+        assertThat(store.findAll()).extracting(Todo::getId).containsExactly(ids.get(1));
+    }
+
+    @Test
+    void deleteCompletedKeepsTasksCreatedMeanwhile() {
+        List<Long> ids = insert(4);
+        ids.forEach(this::complete);
+        List<Long> created = new ArrayList<>();
+        doAnswer(invocation -> {
+            if (created.isEmpty()) {
+                Todo todo = store.save(new Todo("执行期间新建"));
+                complete(todo.getId());
+                created.add(todo.getId());
+            }
+            return invocation.callRealMethod();
+        }).when(store).findCompletedKeys(anyLong(), anyLong(), anyInt());
+
+        assertThat(service.deleteCompletedTodos()).isEqualTo(4);
+
+        assertThat(store.findAll()).extracting(Todo::getId).containsExactlyElementsOf(created);
+    }
+
+    @Test
+    void deleteAllStopsAtMaxIdAtStart() {
+        List<Long> ids = insert(7);
+        doAnswer(invocation -> {
+            Long afterId = invocation.getArgument(0);
+            if (afterId == 0) {
+                store.save(new Todo("执行期间新建"));
+            }
+            return invocation.callRealMethod();
+        }).when(store).findKeysBetween(anyLong(), eq(ids.get(6)), anyInt());
+
+        assertThat(service.deleteAllTodos()).isEqualTo(7);
+
+        assertThat(deletedChunks()).hasSize(3);
+        assertThat(store.findAll()).extracting(Todo::getContent).containsExactly("执行期间新建");
+    }
+
+    @Test
+    void deleteOnEmptyStoreDoesNothing() {
+        assertThat(service.deleteCompletedTodos()).isZero();
+        assertThat(service.deleteAllTodos()).isZero();
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void keyUpdateRetriesWithFreshVersionAfterConcurrentChange() {
+        Long id = insertWithPriority(1);
+        // 第一次比较并交换之前，另一个请求切换了完成状态
+        doAnswer(invocation -> {
+            store.toggleCompleted(id, null, LocalDateTime.now());
+            return invocation.callRealMethod();
+        }).doCallRealMethod().when(store).updateFields(eq(id), anyMap(), any(), any());
+
+        TodoChanges result = service.updateTodoPriority(id, 3);
+
+        assertThat(result.changes().priority()).isEqualTo(3);
+        assertThat(result.version()).isEqualTo(2L);
+        verify(store, times(2)).updateFields(eq(id), anyMap(), any(), any());
+        Todo todo = store.findById(id).orElseThrow();
+        assertThat(todo.getPriority()).isEqualTo(3);
+        assertThat(todo.isCompleted()).isTrue();
+        assertThat(todo.getVersion()).isEqualTo(2L);
+        // 统计按重新读取的分组修改：之前是已完成、优先级1
+        TodoUpdatedEvent event = single(TodoUpdatedEvent.class);
+        assertThat(event.getPrevious().isCompleted()).isTrue();
+        assertThat(event.getPrevious().getPriority()).isEqualTo(1);
+        assertThat(event.getPrevious().getVersion()).isEqualTo(1L);
+        assertThat(event.getCurrent().isCompleted()).isTrue();
+        assertThat(event.getCurrent().getPriority()).isEqualTo(3);
+        assertThat(event.getCurrent().getVersion()).isEqualTo(2L);
+    }
+
+    @Test
+    void keyUpdateGivesUpAfterThreeConflicts() {
+        Long id = insertWithPriority(1);
+        doAnswer(invocation -> {
+            store.toggleCompleted(id, null, LocalDateTime.now());
+            return invocation.callRealMethod();
+        }).when(store).updateFields(eq(id), anyMap(), any(), any());
+
+        assertThatThrownBy(() -> service.markTodoAsCompleted(id))
+                .isInstanceOf(OptimisticLockingFailureException.class)
+                .hasMessageContaining(String.valueOf(id));
+
+        verify(store, times(3)).updateFields(eq(id), anyMap(), any(), any());
+        assertThat(events).noneMatch(TodoUpdatedEvent.class::isInstance);
+        assertThat(store.findById(id).orElseThrow().getPriority()).isEqualTo(1);
+    }
+
+    @Test
+    void keyUpdateWithExpectedVersionDoesNotRetry() {
+        Long id = insertWithPriority(1);
+        doAnswer(invocation -> {
+            store.toggleCompleted(id, null, LocalDateTime.now());
+            return invocation.callRealMethod();
+        }).when(store).updateFields(eq(id), anyMap(), any(), any());
+
+        assertThatThrownBy(() -> service.updateTodoFields(id, null, null, 2, null, 0L))
+                .isInstanceOf(TodoVersionMismatchException.class);
+
+        verify(store, times(1)).updateFields(eq(id), anyMap(), any(), any());
+    }
+
+    @Test
+    void staleExpectedVersionFailsBeforeWriting() {
+        Long id = insertWithPriority(1);
+        store.toggleCompleted(id, null, LocalDateTime.now());
+
+        assertThatThrownBy(() -> service.updateTodoFields(id, null, null, 2, null, 0L))
+                .isInstanceOf(TodoVersionMismatchException.class);
+
+        verify(store, never()).updateFields(any(), anyMap(), any(), any());
+    }
+
+    @Test
+    void textUpdateIsOneConditionalWrite() {
+        Long id = insertWithPriority(1);
+
+        assertThat(service.updateTodoFields(id, "新内容", null, null, null, 0L).version()).isEqualTo(1L);
+        verify(store, never()).findKeyById(any());
+
+        // 不带期望版本号时，在同一事务中读取新版本号
+        assertThat(service.updateTodoContent(id, "再次修改").version()).isEqualTo(2L);
+        verify(store, times(1)).findKeyById(id);
+        verify(store, times(2)).updateFields(eq(id), anyMap(), any(), any());
+        assertThat(events).filteredOn(TodoUpdatedEvent.class::isInstance).hasSize(2)
+                .allMatch(event -> !((TodoUpdatedEvent) event).isKeyChanged());
+    }
+
+    @Test
+    void textUpdateFailureTellsMissingFromStale() {
+        Long id = insertWithPriority(1);
+
+        assertThatThrownBy(() -> service.updateTodoFields(id, "新内容", null, null, null, 5L))
+                .isInstanceOf(TodoVersionMismatchException.class);
+        assertThatThrownBy(() -> service.updateTodoFields(id + 1, "新内容", null, null, null, 0L))
+                .isInstanceOf(TodoNotFoundException.class);
+        assertThatThrownBy(() -> service.updateTodoContent(id + 1, "新内容"))
+                .isInstanceOf(TodoNotFoundException.class);
+        assertThat(events).noneMatch(TodoUpdatedEvent.class::isInstance);
+    }
+
+    private Long insertWithPriority(int priority) {
+        Todo todo = new Todo("并发修改");
+        todo.setPriority(priority);
+        return store.save(todo).getId();
+    }
+
+    private <T> T single(Class<T> type) {
+        List<T> matching = events.stream().filter(type::isInstance).map(type::cast).toList();
+        assertThat(matching).hasSize(1);
+        return matching.get(0);
+    }
+
+    private List<Long> insert(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(store.save(new Todo("任务" + i)).getId());
+        }
+        return ids;
+    }
+
+    private void complete(Long id) {
+        Todo todo = store.findById(id).orElseThrow();
+        todo.setCompleted(true);
+        store.save(todo);
+    }
+
+    private List<List<Long>> deletedChunks() {
+        return events.stream()
+                .filter(TodosBulkDeletedEvent.class::isInstance)
+                .map(event -> ((TodosBulkDeletedEvent) event).getIds())
+                .toList();
+    }
+}
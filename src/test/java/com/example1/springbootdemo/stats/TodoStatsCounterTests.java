@@ -0,0 +1,94 @@
+package com.example1.springbootdemo.stats;
+
+import com.example1.springbootdemo.entity.Todo;
+import com.example1.springbootdemo.event.TodoSavedEvent;
+import com.example1.springbootdemo.store.TodoStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TodoStatsCounterTests {
+
+    private final TodoStore store = mock(TodoStore.class);
+    private final TodoStatsCounter counter = new TodoStatsCounter();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(counter, "todoStore", store);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void reconcileWaitsForCommittedButUnappliedWrite() {
+        TransactionSynchronizationManager.initSynchronization();
+        counter.onSaved(new TodoSavedEvent(null, todo(false, 2)));
+        // 事务已经提交，对账查询能看到这条任务，但增量还没有应用
+        when(store.countGroupByCompletedAndPriority()).thenReturn(rows(new Object[]{false, 2, 1L}));
+
+        counter.reconcile();
+        assertThat(counter.getStats().getTotal()).isZero();
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(counter.getStats().getTotal()).isEqualTo(1);
+
+        counter.reconcile();
+        assertThat(counter.getStats().getTotal()).isEqualTo(1);
+        assertThat(counter.getStats().getByPriority().get("2").getIncomplete()).isEqualTo(1);
+    }
+
+    @Test
+    void rolledBackWriteIsNotCounted() {
+        TransactionSynchronizationManager.initSynchronization();
+        counter.onSaved(new TodoSavedEvent(null, todo(true, 1)));
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(counter.getStats().getTotal()).isZero();
+
+        when(store.countGroupByCompletedAndPriority()).thenReturn(rows(new Object[]{true, null, 3L}));
+        counter.reconcile();
+        assertThat(counter.getStats().getCompleted()).isEqualTo(3);
+        assertThat(counter.getStats().getByPriority().get("none").getCompleted()).isEqualTo(3);
+    }
+
+    @Test
+    void writeOutsideTransactionIsAppliedImmediately() {
+        counter.onSaved(new TodoSavedEvent(null, todo(false, null)));
+
+        assertThat(counter.getStats().getIncomplete()).isEqualTo(1);
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            synchronization.afterCompletion(status);
+        }
+    }
+
+    private static Todo todo(boolean completed, Integer priority) {
+        Todo todo = new Todo("任务");
+        todo.setCompleted(completed);
+        todo.setPriority(priority);
+        return todo;
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+}
@@ -0,0 +1,185 @@
+package com.example1.springbootdemo.store;
+
+import com.example1.springbootdemo.entity.Todo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 持久化的MemoryTodoStore在同一个目录上重新打开后的恢复：快照、之后的日志，以及日志尾部没有写完或损坏的记录
+ */
+class MemoryTodoStoreRecoveryTests {
+
+    @TempDir
+    Path directory;
+
+    private final List<MemoryTodoStore> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeStores() throws IOException {
+        for (MemoryTodoStore store : opened) {
+            store.destroy();
+        }
+    }
+
+    @Test
+    void reopenRestoresTodosAndContinuesIds() throws IOException {
+        MemoryTodoStore store = open(false);
+        Todo first = store.save(todo("第一条", "描述", 2));
+        Todo second = store.save(todo("第二条", null, null));
+        Todo third = store.save(todo("第三条", "将被删除", 1));
+        second.setCompleted(true);
+        second.setPriority(3);
+        store.save(second);
+        store.updateFields(first.getId(), Map.of("content", "第一条已修改"), first.getVersion(), LocalDateTime.now());
+        store.deleteById(third.getId());
+        List<Todo> before = store.findAll();
+        close(store);
+
+        MemoryTodoStore reopened = open(false);
+
+        assertThat(reopened.findAll()).usingRecursiveFieldByFieldElementComparator().isEqualTo(before);
+        assertThat(reopened.findById(third.getId())).isEmpty();
+        assertThat(reopened.findMaxId()).isEqualTo(second.getId());
+        // 删除的ID不复用，新任务的ID接在恢复前分配过的ID之后
+        assertThat(reopened.save(todo("第四条", null, null)).getId()).isEqualTo(third.getId() + 1);
+    }
+
+    @Test
+    void snapshotOnShutdownReplacesLogs() throws IOException {
+        MemoryTodoStore store = open(true);
+        store.save(todo("第一条", null, 1));
+        store.save(todo("第二条", "描述", null));
+        List<Todo> before = store.findAll();
+        close(store);
+
+        assertThat(SnapshotFile.sequences(directory)).hasSize(1);
+        assertThat(WriteAheadLog.sequences(directory)).containsExactly(SnapshotFile.sequences(directory).get(0));
+
+        assertThat(open(true).findAll()).usingRecursiveFieldByFieldElementComparator().isEqualTo(before);
+    }
+
+    @Test
+    void snapshotPlusLaterLogIsReplayed() throws IOException {
+        MemoryTodoStore store = open(false);
+        Todo first = store.save(todo("快照前一", null, 1));
+        Todo second = store.save(todo("快照前二", null, 2));
+        Todo third = store.save(todo("快照前三", null, 3));
+        store.snapshot();
+        long snapshotSequence = SnapshotFile.sequences(directory).get(0);
+        assertThat(WriteAheadLog.sequences(directory)).containsExactly(snapshotSequence);
+
+        // 快照之后的修改只在新的日志文件中
+        first.setContent("快照后修改");
+        store.save(first);
+        store.deleteById(second.getId());
+        Todo fourth = store.save(todo("快照后新建", "描述", null));
+        List<Todo> before = store.findAll();
+        close(store);
+
+        MemoryTodoStore reopened = open(false);
+
+        assertThat(reopened.findAll()).usingRecursiveFieldByFieldElementComparator().isEqualTo(before);
+        assertThat(reopened.findAll()).extracting(Todo::getId).containsExactly(first.getId(), third.getId(), fourth.getId());
+        assertThat(reopened.findById(first.getId()).orElseThrow().getVersion()).isEqualTo(1);
+        assertThat(SnapshotFile.sequences(directory)).containsExactly(snapshotSequence);
+    }
+
+    @Test
+    void truncatedLastRecordIsDroppedAndCut() throws IOException {
+        MemoryTodoStore store = open(false);
+        Todo kept = store.save(todo("完整写入", null, 1));
+        Path log = currentLog();
+        long complete = Files.size(log);
+        kept.setContent("只写了一部分");
+        store.save(kept);
+        close(store);
+        // 模拟崩溃时最后一条记录只写入了一部分
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        MemoryTodoStore reopened = open(false);
+
+        assertThat(Files.size(log)).isEqualTo(complete);
+        Todo recovered = reopened.findById(kept.getId()).orElseThrow();
+        assertThat(recovered.getContent()).isEqualTo("完整写入");
+        assertThat(recovered.getVersion()).isZero();
+        assertRecoveredStoreAcceptsWrites(reopened, recovered);
+    }
+
+    @Test
+    void recordWithChecksumMismatchIsDropped() throws IOException {
+        MemoryTodoStore store = open(false);
+        Todo first = store.save(todo("第一条", null, 1));
+        Path log = currentLog();
+        long complete = Files.size(log);
+        Todo second = store.save(todo("第二条", null, 2));
+        close(store);
+        // 记录长度完整，但正文的最后一个字节被改写
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            last.put(0, (byte) (last.get(0) ^ 0xFF)).rewind();
+            channel.write(last, channel.size() - 1);
+        }
+
+        MemoryTodoStore reopened = open(false);
+
+        assertThat(Files.size(log)).isEqualTo(complete);
+        assertThat(reopened.findAll()).extracting(Todo::getId).containsExactly(first.getId());
+        assertThat(reopened.findById(second.getId())).isEmpty();
+        assertRecoveredStoreAcceptsWrites(reopened, reopened.findById(first.getId()).orElseThrow());
+    }
+
+    /**
+     * 截断后的日志可以继续追加，之后再次重启时截断前后的记录都能重放
+     */
+    private void assertRecoveredStoreAcceptsWrites(MemoryTodoStore store, Todo recovered) throws IOException {
+        recovered.setCompleted(true);
+        store.save(recovered);
+        Todo created = store.save(todo("恢复后新建", null, null));
+        List<Todo> before = store.findAll();
+        close(store);
+
+        MemoryTodoStore reopened = open(false);
+        assertThat(reopened.findAll()).usingRecursiveFieldByFieldElementComparator().isEqualTo(before);
+        assertThat(reopened.findById(created.getId())).isPresent();
+    }
+
+    private MemoryTodoStore open(boolean snapshotOnShutdown) throws IOException {
+        MemoryTodoStore store = new MemoryTodoStore(directory.toString(), snapshotOnShutdown);
+        store.afterPropertiesSet();
+        opened.add(store);
+        return store;
+    }
+
+    private void close(MemoryTodoStore store) throws IOException {
+        opened.remove(store);
+        store.destroy();
+    }
+
+    private Path currentLog() throws IOException {
+        List<Long> sequences = WriteAheadLog.sequences(directory);
+        return StoreFiles.path(directory, WriteAheadLog.PREFIX, sequences.get(sequences.size() - 1), WriteAheadLog.SUFFIX);
+    }
+
+    private static Todo todo(String content, String description, Integer priority) {
+        Todo todo = new Todo(content, description);
+        todo.setPriority(priority);
+        return todo;
+    }
+}
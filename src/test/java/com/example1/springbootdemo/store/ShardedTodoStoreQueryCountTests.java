@@ -0,0 +1,37 @@
+package com.example1.springbootdemo.store;
+
+import com.example1.springbootdemo.querylog.RequestQueries;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 分片并行查询时，虚拟线程上各分片执行的语句计入发起查询的请求
+ */
+@SpringBootTest(properties = {
+        "todo.sharding.shards[0].url=jdbc:h2:mem:count-shard-0;DB_CLOSE_DELAY=-1",
+        "todo.sharding.shards[1].url=jdbc:h2:mem:count-shard-1;DB_CLOSE_DELAY=-1",
+        "todo.sharding.shards[2].url=jdbc:h2:mem:count-shard-2;DB_CLOSE_DELAY=-1"
+})
+@ActiveProfiles("shards")
+class ShardedTodoStoreQueryCountTests {
+
+    @Autowired
+    private TodoStore todoStore;
+
+    @Test
+    void statementsOnEveryShardCountTowardsTheRequest() {
+        RequestQueries queries = RequestQueries.begin("GET /api/todos/stats");
+        try {
+            todoStore.countGroupByCompletedAndPriority();
+        } finally {
+            RequestQueries.end();
+        }
+
+        assertThat(queries.getStatements()).isEqualTo(3);
+        assertThat(RequestQueries.current()).isNull();
+    }
+}
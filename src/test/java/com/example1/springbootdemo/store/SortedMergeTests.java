@@ -0,0 +1,93 @@
+package com.example1.springbootdemo.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SortedMergeTests {
+
+    /**
+     * 与分片查询相同：按排序键，相同时按ID
+     */
+    private static final Comparator<Item> BY_KEY_THEN_ID = Comparator.comparingInt(Item::key).thenComparingLong(Item::id);
+
+    @Test
+    void tiesAcrossSourcesAreOrderedByTieBreaker() {
+        List<List<Item>> shards = List.of(
+                List.of(new Item(1, 1), new Item(2, 4), new Item(2, 7), new Item(5, 2)),
+                List.of(new Item(1, 3), new Item(2, 2), new Item(2, 5)),
+                List.of(new Item(2, 6), new Item(5, 1), new Item(5, 8)));
+
+        List<Item> merged = SortedMerge.merge(shards, BY_KEY_THEN_ID, 0, Integer.MAX_VALUE);
+
+        assertThat(merged).isEqualTo(sortedUnion(shards, BY_KEY_THEN_ID));
+        assertThat(merged).extracting(Item::id).containsExactly(1L, 3L, 2L, 4L, 5L, 6L, 7L, 1L, 2L, 8L);
+    }
+
+    @Test
+    void equalElementsAreAllKept() {
+        Comparator<Item> byKey = Comparator.comparingInt(Item::key);
+        List<List<Item>> shards = List.of(
+                List.of(new Item(1, 1), new Item(1, 2)),
+                List.of(new Item(1, 3)),
+                List.of(new Item(0, 4), new Item(1, 5)));
+
+        List<Item> merged = SortedMerge.merge(shards, byKey, 0, Integer.MAX_VALUE);
+
+        assertThat(merged).hasSize(5).isSortedAccordingTo(byKey);
+        assertThat(merged).extracting(Item::id).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L);
+        assertThat(merged.get(0).id()).isEqualTo(4L);
+    }
+
+    @Test
+    void reversedComparatorMergesDescendingSources() {
+        Comparator<Item> descending = BY_KEY_THEN_ID.reversed();
+        List<List<Item>> shards = List.of(
+                List.of(new Item(3, 9), new Item(3, 2), new Item(1, 1)),
+                List.of(new Item(3, 5), new Item(2, 4)));
+
+        assertThat(SortedMerge.merge(shards, descending, 0, Integer.MAX_VALUE)).extracting(Item::id)
+                .containsExactly(9L, 5L, 2L, 4L, 1L);
+    }
+
+    @Test
+    void skipAndLimitApplyToMergedOrder() {
+        List<List<Item>> shards = List.of(
+                List.of(new Item(1, 1), new Item(1, 4), new Item(2, 7)),
+                List.of(new Item(1, 2), new Item(1, 5)),
+                List.of(new Item(1, 3), new Item(1, 6)));
+
+        assertThat(SortedMerge.merge(shards, BY_KEY_THEN_ID, 2, 3)).extracting(Item::id).containsExactly(3L, 4L, 5L);
+        assertThat(SortedMerge.merge(shards, BY_KEY_THEN_ID, 5, 10)).extracting(Item::id).containsExactly(6L, 7L);
+        assertThat(SortedMerge.merge(shards, BY_KEY_THEN_ID, 7, 10)).isEmpty();
+        assertThat(SortedMerge.merge(shards, BY_KEY_THEN_ID, 0, 0)).isEmpty();
+    }
+
+    @Test
+    void emptySourcesAreIgnored() {
+        List<List<Item>> shards = List.of(List.of(), List.of(new Item(1, 1)), List.of());
+
+        assertThat(SortedMerge.merge(shards, BY_KEY_THEN_ID, 0, 10)).containsExactly(new Item(1, 1));
+        assertThat(SortedMerge.merge(List.of(), BY_KEY_THEN_ID, 0, 10)).isEmpty();
+
+        SortedMerge<Item> exhausted = new SortedMerge<>(List.of(List.<Item>of().iterator()), BY_KEY_THEN_ID);
+        assertThat(exhausted.hasNext()).isFalse();
+        assertThatThrownBy(exhausted::next).isInstanceOf(NoSuchElementException.class);
+    }
+
+    private static List<Item> sortedUnion(List<List<Item>> lists, Comparator<Item> comparator) {
+        List<Item> all = new ArrayList<>();
+        lists.forEach(all::addAll);
+        all.sort(comparator);
+        return all;
+    }
+
+    private record Item(int key, long id) {
+    }
+}
@@ -0,0 +1,249 @@
+package com.example1.springbootdemo.wire;
+
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.MessageOptions;
+import com.google.protobuf.DescriptorProtos.OneofDescriptorProto;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 由对外发布的 static/schema/todo.proto 构建的消息描述，用来以DynamicMessage读写Protobuf，
+ * 与客户端用protoc生成的代码看到的字段编号和类型相同，不经过TodoProtobuf的手写编解码。
+ *
+ * 只解析todo.proto用到的语法：message（可嵌套）、optional/repeated标量和消息字段、map字段
+ */
+public final class TodoProtoSchema {
+
+    private static final Pattern TOKEN = Pattern.compile("\"[^\"]*\"|[A-Za-z_][\\w.]*|\\d+|[{}<>=;,]");
+
+    private static final Map<String, FieldDescriptorProto.Type> SCALARS = Map.of(
+            "int32", FieldDescriptorProto.Type.TYPE_INT32,
+            "int64", FieldDescriptorProto.Type.TYPE_INT64,
+            "bool", FieldDescriptorProto.Type.TYPE_BOOL,
+            "string", FieldDescriptorProto.Type.TYPE_STRING);
+
+    private static final Descriptors.FileDescriptor FILE = load();
+
+    private final List<String> tokens;
+    private int position;
+
+    private TodoProtoSchema(List<String> tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * @param name 消息名称，嵌套消息为 外层.内层
+     */
+    public static Descriptors.Descriptor message(String name) {
+        String[] path = name.split("\\.");
+        Descriptors.Descriptor descriptor = FILE.findMessageTypeByName(path[0]);
+        for (int i = 1; i < path.length && descriptor != null; i++) {
+            descriptor = descriptor.findNestedTypeByName(path[i]);
+        }
+        assertThat(descriptor).as("todo.proto中的消息 %s", name).isNotNull();
+        return descriptor;
+    }
+
+    /**
+     * 按todo.proto解析，并检查整个消息（含嵌套消息）没有未知字段：
+     * 编号不在协议中或线路类型与协议声明的类型不符的字段都会成为未知字段
+     */
+    public static DynamicMessage parse(String name, byte[] bytes) {
+        try {
+            DynamicMessage message = DynamicMessage.parseFrom(message(name), bytes);
+            assertNoUnknownFields(message, name);
+            return message;
+        } catch (InvalidProtocolBufferException e) {
+            throw new AssertionError("不是合法的 " + name + " 消息", e);
+        }
+    }
+
+    public static DynamicMessage.Builder builder(String name) {
+        return DynamicMessage.newBuilder(message(name));
+    }
+
+    /**
+     * 读取字段，未出现时为null
+     */
+    public static Object get(Message message, String field) {
+        Descriptors.FieldDescriptor descriptor = message.getDescriptorForType().findFieldByName(field);
+        assertThat(descriptor).as("%s.%s", message.getDescriptorForType().getName(), field).isNotNull();
+        if (descriptor.isRepeated()) {
+            return message.getField(descriptor);
+        }
+        return message.hasField(descriptor) || !descriptor.hasPresence() ? message.getField(descriptor) : null;
+    }
+
+    /**
+     * 读取map字段，map中的值为嵌套消息或字符串
+     */
+    public static Map<String, Object> getMap(Message message, String field) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Object entry : (List<?>) get(message, field)) {
+            Message entryMessage = (Message) entry;
+            result.put((String) get(entryMessage, "key"), get(entryMessage, "value"));
+        }
+        return result;
+    }
+
+    private static void assertNoUnknownFields(Message message, String path) {
+        assertThat(message.getUnknownFields().asMap()).as("%s 中不在todo.proto里的字段", path).isEmpty();
+        message.getAllFields().forEach((field, value) -> {
+            if (field.getJavaType() != Descriptors.FieldDescriptor.JavaType.MESSAGE) {
+                return;
+            }
+            for (Object nested : field.isRepeated() ? (List<?>) value : List.of(value)) {
+                assertNoUnknownFields((Message) nested, path + "." + field.getName());
+            }
+        });
+    }
+
+    private static Descriptors.FileDescriptor load() {
+        String text;
+        try {
+            text = new ClassPathResource("static/schema/todo.proto").getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(text.replaceAll("//[^\\n]*", ""));
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        try {
+            return Descriptors.FileDescriptor.buildFrom(new TodoProtoSchema(tokens).file(),
+                    new Descriptors.FileDescriptor[0]);
+        } catch (Descriptors.DescriptorValidationException e) {
+            throw new IllegalStateException("todo.proto无效", e);
+        }
+    }
+
+    private FileDescriptorProto file() {
+        FileDescriptorProto.Builder file = FileDescriptorProto.newBuilder().setName("todo.proto");
+        while (position < tokens.size()) {
+            String keyword = next();
+            switch (keyword) {
+                case "syntax" -> {
+                    expect("=");
+                    file.setSyntax(next().replace("\"", ""));
+                    expect(";");
+                }
+                case "package" -> {
+                    file.setPackage(next());
+                    expect(";");
+                }
+                case "option" -> skipTo(";");
+                case "message" -> file.addMessageType(message());
+                default -> throw new IllegalStateException("todo.proto中不支持的语法: " + keyword);
+            }
+        }
+        return file.build();
+    }
+
+    private DescriptorProto message() {
+        DescriptorProto.Builder message = DescriptorProto.newBuilder().setName(next());
+        expect("{");
+        for (String token = next(); !token.equals("}"); token = next()) {
+            if (token.equals("message")) {
+                message.addNestedType(message());
+                continue;
+            }
+            FieldDescriptorProto.Builder field = FieldDescriptorProto.newBuilder()
+                    .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL);
+            boolean optional = false;
+            if (token.equals("optional")) {
+                optional = true;
+                token = next();
+            } else if (token.equals("repeated")) {
+                field.setLabel(FieldDescriptorProto.Label.LABEL_REPEATED);
+                token = next();
+            }
+            if (token.equals("map")) {
+                expect("<");
+                String keyType = next();
+                expect(",");
+                String valueType = next();
+                expect(">");
+                String name = next();
+                String entryName = entryName(name);
+                message.addNestedType(DescriptorProto.newBuilder()
+                        .setName(entryName)
+                        .setOptions(MessageOptions.newBuilder().setMapEntry(true))
+                        .addField(type(FieldDescriptorProto.newBuilder(), keyType).setName("key").setNumber(1)
+                                .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL))
+                        .addField(type(FieldDescriptorProto.newBuilder(), valueType).setName("value").setNumber(2)
+                                .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL)));
+                field.setLabel(FieldDescriptorProto.Label.LABEL_REPEATED)
+                        .setType(FieldDescriptorProto.Type.TYPE_MESSAGE)
+                        .setTypeName(entryName)
+                        .setName(name);
+            } else {
+                type(field, token).setName(next());
+            }
+            expect("=");
+            field.setNumber(Integer.parseInt(next()));
+            expect(";");
+            if (optional) {
+                // proto3的optional字段在描述中是只有一个字段的合成oneof
+                field.setProto3Optional(true).setOneofIndex(message.getOneofDeclCount());
+                message.addOneofDecl(OneofDescriptorProto.newBuilder().setName("_" + field.getName()));
+            }
+            message.addField(field);
+        }
+        return message.build();
+    }
+
+    private static FieldDescriptorProto.Builder type(FieldDescriptorProto.Builder field, String type) {
+        FieldDescriptorProto.Type scalar = SCALARS.get(type);
+        return scalar != null ? field.setType(scalar)
+                : field.setType(FieldDescriptorProto.Type.TYPE_MESSAGE).setTypeName(type);
+    }
+
+    /**
+     * map字段对应的条目消息名称，与protoc相同：by_priority -> ByPriorityEntry
+     */
+    private static String entryName(String field) {
+        StringBuilder name = new StringBuilder();
+        for (String part : field.split("_")) {
+            name.append(Character.toUpperCase(part.charAt(0))).append(part.substring(1));
+        }
+        return name.append("Entry").toString();
+    }
+
+    private String next() {
+        if (position == tokens.size()) {
+            throw new IllegalStateException("todo.proto意外结束");
+        }
+        return tokens.get(position++);
+    }
+
+    private void expect(String token) {
+        String actual = next();
+        if (!actual.equals(token)) {
+            throw new IllegalStateException("todo.proto中应为 " + token + "，实际为 " + actual);
+        }
+    }
+
+    private void skipTo(String token) {
+        while (!next().equals(token)) {
+            // 跳过option的值
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example1.springbootdemo.wire;
+
+import com.example1.springbootdemo.dto.TodoChanges;
+import com.example1.springbootdemo.dto.TodoDeleteResponse;
+import com.example1.springbootdemo.dto.TodoField;
+import com.example1.springbootdemo.dto.TodoListResponse;
+import com.example1.springbootdemo.dto.TodoPageResponse;
+import com.example1.springbootdemo.dto.TodoRequest;
+import com.example1.springbootdemo.dto.TodoResponse;
+import com.example1.springbootdemo.dto.TodoSearchResponse;
+import com.example1.springbootdemo.dto.TodoStats;
+import com.example1.springbootdemo.dto.TodoUpdateRequest;
+import com.example1.springbootdemo.dto.TodoView;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.Message;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.example1.springbootdemo.wire.TodoProtoSchema.get;
+import static com.example1.springbootdemo.wire.TodoProtoSchema.getMap;
+import static com.example1.springbootdemo.wire.TodoProtoSchema.parse;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TodoProtobuf的编解码与对外发布的todo.proto一致：编码结果按todo.proto解析，请求按todo.proto构造后解码
+ */
+class TodoProtobufSchemaTests {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2026, 3, 1, 9, 30, 15);
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2026, 3, 2, 18, 0, 0, 123_000_000);
+
+    private static final TodoView TODO = new TodoView(1L << 40, "写周报", "周五之前", true, 3, CREATED, UPDATED, 7L,
+            TodoField.ALL);
+
+    @Test
+    void todoFieldsMatchSchemaNumbersAndTypes() {
+        Descriptors.Descriptor schema = TodoProtoSchema.message("Todo");
+        for (TodoField field : TodoField.values()) {
+            assertThat(schema.findFieldByName(field.getColumn())).as(field.name())
+                    .extracting(Descriptors.FieldDescriptor::getNumber).isEqualTo(field.ordinal() + 1);
+        }
+        assertThat(schema.getFields()).hasSize(TodoField.values().length);
+
+        DynamicMessage todo = parse("Todo", TodoProtobuf.toByteArray(TODO));
+
+        assertTodo(todo);
+    }
+
+    @Test
+    void unselectedAndNullFieldsAreAbsent() {
+        TodoView view = new TodoView(5L, "只有部分字段", null, false, null, CREATED, UPDATED, 1L, TodoField.SUMMARY);
+
+        DynamicMessage todo = parse("Todo", TodoProtobuf.toByteArray(view));
+
+        assertThat(get(todo, "id")).isEqualTo(5L);
+        assertThat(get(todo, "completed")).isEqualTo(false);
+        assertThat(get(todo, "description")).isNull();
+        assertThat(get(todo, "priority")).isNull();
+        assertThat(get(todo, "version")).isNull();
+    }
+
+    @Test
+    void singleTodoAndPartialUpdateResponses() {
+        DynamicMessage response = parse("TodoResponse",
+                TodoProtobuf.toByteArray(new TodoResponse<>(true, "获取成功", TODO)));
+        assertThat(get(response, "success")).isEqualTo(true);
+        assertThat(get(response, "message")).isEqualTo("获取成功");
+        assertTodo((Message) get(response, "data"));
+
+        TodoChanges changes = TodoChanges.of(9L, Map.of("priority", 1), UPDATED, 4L);
+        DynamicMessage partial = parse("TodoResponse",
+                TodoProtobuf.toByteArray(new TodoResponse<>(true, "更新成功", changes.changes())));
+        Message data = (Message) get(partial, "data");
+        assertThat(data.getAllFields().keySet()).extracting(Descriptors.FieldDescriptor::getName)
+                .containsExactlyInAnyOrder("id", "priority", "update_time", "version");
+        assertThat(get(data, "update_time")).isEqualTo("2026-03-02T18:00:00.123");
+    }
+
+    @Test
+    void listPageAndSearchResponses() {
+        TodoView second = new TodoView(2L, "第二条", null, false, 1, CREATED, UPDATED, null, TodoField.SUMMARY);
+
+        DynamicMessage list = parse("TodoListResponse",
+                TodoProtobuf.toByteArray(new TodoListResponse(true, "获取成功", List.of(TODO, second), 2)));
+        assertThat((List<?>) get(list, "data")).hasSize(2);
+        assertTodo((Message) ((List<?>) get(list, "data")).get(0));
+        assertThat(get(list, "total")).isEqualTo(2);
+
+        DynamicMessage page = parse("TodoPageResponse", TodoProtobuf.toByteArray(
+                new TodoPageResponse(true, "获取成功", List.of(second), 1, "Y3Vyc29y", true)));
+        assertThat(get(page, "size")).isEqualTo(1);
+        assertThat(get(page, "next_cursor")).isEqualTo("Y3Vyc29y");
+        assertThat(get(page, "has_more")).isEqualTo(true);
+
+        DynamicMessage lastPage = parse("TodoPageResponse", TodoProtobuf.toByteArray(
+                new TodoPageResponse(true, "获取成功", List.of(), 0, null, false)));
+        assertThat(get(lastPage, "next_cursor")).isNull();
+        assertThat(get(lastPage, "has_more")).isEqualTo(false);
+
+        DynamicMessage search = parse("TodoSearchResponse", TodoProtobuf.toByteArray(
+                new TodoSearchResponse(true, "搜索成功", List.of(second), 3_000_000_000L, 2, 10)));
+        assertThat(get(search, "total")).isEqualTo(3_000_000_000L);
+        assertThat(get(search, "page")).isEqualTo(2);
+        assertThat(get(search, "size")).isEqualTo(10);
+    }
+
+    @Test
+    void statsDeleteAndErrorResponses() {
+        Map<String, TodoStats.PriorityCount> byPriority = new LinkedHashMap<>();
+        byPriority.put("1", new TodoStats.PriorityCount(2, 3));
+        byPriority.put("none", new TodoStats.PriorityCount(0, 1));
+        DynamicMessage stats = parse("TodoStatsResponse", TodoProtobuf.toByteArray(
+                new TodoResponse<>(true, "获取成功", new TodoStats(6, 2, 4, byPriority))));
+        Message data = (Message) get(stats, "data");
+        assertThat(get(data, "total")).isEqualTo(6L);
+        assertThat(get(data, "completed")).isEqualTo(2L);
+        assertThat(get(data, "incomplete")).isEqualTo(4L);
+        Map<String, Object> counts = getMap(data, "by_priority");
+        assertThat(counts).containsOnlyKeys("1", "none");
+        assertThat(get((Message) counts.get("1"), "total")).isEqualTo(5L);
+        assertThat(get((Message) counts.get("1"), "completed")).isEqualTo(2L);
+        assertThat(get((Message) counts.get("none"), "incomplete")).isEqualTo(1L);
+
+        DynamicMessage deleted = parse("TodoDeleteResponse",
+                TodoProtobuf.toByteArray(new TodoDeleteResponse(true, "删除成功", 12)));
+        assertThat(get(deleted, "deleted_count")).isEqualTo(12);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", false);
+        body.put("message", "参数校验失败");
+        body.put("error", "VALIDATION_FAILED");
+        body.put("errors", Map.of("content", "不能为空"));
+        DynamicMessage error = parse("ErrorResponse", TodoProtobuf.toByteArray(body));
+        assertThat(get(error, "success")).isEqualTo(false);
+        assertThat(get(error, "error")).isEqualTo("VALIDATION_FAILED");
+        assertThat(getMap(error, "errors")).containsExactly(Map.entry("content", "不能为空"));
+    }
+
+    @Test
+    void requestsBuiltFromSchemaAreDecoded() throws IOException {
+        byte[] create = TodoProtoSchema.builder("TodoRequest")
+                .setField(field("TodoRequest", "content"), "按协议创建")
+                .setField(field("TodoRequest", "description"), "描述")
+                .setField(field("TodoRequest", "priority"), 2)
+                .build().toByteArray();
+        TodoRequest request = TodoProtobuf.read(new ByteArrayInputStream(create), TodoRequest.class);
+        assertThat(request.getContent()).isEqualTo("按协议创建");
+        assertThat(request.getDescription()).isEqualTo("描述");
+        assertThat(request.getPriority()).isEqualTo(2);
+
+        byte[] update = TodoProtoSchema.builder("TodoUpdateRequest")
+                .setField(field("TodoUpdateRequest", "priority"), 5)
+                .setField(field("TodoUpdateRequest", "completed"), false)
+                .build().toByteArray();
+        TodoUpdateRequest changes = TodoProtobuf.read(new ByteArrayInputStream(update), TodoUpdateRequest.class);
+        assertThat(changes.getContent()).isNull();
+        assertThat(changes.getPriority()).isEqualTo(5);
+        // proto3 optional字段取默认值时也写出，false与未出现不同
+        assertThat(changes.getCompleted()).isFalse();
+
+        byte[] todo = TodoProtoSchema.builder("Todo")
+                .setField(field("Todo", "id"), 3L)
+                .setField(field("Todo", "create_time"), "2026-03-01T09:30:15")
+                .build().toByteArray();
+        TodoView view = TodoProtobuf.read(new ByteArrayInputStream(todo), TodoView.class);
+        assertThat(view.fields()).isEqualTo(Set.of(TodoField.ID, TodoField.CREATE_TIME));
+        assertThat(view.createTime()).isEqualTo(CREATED);
+    }
+
+    private static void assertTodo(Message todo) {
+        assertThat(get(todo, "id")).isEqualTo(1L << 40);
+        assertThat(get(todo, "content")).isEqualTo("写周报");
+        assertThat(get(todo, "description")).isEqualTo("周五之前");
+        assertThat(get(todo, "completed")).isEqualTo(true);
+        assertThat(get(todo, "priority")).isEqualTo(3);
+        assertThat(get(todo, "create_time")).isEqualTo("2026-03-01T09:30:15");
+        assertThat(get(todo, "update_time")).isEqualTo("2026-03-02T18:00:00.123");
+        assertThat(get(todo, "version")).isEqualTo(7L);
+    }
+
+    private static Descriptors.FieldDescriptor field(String message, String name) {
+        return TodoProtoSchema.message(message).findFieldByName(name);
+    }
+}